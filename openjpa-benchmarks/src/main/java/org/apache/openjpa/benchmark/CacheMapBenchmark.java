@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Contention on the backing map of the data and query caches: a read-mostly
+ * mix of gets and puts from many threads against a {@link CacheMap} and a
+ * {@link StripedCacheMap}. The key space is twice the cache size so that
+ * puts keep evicting. Override the thread count with <code>-t</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(8)
+public class CacheMapBenchmark {
+
+    private static final int SIZE = 10000;
+    private static final int KEYS = SIZE * 2;
+
+    /**
+     * Number of lock stripes; 0 is a plain {@link CacheMap}.
+     */
+    @Param({ "0", "64" })
+    public int stripes;
+
+    @Param({ "false", "true" })
+    public boolean lru;
+
+    private CacheMap _map;
+    private Integer[] _keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        _map = (stripes > 1) ? new StripedCacheMap(lru, SIZE, stripes)
+            : new CacheMap(lru, SIZE);
+        _keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++)
+            _keys[i] = i;
+        for (int i = 0; i < SIZE; i++)
+            _map.put(_keys[i], "value-" + i);
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams thread) {
+            random = new SplittableRandom(PersistenceState.SEED
+                + thread.getThreadIndex());
+        }
+    }
+
+    /**
+     * 90% gets, 10% puts.
+     */
+    @Benchmark
+    public Object readMostly(Keys keys) {
+        int r = keys.random.nextInt(KEYS * 10);
+        Integer key = _keys[r % KEYS];
+        if (r < KEYS)
+            return _map.put(key, key);
+        return _map.get(key);
+    }
+
+    @Benchmark
+    public Object readOnly(Keys keys) {
+        return _map.get(_keys[keys.random.nextInt(KEYS)]);
+    }
+}
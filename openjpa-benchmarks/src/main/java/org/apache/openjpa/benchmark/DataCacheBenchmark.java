@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.model.BenchItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * <code>EntityManager.find</code> served from a warm data cache. Each
+ * operation misses the persistence context and hits the L2 cache, so the
+ * result is dominated by the cache lookup and the copy of the cached
+ * PCData into a new instance. Run with <code>-t</code> to measure the
+ * cache under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DataCacheBenchmark
+    extends PersistenceState {
+
+    /**
+     * Number of lock stripes of the data cache map; 0 is a single map.
+     */
+    @Param({ "0", "16" })
+    public int stripes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        open();
+
+        // warm the cache with every item
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (long id = 0; id < ITEMS; id++)
+                em.find(BenchItem.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        close();
+    }
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.DataCache", "true(CacheSize=" + (ITEMS * 2)
+            + ", Stripes=" + stripes + ")");
+        props.put("openjpa.RemoteCommitProvider", "sjvm");
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadSession {
+
+        Session session;
+
+        @Setup(Level.Trial)
+        public void setUp(DataCacheBenchmark bench, ThreadParams thread) {
+            session = new Session(bench, thread.getThreadIndex());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.close();
+        }
+    }
+
+    @Benchmark
+    public BenchItem cachedFind(ThreadSession ts) {
+        Session s = ts.session;
+        BenchItem item = s.em.find(BenchItem.class, s.nextId(ITEMS));
+        s.em.clear();
+        return item;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmark.model.BenchItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Field reads and writes through the accessors the PCEnhancer weaves into
+ * the benchmark model: on a managed instance, where every access is
+ * mediated by the state manager, and on a new instance that has none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FieldAccessBenchmark
+    extends PersistenceState {
+
+    private Session _session;
+    private BenchItem _managed;
+    private BenchItem _transient;
+    private int _counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        open();
+        _session = new Session(this, 0);
+        _session.em.getTransaction().begin();
+        _managed = _session.em.find(BenchItem.class, 1L);
+        _transient = newItem(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _session.close();
+        close();
+    }
+
+    @Benchmark
+    public String readManaged() {
+        return _managed.getName();
+    }
+
+    @Benchmark
+    public String readTransient() {
+        return _transient.getName();
+    }
+
+    @Benchmark
+    public void writeManaged() {
+        _managed.setQuantity(_counter++);
+    }
+
+    @Benchmark
+    public void writeTransient() {
+        _transient.setQuantity(_counter++);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.benchmark.model.BenchOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Persist and commit of an order with its items, flushed through the
+ * <code>batching-constraint</code> update manager with statement batching
+ * off and on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FlushBenchmark
+    extends PersistenceState {
+
+    @Param({ "0", "100" })
+    public int batchLimit;
+
+    // ids above the populated range
+    private final AtomicLong _orders = new AtomicLong(ORDERS);
+    private final AtomicLong _items = new AtomicLong(ITEMS);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        close();
+    }
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.jdbc.UpdateManager", "batching-constraint");
+        props.put("openjpa.jdbc.DBDictionary", "batchLimit=" + batchLimit);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadSession {
+
+        Session session;
+
+        @Setup(Level.Trial)
+        public void setUp(FlushBenchmark bench, ThreadParams thread) {
+            session = new Session(bench, thread.getThreadIndex());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.close();
+        }
+    }
+
+    @Benchmark
+    public BenchOrder persistOrder(ThreadSession ts) {
+        Session s = ts.session;
+        BenchOrder order = new BenchOrder(_orders.getAndIncrement(),
+            "customer");
+        for (int i = 0; i < ITEMS_PER_ORDER; i++)
+            order.addItem(newItem(_items.getAndIncrement()));
+
+        s.em.getTransaction().begin();
+        s.em.persist(order);
+        s.em.getTransaction().commit();
+        s.em.clear();
+        return order;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.model.BenchItem;
+import org.apache.openjpa.datacache.DataCache;
+import org.apache.openjpa.datacache.DataCachePCData;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Reads from a warm off-heap data cache. <code>offHeapGet</code> copies the
+ * data of an instance out of its slab and deserializes it, with the class
+ * descriptors written by name. <code>javaSerializationRead</code>
+ * deserializes the same data written by a plain
+ * <code>ObjectOutputStream</code>, the cost the descriptor table avoids.
+ * <code>cachedFind</code> is the whole <code>EntityManager.find</code>
+ * served from the cache, to compare with {@link DataCacheBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OffHeapDataCacheBenchmark
+    extends PersistenceState {
+
+    private DataCache _cache;
+    private Object[] _oids;
+    private byte[][] _serialized;
+
+    @Setup(Level.Trial)
+    public void setUp()
+        throws IOException {
+        open();
+        _cache = OpenJPAPersistence.cast(emf).getConfiguration()
+            .getDataCacheManagerInstance().getSystemDataCache();
+
+        // warm the cache with every item
+        _oids = new Object[ITEMS];
+        _serialized = new byte[ITEMS][];
+        EntityManager em = emf.createEntityManager();
+        try {
+            Broker broker = JPAFacadeHelper.toBroker(em);
+            for (int id = 0; id < ITEMS; id++)
+                _oids[id] = broker.getObjectId(em.find(BenchItem.class,
+                    (long) id));
+        } finally {
+            em.close();
+        }
+        for (int id = 0; id < ITEMS; id++) {
+            DataCachePCData data = _cache.get(_oids[id]);
+            if (data == null)
+                throw new IllegalStateException("item " + id + " not cached");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(data);
+            }
+            _serialized[id] = bytes.toByteArray();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        close();
+    }
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.DataCache", "offheap(MemorySize=64, SlabSize=16)");
+        props.put("openjpa.RemoteCommitProvider", "sjvm");
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadSession {
+
+        Session session;
+
+        @Setup(Level.Trial)
+        public void setUp(OffHeapDataCacheBenchmark bench,
+            ThreadParams thread) {
+            session = new Session(bench, thread.getThreadIndex());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.close();
+        }
+    }
+
+    @Benchmark
+    public Object offHeapGet(ThreadSession ts) {
+        return _cache.get(_oids[(int) ts.session.nextId(ITEMS)]);
+    }
+
+    @Benchmark
+    public Object javaSerializationRead(ThreadSession ts)
+        throws IOException, ClassNotFoundException {
+        byte[] bytes = _serialized[(int) ts.session.nextId(ITEMS)];
+        try (ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public BenchItem cachedFind(ThreadSession ts) {
+        Session s = ts.session;
+        BenchItem item = s.em.find(BenchItem.class, s.nextId(ITEMS));
+        s.em.clear();
+        return item;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.apache.openjpa.benchmark.model.BenchItem;
+import org.apache.openjpa.benchmark.model.BenchOrder;
+
+/**
+ * Base class for benchmark states that need a populated database. Every
+ * trial gets its own in-memory Derby database filled with the same
+ * deterministic data set of {@link #ORDERS} orders with
+ * {@link #ITEMS_PER_ORDER} items each, so that runs are comparable.
+ */
+public abstract class PersistenceState {
+
+    public static final String UNIT = "benchmark";
+    public static final int ORDERS = 1000;
+    public static final int ITEMS_PER_ORDER = 10;
+    public static final int ITEMS = ORDERS * ITEMS_PER_ORDER;
+
+    /**
+     * Fixed seed for the id sequences the benchmarks walk through.
+     */
+    public static final long SEED = 42L;
+
+    private static final AtomicInteger _databases = new AtomicInteger();
+    private static final Date EPOCH = new Date(1262304000000L);
+
+    protected EntityManagerFactory emf;
+    private String _url;
+
+    /**
+     * Create the factory and populate the database.
+     */
+    protected void open() {
+        _url = "jdbc:derby:memory:openjpa-bench-"
+            + _databases.incrementAndGet();
+        Map<String, Object> props = new HashMap<>();
+        props.put("openjpa.ConnectionDriverName",
+            "org.apache.derby.jdbc.EmbeddedDriver");
+        props.put("openjpa.ConnectionURL", _url + ";create=true");
+        props.put("openjpa.jdbc.SynchronizeMappings",
+            "buildSchema(ForeignKeys=true)");
+        // keep connection setup out of the measured paths
+        props.put("openjpa.ConnectionRetainMode", "always");
+        props.put("openjpa.Log", "DefaultLevel=WARN");
+        props.put("openjpa.RuntimeUnenhancedClasses", "unsupported");
+        props.put("openjpa.DynamicEnhancementAgent", "false");
+        configure(props);
+        emf = Persistence.createEntityManagerFactory(UNIT, props);
+        populate();
+    }
+
+    /**
+     * Add the benchmark specific configuration.
+     */
+    protected void configure(Map<String, Object> props) {
+    }
+
+    /**
+     * Close the factory and drop the database.
+     */
+    protected void close() {
+        if (emf != null)
+            emf.close();
+        emf = null;
+        try {
+            DriverManager.getConnection(_url + ";drop=true");
+        } catch (SQLException se) {
+            // derby reports a successful drop as an exception
+        }
+    }
+
+    private void populate() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            long item = 0;
+            for (long o = 0; o < ORDERS; o++) {
+                BenchOrder order = new BenchOrder(o, "customer-" + (o % 97));
+                for (int i = 0; i < ITEMS_PER_ORDER; i++, item++)
+                    order.addItem(newItem(item));
+                em.persist(order);
+                if (o % 100 == 99) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Create the item with the given id. Field values only depend on the id.
+     */
+    public static BenchItem newItem(long id) {
+        return new BenchItem(id, "item-" + id, (int) (id % 13),
+            (id % 1000) / 10D, new Date(EPOCH.getTime() + id * 1000L));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.Proxy;
+import org.apache.openjpa.util.ProxyManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Second class object copies and proxy creation in
+ * {@link ProxyManagerImpl}, as done when instances are loaded, detached
+ * and cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProxyBenchmark {
+
+    @Param({ "10", "1000" })
+    public int size;
+
+    private ProxyManagerImpl _mgr;
+    private List<String> _list;
+    private Map<String, Integer> _map;
+    private Date _date;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        _mgr = new ProxyManagerImpl();
+        _list = new ArrayList<>(size);
+        _map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            _list.add("element-" + i);
+            _map.put("key-" + i, i);
+        }
+        _date = new Date(1262304000000L);
+
+        // generate the proxy classes outside of the measurement
+        _mgr.newCollectionProxy(ArrayList.class, String.class, null, true);
+        _mgr.newMapProxy(HashMap.class, String.class, Integer.class, null,
+            true);
+        _mgr.newDateProxy(Date.class);
+    }
+
+    @Benchmark
+    public Collection copyCollection() {
+        return _mgr.copyCollection(_list);
+    }
+
+    @Benchmark
+    public Map copyMap() {
+        return _mgr.copyMap(_map);
+    }
+
+    @Benchmark
+    public Date copyDate() {
+        return _mgr.copyDate(_date);
+    }
+
+    @Benchmark
+    public Proxy newCollectionProxy() {
+        return _mgr.newCollectionProxy(ArrayList.class, String.class, null,
+            true);
+    }
+
+    @Benchmark
+    public Object copyProxiedCollection() {
+        Proxy proxy = _mgr.newCollectionProxy(ArrayList.class, String.class,
+            null, true);
+        ((Collection) proxy).addAll(_list);
+        return proxy.copy(proxy);
+    }
+}
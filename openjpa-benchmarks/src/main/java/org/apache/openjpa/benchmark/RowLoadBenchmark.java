@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmark.model.BenchItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Loading pages of {@link #PAGE} items with their basic fields: through a
+ * JPQL query, and with straight-line JDBC code that reads each column with
+ * its typed getter into a new instance. The JDBC figure is what any reader
+ * generated per mapping could at best get to, so the difference bounds what
+ * skipping the field strategies when loading rows can save.
+ * <br>
+ * Extra configuration, such as an option to compare, is given as
+ * semicolon-separated <code>key=value</code> pairs in the
+ * <code>properties</code> parameter, e.g.
+ * <code>-p properties=openjpa.jdbc.EagerFetchMode=join</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RowLoadBenchmark
+    extends PersistenceState {
+
+    public static final int PAGE = 200;
+
+    private static final String JPQL =
+        "SELECT i FROM BenchItem i WHERE i.id >= :first ORDER BY i.id";
+    private static final String SQL = "SELECT t0.id, t0.created, t0.name, t0.price, "
+        + "t0.quantity, t0.version, t0.ORDER_ID FROM BenchItem t0 WHERE t0.id >= ? ORDER BY t0.id "
+        + "FETCH FIRST " + PAGE + " ROWS ONLY";
+
+    @Param("")
+    public String properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        close();
+    }
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        for (String prop : properties.split(";")) {
+            int eq = prop.indexOf('=');
+            if (eq > 0)
+                props.put(prop.substring(0, eq).trim(), prop.substring(eq + 1).trim());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadSession {
+
+        Session session;
+        Connection connection;
+
+        @Setup(Level.Trial)
+        public void setUp(RowLoadBenchmark bench, ThreadParams thread) {
+            session = new Session(bench, thread.getThreadIndex());
+            connection = session.em.unwrap(Connection.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+            session.close();
+        }
+    }
+
+    @Benchmark
+    public List<BenchItem> openjpa(ThreadSession ts) {
+        Session s = ts.session;
+        List<BenchItem> items = s.em.createQuery(JPQL, BenchItem.class).
+            setParameter("first", s.nextId(ITEMS - PAGE)).setMaxResults(PAGE).
+            getResultList();
+        s.em.clear();
+        return items;
+    }
+
+    @Benchmark
+    public List<BenchItem> jdbc(ThreadSession ts, Blackhole bh)
+        throws SQLException {
+        List<BenchItem> items = new ArrayList<>(PAGE);
+        try (PreparedStatement stmnt = ts.connection.prepareStatement(SQL)) {
+            stmnt.setLong(1, ts.session.nextId(ITEMS - PAGE));
+            try (ResultSet rs = stmnt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new BenchItem(rs.getLong(1), rs.getString(3),
+                        rs.getInt(5), rs.getDouble(4), rs.getTimestamp(2)));
+                    bh.consume(rs.getInt(6));
+                    bh.consume(rs.getLong(7));
+                }
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.SplittableRandom;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Per-thread entity manager together with a deterministic id sequence.
+ */
+public class Session {
+
+    public final EntityManager em;
+    private final SplittableRandom _random;
+
+    public Session(PersistenceState state, int thread) {
+        em = state.emf.createEntityManager();
+        _random = new SplittableRandom(PersistenceState.SEED + thread);
+    }
+
+    /**
+     * Return the next pseudo-random id below the given bound.
+     */
+    public long nextId(int bound) {
+        return _random.nextInt(bound);
+    }
+
+    public void close() {
+        if (em.getTransaction().isActive())
+            em.getTransaction().rollback();
+        em.close();
+    }
+}
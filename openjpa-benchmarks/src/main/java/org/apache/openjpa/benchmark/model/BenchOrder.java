@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Version;
+
+/**
+ * Parent side of the benchmark model.
+ */
+@Entity
+public class BenchOrder {
+
+    @Id
+    private long id;
+
+    private String customer;
+
+    @Version
+    private int version;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.PERSIST)
+    private List<BenchItem> items = new ArrayList<>();
+
+    public BenchOrder() {
+    }
+
+    public BenchOrder(long id, String customer) {
+        this.id = id;
+        this.customer = customer;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(String customer) {
+        this.customer = customer;
+    }
+
+    public List<BenchItem> getItems() {
+        return items;
+    }
+
+    public void addItem(BenchItem item) {
+        items.add(item);
+        item.setOrder(this);
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.openjpa.jdbc.conf;
 
+import java.util.concurrent.Executor;
+
 import javax.sql.DataSource;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -374,6 +376,43 @@ public interface JDBCConfiguration
      */
     void setLRSSize(int size);
 
+    /**
+     * The number of threads that run the separate selects of the
+     * <code>parallel</code> eager fetch mode concurrently, each on a
+     * connection of its own. Defaults to 0, which runs them one after
+     * another on the connection of the context.
+     *
+     * @since 4.1.2
+     */
+    int getEagerFetchThreads();
+
+    /**
+     * The number of threads that run the separate selects of the
+     * <code>parallel</code> eager fetch mode concurrently, each on a
+     * connection of its own.
+     *
+     * @since 4.1.2
+     */
+    void setEagerFetchThreads(int threads);
+
+    /**
+     * Wrapper for JCA usage of {@link #setEagerFetchThreads(int)}.
+     *
+     * @since 4.1.2
+     */
+    void setEagerFetchThreads(Integer threads);
+
+    /**
+     * Return the executor that runs eager selects concurrently, or null if
+     * {@link #getEagerFetchThreads} is 0. The executor throws a
+     * {@link java.util.concurrent.RejectedExecutionException} for selects
+     * that find all its threads busy, or that are submitted after the
+     * configuration is closed; those run on the connection of the store.
+     *
+     * @since 4.1.2
+     */
+    Executor getEagerFetchExecutorInstance();
+
     /**
      * Whether OpenJPA should try to automatically refresh O/R mapping
      * information and the database schema.
@@ -21,6 +21,11 @@ package org.apache.openjpa.jdbc.conf;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -77,6 +82,7 @@ public class JDBCConfigurationImpl
     public FetchModeValue eagerFetchMode;
     public FetchModeValue subclassFetchMode;
     public IntValue lrsSize;
+    public IntValue eagerFetchThreads;
     public StringValue synchronizeMappings;
     public ObjectValue jdbcListenerPlugins;
     public ObjectValue connectionDecoratorPlugins;
@@ -94,6 +100,7 @@ public class JDBCConfigurationImpl
     private String firstPass = null;
     private DecoratingDataSource dataSource = null;
     private DecoratingDataSource dataSource2 = null;
+    private ThreadPoolExecutor eagerFetchExecutor = null;
 
     private static final Localizer _loc = Localizer.forPackage(JDBCConfigurationImpl.class);
 
@@ -188,6 +195,10 @@ public class JDBCConfigurationImpl
         lrsSize.set(LRSSizes.SIZE_QUERY);
         lrsSize.setAliasListComprehensive(true);
 
+        eagerFetchThreads = addInt("jdbc.EagerFetchThreads");
+        eagerFetchThreads.setDefault("0");
+        eagerFetchThreads.set(0);
+
         synchronizeMappings = addString("jdbc.SynchronizeMappings");
         aliases = new String[]{ "false", null };
         synchronizeMappings.setAliases(aliases);
@@ -523,6 +534,43 @@ public class JDBCConfigurationImpl
         return lrsSize.get();
     }
 
+    @Override
+    public int getEagerFetchThreads() {
+        return eagerFetchThreads.get();
+    }
+
+    @Override
+    public void setEagerFetchThreads(int threads) {
+        eagerFetchThreads.set(threads);
+    }
+
+    @Override
+    public void setEagerFetchThreads(Integer threads) {
+        if (threads != null)
+            setEagerFetchThreads(threads.intValue());
+    }
+
+    @Override
+    public synchronized Executor getEagerFetchExecutorInstance() {
+        int threads = getEagerFetchThreads();
+        if (threads <= 0)
+            return null;
+        if (eagerFetchExecutor == null) {
+            // selects that find all threads busy are rejected, so that the
+            // caller runs them on the connection of its store
+            final AtomicInteger count = new AtomicInteger();
+            eagerFetchExecutor = new ThreadPoolExecutor(threads, threads, 60,
+                TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                    Thread thread = new Thread(r, "OpenJPA Eager Fetch-"
+                        + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+            eagerFetchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return eagerFetchExecutor;
+    }
+
     @Override
     public void setSynchronizeMappings(String synchronizeMappings) {
         this.synchronizeMappings.set(synchronizeMappings);
@@ -1031,6 +1079,10 @@ public class JDBCConfigurationImpl
      */
     @Override
     protected void preClose() {
+        synchronized (this) {
+            if (eagerFetchExecutor != null)
+                eagerFetchExecutor.shutdown();
+        }
         if (dataSource != null) {
             getDBDictionaryInstance().closeDataSource(dataSource);
             connectionFactory.set(null, true); // so super doesn't close it
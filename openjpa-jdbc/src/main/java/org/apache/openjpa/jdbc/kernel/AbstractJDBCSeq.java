@@ -20,6 +20,11 @@ package org.apache.openjpa.jdbc.kernel;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -46,6 +51,8 @@ public abstract class AbstractJDBCSeq
     protected int type = TYPE_DEFAULT;
     protected Object current = null;
 
+    private ExecutorService _prefetcher = null;
+
     /**
      * Records the sequence type.
      */
@@ -106,10 +113,40 @@ public abstract class AbstractJDBCSeq
     }
 
     /**
-     * No-op.
+     * Stops the thread that reserves sequence values in the background, if
+     * any.
      */
     @Override
     public void close() {
+        ExecutorService prefetcher;
+        synchronized (this) {
+            prefetcher = _prefetcher;
+            _prefetcher = null;
+        }
+        if (prefetcher != null)
+            prefetcher.shutdown();
+    }
+
+    /**
+     * Return the executor that reserves sequence values in the background
+     * for a {@link SeqBuffer}. It runs on at most one daemon thread, which
+     * ends when it has been idle for a minute.
+     *
+     * @since 4.1.2
+     */
+    protected synchronized Executor getPrefetchExecutor() {
+        if (_prefetcher == null) {
+            final String name = "OpenJPA Sequence Prefetch " + getClass().getSimpleName();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            _prefetcher = pool;
+        }
+        return _prefetcher;
     }
 
     /**
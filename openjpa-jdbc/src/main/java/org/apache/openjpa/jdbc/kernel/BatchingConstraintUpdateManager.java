@@ -20,10 +20,22 @@ package org.apache.openjpa.jdbc.kernel;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.jdbc.sql.RowImpl;
 
 import org.apache.openjpa.jdbc.sql.RowManager;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
+import org.apache.openjpa.lib.graph.Edge;
+import org.apache.openjpa.lib.graph.Graph;
 import org.apache.openjpa.util.OpenJPAException;
 
 /**
@@ -38,6 +50,10 @@ import org.apache.openjpa.util.OpenJPAException;
  *   < property name="openjpa.jdbc.UpdateManager"
  *     value="org.apache.openjpa.jdbc.kernel.YourOperationOrderUpdateManager" />
  * </PRE></P>
+ * <P>Rows with foreign key dependencies on each other are flushed grouped by
+ * table and operation as far as the dependencies allow, so that rows sharing
+ * the same SQL are batched together instead of alternating between
+ * statements.</P>
  * @author Teresa Kan
  */
 
@@ -51,6 +67,91 @@ public class BatchingConstraintUpdateManager extends ConstraintUpdateManager {
             batchLimit);
     }
 
+    /**
+     * Reorder the rows of the graph so that rows for the same table and
+     * operation are adjacent wherever the foreign key dependencies allow.
+     * Rows are taken from the current group until none of its rows is
+     * ready; the next group is the one of the earliest ready row in the
+     * given order. If the graph still contains a cycle, the given order is
+     * kept.
+     */
+    @Override
+    protected Collection orderNodes(Graph graph, List nodes) {
+        int size = nodes.size();
+        if (size < 3)
+            return nodes;
+
+        Map<Object, Integer> index = new IdentityHashMap<>(size * 2);
+        for (Object node : nodes)
+            index.put(node, index.size());
+
+        // a row can only be flushed once all rows it points to are flushed;
+        // remember the rows pointing to each row to release them in turn
+        int[] pending = new int[size];
+        List<Integer>[] dependents = new List[size];
+        for (int i = 0; i < size; i++) {
+            Object node = nodes.get(i);
+            for (Edge edge : graph.getEdgesFrom(node)) {
+                Integer to = index.get(edge.getTo());
+                if (to == null || to == i)
+                    continue;
+                pending[i]++;
+                if (dependents[to] == null)
+                    dependents[to] = new ArrayList<>(2);
+                dependents[to].add(i);
+            }
+        }
+
+        Map<RowGroup, PriorityQueue<Integer>> ready = new LinkedHashMap<>();
+        RowGroup[] groups = new RowGroup[size];
+        for (int i = 0; i < size; i++) {
+            groups[i] = new RowGroup((RowImpl) nodes.get(i));
+            if (pending[i] == 0)
+                ready(ready, groups[i], i);
+        }
+
+        List ordered = new ArrayList(size);
+        RowGroup group = null;
+        while (ordered.size() < size) {
+            PriorityQueue<Integer> rows = (group == null) ? null
+                : ready.get(group);
+            if (rows == null || rows.isEmpty()) {
+                // switch to the group of the earliest ready row
+                group = null;
+                int first = size;
+                for (Map.Entry<RowGroup, PriorityQueue<Integer>> entry
+                    : ready.entrySet()) {
+                    if (!entry.getValue().isEmpty()
+                        && entry.getValue().peek() < first) {
+                        first = entry.getValue().peek();
+                        group = entry.getKey();
+                    }
+                }
+                if (group == null)
+                    return nodes;
+                rows = ready.get(group);
+            }
+
+            int row = rows.poll();
+            ordered.add(nodes.get(row));
+            if (dependents[row] != null)
+                for (int from : dependents[row])
+                    if (--pending[from] == 0)
+                        ready(ready, groups[from], from);
+        }
+        return ordered;
+    }
+
+    private static void ready(Map<RowGroup, PriorityQueue<Integer>> ready,
+        RowGroup group, int row) {
+        PriorityQueue<Integer> rows = ready.get(group);
+        if (rows == null) {
+            rows = new PriorityQueue<>();
+            ready.put(group, rows);
+        }
+        rows.add(row);
+    }
+
     /*
      * Override this method to flush any remaining batched row in the
      * PreparedStatementManager.
@@ -71,4 +172,34 @@ public class BatchingConstraintUpdateManager extends ConstraintUpdateManager {
 
         return exceps;
     }
+
+    /**
+     * Rows of the same table and operation, which usually share their SQL.
+     * The SQL itself is not generated here because foreign key values of
+     * rows that depend on auto-assigned keys are only known at flush time.
+     */
+    private static class RowGroup {
+        private final Table _table;
+        private final int _action;
+
+        RowGroup(RowImpl row) {
+            _table = row.getTable();
+            _action = row.getAction();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(_table) * 31 + _action;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof RowGroup))
+                return false;
+            RowGroup group = (RowGroup) other;
+            return _table == group._table && _action == group._action;
+        }
+    }
 }
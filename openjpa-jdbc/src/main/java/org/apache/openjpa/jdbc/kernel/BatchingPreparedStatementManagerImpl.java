@@ -147,6 +147,9 @@ public class BatchingPreparedStatementManagerImpl extends
             return;
 
         int batchSize = batchedRows.size();
+        if (batchedSql != null && batchSize > 1
+            && flushMultiRowInsert(batchedRows, batchedSql))
+            return;
         if (batchedSql != null &&  batchSize > 0) {
             PreparedStatement ps = null;
             try {
@@ -245,6 +248,73 @@ public class BatchingPreparedStatementManagerImpl extends
         }
     }
 
+    /**
+     * Flush the given rows, which share the given insert SQL, as multi-row
+     * inserts of up to the dictionary's multi-row insert limit and maximum
+     * number of parameters. Rows of tables with auto-assigned columns are
+     * never combined, so that their generated values can still be read back.
+     *
+     * @return false if the rows cannot be combined and must be batched
+     */
+    private boolean flushMultiRowInsert(List<RowImpl> rows, String sql)
+        throws SQLException {
+        RowImpl first = rows.get(0);
+        if (first.getAction() != Row.ACTION_INSERT
+            || _dict.getMultiRowInsertLimit() <= 1)
+            return false;
+        Column[] autoAssign = first.getTable().getAutoAssignedColumns();
+        if (autoAssign != null && autoAssign.length > 0)
+            return false;
+
+        int params = first.getFlushParameterCount();
+        int rowsPerInsert = Math.min(_dict.getMultiRowInsertRows(params),
+            rows.size());
+        String insertSql = (rowsPerInsert > 1)
+            ? _dict.getMultiRowInsertSQL(sql, rowsPerInsert) : null;
+        if (insertSql == null)
+            return false;
+
+        PreparedStatement ps = null;
+        try {
+            int size = rows.size();
+            for (int start = 0; start < size; start += rowsPerInsert) {
+                int count = Math.min(rowsPerInsert, size - start);
+                if (ps == null || count < rowsPerInsert) {
+                    // the last statement may insert fewer rows
+                    if (ps != null)
+                        ps.close();
+                    if (count < rowsPerInsert)
+                        insertSql = _dict.getMultiRowInsertSQL(sql, count);
+                    ps = prepareStatement(insertSql);
+                }
+                for (int i = 0; i < count; i++)
+                    rows.get(start + i).flush(ps, 1 + i * params, _dict,
+                        _store);
+
+                int updated = executeUpdate(ps, insertSql, rows.get(start));
+                if (updated != count) {
+                    logSQLWarnings(ps);
+                    throw new SQLException(_loc.get(
+                        "update-failed-no-failed-obj", String.valueOf(updated),
+                        insertSql).getMessage());
+                }
+            }
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, ps, _dict);
+        } finally {
+            _batchedSql = null;
+            rows.clear();
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException sqex) {
+                    throw SQLExceptions.getStore(sqex, ps, _dict);
+                }
+            }
+        }
+        return true;
+    }
+
     /*
      * Execute an update of a single row.
      */
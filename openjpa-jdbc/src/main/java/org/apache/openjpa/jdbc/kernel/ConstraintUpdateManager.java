@@ -348,11 +348,23 @@ public class ConstraintUpdateManager
 
         // flush delete updates to null fks, then all rows in order, then
         // the insert updates to set circular fk values
-        Collection nodes = dfa.getSortedNodes();
+        Collection nodes = orderNodes(graph, dfa.getSortedNodes());
         flush(deleteUpdates, nodes, psMgr);
         flush(insertUpdates, psMgr);
     }
 
+    /**
+     * Return the order in which to flush the rows of the given acyclic
+     * graph. The given rows are already in a valid topological order, which
+     * this implementation returns unchanged.
+     * @param graph The graph of statements, with circular dependencies
+     * already broken
+     * @param nodes The rows of the graph in topological order
+     */
+    protected Collection orderNodes(Graph graph, List nodes) {
+        return nodes;
+    }
+
     protected void flush(Collection deleteUpdates, Collection nodes, PreparedStatementManager psMgr) {
         flush(deleteUpdates, psMgr);
         for (Object node : nodes) {
@@ -21,11 +21,12 @@ package org.apache.openjpa.jdbc.kernel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.openjpa.jdbc.meta.ClassMapping;
@@ -38,9 +39,15 @@ import org.apache.openjpa.kernel.QueryHints;
 import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.util.StringUtil;
+import org.apache.openjpa.lib.util.concurrent.BoundedConcurrentCache;
 
 /**
  * Implementation of FinderCache for JDBC.
+ * Lookups do not lock. The cache holds at most {@link #setMaxCacheSize
+ * MaxCacheSize} finders and evicts them according to its
+ * {@link #setEvictionPolicy EvictionPolicy}. A finder for a class is built
+ * by only one thread while other threads finding instances of the same class
+ * wait for it.
  *
  * @author Pinaki Poddar
  *
@@ -51,18 +58,28 @@ public class FinderCacheImpl
     implements FinderCache<ClassMapping, SelectExecutor, Result> {
     private static final String PATTERN_SEPARATOR = "\\;";
     private static final String EXLUDED_BY_USER = "Excluded by user";
+    private static final int DEFAULT_CACHE_SIZE = 1000;
 
-    private final Map<ClassMapping, FinderQuery<ClassMapping, SelectExecutor, Result>> _delegate;
+    private final BoundedConcurrentCache<ClassMapping,
+        FinderQuery<ClassMapping, SelectExecutor, Result>> _delegate;
     // Key: class name Value: Reason why excluded
     private final Map<String, String> _uncachables;
-    private List<String> _exclusionPatterns;
-    private QueryStatistics<ClassMapping> _stats;
+    private final List<String> _exclusionPatterns;
+    private volatile QueryStatistics<ClassMapping> _stats;
     private ReentrantLock _lock = new ReentrantLock();
     private boolean _enableStats = false;
 
     public FinderCacheImpl() {
-        _delegate = new HashMap<>();
-        _uncachables = new HashMap<>();
+        _delegate = new BoundedConcurrentCache<ClassMapping,
+            FinderQuery<ClassMapping, SelectExecutor, Result>>(DEFAULT_CACHE_SIZE) {
+            @Override
+            protected void entryEvicted(ClassMapping mapping,
+                FinderQuery<ClassMapping, SelectExecutor, Result> finder) {
+                _stats.recordEviction(mapping);
+            }
+        };
+        _uncachables = new ConcurrentHashMap<>();
+        _exclusionPatterns = new CopyOnWriteArrayList<>();
         _stats = new QueryStatistics.None<>();
     }
 
@@ -73,17 +90,15 @@ public class FinderCacheImpl
      */
     @Override
     public Map<String, String> getMapView() {
-        lock();
-        try {
-            Map<String, String> view = new TreeMap<>();
-            for (ClassMapping mapping : _delegate.keySet()) {
+        Map<String, String> view = new TreeMap<>();
+        for (ClassMapping mapping : _delegate.keySet()) {
+            FinderQuery<ClassMapping, SelectExecutor, Result> finder =
+                _delegate.peek(mapping);
+            if (finder != null)
                 view.put(mapping.getDescribedType().getName(),
-                    _delegate.get(mapping).getQueryString());
-            }
-            return view;
-        } finally {
-            unlock();
+                    finder.getQueryString());
         }
+        return view;
     }
 
     /**
@@ -148,27 +163,28 @@ public class FinderCacheImpl
     @Override
     public FinderQuery<ClassMapping, SelectExecutor, Result> cache
        (ClassMapping mapping, SelectExecutor select, FetchConfiguration fetch) {
-        lock();
-        try {
-            if (fetch.getReadLockLevel() != 0) {
-                return null;
-            }
+        if (fetch.getReadLockLevel() != 0) {
+            return null;
+        }
 
-            if (!fetch.isFetchConfigurationSQLCacheAdmissible()) {
-                return null;
-            }
+        if (!fetch.isFetchConfigurationSQLCacheAdmissible()) {
+            return null;
+        }
 
-            boolean recache = isHinted(fetch, QueryHints.HINT_RECACHE_FINDER);
-            if (isExcluded(mapping)) {
-                return recache ? put(mapping, select) : null;
-            }
-            if (_delegate.containsKey(mapping)) {
-                return recache ? put(mapping, select) : _delegate.get(mapping);
-            }
+        boolean recache = isHinted(fetch, QueryHints.HINT_RECACHE_FINDER);
+        if (isExcluded(mapping)) {
+            return recache ? put(mapping, select) : null;
+        }
+        if (recache) {
             return put(mapping, select);
-        } finally {
-            unlock();
         }
+        FinderQuery<ClassMapping, SelectExecutor, Result> finder =
+            _delegate.computeIfAbsent(mapping,
+                m -> FinderQueryImpl.newFinder(m, select));
+        if (finder == null) {
+            invalidate(mapping);
+        }
+        return finder;
     }
 
     /**
@@ -201,7 +217,7 @@ public class FinderCacheImpl
      * any element.
      */
     private boolean isExcluded(String target) {
-        if (_exclusionPatterns != null && _exclusionPatterns.contains(target))
+        if (_exclusionPatterns.contains(target))
             return true;
         return getMatchedExclusionPattern(target) != null;
     }
@@ -214,8 +230,6 @@ public class FinderCacheImpl
     public void addExclusionPattern(String pattern) {
         lock();
         try {
-            if (_exclusionPatterns == null)
-                _exclusionPatterns = new ArrayList<>();
             _exclusionPatterns.add(pattern);
             Collection<ClassMapping> invalidMappings = getMatchedKeys(pattern,
                     _delegate.keySet());
@@ -234,8 +248,6 @@ public class FinderCacheImpl
     public void removeExclusionPattern(String pattern) {
         lock();
         try {
-            if (_exclusionPatterns == null)
-                return;
             _exclusionPatterns.remove(pattern);
             Collection<String> reborns = getMatchedKeys(pattern,
                 _uncachables.keySet());
@@ -250,7 +262,7 @@ public class FinderCacheImpl
      * Gets the pattern that matches the given identifier.
      */
     private String getMatchedExclusionPattern(String id) {
-        if (_exclusionPatterns == null || _exclusionPatterns.isEmpty())
+        if (_exclusionPatterns.isEmpty())
             return null;
         for (String pattern : _exclusionPatterns)
             if (matches(pattern, id))
@@ -295,12 +307,7 @@ public class FinderCacheImpl
 
     @Override
     public boolean invalidate(ClassMapping mapping) {
-        lock();
-        try {
-            return _delegate.remove(mapping) != null;
-        } finally {
-            unlock();
-        }
+        return _delegate.remove(mapping) != null;
     }
 
     @Override
@@ -350,8 +357,6 @@ public class FinderCacheImpl
         try {
             if (StringUtil.isEmpty(excludes))
                 return;
-            if (_exclusionPatterns == null)
-                _exclusionPatterns = new ArrayList<>();
             String[] patterns = excludes.split(PATTERN_SEPARATOR);
             for (String pattern : patterns)
                 addExclusionPattern(pattern);
@@ -361,11 +366,8 @@ public class FinderCacheImpl
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public List<String> getExcludes() {
-        return (List<String>)_exclusionPatterns == null
-            ? Collections.EMPTY_LIST
-            : Collections.unmodifiableList(_exclusionPatterns);
+        return Collections.unmodifiableList(_exclusionPatterns);
     }
 
     boolean isHinted(FetchConfiguration fetch, String hint) {
@@ -395,6 +397,72 @@ public class FinderCacheImpl
     public boolean getEnableStats() {
         return _enableStats;
     }
+
+    /**
+     * The maximum number of cached finders, or a non-positive value for no
+     * limit. Defaults to 1000.
+     *
+     * @since 4.1.2
+     */
+    public void setMaxCacheSize(int size) {
+        _delegate.setMaxSize(size);
+    }
+
+    /**
+     * The maximum number of cached finders.
+     *
+     * @since 4.1.2
+     */
+    public int getMaxCacheSize() {
+        return _delegate.getMaxSize();
+    }
+
+    /**
+     * Whether to evict the least recently used (<code>lru</code>) or the
+     * least frequently used (<code>lfu</code>) finder when the cache is full.
+     * Defaults to <code>lru</code>.
+     *
+     * @since 4.1.2
+     */
+    public void setEvictionPolicy(String policy) {
+        _delegate.setEvictionPolicy(policy);
+    }
+
+    /**
+     * The eviction policy, <code>lru</code> or <code>lfu</code>.
+     *
+     * @since 4.1.2
+     */
+    public String getEvictionPolicy() {
+        return _delegate.getEvictionPolicy();
+    }
+
+    /**
+     * The number of finds that found a cached finder.
+     *
+     * @since 4.1.2
+     */
+    public long getHitCount() {
+        return _delegate.getHitCount();
+    }
+
+    /**
+     * The number of finds that found no cached finder.
+     *
+     * @since 4.1.2
+     */
+    public long getMissCount() {
+        return _delegate.getMissCount();
+    }
+
+    /**
+     * The number of finders evicted to keep the cache within its size.
+     *
+     * @since 4.1.2
+     */
+    public long getEvictionCount() {
+        return _delegate.getEvictionCount();
+    }
     // ----------------------------------------------------
     //  Configuration contract
     // ----------------------------------------------------
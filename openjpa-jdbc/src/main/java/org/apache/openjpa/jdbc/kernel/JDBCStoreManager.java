@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,12 +42,15 @@ import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.Discriminator;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
+import org.apache.openjpa.jdbc.meta.Joinable;
 import org.apache.openjpa.jdbc.meta.ValueMapping;
 import org.apache.openjpa.jdbc.meta.strats.SuperclassDiscriminatorStrategy;
+import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.JoinSyntaxes;
 import org.apache.openjpa.jdbc.sql.Joins;
 import org.apache.openjpa.jdbc.sql.Result;
+import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SQLFactory;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -738,7 +743,229 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
     @Override
     public Collection loadAll(Collection sms, PCState state, int load,
         FetchConfiguration fetch, Object context) {
-        return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+        int limit = _dict.getLoadBatchLimit();
+        if (limit <= 1 || context != null || sms.size() < 2)
+            return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+
+        // group the hollow instances that can be selected together by
+        // mapping; everything else is loaded one at a time
+        Map<ClassMapping, List<OpenJPAStateManager>> batches =
+            new LinkedHashMap<>();
+        List<OpenJPAStateManager> rest = new ArrayList<>();
+        OpenJPAStateManager sm;
+        ClassMapping mapping;
+        for (Object o : sms) {
+            sm = (OpenJPAStateManager) o;
+            mapping = getBatchLoadMapping(sm);
+            if (mapping == null)
+                rest.add(sm);
+            else
+                batches.computeIfAbsent(mapping, k -> new ArrayList<>()).
+                    add(sm);
+        }
+
+        JDBCFetchConfiguration jfetch = (JDBCFetchConfiguration) fetch;
+        Collection failed = null;
+        for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> entry
+            : batches.entrySet()) {
+            List<OpenJPAStateManager> batch = entry.getValue();
+            if (batch.size() == 1) {
+                rest.add(batch.get(0));
+                continue;
+            }
+            for (int low = 0, high; low < batch.size(); low = high) {
+                high = Math.min(low + limit, batch.size());
+                failed = initializeAll(entry.getKey(),
+                    batch.subList(low, high), state, jfetch, failed);
+            }
+        }
+
+        if (!rest.isEmpty()) {
+            Collection restFailed = ImplHelper.loadAll(rest, this, state,
+                load, fetch, context);
+            if (!restFailed.isEmpty()) {
+                if (failed == null)
+                    failed = new ArrayList();
+                failed.addAll(restFailed);
+            }
+        }
+        return (failed == null) ? Collections.EMPTY_LIST : failed;
+    }
+
+    /**
+     * Return the mapping to select the given instance with when it can be
+     * initialized as part of a primary key IN-list batch, or null if it
+     * must be loaded individually.
+     */
+    private ClassMapping getBatchLoadMapping(OpenJPAStateManager sm) {
+        if (sm.getManagedInstance() != null)
+            return null;
+
+        ClassMapping mapping = (ClassMapping) sm.getMetaData();
+        Object oid = sm.getObjectId();
+        if (!(oid instanceof OpenJPAId)
+            || ((OpenJPAId) oid).hasSubclasses()) {
+            ClassMapping[] mappings = mapping.
+                getIndependentAssignableMappings();
+            if (mappings.length != 1)
+                return null;
+            mapping = mappings[0];
+        }
+        if (!mapping.isMapped() || mapping.getEmbeddingMapping() != null
+            || !mapping.isPrimaryKeyObjectId(false))
+            return null;
+        return mapping;
+    }
+
+    /**
+     * Initialize the given hollow instances of a single mapping with one
+     * select restricted to their primary keys.
+     *
+     * @return the given failed ids, with the ids of any instances that do
+     * not exist in the database appended
+     */
+    private Collection initializeAll(ClassMapping mapping,
+        List<OpenJPAStateManager> sms, PCState state,
+        JDBCFetchConfiguration fetch, Collection failed) {
+        // instances with a custom load strategy take care of themselves
+        Map<Object, OpenJPAStateManager> pending = new HashMap<>();
+        Boolean custom;
+        try {
+            for (OpenJPAStateManager sm : sms) {
+                custom = customLoad(sm, mapping, state, fetch);
+                if (custom == null)
+                    pending.put(sm.getObjectId(), sm);
+                else if (!custom)
+                    failed = addFailedId(sm, failed);
+            }
+            if (pending.isEmpty())
+                return failed;
+
+            Select sel = _sql.newSelect();
+            if (!select(sel, mapping, Select.SUBS_ANY_JOINABLE, null, null,
+                fetch, EagerFetchModes.EAGER_JOIN, true, false)) {
+                for (OpenJPAStateManager sm : pending.values())
+                    if (!initializeState(sm, state, fetch, null))
+                        failed = addFailedId(sm, failed);
+                return failed;
+            }
+            wherePrimaryKeys(sel, mapping, pending.keySet());
+            if (_log.isTraceEnabled()) {
+                _log.trace("initializeAll: "+pending.size()+" oids "
+                    +mapping.getDescribedType());
+            }
+
+            ClassMapping base = mapping;
+            while (base.getJoinablePCSuperclassMapping() != null)
+                base = base.getJoinablePCSuperclassMapping();
+
+            Result res = sel.execute(this, fetch);
+            try {
+                ConnectionInfo info = new ConnectionInfo();
+                info.result = res;
+                Object oid;
+                OpenJPAStateManager sm;
+                while (res.next()) {
+                    oid = base.getObjectId(this, res, null, true, null);
+                    sm = (oid == null) ? null : pending.remove(oid);
+                    if (sm == null)
+                        continue;
+                    info.mapping = mapping;
+                    initializeState(sm, state, fetch, info);
+                }
+            } finally {
+                res.close();
+            }
+        } catch (ClassNotFoundException cnfe) {
+            throw new UserException(cnfe);
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, _dict, fetch.getReadLockLevel());
+        }
+
+        // whatever did not come back does not exist
+        for (OpenJPAStateManager sm : pending.values())
+            failed = addFailedId(sm, failed);
+        return failed;
+    }
+
+    /**
+     * Add where conditions limiting the given select to the primary keys
+     * of the given oids, broken into IN-lists for single-column keys.
+     */
+    private void wherePrimaryKeys(Select sel, ClassMapping mapping,
+        Collection<Object> oids) {
+        Column[] pks = mapping.getPrimaryKeyColumns();
+        SQLBuffer buf = new SQLBuffer(_dict);
+        if (pks.length == 1) {
+            buf.append(sel.getColumnAlias(pks[0])).append(" IN (");
+            int i = 0;
+            for (Object oid : oids) {
+                if (i++ > 0)
+                    buf.append(", ");
+                buf.appendValue(toPrimaryKeyValues(mapping, pks, oid)[0],
+                    pks[0]);
+            }
+            buf.append(")");
+        } else {
+            String[] aliases = new String[pks.length];
+            for (int i = 0; i < pks.length; i++)
+                aliases[i] = sel.getColumnAlias(pks[i]);
+
+            Object[] vals;
+            int i = 0;
+            buf.append("(");
+            for (Object oid : oids) {
+                if (i++ > 0)
+                    buf.append(" OR ");
+                vals = toPrimaryKeyValues(mapping, pks, oid);
+                buf.append("(");
+                for (int j = 0; j < vals.length; j++) {
+                    if (j > 0)
+                        buf.append(" AND ");
+                    buf.append(aliases[j]);
+                    if (vals[j] == null)
+                        buf.append(" IS ");
+                    else
+                        buf.append(" = ");
+                    buf.appendValue(vals[j], pks[j]);
+                }
+                buf.append(")");
+            }
+            buf.append(")");
+        }
+        sel.where(buf);
+    }
+
+    /**
+     * Return the primary key column values for the given oid.
+     */
+    private Object[] toPrimaryKeyValues(ClassMapping mapping, Column[] pks,
+        Object oid) {
+        Object[] vals = new Object[pks.length];
+        if (mapping.getIdentityType() != ClassMetaData.ID_APPLICATION) {
+            vals[0] = ((Id) oid).getId();
+            return vals;
+        }
+
+        Object[] pkVals = ApplicationIds.toPKValues(oid, mapping);
+        Joinable join;
+        for (int i = 0; i < pks.length; i++) {
+            join = mapping.assertJoinable(pks[i]);
+            vals[i] = join.getJoinValue(pkVals[mapping.getField
+                (join.getFieldIndex()).getPrimaryKeyIndex()], pks[i], this);
+        }
+        return vals;
+    }
+
+    /**
+     * Add identity of given instance to collection.
+     */
+    private static Collection addFailedId(OpenJPAStateManager sm,
+        Collection failed) {
+        if (failed == null)
+            failed = new ArrayList();
+        failed.add(sm.getId());
+        return failed;
     }
 
     @Override
@@ -23,6 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.concurrent.Callable;
+
+import javax.sql.DataSource;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
@@ -78,6 +81,9 @@ public class NativeJDBCSeq
     private String _select = null;
     private long _nextValue = 0;
     private long _maxValue = -1;
+    private boolean _prefetch = false;
+    private int _lowWater = 25;
+    private SeqBuffer _buffer = null;
 
     private DBIdentifier _schema = DBIdentifier.NULL;
 
@@ -142,6 +148,49 @@ public class NativeJDBCSeq
         _increment = increment;
     }
 
+    /**
+     * Whether to hand out sequence values without locking and to fetch the
+     * next block of values in the background before the current one runs
+     * out. Values are fetched in the background with a separate connection
+     * from the non-transactional data source. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public boolean getPrefetch() {
+        return _prefetch;
+    }
+
+    /**
+     * Whether to hand out sequence values without locking and to fetch the
+     * next block of values in the background before the current one runs
+     * out. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public void setPrefetch(boolean prefetch) {
+        _prefetch = prefetch;
+    }
+
+    /**
+     * The percentage of a block of values that is left when the next block
+     * is fetched in the background. Defaults to 25.
+     *
+     * @since 4.1.2
+     */
+    public int getLowWaterMark() {
+        return _lowWater;
+    }
+
+    /**
+     * The percentage of a block of values that is left when the next block
+     * is fetched in the background. Defaults to 25.
+     *
+     * @since 4.1.2
+     */
+    public void setLowWaterMark(int lowWater) {
+        _lowWater = lowWater;
+    }
+
     @Override
     public void addSchema(ClassMapping mapping, SchemaGroup group) {
         // sequence already exists?
@@ -196,18 +245,70 @@ public class NativeJDBCSeq
     }
 
     @Override
-    protected synchronized Object nextInternal(JDBCStore store, ClassMapping mapping)
+    protected Object nextInternal(JDBCStore store, ClassMapping mapping)
+        throws SQLException {
+        if (_prefetch)
+            return nextBuffered(store, mapping);
+
+        synchronized (this) {
+            if (!alterIncrementBy) {
+                allocateInternal(0, store, mapping);
+                alterIncrementBy = true;
+            }
+            if (_nextValue >= _maxValue) {
+                allocateInternal(0, store, mapping);
+            }
+            long result = _nextValue;
+            _nextValue += _increment;
+            return result;
+        }
+    }
+
+    /**
+     * Return the next value from the buffer of prefetched values.
+     */
+    private long nextBuffered(final JDBCStore store, final ClassMapping mapping)
         throws SQLException {
-        if (!alterIncrementBy) {
-            allocateInternal(0, store, mapping);
-            alterIncrementBy = true;
+        SeqBuffer buffer;
+        synchronized (this) {
+            if (_buffer == null)
+                _buffer = new SeqBuffer(getPrefetchExecutor(), _lowWater, 1, 1);
+            buffer = _buffer;
         }
-        if (_nextValue >= _maxValue) {
-            allocateInternal(0, store, mapping);
+        SeqBuffer.Allocator allocator = new SeqBuffer.Allocator() {
+            @Override
+            public SeqBuffer.Block allocate(int size)
+                throws SQLException {
+                synchronized (NativeJDBCSeq.this) {
+                    allocateInternal(0, store, mapping);
+                    alterIncrementBy = true;
+                    SeqBuffer.Block block = new SeqBuffer.Block(_nextValue, _increment,
+                        (_maxValue - _nextValue) / _increment);
+                    _nextValue = _maxValue;
+                    return block;
+                }
+            }
+
+            @Override
+            public Callable<SeqBuffer.Block> prefetch(int size) {
+                if (suspendInJTA())
+                    return null;
+                final DataSource ds = _conf.getDataSource2(store.getContext());
+                final int allocate = _allocate;
+                return () -> {
+                    try (Connection conn = ds.getConnection()) {
+                        return new SeqBuffer.Block(getSequence(conn), _increment, allocate);
+                    }
+                };
+            }
+        };
+        try {
+            return buffer.next(allocator);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage(), e);
         }
-        long result = _nextValue;
-        _nextValue += _increment;
-        return result;
     }
 
     /**
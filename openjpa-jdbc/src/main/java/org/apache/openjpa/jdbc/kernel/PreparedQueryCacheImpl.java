@@ -25,6 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -40,10 +44,15 @@ import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
-import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.lib.util.concurrent.BoundedConcurrentCache;
 
 /**
  * An implementation of the cache of {@link PreparedQuery prepared queries}.
+ * Lookups do not lock. The cache holds at most {@link #setMaxCacheSize
+ * MaxCacheSize} queries and evicts them according to its
+ * {@link #setEvictionPolicy EvictionPolicy}. When several threads execute a
+ * query for the first time, only one of them initializes the prepared query
+ * while the others wait for it.
  *
  * @author Pinaki Poddar
  *
@@ -52,11 +61,14 @@ import org.apache.openjpa.util.CacheMap;
  */
 public class PreparedQueryCacheImpl implements PreparedQueryCache {
 	private static final String PATTERN_SEPARATOR = "\\;";
+	private static final int DEFAULT_CACHE_SIZE = 1000;
 	// Key: Query identifier
-	private final Map<String, PreparedQuery> _delegate;
+	private final BoundedConcurrentCache<String, PreparedQuery> _delegate;
 	// Key: Query identifier Value: Reason why excluded
-	private final Map<String, Exclusion> _uncachables;
+	private final BoundedConcurrentCache<String, Exclusion> _uncachables;
 	private final List<Exclusion> _exclusionPatterns;
+	// Key: Query identifier Value: completes once the query is initialized
+	private final Map<String, CompletableFuture<PreparedQuery>> _initializing;
 	private QueryStatistics<String> _stats;
 	private boolean _statsEnabled;
 
@@ -66,9 +78,16 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
     private static Localizer _loc = Localizer.forPackage(PreparedQueryCacheImpl.class);
 
 	public PreparedQueryCacheImpl() {
-		_delegate = new CacheMap();
-		_uncachables = new CacheMap();
-		_exclusionPatterns = new ArrayList<>();
+		_delegate = new BoundedConcurrentCache<String, PreparedQuery>(DEFAULT_CACHE_SIZE) {
+			@Override
+			protected void entryEvicted(String id, PreparedQuery pq) {
+				if (_statsEnabled)
+					_stats.recordEviction(id);
+			}
+		};
+		_uncachables = new BoundedConcurrentCache<>(DEFAULT_CACHE_SIZE);
+		_exclusionPatterns = new CopyOnWriteArrayList<>();
+		_initializing = new ConcurrentHashMap<>();
 
 		ReentrantReadWriteLock _rwl = new ReentrantReadWriteLock();
         _writeLock = _rwl.writeLock();
@@ -86,7 +105,7 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
             return Boolean.FALSE;
         if (Boolean.FALSE.equals(isCachable(id)))
             return Boolean.FALSE;
-        PreparedQuery cached = get(id);
+        PreparedQuery cached = _delegate.get(id);
         if (cached != null)
             return null; // implies that it is already cached
 
@@ -96,15 +115,13 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 
 	@Override
     public Map<String,String> getMapView() {
-		lock(false);
-		try {
-            Map<String, String> view = new TreeMap<>();
-            for (Map.Entry<String, PreparedQuery> entry : _delegate.entrySet())
-                view.put(entry.getKey(), entry.getValue().getTargetQuery());
-			return view;
-		} finally {
-			unlock(false);
-		}
+        Map<String, String> view = new TreeMap<>();
+        for (String id : _delegate.keySet()) {
+            PreparedQuery pq = _delegate.peek(id);
+            if (pq != null)
+                view.put(id, pq.getTargetQuery());
+        }
+        return view;
 	}
 
 	/**
@@ -135,7 +152,7 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 				markUncachable(id, exclusion);
 				return false;
 			}
-			_delegate.put(id, q);
+			_delegate.putIfAbsent(id, q);
 			if (_log != null && _log.isTraceEnabled())
 				_log.trace(_loc.get("prepared-query-cached", id));
 			return true;
@@ -144,18 +161,42 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 		}
 	}
 
+    /**
+     * Initialize the prepared query of the given identifier from the given
+     * result. If another thread is initializing the same query, wait for it
+     * and return its outcome instead.
+     */
     @Override
     public PreparedQuery initialize(String key, Object result) {
         PreparedQuery pq = get(key);
         if (pq == null)
             return null;
+        if (pq.isInitialized())
+            return pq;
 
-        Exclusion exclusion = pq.initialize(result);
-        if (exclusion != null) {
-            markUncachable(key, exclusion);
-            return null;
+        CompletableFuture<PreparedQuery> future = new CompletableFuture<>();
+        CompletableFuture<PreparedQuery> other = _initializing.putIfAbsent(key, future);
+        if (other != null) {
+            try {
+                return other.join();
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+        try {
+            Exclusion exclusion = pq.initialize(result);
+            if (exclusion != null) {
+                markUncachable(key, exclusion);
+                pq = null;
+            }
+            future.complete(pq);
+            return pq;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            _initializing.remove(key, future);
         }
-        return pq;
     }
 
 	@Override
@@ -176,26 +217,16 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 
     @Override
     public PreparedQuery get(String id) {
-        lock(true);
-        try {
-            return _delegate.get(id);
-        } finally {
-            unlock(true);
-        }
+        return _delegate.peek(id);
     }
 
 	@Override
     public Boolean isCachable(String id) {
-		lock(true);
-		try {
-			if (_uncachables.containsKey(id))
-				return Boolean.FALSE;
-			if (_delegate.containsKey(id))
-				return Boolean.TRUE;
-			return null;
-		} finally {
-			unlock(true);
-		}
+		if (_uncachables.containsKey(id))
+			return Boolean.FALSE;
+		if (_delegate.containsKey(id))
+			return Boolean.TRUE;
+		return null;
 	}
 
 	@Override
@@ -301,12 +332,13 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 	/**
 	 * Gets the keys of the given map whose values match the given pattern.
 	 */
-	private Collection<String> getMatchedKeys(String pattern, Map<String,Exclusion> map) {
+	private Collection<String> getMatchedKeys(String pattern,
+	    BoundedConcurrentCache<String,Exclusion> map) {
         List<String> result = new ArrayList<>();
-		for (Map.Entry<String, Exclusion> entry : map.entrySet()) {
-		    Exclusion exclusion = entry.getValue();
-			if (!exclusion.isStrong() && exclusion.matches(pattern)) {
-				result.add(entry.getKey());
+		for (String key : map.keySet()) {
+		    Exclusion exclusion = map.peek(key);
+			if (exclusion != null && !exclusion.isStrong() && exclusion.matches(pattern)) {
+				result.add(key);
 			}
 		}
 		return result;
@@ -327,7 +359,8 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 
 	/**
      * Note: Care needs to be taken so that a read lock is <b>never</b> held while requesting a write lock. This will
-     * result in a deadlock.
+     * result in a deadlock. Lookups do not take the read lock; the write lock
+     * serializes changes that have to check and update the cache atomically.
      *
      * @param readOnly
      *            - If true, a read lock will be acquired. Else a write lock will be acquired.
@@ -380,14 +413,74 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
         return _statsEnabled;
     }
 
+    /**
+     * The maximum number of cached queries, or a non-positive value for no
+     * limit. Defaults to 1000.
+     */
     public void setMaxCacheSize(int size) {
-        ((CacheMap)_delegate).setCacheSize(size);
+        _delegate.setMaxSize(size);
+    }
+
+    /**
+     * The maximum number of cached queries.
+     *
+     * @since 4.1.2
+     */
+    public int getMaxCacheSize() {
+        return _delegate.getMaxSize();
     }
 
     public int getCacheSize() {
         return _delegate.size();
     }
 
+    /**
+     * Whether to evict the least recently used (<code>lru</code>) or the
+     * least frequently used (<code>lfu</code>) query when the cache is full.
+     * Defaults to <code>lru</code>.
+     *
+     * @since 4.1.2
+     */
+    public void setEvictionPolicy(String policy) {
+        _delegate.setEvictionPolicy(policy);
+    }
+
+    /**
+     * The eviction policy, <code>lru</code> or <code>lfu</code>.
+     *
+     * @since 4.1.2
+     */
+    public String getEvictionPolicy() {
+        return _delegate.getEvictionPolicy();
+    }
+
+    /**
+     * The number of executions that found their query in the cache.
+     *
+     * @since 4.1.2
+     */
+    public long getHitCount() {
+        return _delegate.getHitCount();
+    }
+
+    /**
+     * The number of executions that did not find their query in the cache.
+     *
+     * @since 4.1.2
+     */
+    public long getMissCount() {
+        return _delegate.getMissCount();
+    }
+
+    /**
+     * The number of queries evicted to keep the cache within its size.
+     *
+     * @since 4.1.2
+     */
+    public long getEvictionCount() {
+        return _delegate.getEvictionCount();
+    }
+
 	//-------------------------------------------------------
 	// Configurable contract
 	//-------------------------------------------------------
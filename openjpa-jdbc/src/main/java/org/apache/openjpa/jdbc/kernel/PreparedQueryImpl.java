@@ -69,7 +69,7 @@ public class PreparedQueryImpl implements PreparedQuery {
 
     private final String _id;
     private String _sql;
-    private boolean _initialized;
+    private volatile boolean _initialized;
 
     // Post-compilation state of an executable query, populated on construction
     private Class<?> _candidate;
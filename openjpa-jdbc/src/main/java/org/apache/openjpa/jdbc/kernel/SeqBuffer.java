@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the values of a block of reserved sequence values without
+ * locking. When a given share of the block is left, the next block is
+ * reserved in the background, so that callers rarely wait for the database
+ * when the current block runs out.
+ *  The number of values to reserve may adapt to the rate at which values are
+ * used: it doubles, up to a maximum, when a block lasts less than a second,
+ * and halves, down to a minimum, when a block lasts more than half a minute.
+ *
+ * @since 4.1.2
+ */
+public class SeqBuffer {
+
+    private static final long FAST_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Executor _executor;
+    private final int _lowWater;
+    private final int _minSize;
+    private final int _maxSize;
+
+    private volatile Block _block = null;
+    private FutureTask<Block> _pending = null;
+    private int _size;
+
+    /**
+     * Constructor.
+     *
+     * @param executor runs background reservations, or null to reserve
+     * blocks only when the current one runs out
+     * @param lowWater the percentage of a block that is left when the next
+     * block is reserved in the background
+     * @param minSize the initial and minimum number of values to reserve
+     * @param maxSize the maximum number of values to reserve; if not greater
+     * than the minimum size, the number of values to reserve is fixed
+     */
+    public SeqBuffer(Executor executor, int lowWater, int minSize, int maxSize) {
+        _executor = executor;
+        _lowWater = Math.min(Math.max(lowWater, 0), 100);
+        _minSize = Math.max(minSize, 1);
+        _maxSize = Math.max(maxSize, _minSize);
+        _size = _minSize;
+    }
+
+    /**
+     * The number of values to reserve next.
+     */
+    public synchronized int getSize() {
+        return _size;
+    }
+
+    /**
+     * Return the next sequence value, reserving a new block with the given
+     * allocator if needed.
+     */
+    public long next(Allocator allocator)
+        throws Exception {
+        while (true) {
+            Block block = _block;
+            if (block != null) {
+                long index = block._index.getAndIncrement();
+                if (index < block._count) {
+                    if (index == block._prefetchAt)
+                        prefetch(allocator);
+                    return block._start + index * block._step;
+                }
+            }
+            synchronized (this) {
+                if (_block == block)
+                    install(refill(block, allocator));
+            }
+        }
+    }
+
+    /**
+     * Make sure that at least the given number of values can be handed out
+     * without reserving a new block. Values left in the current block are
+     * given up if they do not suffice.
+     */
+    public synchronized void reserve(int count, Allocator allocator)
+        throws Exception {
+        Block block = _block;
+        if (block != null && block._count - block._index.get() >= count)
+            return;
+        install(allocator.allocate(Math.max(count, _size)));
+    }
+
+    /**
+     * Return the next block after the given used one. Prefers the block being
+     * reserved in the background, if any.
+     */
+    private Block refill(Block used, Allocator allocator)
+        throws Exception {
+        if (used != null)
+            resize(System.nanoTime() - used._created);
+
+        Block block = null;
+        FutureTask<Block> pending = _pending;
+        _pending = null;
+        if (pending != null) {
+            try {
+                block = pending.get();
+            } catch (ExecutionException | CancellationException e) {
+                // reserve on this thread instead, which reports any
+                // persistent failure to the caller
+            }
+        }
+        return (block != null) ? block : allocator.allocate(_size);
+    }
+
+    private void install(Block block) {
+        long left = Math.max(1, block._count * _lowWater / 100);
+        block._prefetchAt = Math.max(0, block._count - left);
+        _block = block;
+    }
+
+    private void resize(long nanos) {
+        if (_maxSize <= _minSize)
+            return;
+        if (nanos < FAST_NANOS)
+            _size = Math.min(_size * 2, _maxSize);
+        else if (nanos > SLOW_NANOS)
+            _size = Math.max(_size / 2, _minSize);
+    }
+
+    /**
+     * Start reserving the next block in the background unless that is
+     * already under way.
+     */
+    private void prefetch(Allocator allocator) {
+        if (_executor == null)
+            return;
+
+        FutureTask<Block> future;
+        synchronized (this) {
+            if (_pending != null)
+                return;
+            Callable<Block> task = allocator.prefetch(_size);
+            if (task == null)
+                return;
+            future = new FutureTask<>(task);
+            _pending = future;
+        }
+        try {
+            _executor.execute(future);
+        } catch (RejectedExecutionException ree) {
+            synchronized (this) {
+                if (_pending == future)
+                    _pending = null;
+            }
+        }
+    }
+
+    /**
+     * Reserves blocks of sequence values for a {@link SeqBuffer}.
+     */
+    public interface Allocator {
+
+        /**
+         * Reserve a block of the given number of values on the calling thread.
+         */
+        Block allocate(int size)
+            throws Exception;
+
+        /**
+         * Return a task that reserves a block of the given number of values
+         * on another thread, or null if values cannot be reserved in the
+         * background. The task may return null if it cannot reserve values,
+         * in which case they are reserved on the calling thread once needed.
+         */
+        Callable<Block> prefetch(int size);
+    }
+
+    /**
+     * A block of reserved sequence values.
+     */
+    public static class Block {
+
+        private final long _start;
+        private final long _step;
+        private final long _count;
+        private final AtomicLong _index = new AtomicLong();
+        private final long _created = System.nanoTime();
+        private volatile long _prefetchAt = -1;
+
+        /**
+         * Constructor.
+         *
+         * @param start the first value
+         * @param step the difference between consecutive values
+         * @param count the number of values
+         */
+        public Block(long start, long step, long count) {
+            _start = start;
+            _step = step;
+            _count = count;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + _start + ".." + (_start + (_count - 1) * _step) + "]";
+        }
+    }
+}
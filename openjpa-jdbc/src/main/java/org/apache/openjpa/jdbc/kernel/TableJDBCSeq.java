@@ -24,8 +24,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.sql.DataSource;
+
 import jakarta.transaction.NotSupportedException;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -88,6 +91,10 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     private int _alloc = 50;
     private int _intValue = 1;
     private final ConcurrentHashMap<ClassMapping, Status> _stat = new ConcurrentHashMap<>();
+    private boolean _prefetch = false;
+    private int _lowWater = 25;
+    private int _maxAlloc = 0;
+    private final ConcurrentHashMap<ClassMapping, SeqBuffer> _buffers = new ConcurrentHashMap<>();
 
     private DBIdentifier _table = DBIdentifier.newTable(DEFAULT_TABLE);
     private DBIdentifier _seqColumnName = DBIdentifier.newColumn("SEQUENCE_VALUE");
@@ -190,6 +197,73 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         _alloc = alloc;
     }
 
+    /**
+     * Whether to hand out sequence values without locking and to reserve
+     * the next block of values in the background before the current one
+     * runs out. Values are reserved in the background only for
+     * non-transactional sequences that may use a separate connection.
+     * Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public boolean getPrefetch() {
+        return _prefetch;
+    }
+
+    /**
+     * Whether to hand out sequence values without locking and to reserve
+     * the next block of values in the background before the current one
+     * runs out. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public void setPrefetch(boolean prefetch) {
+        _prefetch = prefetch;
+    }
+
+    /**
+     * The percentage of a block of values that is left when the next block
+     * is reserved in the background. Defaults to 25.
+     *
+     * @since 4.1.2
+     */
+    public int getLowWaterMark() {
+        return _lowWater;
+    }
+
+    /**
+     * The percentage of a block of values that is left when the next block
+     * is reserved in the background. Defaults to 25.
+     *
+     * @since 4.1.2
+     */
+    public void setLowWaterMark(int lowWater) {
+        _lowWater = lowWater;
+    }
+
+    /**
+     * The largest number of values to reserve at once when prefetching. If
+     * greater than the {@link #getAllocate allocation size}, the number of
+     * values reserved doubles while blocks are used up within a second and
+     * halves again when they last longer than half a minute. Defaults to 0,
+     * which always reserves the allocation size.
+     *
+     * @since 4.1.2
+     */
+    public int getMaxAllocate() {
+        return _maxAlloc;
+    }
+
+    /**
+     * The largest number of values to reserve at once when prefetching.
+     * Defaults to 0, which always reserves the allocation size.
+     *
+     * @since 4.1.2
+     */
+    public void setMaxAllocate(int maxAlloc) {
+        _maxAlloc = maxAlloc;
+    }
+
     /**
      * Return the number as the initial number for the
      * GeneratedValue.TABLE strategy to start with.
@@ -298,6 +372,8 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         if (stat == null)
             throw new InvalidStateException(_loc.get("bad-seq-type",
                 getClass(), mapping));
+        if (_prefetch)
+            return getBuffer(mapping).next(new BufferAllocator(store, mapping));
 
         while (true) {
             synchronized (stat) {
@@ -340,6 +416,16 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         Status stat = getStatus(mapping);
         if (stat == null)
             return;
+        if (_prefetch) {
+            try {
+                getBuffer(mapping).reserve(count, new BufferAllocator(store, mapping));
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+            return;
+        }
 
         while (true) {
             int available;
@@ -370,6 +456,21 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         return status;
     }
 
+    /**
+     * Return the buffer of prefetched values for the given class. The
+     * mapping may be null.
+     */
+    private SeqBuffer getBuffer(ClassMapping mapping) {
+        SeqBuffer buffer = _buffers.get(mapping);
+        if (buffer == null) {
+            buffer = new SeqBuffer(getPrefetchExecutor(), _lowWater, _alloc, _maxAlloc);
+            SeqBuffer existing = _buffers.putIfAbsent(mapping, buffer);
+            if (existing != null)
+                buffer = existing;
+        }
+        return buffer;
+    }
+
     /**
      * Add the primary key column to the given table and return it.
      */
@@ -575,6 +676,29 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
      */
     protected boolean setSequence(ClassMapping mapping, Status stat, int inc,
         boolean updateStatSeq, Connection conn)
+        throws SQLException {
+        long cur = reserveSequence(mapping, inc, conn);
+        if (cur == -1)
+            return false;
+
+        // setup new sequence range
+        synchronized (stat) {
+            if (updateStatSeq && stat.seq < cur)
+                stat.seq = cur;
+            if (stat.max < cur + inc)
+                stat.max = cur + inc;
+        }
+        return true;
+    }
+
+    /**
+     * Advances the sequence by the given number of values.
+     *
+     * @return the sequence value before the update, which is the first of
+     * the reserved values, or -1 if no sequence row existed for this mapping
+     * @since 4.1.2
+     */
+    protected long reserveSequence(ClassMapping mapping, int inc, Connection conn)
         throws SQLException {
         if (_log.isTraceEnabled())
             _log.trace(_loc.get("update-seq"));
@@ -599,7 +723,7 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
             try {
                 cur = getSequence(mapping, conn);
                 if (cur == -1)
-                    return false;
+                    return -1;
 
                 // update the value
                 upd = new SQLBuffer(dict);
@@ -623,15 +747,7 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
                     try { stmnt.close(); } catch (SQLException se) {}
             }
         }
-
-        // setup new sequence range
-        synchronized (stat) {
-            if (updateStatSeq && stat.seq < cur)
-                stat.seq = cur;
-            if (stat.max < cur + inc)
-                stat.max = cur + inc;
-        }
-        return true;
+        return cur;
     }
     /**
      * Resolve a fully qualified table name
@@ -956,6 +1072,57 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         }
     }
 
+    /**
+     * Reserves blocks of values for a {@link SeqBuffer}. Blocks needed right
+     * away are reserved like any other allocation; blocks reserved in the
+     * background use their own connection from the non-transactional
+     * data source.
+     */
+    private class BufferAllocator implements SeqBuffer.Allocator {
+
+        private final JDBCStore _store;
+        private final ClassMapping _mapping;
+
+        BufferAllocator(JDBCStore store, ClassMapping mapping) {
+            _store = store;
+            _mapping = mapping;
+        }
+
+        @Override
+        public SeqBuffer.Block allocate(int size)
+            throws SQLException {
+            Status stat = new Status();
+            allocateSequence(_store, _mapping, stat, size, true);
+            long start = Math.max(stat.seq, 1);
+            return new SeqBuffer.Block(start, 1, stat.max - start);
+        }
+
+        @Override
+        public Callable<SeqBuffer.Block> prefetch(final int size) {
+            if (type == TYPE_TRANSACTIONAL || type == TYPE_CONTIGUOUS || suspendInJTA())
+                return null;
+            final DataSource ds = _conf.getDataSource2(_store.getContext());
+            return () -> {
+                Connection conn = ds.getConnection();
+                try {
+                    if (conn.getAutoCommit())
+                        conn.setAutoCommit(false);
+                    long cur = reserveSequence(_mapping, size, conn);
+                    conn.commit();
+                    if (cur == -1)
+                        return null;
+                    long start = Math.max(cur, 1);
+                    return new SeqBuffer.Block(start, 1, cur + size - start);
+                } catch (SQLException se) {
+                    try { conn.rollback(); } catch (SQLException e) {}
+                    throw se;
+                } finally {
+                    try { conn.close(); } catch (SQLException se) {}
+                }
+            };
+        }
+    }
+
     /**
      * CurentSequenceRunnable is a runnable wrapper which obtains the current
      * sequence value from the database.
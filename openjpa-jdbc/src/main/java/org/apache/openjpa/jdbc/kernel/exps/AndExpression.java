@@ -22,6 +22,8 @@ import java.util.Map;
 
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.Select;
+import org.apache.openjpa.kernel.exps.ConjunctionExpression;
+import org.apache.openjpa.kernel.exps.Expression;
 import org.apache.openjpa.kernel.exps.ExpressionVisitor;
 
 /**
@@ -30,7 +32,7 @@ import org.apache.openjpa.kernel.exps.ExpressionVisitor;
  * @author Abe White
  */
 class AndExpression
-    implements Exp {
+    implements Exp, ConjunctionExpression {
 
     
     private static final long serialVersionUID = 1L;
@@ -45,6 +47,16 @@ class AndExpression
         _exp2 = exp2;
     }
 
+    @Override
+    public Expression getExpression1() {
+        return _exp1;
+    }
+
+    @Override
+    public Expression getExpression2() {
+        return _exp2;
+    }
+
     @Override
     public ExpState initialize(Select sel, ExpContext ctx, Map contains) {
         ExpState s1 = _exp1.initialize(sel, ctx, contains);
@@ -22,6 +22,9 @@ import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.Select;
+import org.apache.openjpa.kernel.exps.Constant;
+import org.apache.openjpa.kernel.exps.FieldEqualityExpression;
+import org.apache.openjpa.meta.FieldMetaData;
 
 /**
  * Compares two values.
@@ -29,7 +32,8 @@ import org.apache.openjpa.jdbc.sql.Select;
  * @author Abe White
  */
 class EqualExpression
-    extends CompareEqualExpression {
+    extends CompareEqualExpression
+    implements FieldEqualityExpression {
 
     
     private static final long serialVersionUID = 1L;
@@ -41,6 +45,35 @@ class EqualExpression
         super(val1, val2);
     }
 
+    @Override
+    public FieldMetaData getCandidateField() {
+        PCPath path = getPath();
+        return (path == null) ? null : path.getCandidateField();
+    }
+
+    @Override
+    public Constant getConstant() {
+        return (getPath() == null) ? null
+            : (Constant) ((getValue1() instanceof PCPath) ? getValue2()
+            : getValue1());
+    }
+
+    /**
+     * Return the path of a comparison between a path and a parameter or
+     * literal, or null.
+     */
+    private PCPath getPath() {
+        if (getValue1() instanceof PCPath && isConstant(getValue2()))
+            return (PCPath) getValue1();
+        if (getValue2() instanceof PCPath && isConstant(getValue1()))
+            return (PCPath) getValue2();
+        return null;
+    }
+
+    private static boolean isConstant(Val val) {
+        return val instanceof Param || val instanceof Lit;
+    }
+
     @Override
     public void appendTo(Select sel, ExpContext ctx, BinaryOpExpState bstate,
         SQLBuffer buf, boolean val1Null, boolean val2Null) {
@@ -184,6 +184,20 @@ public class PCPath extends CandidatePath implements JDBCPath {
         return _type != PATH;
     }
 
+    /**
+     * Return the field of the candidate this path gets, or null if the path
+     * does not consist of a single field traversal from the candidate.
+     */
+    public FieldMetaData getCandidateField() {
+        if (_type != PATH || _key || _keyPath || _correlationVar != null
+            || _actions == null || _actions.size() != 1)
+            return null;
+        Action action = (Action) _actions.getFirst();
+        if (action.op != Action.GET && action.op != Action.GET_OUTER)
+            return null;
+        return (FieldMetaData) action.data;
+    }
+
     /**
      * If this path is part of a contains clause, then alias it to the
      * proper contains id before initialization.
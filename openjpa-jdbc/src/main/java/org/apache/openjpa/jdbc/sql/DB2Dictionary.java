@@ -105,6 +105,7 @@ public class DB2Dictionary
 
     public DB2Dictionary() {
         platform = "DB2";
+        supportsMultiRowInsert = true;
         validationSQL = "SELECT DISTINCT(CURRENT TIMESTAMP) FROM SYSIBM.SYSTABLES";
         supportsSelectEndIndex = true;
 
@@ -518,6 +518,20 @@ public class DBDictionary
     // any positive number = batch limit
     public int batchLimit = NO_BATCH;
 
+    // loadBatchLimit value:
+    // 0 or 1 = load instances one at a time
+    // any greater number = maximum number of primary keys per IN-list select
+    // used to initialize instances in bulk
+    public int loadBatchLimit = NO_BATCH;
+
+    // multiRowInsertLimit value:
+    // 0 or 1 = insert one row per statement
+    // any greater number = maximum number of rows a batch of inserts of the
+    // same shape is rendered into a single multi-row insert statement
+    public int multiRowInsertLimit = NO_BATCH;
+    public boolean supportsMultiRowInsert = false;
+    public int maxParameterCount = 2000;
+
     public final Map<Integer,Set<String>> sqlStateCodes =
         new HashMap<>();
 
@@ -5594,6 +5608,73 @@ public class DBDictionary
         batchLimit = limit;
     }
 
+    /**
+     * Return the maximum number of instances initialized by a single
+     * primary key IN-list select when loading instances in bulk, capped
+     * by {@link #inClauseLimit} when that is set. A value of 1 or less
+     * disables bulk initialization.
+     */
+    public int getLoadBatchLimit() {
+        if (inClauseLimit > 0 && (loadBatchLimit > inClauseLimit))
+            return inClauseLimit;
+        return loadBatchLimit;
+    }
+
+    /**
+     * Set the loadBatchLimit value.
+     */
+    public void setLoadBatchLimit(int limit) {
+        loadBatchLimit = limit;
+    }
+
+    /**
+     * Return the maximum number of rows rendered into a single multi-row
+     * insert, or 1 or less if the database does not support multi-row inserts
+     * or they are not enabled.
+     */
+    public int getMultiRowInsertLimit() {
+        return supportsMultiRowInsert ? multiRowInsertLimit : NO_BATCH;
+    }
+
+    /**
+     * Set the multiRowInsertLimit value.
+     */
+    public void setMultiRowInsertLimit(int limit) {
+        multiRowInsertLimit = limit;
+    }
+
+    /**
+     * Return the number of rows to insert per statement for inserts with the
+     * given number of parameters per row, within both the
+     * {@link #getMultiRowInsertLimit multi-row insert limit} and the
+     * {@link #maxParameterCount maximum number of parameters} of a statement.
+     */
+    public int getMultiRowInsertRows(int paramsPerRow) {
+        int rows = getMultiRowInsertLimit();
+        if (paramsPerRow > 0 && maxParameterCount > 0)
+            rows = Math.min(rows, maxParameterCount / paramsPerRow);
+        return Math.max(rows, 1);
+    }
+
+    /**
+     * Return the SQL to insert the given number of rows in one statement,
+     * given the SQL to insert a single row. Returns null if the statement is
+     * not a plain <code>INSERT ... VALUES (...)</code>.
+     */
+    public String getMultiRowInsertSQL(String sql, int rows) {
+        int idx = sql.lastIndexOf(" VALUES (");
+        if (idx == -1 || !sql.startsWith("INSERT INTO ") || !sql.endsWith(")"))
+            return null;
+
+        String values = sql.substring(idx + 8);
+        StringBuilder buf = new StringBuilder(sql.length()
+            + (values.length() + 2) * (rows - 1));
+        buf.append(sql);
+        for (int i = 1; i < rows; i++)
+            buf.append(", ").append(values);
+        return buf.toString();
+    }
+
     /**
      * Validate the batch process. In some cases, we can't batch the statements
      * due to some restrictions. For example, if the GeneratedType=IDENTITY,
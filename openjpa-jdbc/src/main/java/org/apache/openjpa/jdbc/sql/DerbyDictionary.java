@@ -42,6 +42,7 @@ public class DerbyDictionary
 
     public DerbyDictionary() {
         platform = "Apache Derby";
+        supportsMultiRowInsert = true;
         validationSQL = "VALUES(1)";
         stringLengthFunction = "LENGTH({0})";
         substringFunctionName = "SUBSTR";
@@ -156,6 +156,7 @@ public class H2Dictionary extends DBDictionary {
 
     public H2Dictionary() {
         platform = "H2";
+        supportsMultiRowInsert = true;
         validationSQL = "CALL 1";
         closePoolSQL = "SHUTDOWN";
 
@@ -58,6 +58,7 @@ public class HSQLDictionary extends DBDictionary {
 
     public HSQLDictionary() {
         platform = "HSQL";
+        supportsMultiRowInsert = true;
         validationSQL = "CALL 1";
         concatenateFunction = "CONCAT({0},{1})";
         closePoolSQL = "SHUTDOWN";
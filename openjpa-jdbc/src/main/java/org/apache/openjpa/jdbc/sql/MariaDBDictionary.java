@@ -91,6 +91,8 @@ public class MariaDBDictionary extends DBDictionary {
 
     public MariaDBDictionary() {
         platform = "MariaDB";
+        supportsMultiRowInsert = true;
+        maxParameterCount = 65535;
         validationSQL = "SELECT NOW()";
         distinctCountColumnSeparator = ",";
 
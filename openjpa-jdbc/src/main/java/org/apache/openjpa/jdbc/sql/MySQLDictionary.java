@@ -88,6 +88,8 @@ public class MySQLDictionary
 
     public MySQLDictionary() {
         platform = "MySQL";
+        supportsMultiRowInsert = true;
+        maxParameterCount = 65535;
         validationSQL = "SELECT NOW()";
         distinctCountColumnSeparator = ",";
 
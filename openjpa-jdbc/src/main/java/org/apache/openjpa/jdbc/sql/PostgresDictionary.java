@@ -128,6 +128,8 @@ public class PostgresDictionary extends DBDictionary {
 
     public PostgresDictionary() {
         platform = "PostgreSQL";
+        supportsMultiRowInsert = true;
+        maxParameterCount = 32767;
         validationSQL = "SELECT NOW()";
         datePrecision = MICRO;
         supportsAlterTableWithDropColumn = false;
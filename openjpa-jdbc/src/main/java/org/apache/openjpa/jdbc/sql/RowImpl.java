@@ -962,6 +962,25 @@ public class RowImpl
         flush(stmnt, 1, dict, store);
     }
 
+    /**
+     * Return the number of parameters {@link #flush} actually sets on a
+     * prepared statement for this row's SQL.
+     */
+    public int getFlushParameterCount() {
+        int i = (getAction() == ACTION_DELETE) ? _cols.length: 0;
+        int half = _vals.length / 2;
+        int count = 0;
+        for (; i < _vals.length; i++) {
+            if (_vals[i] == null)
+                continue;
+            if (_vals[i] == NULL && getAction() != ACTION_INSERT && i >= half)
+                continue;
+            if (_vals[i] == NULL || _types[i] != RAW)
+                count++;
+        }
+        return count;
+    }
+
     /**
      * Flush the row's values to the given prepared statement.
      */
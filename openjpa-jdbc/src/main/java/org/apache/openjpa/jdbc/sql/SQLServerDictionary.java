@@ -73,6 +73,8 @@ public class SQLServerDictionary extends AbstractSQLServerDictionary {
 
     public SQLServerDictionary() {
         platform = "Microsoft SQL Server";
+        supportsMultiRowInsert = true;
+        maxParameterCount = 2098;
         // SQLServer locks on a table-by-table basis
         forUpdateClause = null;
         tableForUpdateClause = "WITH (UPDLOCK)";
@@ -37,6 +37,10 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.kernel.EagerFetchModes;
@@ -474,12 +478,19 @@ public class SelectImpl
         if (sel._eager == null)
             return;
 
+        // run independent separate selects at the same time, if configured
+        Map concurrent = sel.executeConcurrently(store, fetch);
+        if (concurrent != null)
+            res.setEagerMap(concurrent);
+
         // execute eager selects
         Map.Entry entry;
         Result eres;
         Map eager;
         for (Object o : sel._eager.entrySet()) {
             entry = (Map.Entry) o;
+            if (concurrent != null && concurrent.containsKey(entry.getKey()))
+                continue;
 
             // simulated batched selects for inner/outer joins; for separate
             // selects, don't pass on lock level, because they're probably
@@ -499,6 +510,122 @@ public class SelectImpl
         }
     }
 
+    /**
+     * Execute the separate eager selects of this select at the same time,
+     * each on a connection of its own, and return their results by eager
+     * key. Returns null if the eager selects should run one after another on
+     * the connection of the store instead: if no executor is configured,
+     * if the store has a datastore transaction whose uncommitted changes or
+     * locks other connections would not share, or if fewer than two eager
+     * selects qualify. Selects that have eager selects of their own, use
+     * large result sets or lock rows do not qualify. Selects the executor
+     * rejects, because all its threads are busy or it has been shut down,
+     * are left out of the returned results, and so run on the connection of
+     * the store as well.
+     */
+    private Map executeConcurrently(final JDBCStore store,
+        final JDBCFetchConfiguration fetch)
+        throws SQLException {
+        Executor executor = store.getConfiguration().
+            getEagerFetchExecutorInstance();
+        if (executor == null)
+            return null;
+
+        JDBCLockManager lm = store.getLockManager();
+        Map<Object,FutureTask<Result>> tasks = null;
+        Map.Entry entry;
+        for (Object o : _eager.entrySet()) {
+            entry = (Map.Entry) o;
+            if (!(entry.getValue() instanceof SelectImpl))
+                continue;
+            final SelectImpl esel = (SelectImpl) entry.getValue();
+            if (esel == this || esel.hasMultipleSelects() || esel.isLRS()
+                || (lm != null && lm.selectForUpdate(esel,
+                fetch.getReadLockLevel())))
+                continue;
+            if (tasks == null)
+                tasks = new HashMap<>();
+            tasks.put(entry.getKey(), new FutureTask<>(() ->
+                esel.executeOnNewConnection(store, fetch)));
+        }
+        if (tasks == null || tasks.size() < 2
+            || store.getContext().isStoreActive())
+            return null;
+
+        for (Iterator<FutureTask<Result>> itr = tasks.values().iterator();
+            itr.hasNext();) {
+            try {
+                executor.execute(itr.next());
+            } catch (RejectedExecutionException ree) {
+                itr.remove();
+            }
+        }
+        if (tasks.isEmpty())
+            return null;
+
+        // wait for all submitted selects, so that none is left running on
+        // failure
+        Map results = new HashMap();
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Map.Entry<Object,FutureTask<Result>> task : tasks.entrySet()) {
+            while (true) {
+                try {
+                    results.put(task.getKey(), task.getValue().get());
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                    continue;
+                } catch (ExecutionException ee) {
+                    if (failure == null)
+                        failure = ee.getCause();
+                }
+                break;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure == null)
+            return results;
+
+        for (Object eres : results.values())
+            ((Result) eres).close();
+        if (failure instanceof SQLException)
+            throw (SQLException) failure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        throw new SQLException(failure);
+    }
+
+    /**
+     * Execute this select on a new connection of the given store, which the
+     * result closes when it is closed. Used for eager selects that run
+     * concurrently with other eager selects, so this select must not have
+     * eager selects of its own.
+     */
+    private Result executeOnNewConnection(JDBCStore store,
+        JDBCFetchConfiguration fetch)
+        throws SQLException {
+        logEagerRelations();
+        SQLBuffer sql = toSelect(false, fetch);
+        Connection conn = store.getNewConnection();
+        PreparedStatement stmnt = null;
+        ResultSet rs = null;
+        try {
+            stmnt = prepareStatement(conn, sql, fetch,
+                ResultSet.TYPE_FORWARD_ONLY, -1, false);
+            _dict.setTimeouts(stmnt, fetch, false);
+            rs = executeQuery(conn, stmnt, sql, false, store);
+        } catch (SQLException se) {
+            if (stmnt != null)
+                try { stmnt.close(); } catch (SQLException se2) {}
+            try { conn.close(); } catch (SQLException se2) {}
+            throw se;
+        }
+        return getEagerResult(conn, stmnt, rs, store, fetch, false, sql);
+    }
+
 
     /**
      * This method is to provide override for non-JDBC or JDBC-like
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.jdbc.sql.Row;
+import org.apache.openjpa.jdbc.sql.RowImpl;
+import org.apache.openjpa.lib.graph.Edge;
+import org.apache.openjpa.lib.graph.Graph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the grouped topological order of
+ * {@link BatchingConstraintUpdateManager#orderNodes}.
+ */
+public class BatchingConstraintUpdateManagerTests {
+
+    private final Table _orders = table("ORDERS");
+    private final Table _lines = table("LINES");
+    private final Table _notes = table("NOTES");
+
+    private BatchingConstraintUpdateManager _manager;
+    private Graph _graph;
+    private Map<RowImpl, String> _names;
+
+    private static Table table(String name) {
+        Table table = new Table(name, null);
+        table.addColumn(DBIdentifier.newColumn("ID"));
+        return table;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        _manager = new BatchingConstraintUpdateManager();
+        _graph = new Graph();
+        _names = new HashMap<>();
+    }
+
+    private RowImpl row(String name, Table table, int action) {
+        RowImpl row = new RowImpl(table, action);
+        _graph.addNode(row);
+        _names.put(row, name);
+        return row;
+    }
+
+    /**
+     * The given row can only be flushed after the row it depends on.
+     */
+    private void depends(RowImpl row, RowImpl on) {
+        _graph.addEdge(new Edge(row, on, true));
+    }
+
+    private List<String> names(Collection<?> rows) {
+        List<String> names = new ArrayList<>();
+        for (Object row : rows)
+            names.add(_names.get(row));
+        return names;
+    }
+
+    /**
+     * Return whether every row comes after the rows it depends on.
+     */
+    private boolean isTopological(Collection<?> rows) {
+        List<Object> order = new ArrayList<>(rows);
+        for (Edge edge : _graph.getEdges())
+            if (order.indexOf(edge.getFrom()) < order.indexOf(edge.getTo()))
+                return false;
+        return true;
+    }
+
+    @Test
+    public void testOrdersAndLinesAreGrouped() {
+        // the order of a depth-first sort: each order followed by its lines
+        List<RowImpl> rows = new ArrayList<>();
+        for (int o = 0; o < 3; o++) {
+            RowImpl order = row("o" + o, _orders, Row.ACTION_INSERT);
+            rows.add(order);
+            for (int l = 0; l < 2; l++) {
+                RowImpl line = row("l" + o + l, _lines, Row.ACTION_INSERT);
+                depends(line, order);
+                rows.add(line);
+            }
+        }
+
+        Collection<?> ordered = _manager.orderNodes(_graph, rows);
+        assertEquals(Arrays.asList("o0", "o1", "o2", "l00", "l01", "l10",
+            "l11", "l20", "l21"), names(ordered));
+        assertTrue(isTopological(ordered));
+    }
+
+    @Test
+    public void testActionIsPartOfGroup() {
+        List<RowImpl> rows = new ArrayList<>();
+        rows.add(row("i0", _orders, Row.ACTION_INSERT));
+        rows.add(row("u0", _orders, Row.ACTION_UPDATE));
+        rows.add(row("i1", _orders, Row.ACTION_INSERT));
+        rows.add(row("u1", _orders, Row.ACTION_UPDATE));
+
+        assertEquals(Arrays.asList("i0", "i1", "u0", "u1"),
+            names(_manager.orderNodes(_graph, rows)));
+    }
+
+    @Test
+    public void testChainKeepsDependencies() {
+        // notes point to lines, which point to orders
+        List<RowImpl> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RowImpl order = row("o" + i, _orders, Row.ACTION_INSERT);
+            RowImpl line = row("l" + i, _lines, Row.ACTION_INSERT);
+            RowImpl note = row("n" + i, _notes, Row.ACTION_INSERT);
+            depends(line, order);
+            depends(note, line);
+            rows.addAll(Arrays.asList(order, line, note));
+        }
+
+        Collection<?> ordered = _manager.orderNodes(_graph, rows);
+        assertEquals(Arrays.asList("o0", "o1", "o2", "l0", "l1", "l2", "n0",
+            "n1", "n2"), names(ordered));
+        assertTrue(isTopological(ordered));
+    }
+
+    @Test
+    public void testLargeGraphStaysTopological() {
+        List<RowImpl> rows = new ArrayList<>();
+        Table[] tables = { _orders, _lines, _notes };
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            RowImpl row = row("r" + i, tables[random.nextInt(3)],
+                Row.ACTION_INSERT);
+            // depend on up to two earlier rows, as a topological order would
+            for (int d = 0; d < 2 && i > 0; d++)
+                if (random.nextBoolean())
+                    depends(row, rows.get(random.nextInt(i)));
+            rows.add(row);
+        }
+
+        Collection<?> ordered = _manager.orderNodes(_graph, rows);
+        assertEquals(rows.size(), ordered.size());
+        assertTrue(ordered.containsAll(rows));
+        assertTrue(isTopological(ordered));
+    }
+
+    @Test
+    public void testSmallGraphIsUnchanged() {
+        List<RowImpl> rows = Arrays.asList(row("a", _orders, Row.ACTION_INSERT),
+            row("b", _lines, Row.ACTION_INSERT));
+        assertSame(rows, _manager.orderNodes(_graph, rows));
+    }
+
+    @Test
+    public void testPlainConstraintManagerKeepsOrder() {
+        List<RowImpl> rows = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            rows.add(row("r" + i, (i % 2 == 0) ? _orders : _lines,
+                Row.ACTION_INSERT));
+        assertSame(rows, new ConstraintUpdateManager().orderNodes(_graph,
+            rows));
+    }
+}
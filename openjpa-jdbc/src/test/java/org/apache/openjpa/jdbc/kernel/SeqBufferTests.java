@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeqBufferTests {
+
+    private final ExecutorService _exec = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        _exec.shutdownNow();
+    }
+
+    /**
+     * Reserves consecutive blocks, counting reservations on the calling
+     * thread and in the background.
+     */
+    private static class Counter
+        implements SeqBuffer.Allocator {
+
+        final AtomicLong next = new AtomicLong(1);
+        final AtomicInteger allocated = new AtomicInteger();
+        final AtomicInteger prefetched = new AtomicInteger();
+        final List<Integer> sizes = new ArrayList<>();
+        final boolean background;
+        volatile boolean fail;
+
+        Counter(boolean background) {
+            this.background = background;
+        }
+
+        synchronized SeqBuffer.Block block(int size) {
+            sizes.add(size);
+            return new SeqBuffer.Block(next.getAndAdd(size), 1, size);
+        }
+
+        @Override
+        public SeqBuffer.Block allocate(int size) {
+            allocated.incrementAndGet();
+            return block(size);
+        }
+
+        @Override
+        public Callable<SeqBuffer.Block> prefetch(int size) {
+            if (!background)
+                return null;
+            return () -> {
+                prefetched.incrementAndGet();
+                if (fail)
+                    throw new IllegalStateException("fail");
+                return block(size);
+            };
+        }
+    }
+
+    @Test
+    public void testValuesAreHandedOutInOrder() throws Exception {
+        SeqBuffer buf = new SeqBuffer(null, 20, 10, 10);
+        Counter alloc = new Counter(false);
+        for (long i = 1; i <= 35; i++)
+            assertEquals(i, buf.next(alloc));
+        assertEquals(4, alloc.allocated.get());
+    }
+
+    @Test
+    public void testStepIsApplied() throws Exception {
+        SeqBuffer buf = new SeqBuffer(null, 20, 3, 3);
+        SeqBuffer.Allocator alloc = new SeqBuffer.Allocator() {
+            long start = 100;
+
+            @Override
+            public SeqBuffer.Block allocate(int size) {
+                SeqBuffer.Block block = new SeqBuffer.Block(start, 5, size);
+                start += 5 * size;
+                return block;
+            }
+
+            @Override
+            public Callable<SeqBuffer.Block> prefetch(int size) {
+                return null;
+            }
+        };
+        for (long expected = 100; expected < 150; expected += 5)
+            assertEquals(expected, buf.next(alloc));
+    }
+
+    @Test
+    public void testNextBlockIsPrefetchedAtLowWaterMark() throws Exception {
+        SeqBuffer buf = new SeqBuffer(Runnable::run, 20, 10, 10);
+        Counter alloc = new Counter(true);
+        for (long i = 1; i <= 8; i++)
+            buf.next(alloc);
+        assertEquals(0, alloc.prefetched.get());
+        // the ninth value leaves 20 percent of the block
+        buf.next(alloc);
+        assertEquals(1, alloc.prefetched.get());
+        for (long i = 10; i <= 30; i++)
+            assertEquals(i, buf.next(alloc));
+        // only the very first block was reserved on the calling thread
+        assertEquals(1, alloc.allocated.get());
+        assertEquals(3, alloc.prefetched.get());
+    }
+
+    @Test
+    public void testFailedPrefetchFallsBackToCallingThread() throws Exception {
+        SeqBuffer buf = new SeqBuffer(Runnable::run, 50, 10, 10);
+        Counter alloc = new Counter(true);
+        alloc.fail = true;
+        for (long i = 1; i <= 25; i++)
+            assertEquals(i, buf.next(alloc));
+        assertEquals(3, alloc.allocated.get());
+        assertTrue(alloc.prefetched.get() >= 2);
+    }
+
+    @Test
+    public void testRejectedPrefetchIsRetriedLater() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        SeqBuffer buf = new SeqBuffer(r -> {
+            if (rejected.getAndIncrement() == 0)
+                throw new RejectedExecutionException();
+            r.run();
+        }, 50, 10, 10);
+        Counter alloc = new Counter(true);
+        for (long i = 1; i <= 20; i++)
+            assertEquals(i, buf.next(alloc));
+        // the first prefetch was rejected, so the second block came from
+        // the calling thread; the third was prefetched
+        assertEquals(2, alloc.allocated.get());
+        assertEquals(1, alloc.prefetched.get());
+    }
+
+    @Test
+    public void testBlockSizeAdaptsToUsage() throws Exception {
+        SeqBuffer buf = new SeqBuffer(null, 20, 2, 16);
+        Counter alloc = new Counter(false);
+        for (int i = 0; i < 2 + 4 + 8 + 16 + 16; i++)
+            buf.next(alloc);
+        assertEquals(List.of(2, 4, 8, 16, 16), alloc.sizes);
+        assertEquals(16, buf.getSize());
+    }
+
+    @Test
+    public void testFixedBlockSize() throws Exception {
+        SeqBuffer buf = new SeqBuffer(null, 20, 5, 5);
+        Counter alloc = new Counter(false);
+        for (int i = 0; i < 20; i++)
+            buf.next(alloc);
+        assertEquals(List.of(5, 5, 5, 5), alloc.sizes);
+    }
+
+    @Test
+    public void testReserve() throws Exception {
+        SeqBuffer buf = new SeqBuffer(null, 20, 5, 5);
+        Counter alloc = new Counter(false);
+        assertEquals(1, buf.next(alloc));
+        buf.reserve(3, alloc);
+        assertEquals(1, alloc.allocated.get());
+        buf.reserve(10, alloc);
+        assertEquals(2, alloc.allocated.get());
+        // the rest of the first block was given up
+        assertEquals(6, buf.next(alloc));
+        for (int i = 0; i < 9; i++)
+            buf.next(alloc);
+        assertEquals(2, alloc.allocated.get());
+    }
+
+    @Test
+    public void testConcurrentCallersGetUniqueValues() throws Exception {
+        SeqBuffer buf = new SeqBuffer(_exec, 30, 7, 50);
+        Counter alloc = new Counter(true);
+        int threads = 6;
+        int per = 5000;
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(_exec.submit(() -> {
+                start.await();
+                for (int i = 0; i < per; i++)
+                    assertTrue(values.add(buf.next(alloc)));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get();
+        assertEquals(threads * per, values.size());
+        // every value handed out was reserved
+        long max = values.stream().mapToLong(Long::longValue).max().getAsLong();
+        assertTrue(max < alloc.next.get());
+    }
+}
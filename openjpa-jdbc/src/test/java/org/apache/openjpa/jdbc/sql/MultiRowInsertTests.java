@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the multi-row insert support of {@link DBDictionary}.
+ */
+public class MultiRowInsertTests {
+
+    private static final String SQL =
+        "INSERT INTO ITEM (ID, NAME, VERSION) VALUES (?, ?, ?)";
+
+    private static DBDictionary newDictionary(boolean supported, int limit) {
+        DBDictionary dict = new DBDictionary();
+        dict.supportsMultiRowInsert = supported;
+        dict.setMultiRowInsertLimit(limit);
+        return dict;
+    }
+
+    @Test
+    public void testLimitRequiresSupport() {
+        assertEquals(DBDictionary.NO_BATCH, newDictionary(false, 10).
+            getMultiRowInsertLimit());
+        assertEquals(10, newDictionary(true, 10).getMultiRowInsertLimit());
+        assertEquals(1, newDictionary(false, 10).getMultiRowInsertRows(3));
+    }
+
+    @Test
+    public void testRowsStayWithinParameterCount() {
+        DBDictionary dict = newDictionary(true, 100);
+        dict.maxParameterCount = 10;
+        assertEquals(3, dict.getMultiRowInsertRows(3));
+        assertEquals(1, dict.getMultiRowInsertRows(20));
+        dict.maxParameterCount = 0;
+        assertEquals(100, dict.getMultiRowInsertRows(3));
+    }
+
+    @Test
+    public void testMultiRowInsertSQL() {
+        DBDictionary dict = newDictionary(true, 10);
+        assertEquals(SQL + ", (?, ?, ?), (?, ?, ?)",
+            dict.getMultiRowInsertSQL(SQL, 3));
+        assertEquals(SQL, dict.getMultiRowInsertSQL(SQL, 1));
+    }
+
+    @Test
+    public void testOnlyPlainInsertsAreCombined() {
+        DBDictionary dict = newDictionary(true, 10);
+        assertNull(dict.getMultiRowInsertSQL(
+            "UPDATE ITEM SET NAME = ? WHERE ID = ?", 2));
+        assertNull(dict.getMultiRowInsertSQL(
+            "INSERT INTO ITEM (ID) SELECT ID FROM OTHER", 2));
+        assertNull(dict.getMultiRowInsertSQL(SQL + " RETURNING ID", 2));
+    }
+}
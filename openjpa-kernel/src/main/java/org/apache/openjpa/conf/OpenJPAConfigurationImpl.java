@@ -31,6 +31,7 @@ import org.apache.openjpa.datacache.ConcurrentDataCache;
 import org.apache.openjpa.datacache.ConcurrentQueryCache;
 import org.apache.openjpa.datacache.DataCacheManager;
 import org.apache.openjpa.datacache.DataCacheManagerImpl;
+import org.apache.openjpa.datacache.OffHeapDataCache;
 import org.apache.openjpa.datacache.PartitionedDataCache;
 import org.apache.openjpa.ee.ManagedRuntime;
 import org.apache.openjpa.enhance.RuntimeUnenhancedClassesModes;
@@ -269,6 +270,7 @@ public class OpenJPAConfigurationImpl
             "true", ConcurrentDataCache.class.getName(),
             "concurrent", ConcurrentDataCache.class.getName(),
             "partitioned", PartitionedDataCache.class.getName(),
+            "offheap", OffHeapDataCache.class.getName(),
         };
         dataCachePlugin.setAliases(aliases);
         dataCachePlugin.setDefault(aliases[0]);
@@ -1973,6 +1975,8 @@ public class OpenJPAConfigurationImpl
 
     @Override
     protected void preClose() {
+        // the caches may write a snapshot that needs the metadata
+        ImplHelper.close(dataCacheManagerPlugin.get());
         ImplHelper.close(metaRepository);
         ImplHelper.close(remoteEventManager);
         ImplHelper.close(getInstrumentationManagerInstance());
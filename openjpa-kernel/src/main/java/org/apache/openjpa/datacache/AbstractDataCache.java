@@ -420,6 +420,16 @@ public abstract class AbstractDataCache extends AbstractConcurrentEventManager
      */
     protected abstract DataCachePCData getInternal(Object oid);
 
+    /**
+     * Return the oids in the cache, or an empty collection if this cache
+     * cannot list them. Used to write a {@link DataCacheSnapshot}.
+     *
+     * @since 4.1.2
+     */
+    protected Collection<Object> keySet() {
+        return Collections.emptySet();
+    }
+
     /**
      * Add the given object to the cache, returning the old object under the
      * given oid.
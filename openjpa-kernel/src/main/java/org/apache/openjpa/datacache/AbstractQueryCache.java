@@ -22,6 +22,7 @@ import java.io.PrintStream;
 import java.security.AccessController;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +34,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.event.RemoteCommitEvent;
 import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.lib.conf.Configurable;
 import org.apache.openjpa.lib.conf.Configuration;
@@ -66,7 +68,8 @@ public abstract class AbstractQueryCache
         Localizer.forPackage(AbstractQueryCache.class);
 
     private static final String TIMESTAMP = "timestamp";
-    public enum EvictPolicy {DEFAULT, TIMESTAMP}
+    private static final String DEPENDENCY = "dependency";
+    public enum EvictPolicy {DEFAULT, TIMESTAMP, DEPENDENCY}
 
     /**
      * The configuration set by the system.
@@ -88,6 +91,14 @@ public abstract class AbstractQueryCache
 
     private QueryStatistics<QueryKey> _stats;
     private boolean _statsEnabled = false;
+    private boolean _materialize = false;
+
+    // the dependencies of the results cached under the dependency evict
+    // policy, and the keys of the member results holding each id
+    private final Map<QueryKey, Dependent> _dependents =
+        new ConcurrentHashMap<>();
+    private final Map<Object, Set<QueryKey>> _keysByOid =
+        new ConcurrentHashMap<>();
 
     public void setEnableStatistics(boolean enable){
         _statsEnabled = enable;
@@ -96,6 +107,28 @@ public abstract class AbstractQueryCache
         return _statsEnabled;
     }
 
+    /**
+     * Whether to cache the state of the persistent instances of a result
+     * along with their ids, so that a cache hit can rebuild the result
+     * without looking up each instance in the data cache. Instances of types
+     * without a data cache are not materialized. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public void setMaterialize(boolean materialize) {
+        _materialize = materialize;
+    }
+
+    /**
+     * Whether to cache the state of the persistent instances of a result
+     * along with their ids.
+     *
+     * @since 4.1.2
+     */
+    public boolean getMaterialize() {
+        return _materialize;
+    }
+
     @Override
     public QueryStatistics<QueryKey> getStatistics() {
         return _stats;
@@ -125,7 +158,7 @@ public abstract class AbstractQueryCache
 
     @Override
     public void onTypesChanged(TypesChangedEvent ev) {
-        if (evictPolicy == EvictPolicy.DEFAULT) {
+        if (evictPolicy != EvictPolicy.TIMESTAMP) {
             writeLock();
             Collection keys = null;
             try {
@@ -136,18 +169,24 @@ public abstract class AbstractQueryCache
                 writeUnlock();
             }
 
+            Changes changes = (evictPolicy == EvictPolicy.DEPENDENCY)
+                ? newChanges(ev) : null;
             QueryKey qk;
-                List<QueryKey> removes = null;
-                for (Object o: keys) {
-                    qk = (QueryKey) o;
-                if (qk.changeInvalidatesQuery(ev.getTypes())) {
+            List<QueryKey> removes = null;
+            for (Object o: keys) {
+                qk = (QueryKey) o;
+                if (qk.changeInvalidatesQuery(ev.getTypes())
+                    && !isUnaffected(qk, changes)) {
                     if (removes == null)
                         removes = new ArrayList<>();
                     removes.add(qk);
                 }
             }
-            if (removes != null)
+            if (removes != null) {
                 removeAllInternal(removes);
+                for (QueryKey key : removes)
+                    unindex(key, null);
+            }
         } else {
             Collection changedTypes = ev.getTypes();
             HashMap<String,Long> changedClasses =
@@ -164,6 +203,119 @@ public abstract class AbstractQueryCache
         }
     }
 
+    /**
+     * Group the changed instances of the given event by type and collect
+     * the keys of the member results that hold one of them, or return null
+     * if the event does not say which instances changed.
+     */
+    private Changes newChanges(TypesChangedEvent ev) {
+        Collection<? extends OpenJPAStateManager> sms = ev.getStateManagers();
+        if (sms == null)
+            return null;
+        Changes changes = new Changes();
+        for (OpenJPAStateManager sm : sms) {
+            if (!sm.isNew() && !sm.isDeleted() && !sm.isDirty())
+                continue;
+            changes.byType.computeIfAbsent(sm.getMetaData().getDescribedType(),
+                k -> new ArrayList<>()).add(sm);
+            Set<QueryKey> keys = (sm.getObjectId() == null) ? null
+                : _keysByOid.get(sm.getObjectId());
+            if (keys != null)
+                changes.members.addAll(keys);
+        }
+        return changes;
+    }
+
+    /**
+     * Whether the given changes are known not to affect the result cached
+     * under the given key, judging by the dependencies recorded when the
+     * result was cached. Does not look at the cached result itself.
+     */
+    private boolean isUnaffected(QueryKey qk, Changes changes) {
+        if (changes == null)
+            return false;
+        Dependent dep = _dependents.get(qk);
+        if (dep == null || changes.members.contains(qk))
+            return false;
+
+        for (Map.Entry<Class<?>, List<OpenJPAStateManager>> entry
+            : changes.byType.entrySet()) {
+            if (!qk.changeInvalidatesQuery(Collections.singleton(
+                entry.getKey())))
+                continue;
+            for (OpenJPAStateManager sm : entry.getValue())
+                if (dep.deps.isAffectedBy(sm, false))
+                    return false;
+        }
+        if (log.isTraceEnabled())
+            log.trace(s_loc.get("cache-unaffected", qk, dep.deps));
+        return true;
+    }
+
+    /**
+     * Record the dependencies of the given result cached under the given
+     * key, along with the ids it holds if it holds exactly the matching
+     * instances. Results without dependencies are not recorded, so that any
+     * change to a type they depend on evicts them.
+     */
+    private void index(QueryKey qk, QueryResult res) {
+        QueryDependencies deps = res.getDependencies();
+        if (deps == null) {
+            unindex(qk, null);
+            return;
+        }
+        Object[] oids = deps.isMembers() ? res.toArray() : null;
+        _dependents.compute(qk, (k, old) -> {
+            if (old != null)
+                unindexIds(qk, old);
+            Dependent dep = new Dependent(deps, oids);
+            if (oids != null)
+                for (Object oid : oids)
+                    if (oid != null)
+                        _keysByOid.computeIfAbsent(oid,
+                            id -> ConcurrentHashMap.newKeySet()).add(qk);
+            return dep;
+        });
+    }
+
+    /**
+     * Forget the dependencies recorded for the given key. If a result is
+     * given, only forget them if they were recorded for that result.
+     */
+    private void unindex(QueryKey qk, QueryResult res) {
+        if (_dependents.isEmpty())
+            return;
+        _dependents.computeIfPresent(qk, (k, dep) -> {
+            if (res != null && res.getDependencies() != dep.deps)
+                return dep;
+            unindexIds(qk, dep);
+            return null;
+        });
+    }
+
+    private void unindexIds(QueryKey qk, Dependent dep) {
+        if (dep.oids == null)
+            return;
+        for (Object oid : dep.oids) {
+            if (oid != null)
+                _keysByOid.computeIfPresent(oid, (id, keys) -> {
+                    keys.remove(qk);
+                    return keys.isEmpty() ? null : keys;
+                });
+        }
+    }
+
+    /**
+     * Invoke when the result under the given key leaves the cache without a
+     * call to {@link #remove} or {@link #clear}, such as when it expires from
+     * a size-bounded map. The result may be null if it is no longer known.
+     *
+     * @since 4.1.2
+     */
+    protected void keyRemoved(QueryKey qk, QueryResult res) {
+        unindex(qk, res);
+    }
+
     @Override
     public QueryResult get(QueryKey key) {
         if (_statsEnabled) {
@@ -192,6 +344,8 @@ public abstract class AbstractQueryCache
     @Override
     public QueryResult put(QueryKey qk, QueryResult oids) {
         QueryResult o = putInternal(qk, oids);
+        if (evictPolicy == EvictPolicy.DEPENDENCY && getInternal(qk) == oids)
+            index(qk, oids);
         if (log.isTraceEnabled())
             log.trace(s_loc.get("cache-put", qk));
         return (o == null || o.isTimedOut()) ? null : o;
@@ -200,6 +354,7 @@ public abstract class AbstractQueryCache
     @Override
     public QueryResult remove(QueryKey key) {
         QueryResult o = removeInternal(key);
+        unindex(key, null);
         if (_statsEnabled) {
             _stats.recordEviction(key);
         }
@@ -241,6 +396,8 @@ public abstract class AbstractQueryCache
     @Override
     public void clear() {
         clearInternal();
+        _dependents.clear();
+        _keysByOid.clear();
         if (log.isTraceEnabled())
             log.trace(s_loc.get("cache-clear", "<query-cache>"));
         if (_statsEnabled) {
@@ -427,6 +584,8 @@ public abstract class AbstractQueryCache
     public void setEvictPolicy(String evictPolicy) {
         if (evictPolicy.equalsIgnoreCase(TIMESTAMP))
             this.evictPolicy = EvictPolicy.TIMESTAMP;
+        else if (evictPolicy.equalsIgnoreCase(DEPENDENCY))
+            this.evictPolicy = EvictPolicy.DEPENDENCY;
     }
 
     /**
@@ -480,6 +639,31 @@ public abstract class AbstractQueryCache
         return keySet().size();
     }
 
+    /**
+     * The dependencies recorded for a cached result.
+     */
+    private static class Dependent {
+
+        final QueryDependencies deps;
+        final Object[] oids;
+
+        Dependent(QueryDependencies deps, Object[] oids) {
+            this.deps = deps;
+            this.oids = oids;
+        }
+    }
+
+    /**
+     * The changed instances of an event grouped by type, and the keys of the
+     * member results that hold one of them.
+     */
+    private static class Changes {
+
+        final Map<Class<?>, List<OpenJPAStateManager>> byType =
+            new HashMap<>();
+        final Set<QueryKey> members = new HashSet<>();
+    }
+
     /**
      * A default implementation of query statistics for the Query result cache.
      *
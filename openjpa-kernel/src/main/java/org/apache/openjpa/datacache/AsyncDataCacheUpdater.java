@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.security.AccessController;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Closeable;
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * Applies committed changes to the data caches on background threads.
+ * Updates are spread over a fixed number of lanes, each with its own thread
+ * and bounded queue. All updates of a given object id go to the same lane, so
+ * they are applied in commit order. When a lane's queue is full, committing
+ * threads wait for room rather than applying their updates out of order.
+ *  Between the submission of an update and its completion the affected ids
+ * are reported as {@link #isPending pending}, and the store manager treats
+ * them as cache misses so that readers do not see the state from before
+ * the commit.
+ *
+ * @since 4.1.2
+ */
+public class AsyncDataCacheUpdater
+    implements Closeable {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (AsyncDataCacheUpdater.class);
+
+    private static final Runnable STOP = () -> {};
+
+    private final Log _log;
+    private final Lane[] _lanes;
+    private final Thread[] _threads;
+    private final Map<Object, Integer> _pending = new ConcurrentHashMap<>();
+    // held shared while updates are queued and exclusively while closing,
+    // so that nothing is queued behind the lanes' stop markers
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+    private boolean _closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param conf the configuration
+     * @param threads the number of lanes, each served by a single thread
+     * @param queueSize the number of updates each lane can hold before
+     * committing threads have to wait
+     */
+    public AsyncDataCacheUpdater(OpenJPAConfiguration conf, int threads,
+        int queueSize) {
+        _log = conf.getLog(OpenJPAConfiguration.LOG_DATACACHE);
+        _lanes = new Lane[Math.max(threads, 1)];
+        _threads = new Thread[_lanes.length];
+        for (int i = 0; i < _lanes.length; i++) {
+            _lanes[i] = new Lane(Math.max(queueSize, 1));
+            _threads[i] = AccessController.doPrivileged(J2DoPrivHelper
+                .newDaemonThreadAction(_lanes[i], _loc.get
+                ("async-updater-name", String.valueOf(i)).getMessage()));
+            _threads[i].start();
+        }
+    }
+
+    /**
+     * The number of lanes.
+     */
+    public int getLaneCount() {
+        return _lanes.length;
+    }
+
+    /**
+     * Return the lane that updates of the given object id are applied in.
+     */
+    public int getLane(Object oid) {
+        int h = (oid == null) ? 0 : oid.hashCode();
+        h ^= (h >>> 16);
+        return (h & Integer.MAX_VALUE) % _lanes.length;
+    }
+
+    /**
+     * Whether an update of the given object id has been submitted but not
+     * yet applied.
+     */
+    public boolean isPending(Object oid) {
+        return !_pending.isEmpty() && _pending.containsKey(oid);
+    }
+
+    /**
+     * Queue an update of the given object ids, which must all map to the
+     * given lane. The ids are pending from the time this method is called
+     * until the update has run. If this updater has been closed, the update
+     * is applied on the calling thread, as the lanes no longer run updates
+     * queued after they were told to stop.
+     */
+    public void submit(int lane, Collection<Object> oids, Runnable update) {
+        for (Object oid : oids)
+            _pending.merge(oid, 1, Integer::sum);
+
+        Runnable task = () -> {
+            try {
+                update.run();
+            } finally {
+                for (Object oid : oids)
+                    _pending.computeIfPresent(oid,
+                        (k, n) -> (n == 1) ? null : n - 1);
+            }
+        };
+        _lock.readLock().lock();
+        try {
+            if (!_closed) {
+                _lanes[lane]._queue.put(task);
+                return;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            _lock.readLock().unlock();
+        }
+        task.run();
+    }
+
+    /**
+     * Wait until all updates submitted so far have been applied.
+     */
+    public void flush() {
+        CountDownLatch[] done = new CountDownLatch[_lanes.length];
+        boolean closed;
+        _lock.readLock().lock();
+        try {
+            closed = _closed;
+            for (int i = 0; !closed && i < _lanes.length; i++) {
+                done[i] = new CountDownLatch(1);
+                _lanes[i]._queue.put(done[i]::countDown);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            _lock.readLock().unlock();
+        }
+
+        try {
+            // once closed, the lanes apply what is queued and stop
+            if (closed) {
+                for (Thread thread : _threads)
+                    thread.join();
+            } else {
+                for (CountDownLatch latch : done)
+                    latch.await();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply all queued updates and stop the lane threads.
+     */
+    @Override
+    public void close() {
+        _lock.writeLock().lock();
+        try {
+            if (_closed)
+                return;
+            _closed = true;
+            for (Lane lane : _lanes)
+                lane._queue.put(STOP);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            _lock.writeLock().unlock();
+        }
+        try {
+            for (Thread thread : _threads)
+                thread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A queue of updates and the loop that applies them in order.
+     */
+    private class Lane
+        implements Runnable {
+
+        private final BlockingQueue<Runnable> _queue;
+
+        Lane(int queueSize) {
+            _queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = _queue.take();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                if (task == STOP)
+                    return;
+                try {
+                    task.run();
+                } catch (RuntimeException re) {
+                    if (_log.isWarnEnabled())
+                        _log.warn(_loc.get("async-update-failed"), re);
+                }
+            }
+        }
+    }
+}
@@ -18,9 +18,12 @@
  */
 package org.apache.openjpa.datacache;
 
+import java.util.Collection;
+
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link DataCache} implementation that is optimized for concurrent
@@ -45,6 +48,7 @@ public class ConcurrentDataCache
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
     protected boolean _lru = false;
+    protected int _stripes = 0;
 
     /**
      * Returns the underlying {@link CacheMap} that this cache is using.
@@ -129,12 +133,22 @@ public class ConcurrentDataCache
      * invoke {@link AbstractDataCache#keyRemoved}.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru) {
-            @Override
-            protected void entryRemoved(Object key, Object value, boolean expired) {
-                keyRemoved(key, expired);
-            }
-        };
+        CacheMap res;
+        if (_stripes > 1) {
+            res = new StripedCacheMap(_lru, _stripes) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        } else {
+            res = new CacheMap(_lru) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        }
 
         return res;
     }
@@ -144,6 +158,11 @@ public class ConcurrentDataCache
         return (DataCachePCData) _cache.get(key);
     }
 
+    @Override
+    protected Collection<Object> keySet() {
+        return _cache.keySet();
+    }
+
     @Override
     protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
         return (DataCachePCData) _cache.put(key, pc);
@@ -190,4 +209,18 @@ public class ConcurrentDataCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Sets the number of independently locked segments of the backing map.
+     * Values greater than one select a {@link StripedCacheMap}, which lets
+     * concurrent reads proceed without contending for a single lock.
+     * Defaults to <code>0</code>, a single {@link CacheMap}.
+     */
+    public void setStripes(int stripes) {
+        _stripes = stripes;
+    }
+
+    public int getStripes() {
+        return _stripes;
+    }
 }
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link QueryCache} implementation that is optimized for concurrent
@@ -40,6 +41,7 @@ public class ConcurrentQueryCache
     private static final long serialVersionUID = 1L;
     private CacheMap _cache;
     protected boolean _lru = false;
+    protected int _stripes = 0;
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
 
@@ -122,7 +124,22 @@ public class ConcurrentQueryCache
      * Return the map to use as an internal cache.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru);
+        CacheMap res;
+        if (_stripes > 1) {
+            res = new StripedCacheMap(_lru, _stripes) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved((QueryKey) key, (QueryResult) value);
+                }
+            };
+        } else {
+            res = new CacheMap(_lru) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved((QueryKey) key, (QueryResult) value);
+                }
+            };
+        }
 
         return res;
     }
@@ -177,4 +194,18 @@ public class ConcurrentQueryCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Sets the number of independently locked segments of the backing map.
+     * Values greater than one select a {@link StripedCacheMap}, which lets
+     * concurrent reads proceed without contending for a single lock.
+     * Defaults to <code>0</code>, a single {@link CacheMap}.
+     */
+    public void setStripes(int stripes) {
+        _stripes = stripes;
+    }
+
+    public int getStripes() {
+        return _stripes;
+    }
 }
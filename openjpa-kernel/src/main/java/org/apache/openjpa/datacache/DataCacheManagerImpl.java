@@ -18,6 +18,9 @@
  */
 package org.apache.openjpa.datacache;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,6 +31,7 @@ import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.PCDataGenerator;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.lib.conf.ObjectValue;
+import org.apache.openjpa.lib.util.Clearable;
 import org.apache.openjpa.lib.util.Closeable;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.MetaDataRepository;
@@ -52,6 +56,15 @@ public class DataCacheManagerImpl
     private ClearableScheduler _scheduler = null;
     private CacheDistributionPolicy _policy = new DefaultCacheDistributionPolicy();
     private Map<ClassMetaData, Boolean> _cacheable = null;
+    private int _asyncUpdateThreads = 0;
+    private int _asyncUpdateQueueSize = 1000;
+    private AsyncDataCacheUpdater _updater = null;
+    private String _snapshotFile = null;
+    private String _snapshotSchedule = null;
+    private boolean _snapshotQueries = false;
+    private boolean _verifySnapshot = true;
+    private DataCacheSnapshot _snapshot = null;
+    private boolean _closed = false;
 
     // Properties that are configured via openjpa.DataCache but need to be used here. This is here to support the 1.2
     // way of doing things with openjpa.DataCache(Types=x;y;z,ExcludedTypes=a)
@@ -76,9 +89,23 @@ public class DataCacheManagerImpl
         _scheduler = new ClearableScheduler(conf);
 
         _policy = conf.getCacheDistributionPolicyInstance();
+        if (_asyncUpdateThreads > 0)
+            _updater = new AsyncDataCacheUpdater(conf, _asyncUpdateThreads,
+                _asyncUpdateQueueSize);
 
         _cache.initialize(this);
 
+        if (_snapshotFile != null && _snapshotFile.length() > 0) {
+            _snapshot = new DataCacheSnapshot(conf, new File(_snapshotFile),
+                _snapshotQueries, _verifySnapshot);
+            _snapshot.open();
+            // query results are discarded once a type they access changes
+            if (_snapshot.getQueries() && _queryCache != null)
+                _queryCache.addTypesChangedListener(_snapshot);
+            if (_snapshotSchedule != null && _snapshotSchedule.length() > 0)
+                _scheduler.scheduleEviction(new SnapshotWriter(),
+                    _snapshotSchedule);
+        }
     }
 
     @Override
@@ -121,8 +148,189 @@ public class DataCacheManagerImpl
         return _scheduler;
     }
 
+    /**
+     * The number of threads that apply committed changes to the data
+     * caches in the background, or 0 to apply them on the committing
+     * thread. Defaults to 0.
+     *
+     * @since 4.1.2
+     */
+    public int getAsyncUpdateThreads() {
+        return _asyncUpdateThreads;
+    }
+
+    /**
+     * The number of threads that apply committed changes to the data
+     * caches in the background, or 0 to apply them on the committing
+     * thread. Defaults to 0.
+     *
+     * @since 4.1.2
+     */
+    public void setAsyncUpdateThreads(int threads) {
+        _asyncUpdateThreads = threads;
+    }
+
+    /**
+     * The number of pending updates each background thread can hold before
+     * committing threads wait for it. Defaults to 1000.
+     *
+     * @since 4.1.2
+     */
+    public int getAsyncUpdateQueueSize() {
+        return _asyncUpdateQueueSize;
+    }
+
+    /**
+     * The number of pending updates each background thread can hold before
+     * committing threads wait for it. Defaults to 1000.
+     *
+     * @since 4.1.2
+     */
+    public void setAsyncUpdateQueueSize(int size) {
+        _asyncUpdateQueueSize = size;
+    }
+
+    /**
+     * Return the updater applying committed changes in the background, or
+     * null if changes are applied on the committing thread.
+     *
+     * @since 4.1.2
+     */
+    public AsyncDataCacheUpdater getAsyncUpdater() {
+        return _updater;
+    }
+
+    /**
+     * The file to write the contents of the data caches to when this
+     * manager is closed, and to read them back from lazily when the next
+     * one starts. Defaults to none.
+     *
+     * @see DataCacheSnapshot
+     * @since 4.1.2
+     */
+    public String getSnapshotFile() {
+        return _snapshotFile;
+    }
+
+    /**
+     * The file to write the contents of the data caches to when this
+     * manager is closed, and to read them back from lazily when the next
+     * one starts. Defaults to none.
+     *
+     * @see DataCacheSnapshot
+     * @since 4.1.2
+     */
+    public void setSnapshotFile(String file) {
+        _snapshotFile = file;
+    }
+
+    /**
+     * The schedule, in the format of {@link ClearableScheduler}, on which
+     * to also write the snapshot while running, so that a node that stops
+     * without closing still leaves a recent one. Defaults to none.
+     *
+     * @since 4.1.2
+     */
+    public String getSnapshotSchedule() {
+        return _snapshotSchedule;
+    }
+
+    /**
+     * The schedule, in the format of {@link ClearableScheduler}, on which
+     * to also write the snapshot while running, so that a node that stops
+     * without closing still leaves a recent one. Defaults to none.
+     *
+     * @since 4.1.2
+     */
+    public void setSnapshotSchedule(String schedule) {
+        _snapshotSchedule = schedule;
+    }
+
+    /**
+     * Whether the snapshot includes the query cache. Only takes effect when
+     * the snapshot is not {@link #getVerifySnapshot verified}. Defaults to
+     * false.
+     *
+     * @since 4.1.2
+     */
+    public boolean getSnapshotQueries() {
+        return _snapshotQueries;
+    }
+
+    /**
+     * Whether the snapshot includes the query cache. Only takes effect when
+     * the snapshot is not {@link #getVerifySnapshot verified}. Defaults to
+     * false.
+     *
+     * @since 4.1.2
+     */
+    public void setSnapshotQueries(boolean queries) {
+        _snapshotQueries = queries;
+    }
+
+    /**
+     * Whether to check the version of each instance read back from the
+     * snapshot against the database. Defaults to true.
+     *
+     * @since 4.1.2
+     */
+    public boolean getVerifySnapshot() {
+        return _verifySnapshot;
+    }
+
+    /**
+     * Whether to check the version of each instance read back from the
+     * snapshot against the database. Defaults to true.
+     *
+     * @since 4.1.2
+     */
+    public void setVerifySnapshot(boolean verify) {
+        _verifySnapshot = verify;
+    }
+
+    /**
+     * Return the snapshot the caches are restored from, or null if none is
+     * configured.
+     *
+     * @since 4.1.2
+     */
+    public DataCacheSnapshot getSnapshot() {
+        return _snapshot;
+    }
+
+    /**
+     * Write the contents of the data caches, and of the query cache if so
+     * configured, to the snapshot file. Does nothing if no snapshot file is
+     * configured.
+     *
+     * @since 4.1.2
+     */
+    public void writeSnapshot() {
+        if (_snapshot == null)
+            return;
+        Collection<DataCache> caches = new ArrayList<>();
+        caches.add(_cache);
+        for (String name : _cache.getPartitionNames()) {
+            DataCache partition = _cache.getPartition(name, false);
+            if (partition != null && partition != _cache)
+                caches.add(partition);
+        }
+        _snapshot.write(caches, _queryCache);
+    }
+
     @Override
-    public void close() {
+    public synchronized void close() {
+        if (_closed)
+            return;
+        _closed = true;
+        // apply outstanding updates before the caches go away
+        ImplHelper.close(_updater);
+        if (_snapshot != null) {
+            if (_scheduler != null)
+                _scheduler.stop();
+            writeSnapshot();
+            _snapshot.close();
+        }
         ImplHelper.close(_cache);
         ImplHelper.close(_queryCache);
         if (_scheduler != null)
@@ -235,4 +443,21 @@ public class DataCacheManagerImpl
         }
         return res;
     }
+
+    /**
+     * Writes the snapshot on the {@link #getSnapshotSchedule schedule}.
+     */
+    private class SnapshotWriter
+        implements Clearable {
+
+        @Override
+        public void clear() {
+            writeSnapshot();
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(_snapshot);
+        }
+    }
 }
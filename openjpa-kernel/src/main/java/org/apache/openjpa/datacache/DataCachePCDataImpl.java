@@ -199,6 +199,8 @@ public class DataCachePCDataImpl
                     DataCachePCData data = cache.get(oid);
                     if (data instanceof DataCachePCDataImpl) {
                         ((DataCachePCDataImpl) data).clearData(inverse.getIndex());
+                        // caches that hand out copies need the change back
+                        cache.update(data);
                     }
                 }
             }
@@ -0,0 +1,885 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.kernel.Query;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.kernel.jpql.JPQLParser;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Closeable;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.ApplicationIds;
+import org.apache.openjpa.util.Serialization.ClassResolvingObjectInputStream;
+
+/**
+ * A snapshot of the contents of the data caches and, optionally, the query
+ * cache in a file, so that a restarted application does not start with cold
+ * caches. The {@link DataCacheManagerImpl} writes the snapshot when it is
+ * closed and, optionally, on a schedule.
+ *  When the snapshot is opened only the keys of the snapshot are read; the
+ * file is mapped into memory and each cached instance or query result is read
+ * back when it is first looked up, and is then removed from the snapshot.
+ * Instances are read back when they are looked up by id, and query results
+ * when the query is run; instances loaded otherwise come from the database as
+ * usual. The snapshot records a fingerprint of the metadata of each type, and
+ * data of types whose metadata changed since is discarded. Unless
+ * verification is disabled, the version of each instance is checked against
+ * the database when it is read back, and stale instances are loaded from the
+ * database instead; instances of types without a version field are then not
+ * written at all. Instances this node changes are removed from the snapshot
+ * when the change is committed.
+ *  Whether a query result still holds the instances the query would select
+ * cannot be checked without running the query, so query results are only
+ * included when verification is disabled. The snapshot then records when
+ * each type changed while it was open, as reported to the query cache, and
+ * discards results accessing a type that changed after they were cached.
+ * Changes made while no node was running are not detected.
+ *
+ * @since 4.1.2
+ */
+public class DataCacheSnapshot
+    implements Closeable, TypesChangedListener {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (DataCacheSnapshot.class);
+
+    private static final int MAGIC = 0x4f4a4453;
+    private static final int FORMAT = 1;
+    // magic, format, creation time and the position of the type table
+    private static final int HEADER = 4 + 4 + 8 + 8;
+
+    private static final byte DATA = 1;
+    private static final byte QUERY = 2;
+    // kind, key length and value length precede each record
+    private static final int RECORD_HEADER = 1 + 4 + 4;
+
+    // the records are mapped in segments of at most this many bytes
+    private static final long SEGMENT = 1L << 30;
+
+    // the number of ids whose versions are verified in one query
+    private static final int VERIFY_BATCH = 500;
+
+    private final OpenJPAConfiguration _conf;
+    private final Log _log;
+    private final File _file;
+    private final boolean _queries;
+    private final boolean _verify;
+
+    private final Map<String,Long> _fingerprints = new HashMap<>();
+    private final Map<String,Boolean> _current = new ConcurrentHashMap<>();
+    private final Map<String,Map<Object,Record>> _data =
+        new ConcurrentHashMap<>();
+    private final Map<QueryKey,Record> _queryResults =
+        new ConcurrentHashMap<>();
+    // the last time each type changed since the snapshot was opened
+    private final Map<String,Long> _updated = new ConcurrentHashMap<>();
+    private volatile ByteBuffer[] _segments = new ByteBuffer[0];
+
+    private final LongAdder _restored = new LongAdder();
+    private final LongAdder _stale = new LongAdder();
+    private final LongAdder _discarded = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param file the snapshot file
+     * @param queries whether to include the query cache; ignored with a
+     * warning when verifying
+     * @param verify whether to check the version of each instance read back
+     */
+    public DataCacheSnapshot(OpenJPAConfiguration conf, File file,
+        boolean queries, boolean verify) {
+        _conf = conf;
+        _log = conf.getLog(OpenJPAConfiguration.LOG_DATACACHE);
+        _file = file;
+        _queries = queries && !verify;
+        _verify = verify;
+        if (queries && verify && _log.isWarnEnabled())
+            _log.warn(_loc.get("snapshot-queries-verify", file));
+    }
+
+    /**
+     * The snapshot file.
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Whether the query cache is included. It is only included when
+     * verification is disabled.
+     */
+    public boolean getQueries() {
+        return _queries;
+    }
+
+    /**
+     * Whether the version of each instance read back is checked against the
+     * database.
+     */
+    public boolean getVerify() {
+        return _verify;
+    }
+
+    /**
+     * The number of instances and query results read back so far.
+     */
+    public long getRestoredCount() {
+        return _restored.sum();
+    }
+
+    /**
+     * The number of instances read back whose version was stale.
+     */
+    public long getStaleCount() {
+        return _stale.sum();
+    }
+
+    /**
+     * The number of instances and query results discarded because their
+     * metadata changed or they could not be read.
+     */
+    public long getDiscardedCount() {
+        return _discarded.sum();
+    }
+
+    /**
+     * The number of instances and query results not read back yet.
+     */
+    public int getPendingCount() {
+        int count = _queryResults.size();
+        for (Map<Object,Record> records : _data.values())
+            count += records.size();
+        return count;
+    }
+
+    /**
+     * Map the snapshot file, if there is one, and read its keys.
+     */
+    public synchronized void open() {
+        if (!_file.isFile())
+            return;
+
+        long start = System.currentTimeMillis();
+        List<ByteBuffer> segments = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(_file.toPath(),
+            StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC
+                || header.getInt() != FORMAT) {
+                if (_log.isWarnEnabled())
+                    _log.warn(_loc.get("snapshot-format", _file));
+                return;
+            }
+            long created = header.getLong();
+            long table = header.getLong();
+            if (table < HEADER || table > channel.size())
+                throw new EOFException(String.valueOf(table));
+            readTypes(channel, table);
+            DataInputStream in = new DataInputStream(new BufferedInputStream
+                (Channels.newInputStream(channel.position(HEADER))));
+
+            // read the keys of the records, mapping them in segments that
+            // each end at a record boundary
+            long pos = HEADER;
+            long segment = pos;
+            while (pos < table) {
+                byte kind;
+                byte[] key;
+                int length;
+                try {
+                    kind = in.readByte();
+                    key = new byte[in.readInt()];
+                    int valueLength = in.readInt();
+                    in.readFully(key);
+                    skipFully(in, valueLength);
+                    length = RECORD_HEADER + key.length + valueLength;
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (pos + length - segment > SEGMENT) {
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY,
+                        segment, pos - segment));
+                    segment = pos;
+                }
+                index(kind, key, segments.size(), (int) (pos - segment),
+                    length);
+                pos += length;
+            }
+            if (pos > segment)
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY,
+                    segment, pos - segment));
+            _segments = segments.toArray(new ByteBuffer[segments.size()]);
+
+            if (_log.isInfoEnabled())
+                _log.info(_loc.get("snapshot-open", new Object[]{
+                    getPendingCount() - _queryResults.size(),
+                    _queryResults.size(), _file, new Date(created),
+                    System.currentTimeMillis() - start }));
+        } catch (Exception e) {
+            _data.clear();
+            _queryResults.clear();
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("snapshot-read-failed", _file), e);
+        }
+    }
+
+    /**
+     * Read the metadata fingerprints of the types in the snapshot.
+     */
+    private void readTypes(FileChannel channel, long table)
+        throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream
+            (Channels.newInputStream(channel.position(table))));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            _fingerprints.put(in.readUTF(), in.readLong());
+    }
+
+    private static void skipFully(DataInputStream in, int length)
+        throws IOException {
+        while (length > 0) {
+            int skipped = (int) in.skip(length);
+            if (skipped <= 0) {
+                in.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * Add the record with the given key to the index.
+     */
+    private void index(byte kind, byte[] key, int segment, int offset,
+        int length) {
+        try {
+            if (kind == DATA) {
+                Object[] data = (Object[]) deserialize(key, 0, key.length);
+                _data.computeIfAbsent((String) data[0],
+                    k -> new ConcurrentHashMap<>()).put(data[2],
+                    new Record(segment, offset, length, (String) data[1]));
+            } else if (kind == QUERY && _queries) {
+                _queryResults.put((QueryKey) deserialize(key, 0, key.length),
+                    new Record(segment, offset, length, null));
+            }
+        } catch (Exception e) {
+            _discarded.increment();
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("snapshot-unreadable", _file), e);
+        }
+    }
+
+    /**
+     * Whether the snapshot holds the instance with the given oid for the
+     * given cache.
+     */
+    public boolean contains(DataCache cache, Object oid) {
+        Map<Object,Record> records = _data.get(cache.getName());
+        return records != null && oid != null && records.containsKey(oid);
+    }
+
+    /**
+     * Remove the instance with the given oid for the given cache from the
+     * snapshot and return its data, or null if there is none or its
+     * metadata changed.
+     */
+    public DataCachePCData restore(DataCache cache, Object oid) {
+        Map<Object,Record> records = _data.get(cache.getName());
+        Record record = (records == null || oid == null) ? null
+            : records.remove(oid);
+        if (record == null)
+            return null;
+        if (!isCurrent(record.type)) {
+            discard(oid);
+            return null;
+        }
+        Object data = read(record);
+        if (!(data instanceof DataCachePCData)) {
+            discard(oid);
+            return null;
+        }
+        _restored.increment();
+        return (DataCachePCData) data;
+    }
+
+    /**
+     * Remove the result of the given query from the snapshot and return it,
+     * or null if there is none or the metadata of a type it accesses
+     * changed.
+     */
+    public QueryResult restore(QueryKey qk) {
+        Record record = (qk == null) ? null : _queryResults.remove(qk);
+        if (record == null)
+            return null;
+        for (String type : qk.getAcessPathClassNames()) {
+            if (!isCurrent(type)) {
+                discard(qk);
+                return null;
+            }
+        }
+        Object res = read(record);
+        if (!(res instanceof QueryResult)
+            || isChanged(qk, ((QueryResult) res).getTimestamp())) {
+            discard(qk);
+            return null;
+        }
+        _restored.increment();
+        return (QueryResult) res;
+    }
+
+    /**
+     * Remove the instances with the given oids from the snapshot and return
+     * their data by oid, caching it again in the cache it was written from
+     * if so requested. Unless verification is disabled, the versions of the instances are
+     * checked against the database in one query per type and batch of ids;
+     * stale instances and instances whose row no longer exists are
+     * discarded. Instances whose version cannot be queried this way, as their
+     * type does not have a single primary key field, are left in the
+     * snapshot to be verified one by one.
+     */
+    public Map<Object,DataCachePCData> restoreAll(StoreContext ctx,
+        Collection<?> oids, boolean populate) {
+        Map<Object,DataCachePCData> restored = new HashMap<>();
+        if (_data.isEmpty() || oids.isEmpty())
+            return restored;
+
+        // the pending records of the given oids by type
+        Map<String,List<Pending>> byType = new HashMap<>();
+        for (Map.Entry<String,Map<Object,Record>> entry : _data.entrySet()) {
+            for (Object oid : oids) {
+                Record record = (oid == null) ? null
+                    : entry.getValue().get(oid);
+                if (record != null && isCurrent(record.type))
+                    byType.computeIfAbsent(record.type,
+                        k -> new ArrayList<>()).add(new Pending(entry.
+                        getKey(), oid, record));
+            }
+        }
+
+        for (Map.Entry<String,List<Pending>> entry : byType.entrySet()) {
+            List<Pending> pendings = entry.getValue();
+            if (!_verify) {
+                for (Pending pending : pendings)
+                    restore(pending, null, populate, restored);
+                continue;
+            }
+            ClassMetaData meta = getMetaData(entry.getKey());
+            if (meta == null || meta.getVersionField() == null
+                || meta.getIdentityType() != ClassMetaData.ID_APPLICATION
+                || meta.getPrimaryKeyFields().length != 1)
+                continue;
+            for (int i = 0; i < pendings.size(); i += VERIFY_BATCH)
+                verify(ctx, meta, pendings.subList(i, Math.min(i
+                    + VERIFY_BATCH, pendings.size())), populate, restored);
+        }
+        return restored;
+    }
+
+    /**
+     * Query the versions of the given instances of the given type and
+     * restore those that are current.
+     */
+    private void verify(StoreContext ctx, ClassMetaData meta,
+        List<Pending> pendings, boolean populate,
+        Map<Object,DataCachePCData> restored) {
+        Map<Object,Pending> byKey = new HashMap<>();
+        for (Pending pending : pendings)
+            byKey.put(ApplicationIds.toPKValues(pending.oid, meta)[0],
+                pending);
+
+        String pk = meta.getPrimaryKeyFields()[0].getName();
+        String jpql = "SELECT x." + pk + ", x."
+            + meta.getVersionField().getName() + " FROM "
+            + meta.getTypeAlias() + " x WHERE x." + pk + " IN :ids";
+        Map<Object,Object> versions = new HashMap<>();
+        Query q = ctx.getBroker().newQuery(JPQLParser.LANG_JPQL, jpql);
+        try {
+            q.setIgnoreChanges(true);
+            q.getFetchConfiguration().setQueryCacheEnabled(false);
+            Collection<?> rows = (Collection<?>) q.execute(Collections.
+                singletonMap("ids", new ArrayList<>(byKey.keySet())));
+            for (Object row : rows)
+                versions.put(((Object[]) row)[0], ((Object[]) row)[1]);
+        } catch (RuntimeException re) {
+            // leave the instances to be verified one by one
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("snapshot-verify-failed", meta), re);
+            return;
+        } finally {
+            q.closeAll();
+        }
+
+        for (Map.Entry<Object,Pending> entry : byKey.entrySet()) {
+            Pending pending = entry.getValue();
+            if (versions.containsKey(entry.getKey()))
+                restore(pending, versions.get(entry.getKey()), populate,
+                    restored);
+            else if (_data.get(pending.cache).remove(pending.oid,
+                pending.record))
+                discard(pending.oid);
+        }
+    }
+
+    /**
+     * Remove the given record from the snapshot and restore its data if it
+     * has the given version, or if verification is disabled.
+     */
+    private void restore(Pending pending, Object version, boolean populate,
+        Map<Object,DataCachePCData> restored) {
+        if (!_data.get(pending.cache).remove(pending.oid, pending.record))
+            return;
+        Object data = read(pending.record);
+        if (!(data instanceof DataCachePCData)) {
+            discard(pending.oid);
+            return;
+        }
+        DataCachePCData pc = (DataCachePCData) data;
+        if (_verify && (version == null
+            || !version.equals(pc.getVersion()))) {
+            stale(pending.oid);
+            return;
+        }
+        _restored.increment();
+        DataCache cache = (!populate) ? null : _conf.
+            getDataCacheManagerInstance().getDataCache(pending.cache, false);
+        if (cache != null) {
+            cache.writeLock();
+            try {
+                if (!cache.contains(pending.oid))
+                    cache.put(pc);
+            } finally {
+                cache.writeUnlock();
+            }
+        }
+        restored.put(pending.oid, pc);
+    }
+
+    /**
+     * Remove the instance with the given oid from the snapshot, as it
+     * changed since the snapshot was written.
+     */
+    public void remove(Object oid) {
+        if (oid == null)
+            return;
+        for (Map<Object,Record> records : _data.values())
+            records.remove(oid);
+    }
+
+    /**
+     * Record the time the given types changed, so that query results cached
+     * before are not read back.
+     */
+    @Override
+    public void onTypesChanged(TypesChangedEvent ev) {
+        Long now = System.currentTimeMillis();
+        for (Object type : ev.getTypes())
+            _updated.put(((Class<?>) type).getName(), now);
+    }
+
+    /**
+     * Whether a type the given query accesses changed at or after the given
+     * time.
+     */
+    private boolean isChanged(QueryKey qk, long since) {
+        if (_updated.isEmpty())
+            return false;
+        for (String type : qk.getAcessPathClassNames()) {
+            Long updated = _updated.get(type);
+            if (updated != null && updated >= since)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record that an instance read back from the snapshot was stale.
+     */
+    public void stale(Object oid) {
+        _stale.increment();
+        if (_log.isTraceEnabled())
+            _log.trace(_loc.get("snapshot-stale", oid));
+    }
+
+    private void discard(Object key) {
+        _discarded.increment();
+        if (_log.isTraceEnabled())
+            _log.trace(_loc.get("snapshot-discard", key));
+    }
+
+    /**
+     * Read the value of the given record.
+     */
+    private Object read(Record record) {
+        try {
+            ByteBuffer buf = _segments[record.segment].duplicate();
+            buf.position(record.offset + 1);
+            int keyLength = buf.getInt();
+            byte[] value = new byte[buf.getInt()];
+            buf.position(buf.position() + keyLength);
+            buf.get(value);
+            return deserialize(value, 0, value.length);
+        } catch (Exception e) {
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("snapshot-unreadable", _file), e);
+            return null;
+        }
+    }
+
+    /**
+     * Whether the metadata of the given type matches its fingerprint in the
+     * snapshot.
+     */
+    private boolean isCurrent(String type) {
+        if (type == null)
+            return false;
+        return _current.computeIfAbsent(type, t -> {
+            Long fingerprint = _fingerprints.get(t);
+            ClassMetaData meta = getMetaData(t);
+            return fingerprint != null && meta != null
+                && fingerprint == fingerprint(meta);
+        });
+    }
+
+    private ClassMetaData getMetaData(String type) {
+        try {
+            ClassLoader loader = _conf.getClassResolverInstance().
+                getClassLoader(DataCacheSnapshot.class, null);
+            Class<?> cls = Class.forName(type, true, loader);
+            return _conf.getMetaDataRepositoryInstance().getMetaData(cls,
+                loader, false);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return a fingerprint of the persistent structure of the given type:
+     * its identity, version field and the names and types of its fields.
+     */
+    private static long fingerprint(ClassMetaData meta) {
+        StringBuilder buf = new StringBuilder(meta.getDescribedType().
+            getName());
+        buf.append(';').append(meta.getIdentityType());
+        if (meta.getObjectIdType() != null)
+            buf.append(';').append(meta.getObjectIdType().getName());
+        FieldMetaData version = meta.getVersionField();
+        buf.append(';').append((version == null) ? "" : version.getName());
+        for (FieldMetaData fmd : meta.getFields())
+            buf.append(';').append(fmd.getName()).append(':').
+                append(fmd.getDeclaredType().getName());
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.toString().getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Write the contents of the given caches to the snapshot file, along
+     * with the instances and query results not read back yet. The file is
+     * written to a temporary file first, and then replaces the snapshot.
+     */
+    public synchronized void write(Collection<DataCache> caches,
+        QueryCache queryCache) {
+        long start = System.currentTimeMillis();
+        File tmp = new File(_file.getPath() + ".tmp");
+        MetaDataRepository repos = _conf.getMetaDataRepositoryInstance();
+        Map<String,Long> fingerprints = new TreeMap<>();
+        int[] counts = new int[2];
+        try (FileChannel channel = FileChannel.open(tmp.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(start);
+            out.writeLong(0);
+
+            // pending records first, so that cached data of the same
+            // instance written later replaces them when read back
+            for (Map<Object,Record> records : _data.values()) {
+                for (Record record : records.values()) {
+                    if (isCurrent(record.type) && copy(record, out)) {
+                        fingerprints.put(record.type,
+                            _fingerprints.get(record.type));
+                        counts[0]++;
+                    }
+                }
+            }
+            // query results read back would be discarded if a type they
+            // access changed since the snapshot was opened
+            for (Map.Entry<QueryKey,Record> entry : _queryResults.entrySet())
+                if (!isChanged(entry.getKey(), Long.MIN_VALUE)
+                    && copy(entry.getValue(), out))
+                    counts[1]++;
+
+            for (DataCache cache : caches) {
+                if (!(cache instanceof AbstractDataCache))
+                    continue;
+                AbstractDataCache acache = (AbstractDataCache) cache;
+                for (Object oid : new ArrayList<>(acache.keySet())) {
+                    DataCachePCData data = acache.getInternal(oid);
+                    if (data == null || data.isTimedOut())
+                        continue;
+                    ClassMetaData meta = repos.getCachedMetaData(data.
+                        getType());
+                    if (meta == null || (_verify
+                        && meta.getVersionField() == null))
+                        continue;
+                    String type = data.getType().getName();
+                    if (out.writeRecord(DATA, new Object[]{ cache.getName(),
+                        type, oid }, data)) {
+                        fingerprints.put(type, fingerprint(meta));
+                        counts[0]++;
+                    }
+                }
+            }
+
+            if (_queries && queryCache instanceof AbstractQueryCache) {
+                AbstractQueryCache qcache = (AbstractQueryCache) queryCache;
+                for (Object qk : new ArrayList<Object>(qcache.keySet())) {
+                    QueryResult res = qcache.getInternal((QueryKey) qk);
+                    if (res != null && !res.isTimedOut()
+                        && out.writeRecord(QUERY, qk, res))
+                        counts[1]++;
+                }
+            }
+
+            long table = out.position();
+            out.writeInt(fingerprints.size());
+            for (Map.Entry<String,Long> entry : fingerprints.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            buf.putLong(0, table);
+            channel.write(buf, HEADER - 8);
+            channel.force(true);
+        } catch (Exception e) {
+            tmp.delete();
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("snapshot-write-failed", _file), e);
+            return;
+        }
+
+        try {
+            try {
+                Files.move(tmp.toPath(), _file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), _file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("snapshot-write-failed", _file), e);
+            return;
+        }
+        if (_log.isInfoEnabled())
+            _log.info(_loc.get("snapshot-write", new Object[]{ counts[0],
+                counts[1], _file, System.currentTimeMillis() - start }));
+    }
+
+    /**
+     * Copy the given record of the mapped snapshot to the given output.
+     */
+    private boolean copy(Record record, Output out)
+        throws IOException {
+        ByteBuffer[] segments = _segments;
+        if (record.segment >= segments.length)
+            return false;
+        ByteBuffer buf = segments[record.segment].duplicate();
+        buf.position(record.offset);
+        byte[] bytes = new byte[record.length];
+        buf.get(bytes);
+        out.write(bytes, 0, bytes.length);
+        return true;
+    }
+
+    private static Object deserialize(byte[] bytes, int offset, int length)
+        throws IOException, ClassNotFoundException {
+        return new ClassResolvingObjectInputStream(new ByteArrayInputStream
+            (bytes, offset, length)).readObject();
+    }
+
+    /**
+     * Release the mapped snapshot. Instances not read back yet are lost
+     * unless the snapshot was written again.
+     */
+    @Override
+    public synchronized void close() {
+        _data.clear();
+        _queryResults.clear();
+        // the mapping is released once the buffers are garbage collected
+        _segments = new ByteBuffer[0];
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + _file + "]";
+    }
+
+    /**
+     * A record to read back, with its oid and the name of its cache.
+     */
+    private static class Pending {
+        final String cache;
+        final Object oid;
+        final Record record;
+
+        Pending(String cache, Object oid, Record record) {
+            this.cache = cache;
+            this.oid = oid;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Location of a record in the mapped snapshot.
+     */
+    private static class Record {
+        final int segment;
+        final int offset;
+        final int length;
+        final String type;
+
+        Record(int segment, int offset, int length, String type) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Buffered output to the snapshot file that tracks its position.
+     */
+    private class Output
+        extends DataOutputStream {
+
+        Output(FileChannel channel) {
+            super(new Position(new BufferedOutputStream(Channels.
+                newOutputStream(channel), 1 << 16)));
+        }
+
+        long position() {
+            return ((Position) out)._pos;
+        }
+
+        /**
+         * Write a record with the given key and value, unless either cannot
+         * be serialized.
+         */
+        boolean writeRecord(byte kind, Object key, Object value)
+            throws IOException {
+            byte[] k = serialize(key);
+            byte[] v = (k == null) ? null : serialize(value);
+            if (v == null)
+                return false;
+            writeByte(kind);
+            writeInt(k.length);
+            writeInt(v.length);
+            write(k, 0, k.length);
+            write(v, 0, v.length);
+            return true;
+        }
+
+        private byte[] serialize(Object o) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(o);
+                out.close();
+                return bytes.toByteArray();
+            } catch (Exception e) {
+                if (_log.isTraceEnabled())
+                    _log.trace(_loc.get("snapshot-unserializable", o), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written to a stream.
+     */
+    private static class Position
+        extends FilterOutputStream {
+
+        private long _pos = 0;
+
+        Position(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b)
+            throws IOException {
+            out.write(b);
+            _pos++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException {
+            out.write(b, off, len);
+            _pos += len;
+        }
+    }
+}
@@ -60,6 +60,10 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
     private DataCacheManager _mgr = null;
     // pc data generator
     private PCDataGenerator _gen = null;
+    // applies committed changes in the background, if configured
+    private AsyncDataCacheUpdater _updater = null;
+    // restores cached data written before a restart, if configured
+    private DataCacheSnapshot _snapshot = null;
 
     /**
      * Constructor.
@@ -75,6 +79,10 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         _ctx = ctx;
         _mgr = ctx.getConfiguration().getDataCacheManagerInstance();
         _gen = _mgr.getPCDataGenerator();
+        if (_mgr instanceof DataCacheManagerImpl) {
+            _updater = ((DataCacheManagerImpl) _mgr).getAsyncUpdater();
+            _snapshot = ((DataCacheManagerImpl) _mgr).getSnapshot();
+        }
         super.setContext(ctx);
     }
 
@@ -87,6 +95,7 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
     public void commit() {
         try {
             super.commit();
+            forgetSnapshot();
             updateCaches();
         } finally {
             _inserts = null;
@@ -124,6 +133,21 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         }
     }
 
+    /**
+     * Remove the committed updates and deletes from the snapshot written
+     * before a restart, so that their old state is not read back.
+     */
+    private void forgetSnapshot() {
+        if (_snapshot == null)
+            return;
+        if (_updates != null)
+            for (OpenJPAStateManager sm : _updates.keySet())
+                _snapshot.remove(sm.getObjectId());
+        if (_deletes != null)
+            for (OpenJPAStateManager sm : _deletes)
+                _snapshot.remove(sm.getObjectId());
+    }
+
     /**
      * Update all caches with the committed inserts, updates, and deletes.
      */
@@ -209,20 +233,10 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
             // notify the caches of the changes
             if (modMap != null) {
                 for (Map.Entry<DataCache,Modifications> entry : modMap.entrySet()) {
-                    cache = entry.getKey();
-                    mods = entry.getValue();
-
-                    // make sure we're not caching old versions
-                    cache.writeLock();
-                    try {
-                        cache.commit(
-                                transformToVersionSafePCDatas(cache, mods.additions),
-                                transformToVersionSafePCDatas(cache, mods.newUpdates),
-                                transformToVersionSafePCDatas(cache, mods.existingUpdates),
-                                mods.deletes);
-                    } finally {
-                        cache.writeUnlock();
-                    }
+                    if (_updater != null)
+                        commitAsync(entry.getKey(), entry.getValue());
+                    else
+                        commit(entry.getKey(), entry.getValue());
                 }
             }
 
@@ -237,6 +251,98 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         }
     }
 
+    /**
+     * Apply the given modifications to the given cache.
+     */
+    private void commit(DataCache cache, Modifications mods) {
+        // make sure we're not caching old versions
+        cache.writeLock();
+        try {
+            cache.commit(
+                    transformToVersionSafePCDatas(cache, mods.additions),
+                    transformToVersionSafePCDatas(cache, mods.newUpdates),
+                    transformToVersionSafePCDatas(cache, mods.existingUpdates),
+                    mods.deletes);
+        } finally {
+            cache.writeUnlock();
+        }
+    }
+
+    /**
+     * Split the given modifications by the updater lane of each object id
+     * and queue each part to be applied in the background.
+     */
+    private void commitAsync(DataCache cache, Modifications mods) {
+        Modifications[] lanes = new Modifications[_updater.getLaneCount()];
+        for (PCDataHolder holder : mods.additions)
+            getModifications(lanes, holder.oid).additions.add(holder);
+        for (PCDataHolder holder : mods.newUpdates)
+            getModifications(lanes, holder.oid).newUpdates.add(holder);
+        for (PCDataHolder holder : mods.existingUpdates)
+            getModifications(lanes, holder.oid).existingUpdates.add(holder);
+        for (Object oid : mods.deletes)
+            getModifications(lanes, oid).deletes.add(oid);
+
+        for (int i = 0; i < lanes.length; i++) {
+            Modifications lane = lanes[i];
+            if (lane == null)
+                continue;
+
+            List<Object> oids = new ArrayList<>(lane.deletes);
+            for (PCDataHolder holder : lane.additions)
+                oids.add(holder.oid);
+            for (PCDataHolder holder : lane.newUpdates)
+                oids.add(holder.oid);
+            for (PCDataHolder holder : lane.existingUpdates)
+                oids.add(holder.oid);
+            _updater.submit(i, oids, () -> commit(cache, lane));
+        }
+    }
+
+    /**
+     * Return the modifications for the updater lane of the given object id,
+     * creating them if needed.
+     */
+    private Modifications getModifications(Modifications[] lanes, Object oid) {
+        int lane = _updater.getLane(oid);
+        if (lanes[lane] == null)
+            lanes[lane] = new Modifications();
+        return lanes[lane];
+    }
+
+    /**
+     * Return the cached data for the given object id, or null if it is not
+     * cached or a committed change to it has not been applied yet.
+     */
+    private DataCachePCData getCachedData(DataCache cache, Object oid) {
+        if (_updater != null && _updater.isPending(oid))
+            return null;
+        return cache.get(oid);
+    }
+
+    /**
+     * Whether the given object id is cached and has no committed change
+     * waiting to be applied.
+     */
+    private boolean isCachedData(DataCache cache, Object oid) {
+        if (_updater != null && _updater.isPending(oid))
+            return false;
+        return cache.contains(oid);
+    }
+
+    /**
+     * Whether the given state materialized by a query cache may still be
+     * used for the given object id: it has not timed out, and the data cache
+     * still holds the instance and has no committed change to it waiting to
+     * be applied. Otherwise the instance may have changed since the query
+     * result was cached.
+     */
+    private boolean isValid(DataCache cache, Object oid,
+        DataCachePCData materialized) {
+        return materialized != null && !materialized.isTimedOut()
+            && isCachedData(cache, oid);
+    }
+
     /**
      * Transforms a collection of {@link PCDataHolder}s that might contain
      * stale instances into a collection of up-to-date {@link DataCachePCData}s.
@@ -248,8 +354,8 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         List<Object> idList = new ArrayList<>(holders.size());
         int i = 0;
         for (PCDataHolder holder : holders) {
-            ids.put(holder.sm.getObjectId(), i++);
-            idList.add(holder.sm.getObjectId());
+            ids.put(holder.oid, i++);
+            idList.add(holder.oid);
         }
 
         Map<Object,DataCachePCData> pcdatas = cache.getAll(idList);
@@ -258,7 +364,7 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
             DataCachePCData oldpc = entry.getValue();
             PCDataHolder holder = holders.get(index);
             if (oldpc != null && compareVersion(holder.sm,
-                holder.sm.getVersion(), oldpc.getVersion()) == VERSION_EARLIER)
+                holder.version, oldpc.getVersion()) == VERSION_EARLIER)
                 continue;
             else
                 transformed.add(holder.pcdata);
@@ -282,9 +388,10 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
 
     @Override
     public boolean exists(OpenJPAStateManager sm, Object edata) {
+        edata = getStoreData(edata);
         DataCache cache = _mgr.selectCache(sm);
         CacheStatistics stats = (cache == null) ? null : cache.getStatistics();
-        if (cache != null && !isLocking(null) && cache.contains(sm.getObjectId())){
+        if (cache != null && !isLocking(null) && isCachedData(cache, sm.getObjectId())){
             if (stats != null && stats.isEnabled()) {
                 // delay this call ONLY if stats collection is enabled
                 Class<?> cls = sm.getMetaData().getDescribedType();
@@ -310,7 +417,8 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
             for(int i = 0; i < oids.size(); i++) {
                 Object oid = oids.get(i);
                 // Only check the cache if we haven't found the current oid.
-                if (!edata.get(i) && cache.contains(oid)) {
+                if (!edata.get(i) && (isCachedData(cache, oid)
+                    || (_snapshot != null && _snapshot.contains(cache, oid)))) {
                     edata.set(i);
                 }
             }
@@ -324,6 +432,7 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
 
     @Override
     public boolean syncVersion(OpenJPAStateManager sm, Object edata) {
+        edata = getStoreData(edata);
         DataCache cache = _mgr.selectCache(sm);
         FetchConfiguration fc = sm.getContext().getFetchConfiguration();
         CacheStatistics stats = (cache == null) ? null : cache.getStatistics();
@@ -335,7 +444,7 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         }
         DataCachePCData data;
         Object version = null;
-        data = cache.get(sm.getObjectId());
+        data = getCachedData(cache, sm.getObjectId());
         if (!isLocking(null) && data != null)
             version = data.getVersion();
 
@@ -361,12 +470,15 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
 
     @Override
     public boolean initialize(OpenJPAStateManager sm, PCState state, FetchConfiguration fetch, Object edata) {
+        DataCachePCData data = getMaterializedData(edata);
+        edata = getStoreData(edata);
         DataCache cache = _mgr.selectCache(sm);
         if (cache == null) {
             return super.initialize(sm, state, fetch, edata);
         }
 
-        DataCachePCData data = cache.get(sm.getObjectId());
+        if (!isValid(cache, sm.getObjectId(), data))
+            data = getCachedData(cache, sm.getObjectId());
         CacheStatistics stats = cache.getStatistics();
         boolean fromDatabase = false;
         boolean alreadyCached = data != null;
@@ -382,6 +494,12 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
                 }
                 sm.initialize(data.getType(), state);
                 data.load(sm, fetch, edata);
+            } else if (!alreadyCached && edata == null && !isLocking(fetch)
+                && (data = restore(cache, sm.getObjectId())) != null) {
+                if (stats.isEnabled()) {
+                    ((CacheStatisticsSPI)stats).newGet(data.getType(), true);
+                }
+                return initializeFromSnapshot(cache, sm, state, fetch, data);
             } else {
                 if (!alreadyCached) {
                     if (stats.isEnabled()) {
@@ -410,6 +528,79 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         return fromDatabase || alreadyCached;
     }
 
+    /**
+     * Return the data for the given object id from the snapshot written
+     * before a restart, or null if there is none or a committed change to
+     * it has not been applied yet.
+     */
+    private DataCachePCData restore(DataCache cache, Object oid) {
+        if (_snapshot == null || (_updater != null && _updater.isPending(oid)))
+            return null;
+        return _snapshot.restore(cache, oid);
+    }
+
+    /**
+     * Return the data for those of the given object ids that the data cache
+     * does not hold from the snapshot written before a restart, verifying
+     * their versions together.
+     */
+    private Map<Object,DataCachePCData> restoreAll(DataCache cache, List<Object> oids,
+        Map<Object,DataCachePCData> cached, FetchConfiguration fetch) {
+        if (_snapshot == null || isLocking(fetch))
+            return Collections.emptyMap();
+        List<Object> missing = null;
+        for (Object oid : oids) {
+            if (cached.get(oid) == null && _snapshot.contains(cache, oid)
+                && (_updater == null || !_updater.isPending(oid))) {
+                if (missing == null)
+                    missing = new ArrayList<>();
+                missing.add(oid);
+            }
+        }
+        if (missing == null)
+            return Collections.emptyMap();
+        return _snapshot.restoreAll(_ctx, missing, _ctx.getPopulateDataCache()
+            && fetch.getCacheStoreMode() == DataCacheStoreMode.USE);
+    }
+
+    /**
+     * Initialize the given instance from data restored from the snapshot.
+     * Unless verification is disabled, the version of the data is checked
+     * against the database first; if it is stale, the instance is left
+     * hollow with the current version so that its fields are loaded from the
+     * database.
+     */
+    private boolean initializeFromSnapshot(DataCache cache, OpenJPAStateManager sm, PCState state,
+        FetchConfiguration fetch, DataCachePCData data) {
+        sm.initialize(data.getType(), state);
+        if (_snapshot.getVerify()) {
+            Object version = data.getVersion();
+            if (version == null) {
+                _snapshot.stale(sm.getObjectId());
+                return super.exists(sm, null);
+            }
+            sm.setVersion(version);
+            if (!super.syncVersion(sm, null)) {
+                // the row no longer exists
+                if (version.equals(sm.getVersion()))
+                    return false;
+                _snapshot.stale(sm.getObjectId());
+                return true;
+            }
+        }
+        data.load(sm, fetch, null);
+        if (_ctx.getPopulateDataCache() && fetch.getCacheStoreMode() == DataCacheStoreMode.USE) {
+            cache.writeLock();
+            try {
+                if (!cache.contains(data.getId()))
+                    cache.put(data);
+            } finally {
+                cache.writeUnlock();
+            }
+        }
+        return true;
+    }
+
     private void cacheStateManager(DataCache cache, OpenJPAStateManager sm, DataCachePCData data) {
         if (sm.isFlushed()) {
             return;
@@ -442,6 +633,8 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
     @Override
     public boolean load(OpenJPAStateManager sm, BitSet fields,
         FetchConfiguration fetch, int lockLevel, Object edata) {
+        DataCachePCData materialized = getMaterializedData(edata);
+        edata = getStoreData(edata);
         DataCache cache = _mgr.selectCache(sm);
 
         boolean found = false;
@@ -455,7 +648,8 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
         }
 
         CacheStatistics stats = cache.getStatistics();
-        DataCachePCData data = cache.get(sm.getObjectId());
+        DataCachePCData data = isValid(cache, sm.getObjectId(), materialized)
+            ? materialized : getCachedData(cache, sm.getObjectId());
         if (lockLevel == LockLevels.LOCK_NONE && !isLocking(fetch) && data != null)
             data.load(sm, fields, fetch, edata);
         if (fields.length() == 0){
@@ -548,7 +742,7 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
                 || sm.getPCState() == PCState.HOLLOW) {
                 smList = caches.computeIfAbsent(cache, k -> new ArrayList<>());
                 smList.add(sm);
-            } else if (!cache.contains(sm.getObjectId()))
+            } else if (!isCachedData(cache, sm.getObjectId()))
                 unloaded = addUnloaded(sm, null, unloaded);
         }
 
@@ -562,9 +756,15 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
             }
 
             Map<Object,DataCachePCData> dataMap = cache.getAll(oidList);
+            Map<Object,DataCachePCData> restored = restoreAll(cache, oidList,
+                dataMap, fetch);
 
             for (OpenJPAStateManager sm : smList) {
                 data = dataMap.get(sm.getObjectId());
+                if (data != null && _updater != null && _updater.isPending(sm.getObjectId()))
+                    data = null;
+                if (data == null)
+                    data = restored.get(sm.getObjectId());
                 CacheStatistics stats = cache.getStatistics();
                 if (sm.getManagedInstance() == null) {
                     if (data != null) {
@@ -583,7 +783,9 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
                     }
                 } else if (load != FORCE_LOAD_NONE
                         || sm.getPCState() == PCState.HOLLOW) {
-                    data = cache.get(sm.getObjectId());
+                    data = getCachedData(cache, sm.getObjectId());
+                    if (data == null)
+                        data = restored.get(sm.getObjectId());
                     if (data != null) {
                         // load unloaded fields
                         fields = sm.getUnloaded(fetch);
@@ -795,6 +997,23 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
             .fireLocalStaleNotification(oid);
     }
 
+    /**
+     * Return the state of an instance that a query cache holding materialized
+     * results passes in place of the store data, or null.
+     */
+    private static DataCachePCData getMaterializedData(Object edata) {
+        return (edata instanceof DataCachePCData) ? (DataCachePCData) edata
+            : null;
+    }
+
+    /**
+     * Return the given store data, or null if it is the state of an instance
+     * materialized by a query cache, which the delegate does not understand.
+     */
+    private static Object getStoreData(Object edata) {
+        return (edata instanceof DataCachePCData) ? null : edata;
+    }
+
     /**
      * Create a new cacheable instance for the given state manager.
      */
@@ -845,16 +1064,21 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
 
     /**
      * Utility structure holds the tuple of cacheable instance and its corresponding state manager.
-     *
+     * The object id and version are captured at commit, as the state manager may have moved on
+     * by the time the modifications are applied in the background.
      */
     private static class PCDataHolder {
 
         public final DataCachePCData pcdata;
         public final OpenJPAStateManager sm;
+        public final Object oid;
+        public final Object version;
 
         public PCDataHolder(DataCachePCData pcdata, OpenJPAStateManager sm) {
             this.pcdata = pcdata;
             this.sm = sm;
+            this.oid = sm.getObjectId();
+            this.version = sm.getVersion();
 		}
 	}
 }
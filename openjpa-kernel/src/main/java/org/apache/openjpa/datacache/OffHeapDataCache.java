@@ -0,0 +1,650 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * A {@link DataCache} implementation that keeps the cached data outside of
+ * the Java heap, so that large caches do not lengthen garbage collection
+ * pauses. Each {@link DataCachePCData} is serialized into one of a number of
+ * direct byte buffers, the slabs, of {@link #setSlabSize slab size}
+ * megabytes each, up to {@link #setMemorySize memory size} megabytes in
+ * total. Only the index from object id to the location of its data lives on
+ * the heap.
+ *  Data is appended to the current slab. Once all slabs are in use, the
+ * slab that was filled first is evicted as a whole and reused; pinned data
+ * in it is moved to the new current slab. Data read from the oldest quarter
+ * of the slabs is moved to the current slab, so that recently used data
+ * survives eviction.
+ *  As each lookup deserializes the data, {@link #get} returns a new copy of
+ * the cached data, and {@link #put} does not return the data it replaced.
+ * Data that cannot be serialized is not cached. Direct memory is limited by
+ * the <code>-XX:MaxDirectMemorySize</code> option of the Java runtime.
+ *
+ * @since 4.1.2
+ */
+public class OffHeapDataCache
+    extends AbstractDataCache
+    implements RemoteCommitListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (OffHeapDataCache.class);
+
+    private static final int MB = 1024 * 1024;
+
+    // length of the data and its expiration time precede the data
+    private static final int HEADER = 4 + 8;
+
+    // address returned when there is no room for data
+    private static final long NO_SPACE = -1L;
+
+    private int _memorySize = 64;
+    private int _slabSize = 16;
+
+    private final Map<Object,Long> _index = new ConcurrentHashMap<>();
+    private final Set<Object> _pinned = ConcurrentHashMap.newKeySet();
+
+    // guards appending, evicting slabs and the slab bookkeeping
+    private final ReentrantLock _lock = new ReentrantLock();
+    // readers hold the read lock while copying data out of a slab, and
+    // evicting a slab waits for them before the slab is reused
+    private final ReentrantReadWriteLock _readers =
+        new ReentrantReadWriteLock();
+
+    private volatile ByteBuffer[] _slabs = new ByteBuffer[0];
+    private volatile long[] _opened = new long[0];
+    // the keys of the data appended to each slab, so that evicting a slab
+    // does not scan the whole index; keys whose data has been removed or
+    // appended again since are skipped then
+    private List<Object>[] _keys = newKeyLists(0);
+    private final ArrayDeque<Integer> _free = new ArrayDeque<>();
+    private final ArrayDeque<Integer> _filled = new ArrayDeque<>();
+    private int _current = -1;
+    private int _position = 0;
+    private volatile long _sequence = 0;
+
+    // the class descriptors of the serialized data, which is written with
+    // the class names only; the descriptors and class lookups would
+    // otherwise cost more than the data itself
+    private final Map<String,ObjectStreamClass> _descriptors =
+        new ConcurrentHashMap<>();
+
+    private final LongAdder _evictions = new LongAdder();
+    private final LongAdder _moves = new LongAdder();
+
+    /**
+     * The maximum off-heap memory in megabytes. Defaults to 64.
+     */
+    public int getMemorySize() {
+        return _memorySize;
+    }
+
+    /**
+     * The maximum off-heap memory in megabytes. Defaults to 64.
+     */
+    public void setMemorySize(int size) {
+        _memorySize = size;
+    }
+
+    /**
+     * The size of each slab in megabytes, which also limits the size of the
+     * data of a single instance. Defaults to 16; at most 1024.
+     */
+    public int getSlabSize() {
+        return _slabSize;
+    }
+
+    /**
+     * The size of each slab in megabytes, which also limits the size of the
+     * data of a single instance. Defaults to 16; at most 1024.
+     */
+    public void setSlabSize(int size) {
+        _slabSize = size;
+    }
+
+    /**
+     * The number of cached instances.
+     */
+    public int getEntryCount() {
+        return _index.size();
+    }
+
+    /**
+     * The number of bytes of off-heap memory allocated so far.
+     */
+    public long getAllocatedMemory() {
+        _lock.lock();
+        try {
+            long bytes = 0;
+            for (ByteBuffer slab : _slabs)
+                if (slab != null)
+                    bytes += slab.capacity();
+            return bytes;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * The number of instances evicted because their slab was reused.
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * The number of times data was moved to the current slab, either
+     * because it was read from one of the oldest slabs or because it was
+     * pinned in a slab being evicted.
+     */
+    public long getMoveCount() {
+        return _moves.sum();
+    }
+
+    @Override
+    public void initialize(DataCacheManager mgr) {
+        super.initialize(mgr);
+        conf.getRemoteCommitEventManager().addInternalListener(this);
+
+        int slabSize = Math.max(1, Math.min(_slabSize, 1024));
+        int count = Math.max(1, _memorySize / slabSize);
+        _lock.lock();
+        try {
+            _slabSize = slabSize;
+            _slabs = new ByteBuffer[count];
+            _opened = new long[count];
+            _keys = newKeyLists(count);
+            for (int i = 0; i < count; i++)
+                _free.add(i);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void writeLock() {
+        _lock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _lock.unlock();
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        Long address;
+        long exp;
+        _readers.readLock().lock();
+        try {
+            address = (key == null) ? null : _index.get(key);
+            if (address == null)
+                return false;
+            ByteBuffer slab = slab(address);
+            if (slab == null)
+                return false;
+            exp = slab.getLong(offset(address) + 4);
+        } finally {
+            _readers.readLock().unlock();
+        }
+        if (exp != -1 && exp < System.currentTimeMillis()) {
+            _index.remove(key, address);
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("cache-timeout", key));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected DataCachePCData getInternal(Object key) {
+        if (key == null || isClosed())
+            return null;
+        Long address;
+        byte[] bytes;
+        boolean old;
+        _readers.readLock().lock();
+        try {
+            address = _index.get(key);
+            if (address == null)
+                return null;
+            bytes = read(address);
+            if (bytes == null)
+                return null;
+            old = isOld(address);
+        } finally {
+            _readers.readLock().unlock();
+        }
+        if (old)
+            move(key, address, bytes);
+        return deserialize(key, bytes);
+    }
+
+    @Override
+    protected Collection<Object> keySet() {
+        return _index.keySet();
+    }
+
+    /**
+     * Caches the given data. Returns null rather than reading back the data
+     * it replaces.
+     */
+    @Override
+    protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
+        byte[] bytes = serialize(key, pc);
+        _lock.lock();
+        try {
+            if (bytes == null || bytes.length + HEADER > _slabSize * MB) {
+                _index.remove(key);
+                return null;
+            }
+            long address = append(key, bytes, pc.getTimeOut());
+            if (address == NO_SPACE) {
+                _index.remove(key);
+                if (log.isWarnEnabled())
+                    log.warn(_loc.get("offheap-full", key, getName()));
+                return null;
+            }
+            _index.put(key, address);
+            return null;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected DataCachePCData removeInternal(Object key) {
+        if (key == null)
+            return null;
+        byte[] bytes;
+        _readers.readLock().lock();
+        try {
+            Long address = _index.remove(key);
+            if (address == null)
+                return null;
+            bytes = read(address);
+            if (bytes == null)
+                return null;
+        } finally {
+            _readers.readLock().unlock();
+        }
+        return deserialize(key, bytes);
+    }
+
+    @Override
+    protected void removeAllInternal(Class<?> cls, boolean subs) {
+        // the index does not record types, so drop everything as
+        // ConcurrentDataCache does
+        clearInternal();
+    }
+
+    @Override
+    protected void clearInternal() {
+        _lock.lock();
+        try {
+            _index.clear();
+            awaitReaders();
+            _filled.clear();
+            _free.clear();
+            for (int i = 0; i < _slabs.length; i++) {
+                _free.add(i);
+                _keys[i].clear();
+            }
+            _current = -1;
+            _position = 0;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean pinInternal(Object key) {
+        _pinned.add(key);
+        return _index.containsKey(key);
+    }
+
+    @Override
+    protected boolean unpinInternal(Object key) {
+        return _pinned.remove(key) && _index.containsKey(key);
+    }
+
+    @Override
+    public void unpinAll(Class<?> cls, boolean subs) {
+        if (log.isWarnEnabled())
+            log.warn(_loc.get("cache-class-unpin-all", getName()));
+        unpinAll(new ArrayList<>(_pinned));
+    }
+
+    @Override
+    protected boolean recacheUpdates() {
+        // cached data is a copy, so updates must be written back
+        return true;
+    }
+
+    @Override
+    protected void close(boolean clear) {
+        super.close(clear);
+        _lock.lock();
+        try {
+            _index.clear();
+            awaitReaders();
+            // direct buffers are freed once they are garbage collected
+            _slabs = new ByteBuffer[0];
+            _opened = new long[0];
+            _keys = newKeyLists(0);
+            _free.clear();
+            _filled.clear();
+            _current = -1;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Copy the data at the given address out of its slab, or return null if
+     * the cache has been closed. Callers must hold the read lock.
+     */
+    private byte[] read(long address) {
+        ByteBuffer slab = slab(address);
+        if (slab == null)
+            return null;
+        ByteBuffer buf = slab.duplicate();
+        buf.position(offset(address));
+        byte[] bytes = new byte[buf.getInt()];
+        buf.getLong();
+        buf.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Append the data of the given key to the current slab, opening a new
+     * one if it does not fit, and return its address. Returns
+     * {@link #NO_SPACE} if pinned data carried over leaves no slab with
+     * enough room. Callers must hold the lock.
+     */
+    private long append(Object key, byte[] bytes, long exp) {
+        for (int i = 0; _current == -1
+            || _position + HEADER + bytes.length > _slabSize * MB; i++) {
+            if (i == _slabs.length)
+                return NO_SPACE;
+            nextSlab();
+        }
+        _keys[_current].add(key);
+        ByteBuffer buf = _slabs[_current].duplicate();
+        buf.position(_position);
+        buf.putInt(bytes.length);
+        buf.putLong(exp);
+        buf.put(bytes);
+        long address = ((long) _current << 32) | _position;
+        _position = buf.position();
+        return address;
+    }
+
+    /**
+     * Make a free slab, or if there is none the slab filled first, the
+     * current slab. Callers must hold the lock.
+     */
+    private void nextSlab() {
+        if (_current != -1)
+            _filled.add(_current);
+        Map<Object,Long> pinned = Collections.emptyMap();
+        Integer next = _free.poll();
+        if (next == null) {
+            next = _filled.poll();
+            pinned = evict(next);
+        } else if (_slabs[next] == null)
+            _slabs[next] = ByteBuffer.allocateDirect(_slabSize * MB);
+        _current = next;
+        _position = 0;
+        _opened[next] = ++_sequence;
+
+        // move the pinned data to the start of the reused slab; records only
+        // move towards the start, so none is overwritten before it is copied
+        ByteBuffer slab = _slabs[next];
+        for (Map.Entry<Object,Long> entry : pinned.entrySet()) {
+            ByteBuffer buf = slab.duplicate();
+            buf.position(offset(entry.getValue()));
+            byte[] record = new byte[HEADER + buf.getInt(buf.position())];
+            buf.get(record);
+            buf.position(_position);
+            buf.put(record);
+            _index.put(entry.getKey(), ((long) next << 32) | _position);
+            _keys[next].add(entry.getKey());
+            _position += record.length;
+            _moves.increment();
+        }
+    }
+
+    /**
+     * Remove the data in the given slab from the index and wait for readers
+     * to finish reading from it. Returns the addresses of the data of
+     * pinned instances, ordered by offset.
+     */
+    private Map<Object,Long> evict(int slab) {
+        SortedMap<Integer,Object> offsets = new TreeMap<>();
+        for (Object key : _keys[slab]) {
+            Long address = _index.get(key);
+            if (address == null || (int) (address >>> 32) != slab
+                || !_index.remove(key, address))
+                continue;
+            if (_pinned.contains(key))
+                offsets.put(offset(address), key);
+            else {
+                _evictions.increment();
+                keyRemoved(key, true);
+            }
+        }
+        _keys[slab].clear();
+        awaitReaders();
+
+        Map<Object,Long> pinned = new LinkedHashMap<>();
+        for (Map.Entry<Integer,Object> entry : offsets.entrySet())
+            pinned.put(entry.getValue(), ((long) slab << 32) | entry.getKey());
+        return pinned;
+    }
+
+    /**
+     * Wait until no reader copies data out of a slab.
+     */
+    private void awaitReaders() {
+        _readers.writeLock().lock();
+        _readers.writeLock().unlock();
+    }
+
+    /**
+     * Move recently read data to the current slab, unless it changed
+     * meanwhile.
+     */
+    private void move(Object key, long address, byte[] bytes) {
+        if (!_lock.tryLock())
+            return;
+        try {
+            Long current = _index.get(key);
+            if (current == null || current != address)
+                return;
+            ByteBuffer slab = slab(address);
+            if (slab == null)
+                return;
+            long exp = slab.getLong(offset(address) + 4);
+            long moved = append(key, bytes, exp);
+            if (moved != NO_SPACE && _index.replace(key, address, moved))
+                _moves.increment();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the data at the given address is in the oldest quarter of the
+     * slabs, and so is close to being evicted.
+     */
+    private boolean isOld(long address) {
+        long[] opened = _opened;
+        int count = opened.length;
+        int slab = (int) (address >>> 32);
+        if (count < 4 || slab >= count)
+            return false;
+        return opened[slab] <= _sequence - (3 * count) / 4;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object>[] newKeyLists(int count) {
+        List<Object>[] keys = new List[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = new ArrayList<>();
+        return keys;
+    }
+
+    /**
+     * Return the slab of the given address, or null if closing the cache
+     * released it.
+     */
+    private ByteBuffer slab(long address) {
+        ByteBuffer[] slabs = _slabs;
+        int slab = (int) (address >>> 32);
+        return (slab < slabs.length) ? slabs[slab] : null;
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private byte[] serialize(Object key, DataCachePCData data) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new DescriptorOutputStream(bytes,
+                _descriptors);
+            out.writeObject(data);
+            out.close();
+            return bytes.toByteArray();
+        } catch (Exception e) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("offheap-serialize-failed", key, getName()), e);
+            return null;
+        }
+    }
+
+    private DataCachePCData deserialize(Object key, byte[] bytes) {
+        try {
+            return (DataCachePCData) new DescriptorInputStream(
+                new ByteArrayInputStream(bytes), _descriptors).readObject();
+        } catch (Exception e) {
+            if (log.isWarnEnabled())
+                log.warn(_loc.get("offheap-deserialize-failed", key, getName()), e);
+            _index.remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getName() + ", entries="
+            + getEntryCount() + ", slabs=" + _slabs.length + "x" + _slabSize
+            + "MB]";
+    }
+
+    /**
+     * Output stream that writes the name of each class instead of its
+     * descriptor, and records the descriptor for reading.
+     */
+    private static class DescriptorOutputStream
+        extends ObjectOutputStream {
+
+        private final Map<String,ObjectStreamClass> _descriptors;
+
+        public DescriptorOutputStream(OutputStream out,
+            Map<String,ObjectStreamClass> descriptors)
+            throws IOException {
+            super(out);
+            _descriptors = descriptors;
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+            throws IOException {
+            _descriptors.putIfAbsent(desc.getName(), desc);
+            writeUTF(desc.getName());
+        }
+    }
+
+    /**
+     * Input stream that reads what a {@link DescriptorOutputStream} wrote.
+     * Only classes of data written to this cache are resolved.
+     */
+    private static class DescriptorInputStream
+        extends ObjectInputStream {
+
+        private final Map<String,ObjectStreamClass> _descriptors;
+
+        public DescriptorInputStream(InputStream in,
+            Map<String,ObjectStreamClass> descriptors)
+            throws IOException {
+            super(in);
+            _descriptors = descriptors;
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+            throws IOException {
+            String name = readUTF();
+            ObjectStreamClass desc = _descriptors.get(name);
+            if (desc == null)
+                throw new InvalidClassException(name);
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+            Class<?> cls = desc.forClass();
+            if (cls == null)
+                throw new ClassNotFoundException(desc.getName());
+            return cls;
+        }
+    }
+}
@@ -67,6 +67,7 @@ public class PartitionedDataCache extends ConcurrentDataCache {
     private Class<? extends DataCache> _type = ConcurrentDataCache.class;
     private final List<String> _partProperties = new ArrayList<>();
     private final Map<String, DataCache> _partitions = new HashMap<>();
+    private String _parts;
 
     @Override
     public void initialize(DataCacheManager mgr) {
@@ -93,14 +94,23 @@ public class PartitionedDataCache extends ConcurrentDataCache {
     }
 
     /**
-     * Set partitions from a String configuration.
+     * Set partitions from a String configuration. The partitions are created
+     * at the end of configuration, once their {@linkplain #setPartitionType type} is known.
      *
      * @param parts a String of the form <code>(p1, p2, p3)</code> where p1, p2 etc. itself are plug-in strings
      * for individual Data Cache configuration.
      */
     public void setPartitions(String parts) {
+        _parts = parts;
         _partProperties.clear();
         parsePartitionProperties(parts);
+    }
+
+    /**
+     * Create the configured partitions.
+     */
+    private void createPartitions() {
+        String parts = _parts;
         PluginListValue partitions = new PluginListValue("partitions");
         String[] types = (String[])Array.newInstance(String.class, _partProperties.size());
         Arrays.fill(types, _type.getName());
@@ -148,6 +158,8 @@ public class PartitionedDataCache extends ConcurrentDataCache {
 
     @Override
     public void endConfiguration() {
+        if (_parts != null && _partitions.isEmpty())
+            createPartitions();
         if (!isPartitioned())
             conf.getConfigurationLog().warn(_loc.get("partition-cache-no-config"));
     }
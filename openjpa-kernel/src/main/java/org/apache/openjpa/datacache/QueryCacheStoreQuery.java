@@ -121,6 +121,8 @@ public class QueryCacheStoreQuery
 
         // get the cached data
         QueryResult res = _cache.get(qk);
+        if (res == null)
+            res = restore(qk);
         if (res == null) {
             return null;
         }
@@ -153,7 +155,7 @@ public class QueryCacheStoreQuery
         }
 
         int projs = getContext().getProjectionAliases().length;
-        if (projs == 0) {
+        if (projs == 0 && res.getMaterializedData() == null) {
             // We're only going to return the cached results if we have ALL results cached. This could be improved
             // in the future to be a little more intelligent.
             if (!getContext().getStoreContext().isCached(res)) {
@@ -168,11 +170,25 @@ public class QueryCacheStoreQuery
      * caching provider.
      */
     private ResultObjectProvider wrapResult(ResultObjectProvider rop,
-        QueryKey key) {
+        QueryKey key, QueryDependencies deps) {
         if (key == null)
             return rop;
         return new CachingResultObjectProvider(rop, getContext().
-            getProjectionAliases().length > 0, key);
+            getProjectionAliases().length > 0, key, deps);
+    }
+
+    /**
+     * Return the field values the result of the given query depends on, if
+     * the cache evicts results by their dependencies.
+     */
+    private QueryDependencies getDependencies(QueryExpressions[] exps,
+        Class<?> candidate, Object[] params, Range range) {
+        if (!(_cache instanceof AbstractQueryCache)
+            || ((AbstractQueryCache) _cache).getEvictPolicy()
+            != EvictPolicy.DEPENDENCY || exps.length != 1)
+            return null;
+        return QueryDependencies.newInstance(_sctx, exps[0], candidate,
+            params, range.start, range.end);
     }
 
     /**
@@ -213,15 +229,86 @@ public class QueryCacheStoreQuery
      * Return the result object based on its cached oid.
      */
     private static Object fromObjectId(Object oid, StoreContext sctx, FetchConfiguration fc) {
+        return fromObjectId(oid, null, sctx, fc);
+    }
+
+    /**
+     * Return the result object based on its cached oid and, if materialized,
+     * its cached state, which the data cache store manager loads instead of
+     * looking the instance up in the data cache.
+     */
+    private static Object fromObjectId(Object oid, DataCachePCData data,
+        StoreContext sctx, FetchConfiguration fc) {
         if (oid == null)
             return null;
 
-        Object obj = sctx.find(oid, fc, null, null, 0);
+        Object obj = sctx.find(oid, fc, null, data, 0);
         if (obj == null)
             throw new ObjectNotFoundException(oid);
         return obj;
     }
 
+    /**
+     * Return the result of the given query from the snapshot written before
+     * a restart and cache it again, or return null if there is none. The
+     * instances of the result that the snapshot still holds are read back
+     * along with it, so that their versions are verified together.
+     */
+    private QueryResult restore(QueryKey qk) {
+        DataCacheManager mgr = _sctx.getConfiguration()
+            .getDataCacheManagerInstance();
+        if (!(mgr instanceof DataCacheManagerImpl))
+            return null;
+        DataCacheSnapshot snapshot = ((DataCacheManagerImpl) mgr).getSnapshot();
+        QueryResult res = (snapshot == null) ? null : snapshot.restore(qk);
+        if (res == null)
+            return null;
+        _cache.put(qk, res);
+
+        AsyncDataCacheUpdater updater = ((DataCacheManagerImpl) mgr)
+            .getAsyncUpdater();
+        List<Object> oids = new ArrayList<>(res.size());
+        for (Object o : res) {
+            if (o instanceof Object[]) {
+                for (Object elem : (Object[]) o)
+                    if (elem instanceof CachedObjectId)
+                        oids.add(((CachedObjectId) elem).oid);
+            } else if (o instanceof CachedObjectId)
+                oids.add(((CachedObjectId) o).oid);
+            else if (o != null)
+                oids.add(o);
+        }
+        if (updater != null)
+            oids.removeIf(updater::isPending);
+        snapshot.restoreAll(_sctx, oids, _sctx.getPopulateDataCache());
+        return res;
+    }
+
+    /**
+     * Return the state of the given instance as the data cache would hold
+     * it, or null if the instance has no clean state or its type is not
+     * cached.
+     */
+    private DataCachePCData newPCData(OpenJPAStateManager sm) {
+        if (sm.isNew() || sm.isDeleted() || sm.isDirty() || sm.isFlushed())
+            return null;
+        DataCacheManager mgr = _sctx.getConfiguration()
+            .getDataCacheManagerInstance();
+        DataCache cache = (mgr == null) ? null : mgr.selectCache(sm);
+        if (cache == null)
+            return null;
+
+        DataCachePCData data;
+        if (mgr.getPCDataGenerator() != null)
+            data = (DataCachePCData) mgr.getPCDataGenerator().generatePCData(
+                sm.getObjectId(), sm.getMetaData());
+        else
+            data = new DataCachePCDataImpl(sm.fetchObjectId(),
+                sm.getMetaData(), cache.getName());
+        data.store(sm);
+        return data;
+    }
+
     public Object writeReplace()
         throws ObjectStreamException {
         return _query;
@@ -383,7 +470,8 @@ public class QueryCacheStoreQuery
 
             ResultObjectProvider rop = _ex.executeQuery(cq.getDelegate(), params, range);
             if (_fc.getQueryCacheEnabled())
-                return cq.wrapResult(rop, key);
+                return cq.wrapResult(rop, key, cq.getDependencies(
+                    _ex.getQueryExpressions(), _candidate, params, range));
             else
                 return rop;
         }
@@ -573,14 +661,22 @@ public class QueryCacheStoreQuery
         @Override
         public Object get(int idx) {
             if (!_proj)
-                return fromObjectId(_res.get(idx), _sctx, _fc);
+                return fromObjectId(_res.get(idx),
+                    _res.getMaterializedData(idx, 0), _sctx, _fc);
 
             Object[] cached = (Object[]) _res.get(idx);
             if (cached == null)
                 return null;
             Object[] uncached = new Object[cached.length];
-            for (int i = 0; i < cached.length; i++)
-                uncached[i] = copyProjection(cached[i], _sctx, _fc);
+            DataCachePCData data;
+            for (int i = 0; i < cached.length; i++) {
+                data = _res.getMaterializedData(idx, i);
+                if (data != null && cached[i] instanceof CachedObjectId)
+                    uncached[i] = fromObjectId(((CachedObjectId) cached[i]).oid,
+                        data, _sctx, _fc);
+                else
+                    uncached[i] = copyProjection(cached[i], _sctx, _fc);
+            }
             return uncached;
         }
 
@@ -607,7 +703,9 @@ public class QueryCacheStoreQuery
         private final ResultObjectProvider _rop;
         private final boolean _proj;
         private final QueryKey _qk;
+        private final QueryDependencies _deps;
         private final TreeMap<Integer,Object> _data = new TreeMap<>();
+        private TreeMap<Integer,DataCachePCData[]> _states = null;
         private boolean _maintainCache = true;
         private int _pos = -1;
 
@@ -620,10 +718,14 @@ public class QueryCacheStoreQuery
          * Constructor. Supply delegate result provider and our query key.
          */
         public CachingResultObjectProvider(ResultObjectProvider rop,
-            boolean proj, QueryKey key) {
+            boolean proj, QueryKey key, QueryDependencies deps) {
             _rop = rop;
             _proj = proj;
             _qk = key;
+            _deps = deps;
+            if (_cache instanceof AbstractQueryCache
+                && ((AbstractQueryCache) _cache).getMaterialize())
+                _states = new TreeMap<>();
             _cache.addTypesChangedListener(this);
         }
 
@@ -641,6 +743,7 @@ public class QueryCacheStoreQuery
                 _maintainCache = false;
                 _cache.removeTypesChangedListener(this);
                 _data.clear();
+                _states = null;
             }
         }
 
@@ -669,8 +772,10 @@ public class QueryCacheStoreQuery
                                     cp[i] = copyProjection(arr[i], _sctx, null);
                                 cached = cp;
                             }
-                            if (cached != null)
+                            if (cached != null) {
                                 _data.put(index, cached);
+                                materialize(index, obj);
+                            }
                         }
                     }
                     finished = _size == _data.size();
@@ -689,6 +794,8 @@ public class QueryCacheStoreQuery
                         synchronized (this) {
                             res = new QueryResult(_qk, _data.values());
                             res.setTimestamp(System.currentTimeMillis());
+                            res.setDependencies(_deps);
+                            res.setMaterializedData(getMaterializedData());
                         }
                         _cache.put(_qk, res);
                         abortCaching();
@@ -700,6 +807,52 @@ public class QueryCacheStoreQuery
             }
         }
 
+        /**
+         * Record the state of the persistent instances of the given result.
+         * Stops materializing if an instance has no state to record.
+         */
+        private void materialize(Integer index, Object obj) {
+            if (_states == null)
+                return;
+            Object[] arr = (_proj) ? (Object[]) obj : new Object[]{ obj };
+            DataCachePCData[] states = new DataCachePCData[arr.length];
+            for (int i = 0; i < arr.length; i++) {
+                OpenJPAStateManager sm = (arr[i] == null) ? null
+                    : _sctx.getStateManager(arr[i]);
+                if (sm == null || sm.isEmbedded())
+                    continue;
+                states[i] = newPCData(sm);
+                if (states[i] == null) {
+                    _states = null;
+                    return;
+                }
+            }
+            _states.put(index, states);
+        }
+
+        /**
+         * Return the recorded states by column, or null if not materialized.
+         */
+        private DataCachePCData[][] getMaterializedData() {
+            if (_states == null || _states.size() != _data.size()
+                || _states.isEmpty())
+                return null;
+            int cols = _states.firstEntry().getValue().length;
+            DataCachePCData[][] columns = new DataCachePCData[cols][];
+            int row = 0;
+            for (DataCachePCData[] states : _states.values()) {
+                for (int i = 0; i < cols && i < states.length; i++) {
+                    if (states[i] == null)
+                        continue;
+                    if (columns[i] == null)
+                        columns[i] = new DataCachePCData[_states.size()];
+                    columns[i][row] = states[i];
+                }
+                row++;
+            }
+            return columns;
+        }
+
         @Override
         public boolean supportsRandomAccess() {
             return _rop.supportsRandomAccess();
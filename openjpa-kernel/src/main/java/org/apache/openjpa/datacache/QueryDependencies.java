@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.kernel.QueryOperations;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.kernel.exps.AbstractExpressionVisitor;
+import org.apache.openjpa.kernel.exps.ConjunctionExpression;
+import org.apache.openjpa.kernel.exps.Constant;
+import org.apache.openjpa.kernel.exps.Expression;
+import org.apache.openjpa.kernel.exps.FieldEqualityExpression;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
+import org.apache.openjpa.kernel.exps.Subquery;
+import org.apache.openjpa.kernel.exps.Value;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.JavaTypes;
+
+/**
+ * The field values a cached query result depends on. Records the fields of
+ * the candidate that the query filter compares to a parameter or literal for
+ * equality in conditions every result must satisfy, and whether the result
+ * holds exactly the ids of the matching instances. A change to an instance of
+ * the candidate type can only affect such a result if the instance is one of
+ * the results or if its field values may satisfy the conditions.
+ *  Comparisons are conservative: whenever it is unclear whether the
+ * database would consider two values equal, they are taken to be equal.
+ *
+ * @since 4.1.2
+ */
+public class QueryDependencies
+    implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> _candidate;
+    private final boolean _members;
+    private final String[] _fields;
+    private final Object[] _values;
+
+    private QueryDependencies(Class<?> candidate, boolean members,
+        List<String> fields, List<Object> values) {
+        _candidate = candidate;
+        _members = members;
+        _fields = fields.toArray(new String[fields.size()]);
+        _values = values.toArray();
+    }
+
+    /**
+     * Return the dependencies of the given query, or null if they cannot be
+     * determined.
+     *
+     * @param ctx the context the query runs in
+     * @param exps the parsed query
+     * @param candidate the candidate type
+     * @param params the parameter values
+     * @param start the index of the first result
+     * @param end the index after the last result
+     */
+    public static QueryDependencies newInstance(StoreContext ctx,
+        QueryExpressions exps, Class<?> candidate, Object[] params,
+        long start, long end) {
+        if (candidate == null || exps.operation != QueryOperations.OP_SELECT
+            || SubqueryVisitor.hasSubquery(exps.filter)
+            || SubqueryVisitor.hasSubquery(exps.having))
+            return null;
+
+        List<String> fields = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        collect(ctx, exps.filter, params, fields, values);
+        boolean members = exps.projections.length == 0
+            && exps.grouping.length == 0 && start == 0
+            && end == Long.MAX_VALUE;
+        return new QueryDependencies(candidate, members, fields, values);
+    }
+
+    /**
+     * Collect the equality comparisons of the given condition that must hold
+     * for every result.
+     */
+    private static void collect(StoreContext ctx, Expression exp,
+        Object[] params, List<String> fields, List<Object> values) {
+        if (exp instanceof ConjunctionExpression) {
+            ConjunctionExpression and = (ConjunctionExpression) exp;
+            collect(ctx, and.getExpression1(), params, fields, values);
+            collect(ctx, and.getExpression2(), params, fields, values);
+        } else if (exp instanceof FieldEqualityExpression) {
+            FieldEqualityExpression eq = (FieldEqualityExpression) exp;
+            FieldMetaData fmd = eq.getCandidateField();
+            Constant constant = eq.getConstant();
+            if (fmd == null || constant == null || !isComparable(fmd))
+                return;
+            Object value = constant.getValue(params);
+            if (value == null || value instanceof Collection
+                || value.getClass().isArray())
+                return;
+            fields.add(fmd.getName());
+            values.add(toComparable(ctx, value));
+        }
+    }
+
+    /**
+     * Whether the values of the given field can be compared to the values
+     * of a query.
+     */
+    private static boolean isComparable(FieldMetaData fmd) {
+        if (fmd.isExternalized() || fmd.getConverter() != null
+            || fmd.isEmbeddedPC())
+            return false;
+        switch (fmd.getDeclaredTypeCode()) {
+            case JavaTypes.BOOLEAN:
+            case JavaTypes.BYTE:
+            case JavaTypes.CHAR:
+            case JavaTypes.INT:
+            case JavaTypes.LONG:
+            case JavaTypes.SHORT:
+            case JavaTypes.STRING:
+            case JavaTypes.BOOLEAN_OBJ:
+            case JavaTypes.BYTE_OBJ:
+            case JavaTypes.CHAR_OBJ:
+            case JavaTypes.INT_OBJ:
+            case JavaTypes.LONG_OBJ:
+            case JavaTypes.SHORT_OBJ:
+            case JavaTypes.BIGDECIMAL:
+            case JavaTypes.BIGINTEGER:
+            case JavaTypes.ENUM:
+            case JavaTypes.UUID_OBJ:
+            case JavaTypes.PC:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Replace persistent instances with their ids.
+     */
+    private static Object toComparable(StoreContext ctx, Object value) {
+        if (value instanceof PersistenceCapable) {
+            Object oid = ctx.getObjectId(value);
+            return (oid == null) ? value : oid;
+        }
+        return value;
+    }
+
+    /**
+     * The candidate type.
+     */
+    public Class<?> getCandidate() {
+        return _candidate;
+    }
+
+    /**
+     * Whether the result holds exactly the ids of the instances that match
+     * the query, so that a change to an instance that is not in the result
+     * and does not match afterwards cannot affect it.
+     */
+    public boolean isMembers() {
+        return _members;
+    }
+
+    /**
+     * Whether the change of the given instance may affect the result of the
+     * query. Only instances that are new, deleted or dirty can affect it.
+     *
+     * @param member whether the result holds the id of the instance
+     */
+    public boolean isAffectedBy(OpenJPAStateManager sm, boolean member) {
+        if (!sm.isNew() && !sm.isDeleted() && !sm.isDirty())
+            return false;
+        if (!_candidate.isAssignableFrom(sm.getMetaData().getDescribedType()))
+            return true;
+
+        if (sm.isNew())
+            return !sm.isDeleted() && mayMatch(sm, null);
+        if (_members) {
+            if (member)
+                return true;
+            return !sm.isDeleted() && mayMatch(sm, null);
+        }
+        // the values the instance had before the change are only known for
+        // the fields that did not change
+        if (mayMatch(sm, sm.getDirty()))
+            return true;
+        return !sm.isDeleted() && mayMatch(sm, null);
+    }
+
+    /**
+     * Whether the values of the given instance may satisfy the equality
+     * conditions of the query. Values of the given dirty fields are unknown.
+     */
+    private boolean mayMatch(OpenJPAStateManager sm, BitSet dirty) {
+        BitSet loaded = sm.getLoaded();
+        for (int i = 0; i < _fields.length; i++) {
+            FieldMetaData fmd = sm.getMetaData().getField(_fields[i]);
+            if (fmd == null)
+                continue;
+            int idx = fmd.getIndex();
+            if (!loaded.get(idx) || (dirty != null && dirty.get(idx)))
+                continue;
+            Object value = toComparable(sm.getContext(),
+                sm.fetchField(idx, false));
+            if (!mayEqual(value, _values[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the database may consider the given values equal.
+     */
+    private static boolean mayEqual(Object val1, Object val2) {
+        if (val1 == null || val2 == null)
+            return true;
+        if (val1 instanceof Number && val2 instanceof Number) {
+            BigDecimal dec1 = toDecimal((Number) val1);
+            BigDecimal dec2 = toDecimal((Number) val2);
+            return dec1 == null || dec2 == null || dec1.compareTo(dec2) == 0;
+        }
+        if ((val1 instanceof String || val1 instanceof Character)
+            && (val2 instanceof String || val2 instanceof Character))
+            return normalize(val1.toString()).equals(normalize(val2.toString()));
+        if (val1.getClass() == val2.getClass()
+            || val1.getClass().isAssignableFrom(val2.getClass())
+            || val2.getClass().isAssignableFrom(val1.getClass()))
+            return val1.equals(val2);
+        return true;
+    }
+
+    /**
+     * Return the exact value of the given number, or null if it is not
+     * integral.
+     */
+    private static BigDecimal toDecimal(Number num) {
+        if (num instanceof BigDecimal)
+            return (BigDecimal) num;
+        if (num instanceof BigInteger)
+            return new BigDecimal((BigInteger) num);
+        if (num instanceof Long || num instanceof Integer
+            || num instanceof Short || num instanceof Byte)
+            return BigDecimal.valueOf(num.longValue());
+        return null;
+    }
+
+    /**
+     * Normalize a string the way lenient database collations compare it:
+     * without trailing blanks, case and accents.
+     */
+    private static String normalize(String str) {
+        int end = str.length();
+        while (end > 0 && str.charAt(end - 1) == ' ')
+            end--;
+        String norm = Normalizer.normalize(str.substring(0, end),
+            Normalizer.Form.NFD);
+        StringBuilder buf = new StringBuilder(norm.length());
+        for (int i = 0; i < norm.length(); i++)
+            if (Character.getType(norm.charAt(i)) != Character.NON_SPACING_MARK)
+                buf.append(norm.charAt(i));
+        return buf.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(_candidate.getSimpleName());
+        buf.append(_members ? "[members" : "[values");
+        for (int i = 0; i < _fields.length; i++)
+            buf.append(", ").append(_fields[i]).append("=").append(_values[i]);
+        return buf.append("]").toString();
+    }
+
+    /**
+     * Finds subqueries, whose results may depend on any instance.
+     */
+    private static class SubqueryVisitor
+        extends AbstractExpressionVisitor {
+
+        private boolean _sub = false;
+
+        public static boolean hasSubquery(Expression exp) {
+            if (exp == null)
+                return false;
+            SubqueryVisitor visitor = new SubqueryVisitor();
+            exp.acceptVisit(visitor);
+            return visitor._sub;
+        }
+
+        @Override
+        public void enter(Value val) {
+            if (val instanceof Subquery)
+                _sub = true;
+        }
+    }
+}
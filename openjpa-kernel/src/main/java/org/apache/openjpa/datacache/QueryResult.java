@@ -32,6 +32,9 @@ public class QueryResult extends ArrayList<Object> {
     private final long _ex;
 
     private long _timestamp = 0L;
+    private QueryDependencies _deps = null;
+    private DataCachePCData[][] _columns = null;
+
     /**
      * Constructor; supply corresponding query key and result data.
      */
@@ -81,4 +84,59 @@ public class QueryResult extends ArrayList<Object> {
     public long getTimestamp() {
         return this._timestamp;
     }
+
+    /**
+     * The field values this result depends on, or null if unknown.
+     *
+     * @since 4.1.2
+     */
+    public QueryDependencies getDependencies() {
+        return _deps;
+    }
+
+    /**
+     * The field values this result depends on, or null if unknown.
+     *
+     * @since 4.1.2
+     */
+    public void setDependencies(QueryDependencies deps) {
+        _deps = deps;
+    }
+
+    /**
+     * The state of the persistent instances in this result, or null if not
+     * materialized. The data is held by column: the first index is the
+     * position of the instance in a projection, or 0 if the result is not a
+     * projection, and the second index is the position of the row in this
+     * result. Elements that are not persistent instances are null.
+     *
+     * @since 4.1.2
+     */
+    public DataCachePCData[][] getMaterializedData() {
+        return _columns;
+    }
+
+    /**
+     * The state of the persistent instances in this result, or null if not
+     * materialized.
+     *
+     * @see #getMaterializedData
+     * @since 4.1.2
+     */
+    public void setMaterializedData(DataCachePCData[][] columns) {
+        _columns = columns;
+    }
+
+    /**
+     * Return the materialized state of the instance at the given row and
+     * column, or null.
+     *
+     * @since 4.1.2
+     */
+    public DataCachePCData getMaterializedData(int row, int column) {
+        if (_columns == null || column >= _columns.length
+            || _columns[column] == null)
+            return null;
+        return _columns[column][row];
+    }
 }
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.lib.conf.Configurable;
 import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.Configurations;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.Localizer;
 
@@ -42,9 +43,45 @@ public abstract class AbstractRemoteCommitProvider
     protected RemoteCommitEventManager eventManager;
     protected Log log;
 
+    private Configuration _conf;
+    private RemoteCommitEventCodec _codec =
+        new SerializationRemoteCommitEventCodec();
+
     @Override
     public void setConfiguration(Configuration config) {
         this.log = config.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+        _conf = config;
+    }
+
+    /**
+     * The codec used to convert events to and from the bytes transmitted
+     * to peers. Defaults to Java serialization.
+     *
+     * @since 4.1.2
+     */
+    public RemoteCommitEventCodec getCodec() {
+        return _codec;
+    }
+
+    /**
+     * Set the codec used to convert events to and from the bytes
+     * transmitted to peers, as a plugin string. The aliases
+     * <code>java</code> and <code>binary</code> select the
+     * {@link SerializationRemoteCommitEventCodec} and the
+     * {@link BinaryRemoteCommitEventCodec} respectively.
+     *
+     * @since 4.1.2
+     */
+    public void setCodec(String codec) {
+        String name = Configurations.getClassName(codec);
+        String props = Configurations.getProperties(codec);
+        if ("java".equals(name))
+            name = SerializationRemoteCommitEventCodec.class.getName();
+        else if ("binary".equals(name))
+            name = BinaryRemoteCommitEventCodec.class.getName();
+        _codec = (RemoteCommitEventCodec) Configurations.newInstance(name,
+            _conf, props, AbstractRemoteCommitProvider.class.
+            getClassLoader());
     }
 
     @Override
@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.MultiClassLoader;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Compact binary {@link RemoteCommitEventCodec}. The built-in
+ * {@link LongId}, {@link IntId} and {@link StringId} identities are written
+ * as their type followed by a variable-length key, and every class name is
+ * written only once per event and referenced by index afterwards. Any
+ * other object is written with Java serialization.
+ *  Events whose encoded size reaches the configured compression threshold
+ * are deflated.
+ *
+ * @since 4.1.2
+ */
+public class BinaryRemoteCommitEventCodec
+    implements RemoteCommitEventCodec {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (BinaryRemoteCommitEventCodec.class);
+
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATED = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_LONG_ID = 2;
+    private static final int TAG_INT_ID = 3;
+    private static final int TAG_STRING_ID = 4;
+    private static final int TAG_SERIALIZED = 5;
+    private static final int TAG_SUBS = 0x80;
+
+    private int _compressionThreshold = -1;
+
+    /**
+     * The encoded size in bytes at or above which events are deflated
+     * before transmission, or -1 to never compress. Defaults to -1.
+     */
+    public int getCompressionThreshold() {
+        return _compressionThreshold;
+    }
+
+    /**
+     * The encoded size in bytes at or above which events are deflated
+     * before transmission, or -1 to never compress. Defaults to -1.
+     */
+    public void setCompressionThreshold(int threshold) {
+        _compressionThreshold = threshold;
+    }
+
+    @Override
+    public byte[] encode(RemoteCommitEvent event)
+        throws IOException {
+        Writer out = new Writer();
+        int payload = event.getPayloadType();
+        out.writeVarLong(payload);
+        writeCollection(out, event.getPersistedTypeNames());
+        if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+            writeCollection(out, event.getPersistedObjectIds());
+        if (payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            writeCollection(out, event.getUpdatedTypeNames());
+            writeCollection(out, event.getDeletedTypeNames());
+        } else {
+            writeCollection(out, event.getUpdatedObjectIds());
+            writeCollection(out, event.getDeletedObjectIds());
+        }
+
+        byte[] body = out.toByteArray();
+        if (_compressionThreshold >= 0
+            && body.length >= _compressionThreshold) {
+            byte[] deflated = deflate(body);
+            if (deflated != null)
+                return deflated;
+        }
+        byte[] bytes = new byte[body.length + 2];
+        bytes[0] = VERSION;
+        System.arraycopy(body, 0, bytes, 2, body.length);
+        return bytes;
+    }
+
+    /**
+     * Return the framed, deflated form of the given body, or null if
+     * deflating does not make it smaller.
+     */
+    private static byte[] deflate(byte[] body) {
+        Writer out = new Writer();
+        out.write(VERSION);
+        out.write(FLAG_DEFLATED);
+        out.writeVarLong(body.length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] buf = new byte[Math.min(body.length, 8192)];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buf);
+                out.write(buf, 0, len);
+                if (out.size() >= body.length + 2)
+                    return null;
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public RemoteCommitEvent decode(byte[] bytes)
+        throws IOException, ClassNotFoundException {
+        if (bytes.length < 2 || bytes[0] != VERSION)
+            throw new StreamCorruptedException(_loc.get("codec-bad-version",
+                bytes.length == 0 ? "" : String.valueOf(bytes[0]),
+                String.valueOf(VERSION)).getMessage());
+
+        Reader in = new Reader(bytes, 2);
+        if ((bytes[1] & FLAG_DEFLATED) != 0)
+            in = new Reader(inflate(bytes, in), 0);
+
+        int payload = (int) in.readVarLong();
+        Collection addClasses = readCollection(in);
+        Collection addIds = null;
+        if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+            addIds = readCollection(in);
+        Collection updates = readCollection(in);
+        Collection deletes = readCollection(in);
+        return new RemoteCommitEvent(payload, addIds, addClasses, updates,
+            deletes);
+    }
+
+    /**
+     * Inflate the remainder of the given bytes, positioned after the
+     * uncompressed length.
+     */
+    private static byte[] inflate(byte[] bytes, Reader in)
+        throws IOException {
+        int len = (int) in.readVarLong();
+        byte[] body = new byte[len];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, in.pos, bytes.length - in.pos);
+            int read = 0;
+            while (read < len) {
+                int n = inflater.inflate(body, read, len - read);
+                if (n == 0 && (inflater.finished()
+                    || inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                read += n;
+            }
+            if (read != len)
+                throw new StreamCorruptedException(_loc.get
+                    ("codec-bad-length", String.valueOf(len),
+                        String.valueOf(read)).getMessage());
+        } catch (DataFormatException dfe) {
+            throw new IOException(dfe);
+        } finally {
+            inflater.end();
+        }
+        return body;
+    }
+
+    private static void writeCollection(Writer out, Collection c)
+        throws IOException {
+        out.writeVarLong(c.size());
+        for (Object o : c)
+            writeObject(out, o);
+    }
+
+    private static Collection readCollection(Reader in)
+        throws IOException, ClassNotFoundException {
+        int size = (int) in.readVarLong();
+        List c = new ArrayList(Math.min(size, 1024));
+        for (int i = 0; i < size; i++)
+            c.add(readObject(in));
+        return c;
+    }
+
+    private static void writeObject(Writer out, Object o)
+        throws IOException {
+        if (o == null) {
+            out.write(TAG_NULL);
+        } else if (o instanceof String) {
+            out.write(TAG_STRING);
+            out.writeInterned((String) o);
+        } else if (o instanceof LongId) {
+            writeIdType(out, TAG_LONG_ID, (OpenJPAId) o);
+            out.writeVarLong(zigzag(((LongId) o).getId()));
+        } else if (o instanceof IntId) {
+            writeIdType(out, TAG_INT_ID, (OpenJPAId) o);
+            out.writeVarLong(zigzag(((IntId) o).getId()));
+        } else if (o instanceof StringId) {
+            writeIdType(out, TAG_STRING_ID, (OpenJPAId) o);
+            out.writeString(((StringId) o).getId());
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(o);
+            }
+            out.write(TAG_SERIALIZED);
+            out.writeVarLong(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static void writeIdType(Writer out, int tag, OpenJPAId id) {
+        out.write(id.hasSubclasses() ? tag | TAG_SUBS : tag);
+        out.writeInterned(id.getType().getName());
+    }
+
+    private static Object readObject(Reader in)
+        throws IOException, ClassNotFoundException {
+        int tag = in.read();
+        boolean subs = (tag & TAG_SUBS) != 0;
+        switch (tag & ~TAG_SUBS) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readInterned();
+            case TAG_LONG_ID:
+                return new LongId(in.readType(), unzigzag(in.readVarLong()),
+                    subs);
+            case TAG_INT_ID:
+                return new IntId(in.readType(),
+                    (int) unzigzag(in.readVarLong()), subs);
+            case TAG_STRING_ID:
+                return new StringId(in.readType(), in.readString(), subs);
+            case TAG_SERIALIZED:
+                int len = (int) in.readVarLong();
+                try (ObjectInputStream ois = new Serialization.
+                    ClassResolvingObjectInputStream(new ByteArrayInputStream
+                    (in.buf, in.skip(len), len))) {
+                    return ois.readObject();
+                }
+            default:
+                throw new StreamCorruptedException(_loc.get("codec-bad-tag",
+                    String.valueOf(tag)).getMessage());
+        }
+    }
+
+    private static long zigzag(long val) {
+        return (val << 1) ^ (val >> 63);
+    }
+
+    private static long unzigzag(long val) {
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    /**
+     * Output buffer that interns the strings written through
+     * {@link #writeInterned}.
+     */
+    private static class Writer
+        extends ByteArrayOutputStream {
+
+        private final Map<String, Integer> _interned = new HashMap<>();
+
+        public Writer() {
+            super(256);
+        }
+
+        public void writeVarLong(long val) {
+            while ((val & ~0x7FL) != 0) {
+                write((int) ((val & 0x7F) | 0x80));
+                val >>>= 7;
+            }
+            write((int) val);
+        }
+
+        public void writeString(String str) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Write a reference to a string already written, or 0 followed
+         * by the string itself.
+         */
+        public void writeInterned(String str) {
+            Integer idx = _interned.get(str);
+            if (idx != null) {
+                writeVarLong(idx);
+                return;
+            }
+            _interned.put(str, _interned.size() + 1);
+            writeVarLong(0);
+            writeString(str);
+        }
+    }
+
+    /**
+     * Input over a byte array that resolves the strings and types written
+     * by a {@link Writer}.
+     */
+    private static class Reader {
+
+        private final byte[] buf;
+        private int pos;
+        private final List<String> _interned = new ArrayList<>();
+        private Map<String, Class<?>> _types;
+        private MultiClassLoader _loader;
+
+        public Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        public int read()
+            throws IOException {
+            if (pos >= buf.length)
+                throw new StreamCorruptedException(_loc.get("codec-eof").
+                    getMessage());
+            return buf[pos++] & 0xFF;
+        }
+
+        /**
+         * Skip the given number of bytes, returning the position of
+         * the first.
+         */
+        public int skip(int len)
+            throws IOException {
+            if (len < 0 || len > buf.length - pos)
+                throw new StreamCorruptedException(_loc.get("codec-eof").
+                    getMessage());
+            int start = pos;
+            pos += len;
+            return start;
+        }
+
+        public long readVarLong()
+            throws IOException {
+            long val = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                val |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return val;
+            }
+            throw new StreamCorruptedException(_loc.get("codec-bad-varint").
+                getMessage());
+        }
+
+        public String readString()
+            throws IOException {
+            int len = (int) readVarLong();
+            return new String(buf, skip(len), len, StandardCharsets.UTF_8);
+        }
+
+        public String readInterned()
+            throws IOException {
+            int idx = (int) readVarLong();
+            if (idx == 0) {
+                String str = readString();
+                _interned.add(str);
+                return str;
+            }
+            if (idx > _interned.size())
+                throw new StreamCorruptedException(_loc.get
+                    ("codec-bad-ref", String.valueOf(idx)).getMessage());
+            return _interned.get(idx - 1);
+        }
+
+        /**
+         * Read an interned class name and resolve it the same way
+         * {@link Serialization.ClassResolvingObjectInputStream} does.
+         */
+        public Class<?> readType()
+            throws IOException, ClassNotFoundException {
+            String name = readInterned();
+            if (_types == null)
+                _types = new HashMap<>();
+            Class<?> type = _types.get(name);
+            if (type != null)
+                return type;
+
+            if (_loader == null) {
+                _loader = AccessController.doPrivileged
+                    (J2DoPrivHelper.newMultiClassLoaderAction());
+                _loader.addClassLoader(AccessController.doPrivileged
+                    (J2DoPrivHelper.getContextClassLoaderAction()));
+                _loader.addClassLoader(BinaryRemoteCommitEventCodec.class.
+                    getClassLoader());
+                _loader.addClassLoader(MultiClassLoader.SYSTEM_LOADER);
+            }
+            type = Class.forName(BlacklistClassResolver.DEFAULT.check(name),
+                true, _loader);
+            _types.put(name, type);
+            return type;
+        }
+    }
+}
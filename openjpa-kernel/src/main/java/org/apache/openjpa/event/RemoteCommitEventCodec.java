@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+
+/**
+ * Converts {@link RemoteCommitEvent}s to and from the bytes that a
+ * {@link RemoteCommitProvider} transmits to its peers. All peers of a
+ * cluster must be configured with compatible codecs.
+ *  Implementations must be thread safe; a single instance is shared by
+ * every thread broadcasting or receiving events for a provider.
+ *
+ * @since 4.1.2
+ */
+public interface RemoteCommitEventCodec {
+
+    /**
+     * Encode the given event.
+     */
+    byte[] encode(RemoteCommitEvent event)
+        throws IOException;
+
+    /**
+     * Decode an event from the given bytes, as produced by
+     * {@link #encode} on a peer.
+     */
+    RemoteCommitEvent decode(byte[] bytes)
+        throws IOException, ClassNotFoundException;
+}
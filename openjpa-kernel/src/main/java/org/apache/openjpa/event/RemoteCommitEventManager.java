@@ -137,6 +137,29 @@ public class RemoteCommitEventManager
         listen.afterCommit(ev);
     }
 
+    /**
+     * Fire each of the given events in order, exactly as if they had been
+     * received one at a time. Providers that transmit several events in a
+     * single packet use this method to unpack them.
+     *
+     * @return the exceptions thrown by listeners for any of the events
+     * @since 4.1.2
+     */
+    public Exception[] fireEvents(Collection<RemoteCommitEvent> events) {
+        List<Exception> exceptions = null;
+        for (RemoteCommitEvent event : events) {
+            Exception[] es = fireEvent(event);
+            if (es.length == 0)
+                continue;
+            if (exceptions == null)
+                exceptions = new ArrayList<>();
+            Collections.addAll(exceptions, es);
+        }
+        if (exceptions == null)
+            return new Exception[0];
+        return exceptions.toArray(new Exception[exceptions.size()]);
+    }
+
     /**
      * Fire an event to local listeners only notifying them of a detected
      * stale record.
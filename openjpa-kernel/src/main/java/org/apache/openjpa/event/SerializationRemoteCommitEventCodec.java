@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.openjpa.util.Serialization;
+
+/**
+ * {@link RemoteCommitEventCodec} that uses standard Java serialization.
+ * This is the default codec.
+ *
+ * @since 4.1.2
+ */
+public class SerializationRemoteCommitEventCodec
+    implements RemoteCommitEventCodec {
+
+    @Override
+    public byte[] encode(RemoteCommitEvent event)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(event);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public RemoteCommitEvent decode(byte[] bytes)
+        throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new Serialization.
+            ClassResolvingObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (RemoteCommitEvent) in.readObject();
+        }
+    }
+}
@@ -19,30 +19,47 @@
 package org.apache.openjpa.event;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.pool2.BasePooledObjectFactory;
@@ -89,6 +106,9 @@ public class TCPRemoteCommitProvider
     private int _maxTotal = 2;
     private int _maxIdle = 2;
     private int _recoveryTimeMillis = 15000;
+    private int _coalesceMillis = 0;
+    private int _maxCoalescedEvents = 0;
+    private boolean _selectorReceiver = false;
     private TCPPortListener _listener;
     private final BroadcastQueue _broadcastQueue = new BroadcastQueue();
     private final List<BroadcastWorkerThread> _broadcastThreads = Collections.synchronizedList(new LinkedList<>());
@@ -221,6 +241,72 @@ public class TCPRemoteCommitProvider
         return _broadcastThreads.size();
     }
 
+    /**
+     * Set the number of milliseconds a broadcast thread waits for further
+     * events to send in the same packet as the first one it dequeues. 0,
+     * the default, only coalesces events that are already queued.
+     *
+     * @param coalesceMillis the coalescing window in milliseconds
+     * @since 4.1.2
+     */
+    public void setCoalesceMillis(final int coalesceMillis) {
+        _coalesceMillis = coalesceMillis;
+    }
+
+    /**
+     * @return the number of milliseconds a broadcast thread waits for further events to send in the same packet.
+     * @since 4.1.2
+     */
+    public int getCoalesceMillis() {
+        return _coalesceMillis;
+    }
+
+    /**
+     * Set the maximum number of events sent to peers in a single packet. 1 disables coalescing; 0, the default,
+     * means no limit, and coalescing is then only enabled by a positive {@link #setCoalesceMillis coalescing window}.
+     *
+     * @param maxCoalescedEvents the maximum number of events per packet
+     * @since 4.1.2
+     */
+    public void setMaxCoalescedEvents(final int maxCoalescedEvents) {
+        _maxCoalescedEvents = maxCoalescedEvents;
+    }
+
+    /**
+     * @return the maximum number of events sent to peers in a single packet, or 0 for no limit.
+     * @since 4.1.2
+     */
+    public int getMaxCoalescedEvents() {
+        return _maxCoalescedEvents;
+    }
+
+    /**
+     * Whether events are queued and coalesced by the broadcast threads.
+     */
+    private boolean isCoalescing() {
+        return _coalesceMillis > 0 || _maxCoalescedEvents > 1;
+    }
+
+    /**
+     * Set whether incoming connections from peers are all served by a single thread multiplexing them with a
+     * {@link Selector} rather than by a thread per connection. The setting of the first provider to listen on a
+     * port applies to all providers sharing that port.
+     *
+     * @param selectorReceiver whether to receive packets using a selector
+     * @since 4.1.2
+     */
+    public void setSelectorReceiver(final boolean selectorReceiver) {
+        _selectorReceiver = selectorReceiver;
+    }
+
+    /**
+     * @return whether incoming connections from peers are served by a single selector thread.
+     * @since 4.1.2
+     */
+    public boolean getSelectorReceiver() {
+        return _selectorReceiver;
+    }
+
     /**
      * Sets the list of addresses of peers to which this provider will send events to.
      * The peers are semicolon-separated <code>names</code> list in the form of "myhost1:portA;myhost2:portB".
@@ -291,13 +377,16 @@ public class TCPRemoteCommitProvider
     @Override
     public void endConfiguration() {
         super.endConfiguration();
+        if (_selectorReceiver && getCodec() instanceof SerializationRemoteCommitEventCodec && log.isWarnEnabled()) {
+            log.warn(s_loc.get("tcp-selector-java-codec", String.valueOf(_port)));
+        }
         synchronized (s_portListenerMap) {
             // see if a listener exists for this port.
             _listener = s_portListenerMap.get(String.valueOf(_port));
 
             if (_listener == null || (!_listener.isRunning() && _listener._port == _port)) {
                 try {
-                    _listener = new TCPPortListener(_port, log);
+                    _listener = new TCPPortListener(_port, log, _selectorReceiver);
                     _listener.listen();
                     s_portListenerMap.put(String.valueOf(_port), _listener);
                 } catch (Exception e) {
@@ -333,31 +422,101 @@ public class TCPRemoteCommitProvider
     // 3.4 			= 0x1428acff;
     private static final long PROTOCOL_VERSION = 0x1428acff;
 
+    // Packets encoded by a codec other than the default serialization codec,
+    // and packets holding more than one event, are framed and start with
+    // this marker rather than the serialization stream magic number 0xaced.
+    // The marker is followed by the length of the remainder of the frame.
+    // The frame names the codec of its events, so that a receiver decodes
+    // them with the same codec whatever codec its own providers send with.
+    private static final short FRAME_MAGIC = 0x4f4a;
+    private static final int FRAME_HEADER_LENGTH = 6;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private static final RemoteCommitEventCodec BINARY_CODEC = new BinaryRemoteCommitEventCodec();
+    private static final RemoteCommitEventCodec SERIALIZATION_CODEC = new SerializationRemoteCommitEventCodec();
+
     @Override
     public void broadcast(final RemoteCommitEvent event) {
+        // leave the event for the broadcast threads to combine with others
+        if (isCoalescing() && !_broadcastThreads.isEmpty()) {
+            _broadcastQueue.addPacket(event);
+            return;
+        }
+
         // build a packet notifying other JVMs of object changes.
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+        byte[] bytes = createPacket(Collections.singletonList(event));
+        if (bytes == null) {
+            return;
+        }
+        if (_broadcastThreads.isEmpty()) {
+            sendUpdatePacket(bytes);
+        } else {
+            _broadcastQueue.addPacket(bytes);
+        }
+    }
 
+    /**
+     * Create a packet holding the given events, or return null if the events
+     * could not be encoded.
+     */
+    private byte[] createPacket(final List<RemoteCommitEvent> events) {
+        try {
+            if (events.size() == 1 && getCodec().getClass() == SerializationRemoteCommitEventCodec.class) {
+                return serializePacket(events.get(0));
+            }
+            return framePacket(events);
+        } catch (IOException ioe) {
+            if (log.isWarnEnabled()) {
+                log.warn(s_loc.get("tcp-payload-create-error"), ioe);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Create a packet in the serialized format understood by all
+     * releases.
+     */
+    private byte[] serializePacket(final RemoteCommitEvent event) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
             oos.writeLong(PROTOCOL_VERSION);
             oos.writeLong(_id);
             oos.writeInt(_port);
             oos.writeObject(_localhost);
             oos.writeObject(event);
-            oos.flush();
+        }
+        return baos.toByteArray();
+    }
 
-            byte[] bytes = baos.toByteArray();
-            baos.close();
-            if (_broadcastThreads.isEmpty()) {
-                sendUpdatePacket(bytes);
-            } else {
-                _broadcastQueue.addPacket(bytes);
-            }
-        } catch (IOException ioe) {
-            if (log.isWarnEnabled()) {
-                log.warn(s_loc.get("tcp-payload-create-error"), ioe);
+    /**
+     * Create a length-prefixed packet holding the events, each encoded by the
+     * configured {@link RemoteCommitEventCodec} and prefixed with its length.
+     * The class name of the codec precedes the events.
+     */
+    private byte[] framePacket(final List<RemoteCommitEvent> events) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeShort(FRAME_MAGIC);
+            out.writeInt(0); // frame length, filled in below
+            out.writeLong(PROTOCOL_VERSION);
+            out.writeLong(_id);
+            out.writeInt(_port);
+            out.writeByte(_localhost.length);
+            out.write(_localhost);
+            byte[] codec = getCodec().getClass().getName().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(codec.length);
+            out.write(codec);
+            out.writeInt(events.size());
+            for (RemoteCommitEvent event : events) {
+                byte[] payload = getCodec().encode(event);
+                out.writeInt(payload.length);
+                out.write(payload);
             }
         }
+        byte[] bytes = baos.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(2, bytes.length - FRAME_HEADER_LENGTH);
+        return bytes;
     }
 
     /**
@@ -402,11 +561,12 @@ public class TCPRemoteCommitProvider
     /**
      * Utility class to hold messages to be sent. This
      * allows calls to broadcast () to return without
-     * waiting for the send to complete.
+     * waiting for the send to complete. The queue holds
+     * encoded packets, or events waiting to be coalesced.
      */
     private static class BroadcastQueue {
 
-        private final LinkedList<byte[]> _packetQueue = new LinkedList<>();
+        private final LinkedList<Object> _packetQueue = new LinkedList<>();
         private boolean _closed = false;
 
         public synchronized void close() {
@@ -418,16 +578,17 @@ public class TCPRemoteCommitProvider
             return _closed;
         }
 
-        public synchronized void addPacket(final byte[] bytes) {
-            _packetQueue.addLast(bytes);
-            notify();
+        public synchronized void addPacket(final Object packet) {
+            _packetQueue.addLast(packet);
+            // wake threads waiting out a coalescing window as well as idle ones
+            notifyAll();
         }
 
         /**
-         * @return the bytes defining the packet to process, or
+         * @return the bytes or event defining the packet to process, or
          * <code>null</code> if the queue is empty.
          */
-        public synchronized byte[] removePacket() throws InterruptedException {
+        public synchronized Object removePacket() throws InterruptedException {
             // only wait if the queue is still open. This allows processing
             // of events in the queue to continue, while avoiding sleeping
             // during shutdown.
@@ -440,6 +601,38 @@ public class TCPRemoteCommitProvider
                 return _packetQueue.removeFirst();
             }
         }
+
+        /**
+         * Remove the next packet, followed by up to <code>max - 1</code>
+         * further packets that are queued within <code>window</code>
+         * milliseconds of it.
+         *
+         * @return the packets to process, or <code>null</code> if the
+         * queue is empty.
+         */
+        public synchronized List<Object> removePackets(final int max, final long window)
+            throws InterruptedException {
+            Object first = removePacket();
+            if (first == null) {
+                return null;
+            }
+            List<Object> packets = new ArrayList<>();
+            packets.add(first);
+
+            long deadline = System.currentTimeMillis() + window;
+            while (packets.size() < max) {
+                if (!_packetQueue.isEmpty()) {
+                    packets.add(_packetQueue.removeFirst());
+                    continue;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (_closed || remaining <= 0) {
+                    break;
+                }
+                wait(remaining);
+            }
+            return packets;
+        }
     }
 
     /**
@@ -456,9 +649,20 @@ public class TCPRemoteCommitProvider
                 try {
                     // This will block until there is a packet to send, or
                     // until the queue is closed.
-                    byte[] bytes = _broadcastQueue.removePacket();
-                    if (bytes != null) {
-                        sendUpdatePacket(bytes);
+                    if (isCoalescing()) {
+                        int max = (_maxCoalescedEvents > 0) ? _maxCoalescedEvents : Integer.MAX_VALUE;
+                        List<Object> packets = _broadcastQueue.removePackets(max, _coalesceMillis);
+                        if (packets != null) {
+                            send(packets);
+                        } else if (_broadcastQueue.isClosed()) {
+                            _keepRunning = false;
+                        }
+                        continue;
+                    }
+
+                    Object packet = _broadcastQueue.removePacket();
+                    if (packet != null) {
+                        send(Collections.singletonList(packet));
                     } else if (_broadcastQueue.isClosed()) {
                         _keepRunning = false;
                     }
@@ -470,6 +674,30 @@ public class TCPRemoteCommitProvider
             remove();
         }
 
+        /**
+         * Send the given packets, combining any queued events into a
+         * single packet.
+         */
+        private void send(final List<Object> packets) {
+            List<RemoteCommitEvent> events = null;
+            for (Object packet : packets) {
+                if (packet instanceof byte[]) {
+                    sendUpdatePacket((byte[]) packet);
+                } else {
+                    if (events == null) {
+                        events = new ArrayList<>(packets.size());
+                    }
+                    events.add((RemoteCommitEvent) packet);
+                }
+            }
+            if (events != null) {
+                byte[] bytes = createPacket(events);
+                if (bytes != null) {
+                    sendUpdatePacket(bytes);
+                }
+            }
+        }
+
         public void setRunning(final boolean keepRunning) {
             _keepRunning = keepRunning;
         }
@@ -484,12 +712,32 @@ public class TCPRemoteCommitProvider
      */
     private static final class TCPPortListener implements Runnable {
 
+        // Frame buffers of up to this size are pooled by the selector
+        // thread; larger frames are read into one-off heap buffers.
+        private static final int POOLED_BUFFER_SIZE = 64 * 1024;
+        private static final int MAX_POOLED_BUFFERS = 16;
+
         private final Log _log;
         private ServerSocket _receiveSocket;
         private Thread _acceptThread;
         private Set<Thread> _receiverThreads = new HashSet<>();
         private final Set<TCPRemoteCommitProvider> _providers = new HashSet<>();
 
+        /**
+         * Selector multiplexing all peer connections, or <code>null</code>
+         * to serve each connection with its own thread.
+         */
+        private Selector _selector;
+        private final List<ChannelReader> _handOffs = new ArrayList<>();
+
+        /**
+         * Single thread notifying the providers of the events read by the
+         * selector thread, so that slow listeners do not stall reading, while
+         * events are still delivered in the order they were received.
+         */
+        private ExecutorService _dispatcher;
+        private final ArrayDeque<ByteBuffer> _buffers = new ArrayDeque<>();
+
         /**
          * Cache the local IP address
          */
@@ -509,13 +757,35 @@ public class TCPRemoteCommitProvider
         /**
          * Construct a new TCPPortListener configured to use the specified port.
          */
-        private TCPPortListener(final int port, final Log log) throws IOException {
+        private TCPPortListener(final int port, final Log log, final boolean selector) throws IOException {
             _port = port;
             _log = log;
-            try {
-                _receiveSocket = AccessController.doPrivileged(J2DoPrivHelper.newServerSocketAction(_port));
-            } catch (PrivilegedActionException pae) {
-                throw (IOException) pae.getException();
+            if (selector) {
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                try {
+                    channel.bind(new InetSocketAddress(_port));
+                    channel.configureBlocking(false);
+                    _selector = Selector.open();
+                    channel.register(_selector, SelectionKey.OP_ACCEPT);
+                    _dispatcher = Executors.newSingleThreadExecutor(r -> {
+                        Thread t = new Thread(r, "openjpa-tcp-dispatch-" + port);
+                        t.setDaemon(true);
+                        return t;
+                    });
+                } catch (IOException ioe) {
+                    channel.close();
+                    if (_selector != null) {
+                        _selector.close();
+                    }
+                    throw ioe;
+                }
+                _receiveSocket = channel.socket();
+            } else {
+                try {
+                    _receiveSocket = AccessController.doPrivileged(J2DoPrivHelper.newServerSocketAction(_port));
+                } catch (PrivilegedActionException pae) {
+                    throw (IOException) pae.getException();
+                }
             }
             _localhost = InetAddress.getLocalHost().getAddress();
 
@@ -576,6 +846,36 @@ public class TCPRemoteCommitProvider
                 _isRunning = true;
             }
 
+            if (_selector != null) {
+                select();
+            } else {
+                accept();
+            }
+
+            // We are done listening. Interrupt any worker threads.
+            _receiverThreads.forEach(Thread::interrupt);
+
+            synchronized (_providers) {
+                try {
+                    if (_isRunning) {
+                        _receiveSocket.close();
+                    }
+                } catch (Exception e) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-close-error"), e);
+                    }
+                }
+                _isRunning = false;
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-close-listener", _port + ""));
+                }
+            }
+        }
+
+        /**
+         * Accept connections from peers, starting a receiver thread for each.
+         */
+        private void accept() {
             Socket s = null;
             while (_isRunning) {
                 try {
@@ -586,11 +886,7 @@ public class TCPRemoteCommitProvider
                         _log.trace(s_loc.get("tcp-received-connection",
                             s.getInetAddress().getHostAddress() + ":" + s.getPort()));
                     }
-                    ReceiveSocketHandler sh = new ReceiveSocketHandler(s);
-                    Thread receiverThread = new Thread(sh);
-                    receiverThread.setDaemon(true);
-                    receiverThread.start();
-                    _receiverThreads.add(receiverThread);
+                    startReceiver(new ReceiveSocketHandler(s, null));
                 } catch (Exception e) {
                     if (e instanceof PrivilegedActionException) {
                         e = ((PrivilegedActionException) e).getException();
@@ -614,23 +910,340 @@ public class TCPRemoteCommitProvider
                     }
                 }
             }
+        }
 
-            // We are done listening. Interrupt any worker threads.
-            _receiverThreads.forEach(Thread::interrupt);
+        private void startReceiver(final ReceiveSocketHandler sh) {
+            Thread receiverThread = new Thread(sh);
+            receiverThread.setDaemon(true);
+            receiverThread.start();
+            _receiverThreads.add(receiverThread);
+        }
 
-            synchronized (_providers) {
+        /**
+         * Accept connections from peers and read their packets, all from
+         * this thread.
+         */
+        private void select() {
+            while (_isRunning) {
                 try {
-                    if (_isRunning) {
-                        _receiveSocket.close();
+                    // channels cancelled in the previous pass are only
+                    // deregistered by the next selection operation
+                    if (_handOffs.isEmpty()) {
+                        _selector.select();
+                    } else {
+                        _selector.selectNow();
+                        for (ChannelReader reader : _handOffs) {
+                            reader.handOff();
+                        }
+                        _handOffs.clear();
+                    }
+
+                    Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            acceptChannel();
+                        } else if (key.isReadable()) {
+                            ((ChannelReader) key.attachment()).read(key);
+                        }
                     }
                 } catch (Exception e) {
+                    if (_isRunning && _log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-accept-error"), e);
+                    }
+                }
+            }
+
+            for (SelectionKey key : _selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ioe) {
                     if (_log.isWarnEnabled()) {
-                        _log.warn(s_loc.get("tcp-close-error"), e);
+                        _log.warn(s_loc.get("tcp-close-error"), ioe);
                     }
                 }
-                _isRunning = false;
+            }
+            try {
+                _selector.close();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-close-error"), ioe);
+                }
+            }
+            // events already read are still delivered
+            _dispatcher.shutdown();
+        }
+
+        private void acceptChannel() throws IOException {
+            SocketChannel channel = ((ServerSocketChannel) _receiveSocket.getChannel()).accept();
+            if (channel == null) {
+                return;
+            }
+            Socket s = channel.socket();
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-connection",
+                    s.getInetAddress().getHostAddress() + ":" + s.getPort()));
+            }
+            try {
+                s.setTcpNoDelay(true);
+                channel.configureBlocking(false);
+                channel.register(_selector, SelectionKey.OP_READ, new ChannelReader(channel));
+            } catch (IOException ioe) {
+                channel.close();
+                throw ioe;
+            }
+        }
+
+        /**
+         * Return a buffer positioned to read a frame of the given length.
+         */
+        private ByteBuffer borrowBuffer(final int len) {
+            if (len > POOLED_BUFFER_SIZE) {
+                return ByteBuffer.allocate(len);
+            }
+            ByteBuffer buf = _buffers.poll();
+            if (buf == null) {
+                buf = ByteBuffer.allocateDirect(POOLED_BUFFER_SIZE);
+            }
+            buf.clear();
+            buf.limit(len);
+            return buf;
+        }
+
+        private void returnBuffer(final ByteBuffer buf) {
+            if (buf.isDirect() && _buffers.size() < MAX_POOLED_BUFFERS) {
+                _buffers.push(buf);
+            }
+        }
+
+        /**
+         * Process the body of a frame written by
+         * {@link TCPRemoteCommitProvider#framePacket}, positioned after the
+         * frame length. The events are decoded with the codec named by the
+         * frame: the codec of a provider on this port of the same class, or
+         * else one of the built-in codecs. Frames naming any other codec are
+         * dropped with an error, as their events cannot be decoded here.
+         */
+        private void processFrame(final ByteBuffer frame, final String peer) throws IOException {
+            long protocolVersion = frame.getLong();
+            long senderId = frame.getLong();
+            int senderPort = frame.getInt();
+            byte[] senderAddress = new byte[frame.get() & 0xff];
+            frame.get(senderAddress);
+            int codecLength = frame.getShort() & 0xffff;
+            if (codecLength > frame.remaining()) {
+                throw new StreamCorruptedException(s_loc.get("tcp-bad-frame", peer).getMessage());
+            }
+            byte[] codecName = new byte[codecLength];
+            frame.get(codecName);
+            int count = frame.getInt();
+            if (count < 0 || count > frame.remaining() / 4) {
+                throw new StreamCorruptedException(s_loc.get("tcp-bad-frame", peer).getMessage());
+            }
+            List<byte[]> payloads = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int len = frame.getInt();
+                if (len < 0 || len > frame.remaining()) {
+                    throw new StreamCorruptedException(s_loc.get("tcp-bad-frame", peer).getMessage());
+                }
+                byte[] payload = new byte[len];
+                frame.get(payload);
+                payloads.add(payload);
+            }
+            if (protocolVersion != PROTOCOL_VERSION) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-wrong-version-error", peer));
+                }
+                return;
+            }
+
+            RemoteCommitEventCodec codec = getCodec(new String(codecName, StandardCharsets.UTF_8));
+            if (codec == null) {
+                if (_log.isErrorEnabled()) {
+                    _log.error(s_loc.get("tcp-unknown-codec", peer, new String(codecName,
+                        StandardCharsets.UTF_8)));
+                }
+                return;
+            }
+            // the frame has been consumed, so a payload this provider cannot
+            // decode does not affect the packets that follow it
+            List<RemoteCommitEvent> events = new ArrayList<>(payloads.size());
+            try {
+                for (byte[] payload : payloads) {
+                    events.add(codec.decode(payload));
+                }
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-receive-error"), e);
+                }
+                return;
+            }
+            fireEvents(senderId, senderPort, senderAddress, events, peer);
+        }
+
+        /**
+         * Return the codec of the given class to decode received events
+         * with, or null if there is none.
+         */
+        private RemoteCommitEventCodec getCodec(final String name) {
+            synchronized (_providers) {
+                for (TCPRemoteCommitProvider provider : _providers) {
+                    if (provider.getCodec().getClass().getName().equals(name)) {
+                        return provider.getCodec();
+                    }
+                }
+            }
+            // the built-in codecs decode regardless of their configuration
+            if (BinaryRemoteCommitEventCodec.class.getName().equals(name)) {
+                return BINARY_CODEC;
+            }
+            if (SerializationRemoteCommitEventCodec.class.getName().equals(name)) {
+                return SERIALIZATION_CODEC;
+            }
+            return null;
+        }
+
+        /**
+         * Notify the providers listening on this port of the events
+         * received from the given sender.
+         */
+        private void fireEvents(final long senderId, final int senderPort, final byte[] senderAddress,
+            final List<RemoteCommitEvent> events, final String peer) {
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-event", peer));
+            }
+
+            boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
+            Runnable notify = () -> {
+                synchronized (_providers) {
+                    // bleair: We're iterating, but currenlty there can really
+                    // only be a single provider.
+                    _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
+                            forEach(provider -> provider.eventManager.fireEvents(events));
+                }
+            };
+            if (_dispatcher == null) {
+                notify.run();
+                return;
+            }
+            try {
+                _dispatcher.execute(notify);
+            } catch (RejectedExecutionException ree) {
+                // the listener is closing; no provider is left to notify
                 if (_log.isTraceEnabled()) {
-                    _log.trace(s_loc.get("tcp-close-listener", _port + ""));
+                    _log.trace(s_loc.get("tcp-receive-error"), ree);
+                }
+            }
+        }
+
+        /**
+         * Reads the frames sent over a single non-blocking connection. Only
+         * used by the selector thread.
+         */
+        private final class ChannelReader {
+
+            private final SocketChannel _channel;
+            private final String _peer;
+            private final ByteBuffer _header = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+            private ByteBuffer _frame;
+
+            private ChannelReader(final SocketChannel channel) {
+                _channel = channel;
+                Socket s = channel.socket();
+                _peer = s.getInetAddress().getHostAddress() + ":" + s.getPort();
+            }
+
+            /**
+             * Read and process all complete frames available on the channel.
+             */
+            private void read(final SelectionKey key) {
+                try {
+                    while (true) {
+                        if (_frame == null) {
+                            if (_channel.read(_header) < 0) {
+                                throw new EOFException();
+                            }
+                            if (_header.position() >= 2 && _header.getShort(0) != FRAME_MAGIC) {
+                                // a serialized packet from a peer that does not
+                                // frame its packets; it needs a blocking stream
+                                key.cancel();
+                                _handOffs.add(this);
+                                return;
+                            }
+                            if (_header.hasRemaining()) {
+                                return;
+                            }
+                            int len = _header.getInt(2);
+                            if (len < 0 || len > MAX_FRAME_LENGTH) {
+                                throw new IOException(s_loc.get("tcp-frame-too-large", _peer,
+                                    String.valueOf(len), String.valueOf(MAX_FRAME_LENGTH)).getMessage());
+                            }
+                            _frame = borrowBuffer(len);
+                        }
+
+                        if (_channel.read(_frame) < 0) {
+                            throw new EOFException();
+                        }
+                        if (_frame.hasRemaining()) {
+                            return;
+                        }
+                        _frame.flip();
+                        try {
+                            processFrame(_frame, _peer);
+                        } finally {
+                            returnBuffer(_frame);
+                            _frame = null;
+                            _header.clear();
+                        }
+                    }
+                } catch (EOFException eof) {
+                    if (_log.isTraceEnabled()) {
+                        _log.trace(s_loc.get("tcp-close-socket", _peer));
+                    }
+                    close(key);
+                } catch (Throwable e) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-receive-error"), e);
+                    }
+                    close(key);
+                }
+            }
+
+            /**
+             * Serve this connection from a receiver thread, replaying the
+             * bytes already read. The channel must have been deregistered.
+             */
+            private void handOff() {
+                try {
+                    _channel.configureBlocking(true);
+                    _header.flip();
+                    byte[] prefix = new byte[_header.remaining()];
+                    _header.get(prefix);
+                    startReceiver(new ReceiveSocketHandler(_channel.socket(), prefix));
+                } catch (IOException ioe) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-receive-error"), ioe);
+                    }
+                    close(null);
+                }
+            }
+
+            private void close(final SelectionKey key) {
+                if (key != null) {
+                    key.cancel();
+                }
+                if (_frame != null) {
+                    returnBuffer(_frame);
+                    _frame = null;
+                }
+                try {
+                    _channel.close();
+                } catch (IOException ioe) {
+                    _log.warn(s_loc.get("tcp-close-socket-error", _peer), ioe);
                 }
             }
         }
@@ -641,17 +1254,24 @@ public class TCPRemoteCommitProvider
          */
         private final class ReceiveSocketHandler implements Runnable {
 
-            private InputStream _in;
+            private BufferedInputStream _in;
             private Socket _s;
 
-            private ReceiveSocketHandler(final Socket s) {
+            /**
+             * @param prefix bytes already read from the socket, or <code>null</code>
+             */
+            private ReceiveSocketHandler(final Socket s, final byte[] prefix) {
                 // We are the receiving end and we don't send any messages
                 // back to the broadcaster. Turn off Nagle's so that
                 // we will send ack packets without waiting.
                 _s = s;
                 try {
                     _s.setTcpNoDelay(true);
-                    _in = new BufferedInputStream(s.getInputStream());
+                    InputStream in = s.getInputStream();
+                    if (prefix != null && prefix.length > 0) {
+                        in = new SequenceInputStream(new ByteArrayInputStream(prefix), in);
+                    }
+                    _in = new BufferedInputStream(in);
                 } catch (IOException ioe) {
                     if (_log.isInfoEnabled()) {
                         _log.info(s_loc.get("tcp-socket-option-error"), ioe);
@@ -707,8 +1327,21 @@ public class TCPRemoteCommitProvider
              * Process an {@link InputStream} containing objects written
              * by {@link TCPRemoteCommitProvider#broadcast(RemoteCommitEvent)}.
              */
-            private void handle(final InputStream in) throws IOException, ClassNotFoundException {
-                // This will block waiting for the next
+            private void handle(final BufferedInputStream in) throws IOException, ClassNotFoundException {
+                // This will block waiting for the next packet; peek at its
+                // first two bytes to tell framed packets from serialized ones
+                in.mark(2);
+                int b1 = in.read();
+                int b2 = in.read();
+                in.reset();
+                if (b1 == -1 || b2 == -1) {
+                    throw new EOFException();
+                }
+                if ((short) ((b1 << 8) | b2) == FRAME_MAGIC) {
+                    handleFrame(new DataInputStream(in));
+                    return;
+                }
+
                 ObjectInputStream ois = new Serialization.ClassResolvingObjectInputStream(in);
 
                 long protocolVersion = ois.readLong();
@@ -724,19 +1357,26 @@ public class TCPRemoteCommitProvider
                 int senderPort = ois.readInt();
                 byte[] senderAddress = (byte[]) ois.readObject();
                 RemoteCommitEvent rce = (RemoteCommitEvent) ois.readObject();
-                if (_log.isTraceEnabled()) {
-                    _log.trace(s_loc.get("tcp-received-event",
-                        _s.getInetAddress().getHostAddress() + ":"
-                            + _s.getPort()));
-                }
+                fireEvents(senderId, senderPort, senderAddress, Collections.singletonList(rce), peer());
+            }
 
-                boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
-                synchronized (_providers) {
-                    // bleair: We're iterating, but currenlty there can really
-                    // only be a single provider.
-                    _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
-                            forEach(provider -> provider.eventManager.fireEvent(rce));
+            /**
+             * Read a length-prefixed packet and process its events.
+             */
+            private void handleFrame(final DataInputStream in) throws IOException {
+                in.readShort();
+                int len = in.readInt();
+                if (len < 0 || len > MAX_FRAME_LENGTH) {
+                    throw new IOException(s_loc.get("tcp-frame-too-large", peer(),
+                        String.valueOf(len), String.valueOf(MAX_FRAME_LENGTH)).getMessage());
                 }
+                byte[] frame = new byte[len];
+                in.readFully(frame);
+                processFrame(ByteBuffer.wrap(frame), peer());
+            }
+
+            private String peer() {
+                return _s.getInetAddress().getHostAddress() + ":" + _s.getPort();
             }
         }
     }
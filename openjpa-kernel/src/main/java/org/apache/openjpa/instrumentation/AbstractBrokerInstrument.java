@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.openjpa.kernel.BrokerStatistics;
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.Histogram;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+
+/**
+ * Provides a basic instrument implementation wrapper for the broker
+ * statistics.  This class can be extended to create a provider specific
+ * instrument for brokers.
+ *
+ * @since 4.1.2
+ */
+public abstract class AbstractBrokerInstrument extends AbstractInstrument
+    implements BrokerInstrument {
+
+    public static final long NO_STATS = -1;
+
+    private BrokerStatistics _stats;
+    private String _configID = null;
+    private String _configRef = null;
+
+    public void setConfigId(String cid) {
+        _configID = cid;
+    }
+
+    public void setContextRef(String cref) {
+        _configRef = cref;
+    }
+
+    public String getConfigId() {
+        return _configID;
+    }
+
+    public String getContextRef() {
+        return _configRef;
+    }
+
+    public void setBrokerStatistics(BrokerStatistics stats) {
+        _stats = stats;
+    }
+
+    public BrokerStatistics getBrokerStatistics() {
+        return _stats;
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1000000D;
+    }
+
+    @Override
+    public long getOpenBrokerCount() {
+        return (_stats == null) ? NO_STATS : _stats.getOpenBrokerCount();
+    }
+
+    @Override
+    public long getManagedCount() {
+        return (_stats == null) ? NO_STATS : _stats.getManagedCount();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return (_stats == null) ? NO_STATS : _stats.getFlushTimes().getCount();
+    }
+
+    @Override
+    public double getAverageFlushTime() {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getFlushTimes().getMean());
+    }
+
+    @Override
+    public double getMaxFlushTime() {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getFlushTimes().getMax());
+    }
+
+    @Override
+    public double getFlushTimePercentile(double percentile) {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getFlushTimes().getPercentile(percentile));
+    }
+
+    @Override
+    public double getAverageFlushInstances() {
+        return (_stats == null) ? NO_STATS
+            : _stats.getFlushInstances().getMean();
+    }
+
+    @Override
+    public long getCommitCount() {
+        return (_stats == null) ? NO_STATS : _stats.getCommitTimes().getCount();
+    }
+
+    @Override
+    public double getAverageCommitTime() {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getCommitTimes().getMean());
+    }
+
+    @Override
+    public double getMaxCommitTime() {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getCommitTimes().getMax());
+    }
+
+    @Override
+    public double getCommitTimePercentile(double percentile) {
+        return (_stats == null) ? NO_STATS
+            : toMillis(_stats.getCommitTimes().getPercentile(percentile));
+    }
+
+    @Override
+    public long getRollbackCount() {
+        return (_stats == null) ? NO_STATS : _stats.getRollbackCount();
+    }
+
+    @Override
+    public long getDetachedCount() {
+        return (_stats == null) ? NO_STATS : _stats.getDetachedCount();
+    }
+
+    @Override
+    public double getAverageDetachTime() {
+        return average(_stats == null ? null : _stats.getDetachTimes());
+    }
+
+    @Override
+    public long getAttachedCount() {
+        return (_stats == null) ? NO_STATS : _stats.getAttachedCount();
+    }
+
+    @Override
+    public double getAverageAttachTime() {
+        return average(_stats == null ? null : _stats.getAttachTimes());
+    }
+
+    private static double average(Histogram hist) {
+        return (hist == null) ? NO_STATS : toMillis(hist.getMean());
+    }
+
+    @Override
+    public Map<String, Long> getLoadCounts() {
+        return (_stats == null) ? Collections.emptyMap()
+            : _stats.getLoadCounts();
+    }
+
+    @Override
+    public Map<String, Long> getLazyLoadCounts() {
+        return (_stats == null) ? Collections.emptyMap()
+            : _stats.getLazyLoadCounts();
+    }
+
+    @Override
+    public void reset() {
+        if (_stats != null)
+            _stats.reset();
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.Value;
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.Histogram;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.jdbc.MetricsConnectionDecorator;
+import org.apache.openjpa.lib.jdbc.SQLMetrics;
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Operation;
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Shape;
+
+/**
+ * Provides a basic instrument implementation wrapper for the SQL metrics
+ * recorded by a {@link MetricsConnectionDecorator}. This class can be
+ * extended to create a provider specific instrument for SQL metrics.
+ *
+ * @since 4.1.2
+ */
+public abstract class AbstractSQLMetricsInstrument extends AbstractInstrument
+    implements SQLMetricsInstrument {
+
+    public static final long NO_STATS = -1;
+
+    /**
+     * The property holding the connection decorators.
+     */
+    protected static final String DECORATORS = "jdbc.ConnectionDecorators";
+
+    private Configuration _conf;
+    private SQLMetrics _metrics;
+    private String _configID = null;
+    private String _configRef = null;
+
+    public void setConfigId(String cid) {
+        _configID = cid;
+    }
+
+    public void setContextRef(String cref) {
+        _configRef = cref;
+    }
+
+    public String getConfigId() {
+        return _configID;
+    }
+
+    public String getContextRef() {
+        return _configRef;
+    }
+
+    public void setSQLMetrics(SQLMetrics metrics) {
+        _metrics = metrics;
+    }
+
+    /**
+     * Set the configuration whose metrics decorator to look up on first use.
+     * The decorators are only created along with the data source, which may
+     * happen after this instrument is started.
+     */
+    public void setConfiguration(Configuration conf) {
+        _conf = conf;
+    }
+
+    /**
+     * Return the metrics, looking up the decorator if needed, or null.
+     */
+    protected SQLMetrics getSQLMetrics() {
+        if (_metrics == null && _conf != null) {
+            Value val = _conf.getValue(DECORATORS);
+            Object decs = (val == null) ? null : val.get();
+            if (decs instanceof Object[])
+                for (Object dec : (Object[]) decs)
+                    if (dec instanceof MetricsConnectionDecorator)
+                        _metrics = ((MetricsConnectionDecorator) dec).getMetrics();
+        }
+        return _metrics;
+    }
+
+    private Histogram getHistogram(String shape, String operation) {
+        SQLMetrics metrics = getSQLMetrics();
+        Shape s = (metrics == null) ? null : metrics.get(shape);
+        if (s == null)
+            return null;
+        return s.getHistogram(toOperation(operation));
+    }
+
+    private static Operation toOperation(String operation) {
+        return Operation.valueOf(operation.toUpperCase(Locale.ENGLISH));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1000000D;
+    }
+
+    @Override
+    public Set<String> shapes() {
+        SQLMetrics metrics = getSQLMetrics();
+        if (metrics == null)
+            return Collections.emptySet();
+        Set<String> shapes = new TreeSet<>();
+        for (Shape shape : metrics.getShapes())
+            shapes.add(shape.getSQL());
+        return shapes;
+    }
+
+    @Override
+    public long getExecutionCount() {
+        SQLMetrics metrics = getSQLMetrics();
+        if (metrics == null)
+            return NO_STATS;
+        long count = 0;
+        for (Shape shape : metrics.getShapes())
+            count += shape.getHistogram(Operation.EXECUTE).getCount()
+                + shape.getHistogram(Operation.EXECUTE_BATCH).getCount();
+        return count;
+    }
+
+    @Override
+    public long getExecutionCount(String shape) {
+        Histogram exec = getHistogram(shape, Operation.EXECUTE.name());
+        Histogram batch = getHistogram(shape, Operation.EXECUTE_BATCH.name());
+        if (exec == null)
+            return NO_STATS;
+        return exec.getCount() + batch.getCount();
+    }
+
+    @Override
+    public double getAverageTime(String shape, String operation) {
+        Histogram hist = getHistogram(shape, operation);
+        return (hist == null) ? NO_STATS : toMillis(hist.getMean());
+    }
+
+    @Override
+    public double getPercentileTime(String shape, String operation,
+        double percentile) {
+        Histogram hist = getHistogram(shape, operation);
+        return (hist == null) ? NO_STATS
+            : toMillis(hist.getPercentile(percentile));
+    }
+
+    @Override
+    public double getMaxTime(String shape, String operation) {
+        Histogram hist = getHistogram(shape, operation);
+        return (hist == null) ? NO_STATS : toMillis(hist.getMax());
+    }
+
+    @Override
+    public double getAverageRows(String shape) {
+        SQLMetrics metrics = getSQLMetrics();
+        Shape s = (metrics == null) ? null : metrics.get(shape);
+        return (s == null) ? NO_STATS : s.getRows().getMean();
+    }
+
+    @Override
+    public long getMaxRows(String shape) {
+        SQLMetrics metrics = getSQLMetrics();
+        Shape s = (metrics == null) ? null : metrics.get(shape);
+        return (s == null) ? NO_STATS : s.getRows().getMax();
+    }
+
+    @Override
+    public String[] getSlowest(int n) {
+        return getSlowest(n, Operation.EXECUTE.name());
+    }
+
+    @Override
+    public String[] getSlowest(int n, String operation) {
+        SQLMetrics metrics = getSQLMetrics();
+        if (metrics == null)
+            return new String[0];
+        Operation op = toOperation(operation);
+        List<Shape> slowest = metrics.getSlowest(n, op);
+        String[] result = new String[slowest.size()];
+        for (int i = 0; i < result.length; i++) {
+            Shape shape = slowest.get(i);
+            Histogram hist = shape.getHistogram(op);
+            result[i] = String.format(Locale.ENGLISH,
+                "mean=%.3fms p99=%.3fms max=%.3fms count=%d rows=%.1f: %s",
+                toMillis(hist.getMean()), toMillis(hist.getPercentile(99)),
+                toMillis(hist.getMax()), hist.getCount(),
+                shape.getRows().getMean(), shape.getSQL());
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        SQLMetrics metrics = getSQLMetrics();
+        if (metrics != null)
+            metrics.reset();
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.Value;
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.jdbc.StatementCachingConnectionDecorator;
+
+/**
+ * Provides a basic instrument implementation wrapper for the statistics of
+ * a {@link StatementCachingConnectionDecorator}. This class can be extended
+ * to create a provider specific instrument for the statement cache.
+ *
+ * @since 4.1.2
+ */
+public abstract class AbstractStatementCacheInstrument
+    extends AbstractInstrument implements StatementCacheInstrument {
+
+    public static final long NO_STATS = -1;
+
+    /**
+     * The property holding the connection decorators.
+     */
+    protected static final String DECORATORS = "jdbc.ConnectionDecorators";
+
+    private Configuration _conf;
+    private StatementCachingConnectionDecorator _cache;
+    private String _configID = null;
+    private String _configRef = null;
+
+    public void setConfigId(String cid) {
+        _configID = cid;
+    }
+
+    public void setContextRef(String cref) {
+        _configRef = cref;
+    }
+
+    public String getConfigId() {
+        return _configID;
+    }
+
+    public String getContextRef() {
+        return _configRef;
+    }
+
+    public void setStatementCache(StatementCachingConnectionDecorator cache) {
+        _cache = cache;
+    }
+
+    /**
+     * Set the configuration whose statement caching decorator to look up on
+     * first use. The decorators are only created along with the data source,
+     * which may happen after this instrument is started.
+     */
+    public void setConfiguration(Configuration conf) {
+        _conf = conf;
+    }
+
+    /**
+     * Return the statement caching decorator, looking it up if needed, or
+     * null.
+     */
+    protected StatementCachingConnectionDecorator getStatementCache() {
+        if (_cache == null && _conf != null) {
+            Value val = _conf.getValue(DECORATORS);
+            Object decs = (val == null) ? null : val.get();
+            if (decs instanceof Object[])
+                for (Object dec : (Object[]) decs)
+                    if (dec instanceof StatementCachingConnectionDecorator)
+                        _cache = (StatementCachingConnectionDecorator) dec;
+        }
+        return _cache;
+    }
+
+    @Override
+    public long getHitCount() {
+        StatementCachingConnectionDecorator cache = getStatementCache();
+        return (cache == null) ? NO_STATS : cache.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        StatementCachingConnectionDecorator cache = getStatementCache();
+        return (cache == null) ? NO_STATS : cache.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        StatementCachingConnectionDecorator cache = getStatementCache();
+        return (cache == null) ? NO_STATS : cache.getEvictionCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        StatementCachingConnectionDecorator cache = getStatementCache();
+        return (cache == null) ? NO_STATS : cache.getHitRatio();
+    }
+
+    @Override
+    public void reset() {
+        StatementCachingConnectionDecorator cache = getStatementCache();
+        if (cache != null)
+            cache.resetStatistics();
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Map;
+
+/**
+ * Interface for providing instrumented broker and transaction metrics and
+ * operations. Times are in milliseconds.
+ *
+ * @since 4.1.2
+ */
+public interface BrokerInstrument {
+
+    /**
+     * Returns the number of open brokers.
+     */
+    long getOpenBrokerCount();
+
+    /**
+     * Returns the approximate number of instances managed by open brokers.
+     */
+    long getManagedCount();
+
+    /**
+     * Returns the number of flushes to the data store.
+     */
+    long getFlushCount();
+
+    /**
+     * Returns the mean time of a flush.
+     */
+    double getAverageFlushTime();
+
+    /**
+     * Returns the longest time of a flush.
+     */
+    double getMaxFlushTime();
+
+    /**
+     * Returns an upper bound of the given percentile, between 0 and 100, of
+     * the flush times.
+     */
+    double getFlushTimePercentile(double percentile);
+
+    /**
+     * Returns the mean number of instances per flush.
+     */
+    double getAverageFlushInstances();
+
+    /**
+     * Returns the number of commits.
+     */
+    long getCommitCount();
+
+    /**
+     * Returns the mean time of a commit, including its flush.
+     */
+    double getAverageCommitTime();
+
+    /**
+     * Returns the longest time of a commit, including its flush.
+     */
+    double getMaxCommitTime();
+
+    /**
+     * Returns an upper bound of the given percentile, between 0 and 100, of
+     * the commit times.
+     */
+    double getCommitTimePercentile(double percentile);
+
+    /**
+     * Returns the number of rollbacks.
+     */
+    long getRollbackCount();
+
+    /**
+     * Returns the number of detached instances.
+     */
+    long getDetachedCount();
+
+    /**
+     * Returns the mean time of a detach operation.
+     */
+    double getAverageDetachTime();
+
+    /**
+     * Returns the number of attached instances.
+     */
+    long getAttachedCount();
+
+    /**
+     * Returns the mean time of an attach operation.
+     */
+    double getAverageAttachTime();
+
+    /**
+     * Returns the number of instances loaded from the data store per
+     * entity type.
+     */
+    Map<String, Long> getLoadCounts();
+
+    /**
+     * Returns the number of times each field was loaded on access, which
+     * points to lazy loading in a loop.
+     */
+    Map<String, Long> getLazyLoadCounts();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
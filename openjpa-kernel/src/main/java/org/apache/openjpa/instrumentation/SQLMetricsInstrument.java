@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Set;
+
+/**
+ * Interface for providing instrumented SQL statement metrics and
+ * operations. Times are in milliseconds and statements are identified by
+ * their shape, the SQL with literals replaced by parameter markers. The
+ * operation is one of <code>prepare</code>, <code>execute</code>,
+ * <code>execute_batch</code> or <code>fetch</code>.
+ *
+ * @since 4.1.2
+ */
+public interface SQLMetricsInstrument {
+
+    /**
+     * Returns the shapes of the measured statements.
+     */
+    Set<String> shapes();
+
+    /**
+     * Returns the number of statements executed since the last reset.
+     */
+    long getExecutionCount();
+
+    /**
+     * Returns the number of statements of the given shape executed since
+     * the last reset.
+     */
+    long getExecutionCount(String shape);
+
+    /**
+     * Returns the mean time of the given operation on statements of the
+     * given shape.
+     */
+    double getAverageTime(String shape, String operation);
+
+    /**
+     * Returns an upper bound of the given percentile, between 0 and 100, of
+     * the times of the given operation on statements of the given shape.
+     */
+    double getPercentileTime(String shape, String operation, double percentile);
+
+    /**
+     * Returns the longest time of the given operation on statements of the
+     * given shape.
+     */
+    double getMaxTime(String shape, String operation);
+
+    /**
+     * Returns the mean number of rows read or updated per statement of the
+     * given shape.
+     */
+    double getAverageRows(String shape);
+
+    /**
+     * Returns the largest number of rows read or updated by a statement of
+     * the given shape.
+     */
+    long getMaxRows(String shape);
+
+    /**
+     * Returns up to the given number of shapes with the highest mean
+     * execution time, slowest first, each with its statistics.
+     */
+    String[] getSlowest(int n);
+
+    /**
+     * Returns up to the given number of shapes with the highest mean time of
+     * the given operation, slowest first, each with its statistics.
+     */
+    String[] getSlowest(int n, String operation);
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+/**
+ * Interface for providing the statistics of the prepared statement cache
+ * kept by a {@link org.apache.openjpa.lib.jdbc.StatementCachingConnectionDecorator}.
+ *
+ * @since 4.1.2
+ */
+public interface StatementCacheInstrument {
+
+    /**
+     * Returns the number of statements taken from a cache since the last
+     * reset.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of statements that had to be prepared since the
+     * last reset.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of statements closed to keep a cache within its
+     * size since the last reset.
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the ratio of hits to all statement requests, or 0 if there
+     * were none.
+     */
+    double getHitRatio();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
@@ -42,7 +42,10 @@ public class JMXProvider
     public static final String[] JMX_INSTRUMENT_ALIASES = {
         "DataCache", "org.apache.openjpa.instrumentation.jmx.DataCacheJMXInstrument",
         "QueryCache", "org.apache.openjpa.instrumentation.jmx.QueryCacheJMXInstrument",
-        "QuerySQLCache", "org.apache.openjpa.instrumentation.jmx.PreparedQueryCacheJMXInstrument"
+        "QuerySQLCache", "org.apache.openjpa.instrumentation.jmx.PreparedQueryCacheJMXInstrument",
+        "SQL", "org.apache.openjpa.instrumentation.jmx.SQLMetricsJMXInstrument",
+        "StatementCache", "org.apache.openjpa.instrumentation.jmx.StatementCacheJMXInstrument",
+        "Broker", "org.apache.openjpa.instrumentation.jmx.BrokerJMXInstrument"
     };
 
     /**
@@ -102,6 +102,9 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
     // weak-ref tracking of open brokers
     private transient Set<Broker> _brokers;
 
+    // statistics recorded by the brokers; null until enabled
+    private transient volatile BrokerStatistics _brokerStats = null;
+
     // cache the class names loaded from the persistent classes property so
     // that we can re-load them for each new broker
     private transient Collection<String> _pcClassNames = null;
@@ -788,6 +791,33 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
         return Collections.unmodifiableCollection(_brokers);
     }
 
+    /**
+     * Return the statistics recorded by the brokers of this factory, or null
+     * if they are not enabled.
+     *
+     * @since 4.1.2
+     */
+    public BrokerStatistics getBrokerStatistics() {
+        return _brokerStats;
+    }
+
+    /**
+     * Enable the statistics recorded by the brokers of this factory and
+     * return them. Brokers that are already open do not record them.
+     *
+     * @since 4.1.2
+     */
+    public BrokerStatistics enableBrokerStatistics() {
+        lock();
+        try {
+            if (_brokerStats == null)
+                _brokerStats = new BrokerStatistics(this);
+            return _brokerStats;
+        } finally {
+            unlock();
+        }
+    }
+
     /**
      * Release <code>broker</code> from any internal data structures. This
      * is invoked by <code>broker</code> after the broker is fully closed.
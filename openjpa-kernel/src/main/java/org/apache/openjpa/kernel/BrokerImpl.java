@@ -194,6 +194,10 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     private Set<StateManagerImpl> _derefCache = null;
     private Set<StateManagerImpl> _derefAdditions = null;
 
+    // runtime statistics, if enabled on the factory
+    private transient BrokerStatistics _stats = null;
+    private transient long _completionStart = 0;
+
     // these are used for method-internal state only
     private transient Map<Object, StateManagerImpl> _loading = null;
     private transient Set<Object> _operating = null;
@@ -202,6 +206,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     private Set<Class<?>> _persistedClss = null;
     private Set<Class<?>> _updatedClss = null;
     private Set<Class<?>> _deletedClss = null;
+    private boolean _dirtiedTypes = false;
     private Set<StateManagerImpl> _pending = null;
     private int findAllDepth = 0;
 
@@ -339,6 +344,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         }
         _compat = _conf.getCompatibilityInstance();
         _factory = factory;
+        _stats = factory.getBrokerStatistics();
         _log = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
         if (!fromDeserialization)
             _cache = new ManagedCache(this);
@@ -1117,6 +1123,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             try {
                 if (!_store.initialize(sm, state, fetch, edata))
                     return null;
+                if (_stats != null)
+                    _stats.recordLoad(sm.getMetaData().getDescribedType());
             } finally {
                 sm.setLoading(false);
             }
@@ -1553,7 +1561,10 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                             types.addAll(pers);
                             types.addAll(del);
                             types.addAll(up);
-                            queryCache.onTypesChanged(new TypesChangedEvent(this, types));
+                            // types dirtied by the user may have changed in
+                            // ways the managed instances do not show
+                            queryCache.onTypesChanged(new TypesChangedEvent(this, types,
+                                (_dirtiedTypes) ? null : getTransactionalStates()));
                         }
                     }
                     _store.commit();
@@ -2110,6 +2121,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     @Override
     public void beforeCompletion() {
         beginOperation(false);
+        if (_stats != null)
+            _completionStart = System.nanoTime();
         try {
             // user-supplied synchronization
             if (_sync != null)
@@ -2139,6 +2152,13 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             endTransaction(status);
             if (_sync != null)
                 _sync.afterCompletion(status);
+            if (_stats != null) {
+                if (status == Status.STATUS_COMMITTED && _completionStart != 0)
+                    _stats.recordCommit(System.nanoTime() - _completionStart);
+                else if (status != Status.STATUS_COMMITTED)
+                    _stats.recordRollback();
+                _completionStart = 0;
+            }
 
             if ((_autoDetach & DETACH_COMMIT) != 0)
                 detachAllInternal(null);
@@ -2306,8 +2326,12 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         try {
             if (flush && reason != FLUSH_LOGICAL) {
                 _flags |= FLAG_STORE_FLUSHING;
+                long start = (_stats == null) ? 0 : System.nanoTime();
                 exceps = add(exceps,
                     newFlushException(_store.flush(transactional)));
+                if (_stats != null)
+                    _stats.recordFlush(System.nanoTime() - start,
+                        transactional.size());
             }
         } finally {
             _flags &= ~FLAG_STORE_FLUSHING;
@@ -2524,6 +2548,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             _updatedClss = null;
         if (_deletedClss != null)
             _deletedClss = null;
+        _dirtiedTypes = false;
 
         // new cache would get cleared anyway during transitions, but doing so
         // immediately saves us some lookups
@@ -3523,6 +3548,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             call = _call;
 
         beginOperation(true);
+        long start = (_stats == null) ? 0 : System.nanoTime();
         try {
             return new DetachManager(this, false, call).detach(obj);
         } catch (OpenJPAException ke) {
@@ -3530,6 +3556,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         } catch (RuntimeException re) {
             throw new GeneralException(re);
         } finally {
+            if (_stats != null)
+                _stats.recordDetach(System.nanoTime() - start, 1);
             endOperation();
         }
     }
@@ -3544,6 +3572,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             call = _call;
 
         beginOperation(true);
+        long start = (_stats == null) ? 0 : System.nanoTime();
         try {
             return new DetachManager(this, false, call).detachAll(objs);
         } catch (OpenJPAException ke) {
@@ -3551,6 +3580,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         } catch (RuntimeException re) {
             throw new GeneralException(re);
         } finally {
+            if (_stats != null)
+                _stats.recordDetach(System.nanoTime() - start, objs.size());
             endOperation();
         }
     }
@@ -3579,6 +3610,20 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     }
 
     private void detachAllInternal(OpCallbacks call) {
+        if (_stats == null) {
+            detachAllInternalImpl(call);
+            return;
+        }
+        long start = System.nanoTime();
+        int count = getManagedObjectCount();
+        try {
+            detachAllInternalImpl(call);
+        } finally {
+            _stats.recordDetach(System.nanoTime() - start, count);
+        }
+    }
+
+    private void detachAllInternalImpl(OpCallbacks call) {
         if(_conf.getDetachStateInstance().getLiteAutoDetach()){
             detachAllInternalLite();
             return;
@@ -3642,6 +3687,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         try {
             // make sure not to try to set rollback only if this fails
             assertWriteOperation();
+            long start = (_stats == null) ? 0 : System.nanoTime();
             try {
                 return new AttachManager(this, copyNew, call).attach(obj);
             } catch (OptimisticException oe) {
@@ -3651,6 +3697,9 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                 throw ke;
             } catch (RuntimeException re) {
                 throw new GeneralException(re);
+            } finally {
+                if (_stats != null)
+                    _stats.recordAttach(System.nanoTime() - start, 1);
             }
         }
         finally {
@@ -3670,6 +3719,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         try {
             // make sure not to try to set rollback only if this fails
             assertWriteOperation();
+            long start = (_stats == null) ? 0 : System.nanoTime();
             try {
                 return new AttachManager(this, copyNew, call).attachAll(objs);
             } catch (OptimisticException oe) {
@@ -3679,6 +3729,10 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                 throw ke;
             } catch (RuntimeException re) {
                 throw new GeneralException(re);
+            } finally {
+                if (_stats != null)
+                    _stats.recordAttach(System.nanoTime() - start,
+                        objs.size());
             }
         }
         finally {
@@ -4205,6 +4259,21 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         }
     }
 
+    /**
+     * Return the statistics this broker records, or null.
+     */
+    BrokerStatistics getStatistics() {
+        return _stats;
+    }
+
+    /**
+     * Return the number of managed instances without locking this broker.
+     */
+    int getManagedObjectCount() {
+        ManagedCache cache = _cache;
+        return (cache == null) ? 0 : cache.size();
+    }
+
     @Override
     public Collection getTransactionalObjects() {
         beginOperation(false);
@@ -4510,6 +4579,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
             if (_updatedClss == null)
                 _updatedClss = new HashSet<>();
             _updatedClss.add(cls);
+            _dirtiedTypes = true;
         } finally {
             endOperation();
         }
@@ -4589,6 +4659,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         _persistedClss = null;
         _updatedClss = null;
         _deletedClss = null;
+        _dirtiedTypes = false;
         _derefCache = null;
         _pending = null;
         _loader = null;
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.openjpa.lib.instrumentation.Histogram;
+import org.apache.openjpa.meta.FieldMetaData;
+
+/**
+ * Runtime statistics of the brokers of a {@link BrokerFactory}: flush and
+ * commit latency, rows per flush, loads per entity type, lazy loads per
+ * field, and the cost of detach and attach. Times are in nanoseconds.
+ *  Brokers record into these statistics only once they have been enabled
+ * with {@link AbstractBrokerFactory#enableBrokerStatistics}, normally by the
+ * broker instrument. Counters are {@link LongAdder}s and histograms are
+ * lock-free, so concurrent brokers do not contend when recording.
+ *
+ * @since 4.1.2
+ */
+public class BrokerStatistics {
+
+    private final AbstractBrokerFactory _factory;
+    private final Histogram _flush = new Histogram();
+    private final Histogram _flushRows = new Histogram();
+    private final Histogram _commit = new Histogram();
+    private final LongAdder _rollbacks = new LongAdder();
+    private final Histogram _detach = new Histogram();
+    private final LongAdder _detached = new LongAdder();
+    private final Histogram _attach = new Histogram();
+    private final LongAdder _attached = new LongAdder();
+    private final Map<String, LongAdder> _loads = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> _lazyLoads = new ConcurrentHashMap<>();
+
+    public BrokerStatistics(AbstractBrokerFactory factory) {
+        _factory = factory;
+    }
+
+    /**
+     * Record a flush of the given number of instances to the store.
+     */
+    public void recordFlush(long nanos, int instances) {
+        _flush.record(nanos);
+        _flushRows.record(instances);
+    }
+
+    /**
+     * Record a commit, from the start of its completion to its end.
+     */
+    public void recordCommit(long nanos) {
+        _commit.record(nanos);
+    }
+
+    /**
+     * Record a rollback.
+     */
+    public void recordRollback() {
+        _rollbacks.increment();
+    }
+
+    /**
+     * Record the load of an instance of the given type from the store.
+     */
+    public void recordLoad(Class<?> type) {
+        increment(_loads, type.getName());
+    }
+
+    /**
+     * Record the load of the given field on access.
+     */
+    public void recordLazyLoad(FieldMetaData field) {
+        increment(_lazyLoads, field.getFullName(false));
+    }
+
+    /**
+     * Record the detach of the given number of instances.
+     */
+    public void recordDetach(long nanos, int instances) {
+        _detach.record(nanos);
+        _detached.add(instances);
+    }
+
+    /**
+     * Record the attach of the given number of instances.
+     */
+    public void recordAttach(long nanos, int instances) {
+        _attach.record(nanos);
+        _attached.add(instances);
+    }
+
+    private static void increment(Map<String, LongAdder> counts, String key) {
+        LongAdder count = counts.get(key);
+        if (count == null)
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        count.increment();
+    }
+
+    /**
+     * The histogram of flush times.
+     */
+    public Histogram getFlushTimes() {
+        return _flush;
+    }
+
+    /**
+     * The histogram of the number of instances per flush.
+     */
+    public Histogram getFlushInstances() {
+        return _flushRows;
+    }
+
+    /**
+     * The histogram of commit times.
+     */
+    public Histogram getCommitTimes() {
+        return _commit;
+    }
+
+    /**
+     * The number of rollbacks.
+     */
+    public long getRollbackCount() {
+        return _rollbacks.sum();
+    }
+
+    /**
+     * The histogram of detach times.
+     */
+    public Histogram getDetachTimes() {
+        return _detach;
+    }
+
+    /**
+     * The number of detached instances.
+     */
+    public long getDetachedCount() {
+        return _detached.sum();
+    }
+
+    /**
+     * The histogram of attach times.
+     */
+    public Histogram getAttachTimes() {
+        return _attach;
+    }
+
+    /**
+     * The number of attached instances.
+     */
+    public long getAttachedCount() {
+        return _attached.sum();
+    }
+
+    /**
+     * The number of loads from the store per entity type name.
+     */
+    public Map<String, Long> getLoadCounts() {
+        return snapshot(_loads);
+    }
+
+    /**
+     * The number of loads on access per field name.
+     */
+    public Map<String, Long> getLazyLoadCounts() {
+        return snapshot(_lazyLoads);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet())
+            snapshot.put(entry.getKey(), entry.getValue().sum());
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * The number of instances currently managed by the open brokers of the
+     * factory. The count is taken without locking the brokers, so it is
+     * approximate while they are in use.
+     */
+    public long getManagedCount() {
+        long count = 0;
+        for (Broker broker : _factory.getOpenBrokers())
+            if (broker instanceof BrokerImpl && !broker.isClosed())
+                count += ((BrokerImpl) broker).getManagedObjectCount();
+        return count;
+    }
+
+    /**
+     * The number of open brokers of the factory.
+     */
+    public int getOpenBrokerCount() {
+        int count = 0;
+        for (Broker broker : _factory.getOpenBrokers())
+            if (broker != null && !broker.isClosed())
+                count++;
+        return count;
+    }
+
+    /**
+     * Clear all statistics.
+     */
+    public void reset() {
+        _flush.reset();
+        _flushRows.reset();
+        _commit.reset();
+        _rollbacks.reset();
+        _detach.reset();
+        _detached.reset();
+        _attach.reset();
+        _attached.reset();
+        _loads.clear();
+        _lazyLoads.clear();
+    }
+}
@@ -243,6 +243,20 @@ class ManagedCache implements Serializable {
         }
     }
 
+    /**
+     * Return the number of cached persistent objects.
+     */
+    public int size() {
+        int size = _main.size();
+        if (_conflicts != null)
+            size += _conflicts.size();
+        if (_news != null)
+            size += _news.size();
+        if (_embeds != null)
+            size += _embeds.size();
+        return size;
+    }
+
     /**
      * Return a copy of all cached persistent objects.
      */
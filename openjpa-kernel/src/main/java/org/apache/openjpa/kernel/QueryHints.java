@@ -108,4 +108,32 @@ public interface QueryHints {
      * if possible.
      */
     String HINT_USE_LITERAL_IN_SQL = "openjpa.hint.UseLiteralInSQL";
+
+    /**
+     * A directive for what to do with the instances a result stream has
+     * already returned, so that the persistence context does not keep
+     * growing while a large result is streamed. The value is
+     * {@link #STREAM_RELEASE_NONE none} (the default),
+     * {@link #STREAM_RELEASE_DETACH detach} or
+     * {@link #STREAM_RELEASE_EVICT evict}.
+     *
+     * @since 4.1.2
+     */
+    String HINT_STREAM_RELEASE = "openjpa.hint.StreamRelease";
+
+    /**
+     * Keep streamed instances managed.
+     */
+    String STREAM_RELEASE_NONE = "none";
+
+    /**
+     * Detach each streamed instance once the stream has moved past it.
+     */
+    String STREAM_RELEASE_DETACH = "detach";
+
+    /**
+     * Evict the state of each streamed instance once the stream has moved
+     * past it. The instance stays managed but holds no field values.
+     */
+    String STREAM_RELEASE_EVICT = "evict";
 }
@@ -3324,6 +3324,10 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
         BitSet fields = null;
         boolean unloadedDFGFieldMarked = false;
 
+        BrokerStatistics stats = _broker.getStatistics();
+        if (stats != null && !_loaded.get(field))
+            stats.recordLazyLoad(fmd);
+
         // if this is a dfg field or we need to load our dfg, do so
         if (fgs && (_flags & FLAG_LOADED) == 0){
             fields = getUnloadedInternal(fetch, LOAD_FGS, null);
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+import org.apache.openjpa.meta.FieldMetaData;
+
+/**
+ * An expression that compares a field of the candidate to a parameter or a
+ * literal for equality. Expression factories implement this interface on
+ * their equality expressions so that the kernel can tell which field values
+ * a query result depends on.
+ *
+ * @since 4.1.2
+ */
+public interface FieldEqualityExpression
+    extends Expression {
+
+    /**
+     * The field of the candidate itself that is compared, or null if this
+     * expression does not compare a field of the candidate to a constant.
+     */
+    FieldMetaData getCandidateField();
+
+    /**
+     * The parameter or literal the field is compared to, or null if this
+     * expression does not compare a field of the candidate to a constant.
+     */
+    Constant getConstant();
+}
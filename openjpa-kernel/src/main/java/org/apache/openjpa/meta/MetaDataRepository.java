@@ -18,7 +18,11 @@
  */
 package org.apache.openjpa.meta;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
@@ -33,7 +37,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.DynamicPersistenceCapable;
@@ -157,6 +168,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     protected boolean _preload = false;
     protected boolean _preloadComplete = false;
+    private int _preloadThreads = 1;
     protected boolean _locking = true;
     private static final String PRELOAD_STR = "Preload";
 
@@ -170,6 +182,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     // we should skip these types for the enhancement
     private Collection<Class<?>> _typesWithoutEnhancement;
 
+    // prebuilt metadata snapshot, loaded on first use
+    private String _snapshotResource = null;
+    private transient volatile MetaDataSnapshot _snapshot = null;
+    private transient volatile boolean _snapshotLoaded = false;
+
     /**
      * Default constructor. Configure via {@link Configurable}.
      */
@@ -308,10 +325,129 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         _preload = l;
     }
 
+    /**
+     * The number of threads used to load and introspect persistent classes
+     * when {@link #getPreload preloading}. Only loading the classes and
+     * reading their annotations and members runs in parallel; metadata is
+     * still parsed and resolved on the calling thread, so at most the class
+     * loading time is saved. Defaults to 1, which preloads on the calling
+     * thread only. A value of 0 uses the number of available processors.
+     *
+     * @since 4.1.2
+     */
+    public int getPreloadThreads() {
+        return _preloadThreads;
+    }
+
+    /**
+     * The number of threads used to load and introspect persistent classes
+     * when {@link #getPreload preloading}.
+     *
+     * @see #getPreloadThreads
+     * @since 4.1.2
+     */
+    public void setPreloadThreads(int threads) {
+        _preloadThreads = threads;
+    }
+
 
      /**
+     * The resource name of a prebuilt {@link MetaDataSnapshot} of this
+     * persistence unit, or null to find persistent types by scanning. The
+     * snapshot is loaded when it is first needed; a missing or corrupt
+     * snapshot, or one captured from other metadata sources, is ignored with
+     * a warning.
+     *
+     * @since 4.1.2
+     */
+    public String getSnapshot() {
+        return _snapshotResource;
+    }
+
+    /**
+     * The resource name of a prebuilt {@link MetaDataSnapshot} of this
+     * persistence unit, or null to find persistent types by scanning.
+     *
+     * @since 4.1.2
+     */
+    public void setSnapshot(String resource) {
+        _snapshotResource = (resource == null || resource.isEmpty()) ? null : resource;
+        _snapshot = null;
+        _snapshotLoaded = false;
+    }
+
+    /**
+     * Return the configured metadata snapshot, loading it on first use, or
+     * null if none is configured or it cannot be used.
+     */
+    private MetaDataSnapshot getSnapshotInstance(ClassLoader envLoader) {
+        if (_snapshotLoaded)
+            return _snapshot;
+        synchronized (this) {
+            if (_snapshotLoaded || _snapshotResource == null)
+                return _snapshot;
+            ClassLoader loader = getSnapshotLoader(envLoader);
+            URL url = AccessController.doPrivileged(J2DoPrivHelper.getResourceAction(loader, _snapshotResource));
+            if (url == null) {
+                if (_log != null && _log.isWarnEnabled())
+                    _log.warn(_loc.get("snapshot-not-found", _snapshotResource));
+            } else {
+                try {
+                    MetaDataSnapshot snapshot = MetaDataSnapshot.read(url);
+                    if (snapshot.isCurrent(this, loader)) {
+                        _snapshot = snapshot;
+                        if (_log != null && _log.isTraceEnabled())
+                            _log.trace(_loc.get("snapshot-loaded", _snapshot, url));
+                    } else if (_log != null && _log.isWarnEnabled())
+                        _log.warn(_loc.get("snapshot-stale", url));
+                } catch (IOException ioe) {
+                    if (_log != null && _log.isWarnEnabled())
+                        _log.warn(_loc.get("snapshot-ignored", url, ioe.getMessage()));
+                }
+            }
+            _snapshotLoaded = true;
+            return _snapshot;
+        }
+    }
+
+    /**
+     * Return the class loader to find the metadata snapshot and the classes
+     * it names with.
+     */
+    private ClassLoader getSnapshotLoader(ClassLoader envLoader) {
+        ClassLoader loader = (_conf == null) ? envLoader
+            : _conf.getClassResolverInstance().getClassLoader(getClass(), envLoader);
+        if (loader == null)
+            loader = AccessController.doPrivileged(J2DoPrivHelper.getClassLoaderAction(getClass()));
+        return loader;
+    }
+
+    /**
+     * Return the class defining the given query or sequence according to
+     * the metadata snapshot, or null.
+     */
+    private Class<?> getSnapshotScope(String name, boolean query, ClassLoader envLoader) {
+        MetaDataSnapshot snapshot = getSnapshotInstance(envLoader);
+        if (snapshot == null)
+            return null;
+        String scope = (query) ? snapshot.getQueryScope(name) : snapshot.getSequenceScope(name);
+        if (scope == null)
+            return null;
+        return classForName(scope, getSnapshotLoader(envLoader));
+    }
+
+    /**
      * If the openjpa.MetaDataRepository plugin value Preload=true is set, this method will load all
      * MetaData for all persistent classes and will remove locking from this class.
+     * <br>
+     * With more than one {@link #getPreloadThreads preload thread}, only loading
+     * the classes and reading their annotations and members runs in parallel.
+     * Parsing and resolving their metadata stays on the calling thread: the
+     * metadata factory shares one stateful parser between all classes, every
+     * parsed class is added to the registries under the lock this method
+     * holds, resolving a class also resolves the types of its relation
+     * fields, so hierarchies are rarely independent, and mapping resolution
+     * changes the shared schema group.
      */
     public synchronized void preload() {
         if (!_preload) {
@@ -345,8 +481,15 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _log.trace(_loc.get("repos-initializeEager-found", classes));
         }
 
+        // load the classes in parallel, then parse and resolve their metadata
+        // serially, superclasses first; see the method comment for why
+        int threads = (_preloadThreads > 0) ? _preloadThreads : Runtime.getRuntime().availableProcessors();
+        Collection<String> names = classes;
+        if (threads > 1 && classes.size() > 1)
+            names = loadInParallel(classes, multi, Math.min(threads, classes.size()));
+
         List<Class<?>> loaded = new ArrayList<>();
-        for (String c : classes) {
+        for (String c : names) {
             try {
                 Class<?> cls = AccessController.doPrivileged((J2DoPrivHelper.getForNameAction(c, true, multi)));
                 loaded.add(cls);
@@ -377,6 +520,64 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         _preloadComplete = true;
     }
 
+    /**
+     * Load the given classes and warm their reflection data on a pool of the
+     * given number of threads. Classes are loaded without being initialized,
+     * so that static initializers that refer to one another cannot deadlock;
+     * they are initialized when their metadata is parsed. Classes that fail
+     * to load are left for the caller to report.
+     *
+     * @return the class names, superclasses before their subclasses
+     */
+    private List<String> loadInParallel(Set<String> names, final ClassLoader loader, int threads) {
+        List<Callable<Class<?>>> tasks = new ArrayList<>(names.size());
+        for (final String name : names)
+            tasks.add(() -> introspect(name, loader));
+
+        final Map<String, Integer> depths = new HashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Class<?>> future : pool.invokeAll(tasks)) {
+                Class<?> cls = future.get();
+                if (cls != null) {
+                    int depth = 0;
+                    for (Class<?> sup = cls.getSuperclass(); sup != null; sup = sup.getSuperclass())
+                        depth++;
+                    depths.put(cls.getName(), depth);
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ie);
+        } catch (ExecutionException ee) {
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ee.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> ordered = new ArrayList<>(names);
+        ordered.sort((n1, n2) -> Integer.compare(depths.getOrDefault(n1, 0), depths.getOrDefault(n2, 0)));
+        return ordered;
+    }
+
+    /**
+     * Load the given class without initializing it and read its annotations
+     * and declared members, or return null if it cannot be loaded.
+     */
+    private static Class<?> introspect(String name, ClassLoader loader) {
+        try {
+            Class<?> cls = AccessController.doPrivileged(J2DoPrivHelper.getForNameAction(name, false, loader));
+            cls.getAnnotations();
+            for (Field field : AccessController.doPrivileged(J2DoPrivHelper.getDeclaredFieldsAction(cls)))
+                field.getAnnotations();
+            for (Method method : AccessController.doPrivileged(J2DoPrivHelper.getDeclaredMethodsAction(cls)))
+                method.getAnnotations();
+            return cls;
+        } catch (PrivilegedActionException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
 
     /**
      * Return the metadata for the given class.
@@ -1494,6 +1695,9 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     }
 
     private Set<String> getPersistentTypeNamesInternal(boolean devpath, ClassLoader envLoader) {
+        MetaDataSnapshot snapshot = getSnapshotInstance(envLoader);
+        if (snapshot != null && !snapshot.getPersistentTypeNames().isEmpty())
+            return snapshot.getPersistentTypeNames();
         return _factory.getPersistentTypeNames(devpath, envLoader);
     }
     /**
@@ -1888,6 +2092,18 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     private void addToCollectionInternal(Map<Class<?>, Collection<Class<?>>> map, 
             Class<?> key, Class<?> value, boolean inheritance) {
+        if (map instanceof ConcurrentMap) {
+            // preloaded registries are read without locking, so their values
+            // must be safe to iterate while classes registered later are added
+            map.computeIfAbsent(key, k -> {
+                if (!inheritance)
+                    return new CopyOnWriteArrayList<>();
+                InheritanceComparator comp = new InheritanceComparator();
+                comp.setBase(k);
+                return new ConcurrentSkipListSet<>(comp);
+            }).add(value);
+            return;
+        }
         Collection<Class<?>> coll = map.get(key);
         if (coll == null) {
             if (inheritance) {
@@ -1971,13 +2187,15 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (_implGen == null)
             _implGen = new InterfaceImplGenerator(this);
         if (_preload) {
+            // once preloaded, these maps are read without locking; classes
+            // registered later may still add implementors and subclasses
             _oids = new HashMap<>();
-            _impls = new HashMap<>();
-            _ifaces = new HashMap<>();
+            _impls = new ConcurrentHashMap<>();
+            _ifaces = new ConcurrentHashMap<>();
             _aliases = new HashMap<>();
             _pawares = new HashMap<>();
             _nonMapped = new HashMap<>();
-            _subs = new HashMap<>();
+            _subs = new ConcurrentHashMap<>();
             // Wait till we're done loading MetaData to flip _lock boolean.
         }
     }
@@ -2052,7 +2270,9 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (qm != null)
             return qm;
 
-        // see if factory can figure out a scope for this query
+        // see if the snapshot or the factory can figure out a scope for this query
+        if (cls == null)
+            cls = getSnapshotScope(name, true, envLoader);
         if (cls == null)
             cls = _factory.getQueryScope(name, envLoader);
 
@@ -2263,6 +2483,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
         // check cache
         SequenceMetaData meta = _seqs.get(name);
+        if (meta == null) {
+            // load the metadata of the class the snapshot says defines it
+            Class<?> scope = getSnapshotScope(name, false, envLoader);
+            if (scope != null && getMetaData(scope, envLoader, false) != null)
+                meta = _seqs.get(name);
+        }
         if (meta == null) {
             // load metadata for registered classes to hopefully find sequence
             // definition
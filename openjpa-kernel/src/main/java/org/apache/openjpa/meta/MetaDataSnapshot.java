@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.openjpa.conf.OpenJPAVersion;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.GeneralException;
+
+/**
+ * A prebuilt index of the persistent type names of a persistence unit, and
+ * of the class that defines each named query and sequence. It lets a
+ * {@link MetaDataRepository} skip the classpath scan for persistent types,
+ * and parse only the defining class when looking up a named query or
+ * sequence. It does not contain any parsed metadata: class metadata is still
+ * parsed and resolved lazily, one class at a time, when it is first used.
+ * <br>
+ * The snapshot is stored in a compact binary format: a header with a magic
+ * number, the format version, the OpenJPA version and the fingerprint of the
+ * metadata sources, the sorted persistent type names, the defining class of
+ * each named query and sequence, and a CRC32 checksum of all of it. The
+ * fingerprint is a hash of the persistent type names listed in configuration,
+ * of the content of the mapping resources and of the class files in the
+ * scanned jars and directories; a snapshot whose fingerprint
+ * or OpenJPA version differs from that of the repository using it is out of
+ * date. Snapshots in a file are memory-mapped rather than read.
+ *
+ * @since 4.1.2
+ */
+public class MetaDataSnapshot {
+
+    private static final Localizer _loc = Localizer.forPackage(MetaDataSnapshot.class);
+
+    /**
+     * The conventional resource name of a snapshot.
+     */
+    public static final String DEFAULT_RESOURCE = "META-INF/openjpa-metadata.snapshot";
+
+    /**
+     * The version of the binary format.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    // "OJMS"
+    private static final int MAGIC = 0x4F4A4D53;
+
+    private final String _version;
+    private final long _fingerprint;
+    private final Set<String> _types;
+    private final Map<String, String> _queries;
+    private final Map<String, String> _sequences;
+
+    /**
+     * Create a snapshot of the given persistent types and of the classes
+     * defining the given named queries and sequences.
+     *
+     * @param fingerprint the {@link #fingerprint} of the metadata sources
+     */
+    public MetaDataSnapshot(long fingerprint, Collection<String> types,
+        Map<String, String> queries, Map<String, String> sequences) {
+        this(OpenJPAVersion.VERSION_NUMBER, fingerprint, types, queries, sequences);
+    }
+
+    private MetaDataSnapshot(String version, long fingerprint, Collection<String> types,
+        Map<String, String> queries, Map<String, String> sequences) {
+        _version = version;
+        _fingerprint = fingerprint;
+        _types = Collections.unmodifiableSet(new TreeSet<>(types));
+        _queries = Collections.unmodifiableMap(new TreeMap<>(queries));
+        _sequences = Collections.unmodifiableMap(new TreeMap<>(sequences));
+    }
+
+    /**
+     * The OpenJPA version that wrote this snapshot.
+     */
+    public String getVersion() {
+        return _version;
+    }
+
+    /**
+     * The fingerprint of the metadata sources this snapshot was captured
+     * from.
+     */
+    public long getFingerprint() {
+        return _fingerprint;
+    }
+
+    /**
+     * Whether this snapshot was captured from the same metadata sources as
+     * the given repository uses.
+     */
+    public boolean isCurrent(MetaDataRepository repos, ClassLoader loader)
+        throws IOException {
+        return _fingerprint == fingerprint(repos, loader);
+    }
+
+    /**
+     * The names of the persistent types of the persistence unit.
+     */
+    public Set<String> getPersistentTypeNames() {
+        return _types;
+    }
+
+    /**
+     * The name of the class that defines the given named query, or null.
+     */
+    public String getQueryScope(String name) {
+        return _queries.get(name);
+    }
+
+    /**
+     * The name of the class that defines the given named sequence, or null.
+     */
+    public String getSequenceScope(String name) {
+        return _sequences.get(name);
+    }
+
+    /**
+     * Capture a snapshot of the given repository. Parses the metadata of
+     * every persistent type in the repository, but does not resolve mappings,
+     * so no database connection is needed. The repository should not be used
+     * by a running persistence unit.
+     *
+     * @param devpath whether to scan the development classpath for
+     * persistent types if none are listed
+     */
+    public static MetaDataSnapshot capture(MetaDataRepository repos, boolean devpath,
+        ClassLoader loader) {
+        int source = repos.getSourceMode();
+        int resolve = repos.getResolve();
+        String snapshot = repos.getSnapshot();
+        repos.setSnapshot(null);
+        repos.setSourceMode(MetaDataModes.MODE_META | MetaDataModes.MODE_QUERY);
+        repos.setResolve(MetaDataModes.MODE_MAPPING, false);
+        try {
+            Set<String> types = new TreeSet<>();
+            for (Class<?> cls : repos.loadPersistentTypes(devpath, loader)) {
+                if (repos.getMetaData(cls, loader, false) != null)
+                    types.add(cls.getName());
+            }
+
+            Map<String, String> queries = new TreeMap<>();
+            for (QueryMetaData query : repos.getQueryMetaDatas()) {
+                if (query.getDefiningType() != null)
+                    queries.put(query.getName(), query.getDefiningType().getName());
+            }
+            Map<String, String> sequences = new TreeMap<>();
+            for (SequenceMetaData seq : repos.getSequenceMetaDatas()) {
+                if (seq.getSourceScope() instanceof Class)
+                    sequences.put(seq.getName(), ((Class<?>) seq.getSourceScope()).getName());
+            }
+            return new MetaDataSnapshot(fingerprint(repos, loader), types, queries, sequences);
+        } catch (IOException ioe) {
+            throw new GeneralException(ioe);
+        } finally {
+            repos.setSourceMode(source);
+            repos.setResolve(resolve);
+            repos.setSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * Compute the fingerprint of the metadata sources of the given
+     * repository: a hash of the persistent type names listed in the
+     * configuration of its metadata factory, of the name and content of each
+     * of its mapping resources, and of the path and size of each class file
+     * in the jars and directories it scans. The scanned locations themselves
+     * are not part of it, so a snapshot captured from the build output
+     * directory is still current for the jar packaged from it.
+     */
+    public static long fingerprint(MetaDataRepository repos, ClassLoader loader)
+        throws IOException {
+        MetaDataFactory factory = repos.getMetaDataFactory();
+        if (factory instanceof DelegatingMetaDataFactory)
+            factory = ((DelegatingMetaDataFactory) factory).getInnermostDelegate();
+        Set<String> types = new TreeSet<>();
+        if (factory instanceof AbstractMetaDataFactory
+            && ((AbstractMetaDataFactory) factory).types != null) {
+            for (Object type : ((AbstractMetaDataFactory) factory).types)
+                types.add(String.valueOf(type));
+        }
+        Set<String> rsrcs = new TreeSet<>();
+        Set<String> classes = new TreeSet<>();
+        if (factory instanceof AbstractCFMetaDataFactory) {
+            AbstractCFMetaDataFactory cf = (AbstractCFMetaDataFactory) factory;
+            if (cf.rsrcs != null)
+                rsrcs.addAll(cf.rsrcs);
+            if (cf.files != null)
+                for (File file : cf.files)
+                    listClasses(file, classes);
+            if (cf.urls != null)
+                for (URL url : cf.urls)
+                    listClasses(url, classes);
+            if (cf.cpath != null)
+                for (String path : cf.cpath)
+                    listClasses(new File(path), classes);
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        for (String type : types) {
+            digest.update(type.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        if (loader == null)
+            loader = MetaDataSnapshot.class.getClassLoader();
+        for (String rsrc : rsrcs) {
+            digest.update((byte) 1);
+            digest.update(rsrc.getBytes(StandardCharsets.UTF_8));
+            for (Enumeration<URL> e = loader.getResources(rsrc); e.hasMoreElements();) {
+                try (InputStream in = e.nextElement().openStream()) {
+                    digest.update((byte) 2);
+                    digest.update(in.readAllBytes());
+                }
+            }
+        }
+        for (String cls : classes) {
+            digest.update((byte) 3);
+            digest.update(cls.getBytes(StandardCharsets.UTF_8));
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Add the path and size of each class file in the given scanned
+     * directory or jar to the given set. A file that is neither is added by
+     * name and size.
+     */
+    private static void listClasses(File file, Set<String> classes)
+        throws IOException {
+        if (file.isDirectory()) {
+            Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                    if (name.endsWith(".class") && Files.isRegularFile(path))
+                        classes.add(name + ":" + Files.size(path));
+                }
+            }
+        } else if (file.getName().endsWith(".jar")) {
+            try (ZipFile zip = new ZipFile(file)) {
+                for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();)
+                    addClass(e.nextElement(), classes);
+            }
+        } else if (file.exists()) {
+            classes.add(file.getName() + ":" + file.length());
+        }
+    }
+
+    /**
+     * Add the path and size of each class file in the scanned directory or
+     * jar at the given URL to the given set.
+     */
+    private static void listClasses(URL url, Set<String> classes)
+        throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                listClasses(Paths.get(url.toURI()).toFile(), classes);
+            } catch (java.net.URISyntaxException | IllegalArgumentException e) {
+                throw new IOException(url.toString(), e);
+            }
+            return;
+        }
+        URLConnection con = url.openConnection();
+        if (con instanceof JarURLConnection) {
+            con.setUseCaches(false);
+            try (JarFile jar = ((JarURLConnection) con).getJarFile()) {
+                for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();)
+                    addClass(e.nextElement(), classes);
+            }
+            return;
+        }
+        try (ZipInputStream zip = new ZipInputStream(con.getInputStream())) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+                if (entry.getSize() < 0 && !entry.isDirectory())
+                    entry.setSize(zip.transferTo(OutputStream.nullOutputStream()));
+                addClass(entry, classes);
+            }
+        }
+    }
+
+    private static void addClass(ZipEntry entry, Set<String> classes) {
+        if (!entry.isDirectory() && entry.getName().endsWith(".class"))
+            classes.add(entry.getName() + ":" + entry.getSize());
+    }
+
+    /**
+     * Write this snapshot to the given file, creating its directory if
+     * needed.
+     */
+    public void write(File file)
+        throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs())
+            throw new IOException(file.toString());
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Write this snapshot to the given stream.
+     */
+    public void write(OutputStream out)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        writeString(data, _version);
+        data.writeLong(_fingerprint);
+        data.writeInt(_types.size());
+        for (String type : _types)
+            writeString(data, type);
+        writeMap(data, _queries);
+        writeMap(data, _sequences);
+        data.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        data.writeLong(crc.getValue());
+        data.flush();
+        bytes.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeMap(DataOutputStream data, Map<String, String> map)
+        throws IOException {
+        data.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(data, entry.getKey());
+            writeString(data, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String str)
+        throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Read the snapshot at the given URL. A file is memory-mapped; other
+     * URLs are read into memory.
+     *
+     * @throws IOException if the snapshot cannot be read, is corrupt, or was
+     * written by another OpenJPA version
+     */
+    public static MetaDataSnapshot read(URL url)
+        throws IOException {
+        ByteBuffer buf;
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()),
+                StandardOpenOption.READ)) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (java.net.URISyntaxException e) {
+                throw new IOException(url.toString(), e);
+            }
+        } else {
+            try (InputStream in = url.openStream()) {
+                buf = ByteBuffer.wrap(in.readAllBytes());
+            }
+        }
+        return read(buf);
+    }
+
+    /**
+     * Read a snapshot from the given buffer.
+     *
+     * @throws IOException if the snapshot is corrupt or was written by
+     * another OpenJPA version
+     */
+    public static MetaDataSnapshot read(ByteBuffer buf)
+        throws IOException {
+        try {
+            if (buf.remaining() < 16 || buf.getInt(buf.position()) != MAGIC)
+                throw new IOException(_loc.get("snapshot-bad-format").getMessage());
+            int end = buf.limit() - 8;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buf.duplicate();
+            body.limit(end);
+            crc.update(body);
+            if (crc.getValue() != buf.getLong(end))
+                throw new IOException(_loc.get("snapshot-bad-format").getMessage());
+
+            buf.getInt();
+            int format = buf.getInt();
+            String version = readString(buf);
+            if (format != FORMAT_VERSION || !OpenJPAVersion.VERSION_NUMBER.equals(version))
+                throw new IOException(_loc.get("snapshot-bad-version", version,
+                    OpenJPAVersion.VERSION_NUMBER).getMessage());
+            long fingerprint = buf.getLong();
+
+            int n = buf.getInt();
+            Set<String> types = new TreeSet<>();
+            for (int i = 0; i < n; i++)
+                types.add(readString(buf));
+            Map<String, String> queries = readMap(buf);
+            Map<String, String> sequences = readMap(buf);
+            return new MetaDataSnapshot(version, fingerprint, types, queries, sequences);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+            | IllegalArgumentException e) {
+            throw new IOException(_loc.get("snapshot-bad-format").getMessage(), e);
+        }
+    }
+
+    private static Map<String, String> readMap(ByteBuffer buf) {
+        int n = buf.getInt();
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < n; i++)
+            map.put(readString(buf), readString(buf));
+        return map;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "MetaDataSnapshot[" + _version + ", types=" + _types.size()
+            + ", queries=" + _queries.size() + ", sequences=" + _sequences.size() + "]";
+    }
+}
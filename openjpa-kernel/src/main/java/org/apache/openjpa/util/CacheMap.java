@@ -152,6 +152,19 @@ public class CacheMap
         cacheMap.setMaxSize(max);
     }
 
+    /**
+     * Create a cache map around the given maps. Subclasses that keep their
+     * entries elsewhere may pass null for all of them, as long as they
+     * override every method that uses the maps.
+     *
+     * @since 4.1.2
+     */
+    protected CacheMap(SizedMap cacheMap, SizedMap softMap, Map pinnedMap) {
+        this.cacheMap = cacheMap;
+        this.softMap = softMap;
+        this.pinnedMap = pinnedMap;
+    }
+
     /**
      * Called from {@link SizedMap#overflowRemoved} in the cache map.
      */
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.openjpa.lib.util.collections.IteratorChain;
+
+/**
+ * {@link CacheMap} that spreads its entries over a fixed number of
+ * independently locked segments. Each segment is a complete cache map
+ * with its own share of the hard and soft reference limits, its own pinned
+ * entries and its own eviction order, so reads of keys in different
+ * segments never contend for the same lock.
+ *  Mutations lock only the segment of their key, plus the shared side of
+ * a map-wide read/write lock. {@link #writeLock} takes the exclusive side
+ * of that lock, so callers that check a cached value and then replace it
+ * under the write lock keep the same guarantees they have with a plain
+ * {@link CacheMap}; {@link #readLock} takes the shared side. Lookups take
+ * no map-wide lock at all. Eviction is per segment, so the map as a whole
+ * only approximates global LRU or random eviction.
+ *
+ * @since 4.1.2
+ */
+public class StripedCacheMap
+    extends CacheMap {
+
+    private final Segment[] _segments;
+    private final ReentrantReadWriteLock _rwl = new ReentrantReadWriteLock();
+    private final Lock _sharedLock = _rwl.readLock();
+    private final Lock _exclusiveLock = _rwl.writeLock();
+    private final boolean _lru;
+    private int _cacheSize;
+    private int _softRefSize = -1;
+
+    /**
+     * Create a striped cache map with a size of 1000.
+     *
+     * @param lru whether each segment should use LRU eviction
+     * @param stripes the number of segments; rounded up to a power of two
+     */
+    public StripedCacheMap(boolean lru, int stripes) {
+        this(lru, 1000, stripes);
+    }
+
+    /**
+     * Create a striped cache map with the given properties.
+     *
+     * @param lru whether each segment should use LRU eviction
+     * @param max the maximum number of hard references, or -1 for no limit
+     * @param stripes the number of segments; rounded up to a power of two
+     */
+    public StripedCacheMap(boolean lru, int max, int stripes) {
+        super(null, null, null);
+        int n = 1;
+        while (n < stripes)
+            n <<= 1;
+
+        _lru = lru;
+        _segments = new Segment[n];
+        for (int i = 0; i < n; i++)
+            _segments[i] = new Segment(lru);
+        setCacheSize(max);
+    }
+
+    /**
+     * The number of independently locked segments.
+     */
+    public int getStripes() {
+        return _segments.length;
+    }
+
+    /**
+     * Return the segment holding the given key.
+     */
+    private Segment segmentFor(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return _segments[h & (_segments.length - 1)];
+    }
+
+    /**
+     * Return the share of the given total limit for a single segment.
+     */
+    private int perSegment(int size) {
+        if (size < 0)
+            return -1;
+        return (size + _segments.length - 1) / _segments.length;
+    }
+
+    /**
+     * Acquire the shared side of the map-wide lock. Any number of readers
+     * and single-key mutations may hold it at once.
+     */
+    @Override
+    public void readLock() {
+        _sharedLock.lock();
+    }
+
+    @Override
+    public void readUnlock() {
+        _sharedLock.unlock();
+    }
+
+    /**
+     * Acquire the exclusive side of the map-wide lock, which keeps out all
+     * other mutations. Lookups are never blocked.
+     */
+    @Override
+    public void writeLock() {
+        _exclusiveLock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _exclusiveLock.unlock();
+    }
+
+    @Override
+    public boolean isLRU() {
+        return _lru;
+    }
+
+    @Override
+    public void setCacheSize(int size) {
+        writeLock();
+        try {
+            _cacheSize = (size < 0) ? -1 : size;
+            for (Segment segment : _segments)
+                segment.setCacheSize(perSegment(size));
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    @Override
+    public int getCacheSize() {
+        return _cacheSize;
+    }
+
+    @Override
+    public void setSoftReferenceSize(int size) {
+        writeLock();
+        try {
+            _softRefSize = (size < 0) ? -1 : size;
+            for (Segment segment : _segments)
+                segment.setSoftReferenceSize(perSegment(size));
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    @Override
+    public int getSoftReferenceSize() {
+        return _softRefSize;
+    }
+
+    @Override
+    public Set getPinnedKeys() {
+        Set keys = new HashSet();
+        for (Segment segment : _segments)
+            keys.addAll(segment.getPinnedKeys());
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public boolean pin(Object key) {
+        readLock();
+        try {
+            return segmentFor(key).pin(key);
+        } finally {
+            readUnlock();
+        }
+    }
+
+    @Override
+    public boolean unpin(Object key) {
+        readLock();
+        try {
+            return segmentFor(key).unpin(key);
+        } finally {
+            readUnlock();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        readLock();
+        try {
+            return segmentFor(key).put(key, value);
+        } finally {
+            readUnlock();
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        readLock();
+        try {
+            return segmentFor(key).remove(key);
+        } finally {
+            readUnlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock();
+        try {
+            for (Segment segment : _segments)
+                segment.clear();
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : _segments)
+            size += segment.size();
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return segmentFor(key).containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object val) {
+        for (Segment segment : _segments)
+            if (segment.containsValue(val))
+                return true;
+        return false;
+    }
+
+    @Override
+    public Set keySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.keySet().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public Collection values() {
+        return new AbstractCollection() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.values().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public Set entrySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public boolean add(Object o) {
+                Map.Entry entry = (Map.Entry) o;
+                put(entry.getKey(), entry.getValue());
+                return true;
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.entrySet().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder("StripedCacheMap:");
+        for (int i = 0; i < _segments.length; i++) {
+            if (i > 0)
+                buf.append("::");
+            buf.append(_segments[i]);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A single segment. Entry callbacks and map hooks are forwarded to the
+     * owning map so that subclasses only need to override them once.
+     */
+    private class Segment
+        extends CacheMap {
+
+        Segment(boolean lru) {
+            super(lru);
+        }
+
+        @Override
+        protected void entryRemoved(Object key, Object value,
+            boolean expired) {
+            StripedCacheMap.this.entryRemoved(key, value, expired);
+        }
+
+        @Override
+        protected void entryAdded(Object key, Object value) {
+            StripedCacheMap.this.entryAdded(key, value);
+        }
+
+        @Override
+        protected Object put(Map map, Object key, Object value) {
+            return StripedCacheMap.this.put(map, key, value);
+        }
+
+        @Override
+        protected Object remove(Map map, Object key) {
+            return StripedCacheMap.this.remove(map, key);
+        }
+    }
+}
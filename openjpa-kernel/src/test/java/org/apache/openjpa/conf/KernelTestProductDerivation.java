@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.conf;
+
+import java.util.Map;
+
+import org.apache.openjpa.lib.conf.AbstractProductDerivation;
+
+/**
+ * Product derivation for the tests of this module, which cannot construct
+ * a configuration without at least one derivation on the classpath. It adds
+ * no configuration of its own.
+ */
+public class KernelTestProductDerivation extends AbstractProductDerivation
+    implements OpenJPAProductDerivation {
+
+    @Override
+    public int getType() {
+        return TYPE_STORE;
+    }
+
+    @Override
+    public void putBrokerFactoryAliases(Map<String,String> m) {
+    }
+}
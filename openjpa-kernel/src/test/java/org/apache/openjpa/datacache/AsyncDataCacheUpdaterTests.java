@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AsyncDataCacheUpdater}.
+ */
+public class AsyncDataCacheUpdaterTests {
+
+    private AsyncDataCacheUpdater _updater;
+
+    private AsyncDataCacheUpdater newUpdater(int threads, int queueSize) {
+        _updater = new AsyncDataCacheUpdater(new OpenJPAConfigurationImpl(),
+            threads, queueSize);
+        return _updater;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (_updater != null)
+            _updater.close();
+    }
+
+    private static List<Object> oids(Object... oids) {
+        List<Object> list = new ArrayList<>();
+        Collections.addAll(list, oids);
+        return list;
+    }
+
+    @Test
+    public void testLaneIsStableAndInRange() {
+        AsyncDataCacheUpdater updater = newUpdater(4, 10);
+        assertEquals(4, updater.getLaneCount());
+        for (int i = -100; i < 100; i++) {
+            int lane = updater.getLane(i);
+            assertTrue(lane >= 0 && lane < 4);
+            assertEquals(lane, updater.getLane(i));
+        }
+        assertEquals(updater.getLane(null), updater.getLane(null));
+        assertEquals(1, newUpdater(0, 0).getLaneCount());
+    }
+
+    @Test
+    public void testUpdatesOfSameLaneApplyInOrder() {
+        AsyncDataCacheUpdater updater = newUpdater(3, 5);
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        int lane = updater.getLane("a");
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            updater.submit(lane, oids("a"), () -> applied.add(n));
+        }
+        updater.flush();
+        assertEquals(100, applied.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, applied.get(i).intValue());
+        assertFalse(updater.isPending("a"));
+    }
+
+    @Test
+    public void testIdsArePendingUntilApplied() throws Exception {
+        AsyncDataCacheUpdater updater = newUpdater(1, 5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        updater.submit(0, oids("a", "b"), () -> {
+            started.countDown();
+            await(release);
+        });
+        updater.submit(0, oids("a"), () -> { });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(updater.isPending("a"));
+        assertTrue(updater.isPending("b"));
+        assertFalse(updater.isPending("c"));
+
+        release.countDown();
+        updater.flush();
+        assertFalse(updater.isPending("a"));
+        assertFalse(updater.isPending("b"));
+    }
+
+    @Test
+    public void testFullLaneBlocksSubmitter() throws Exception {
+        AsyncDataCacheUpdater updater = newUpdater(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        updater.submit(0, oids(1), () -> await(release));
+        // taken by the lane thread or left in the queue; one of the next
+        // two submissions has to wait for the blocked update
+        AtomicBoolean submitted = new AtomicBoolean();
+        Thread committer = new Thread(() -> {
+            updater.submit(0, oids(2), () -> { });
+            updater.submit(0, oids(3), () -> { });
+            submitted.set(true);
+        });
+        committer.start();
+        committer.join(200);
+        assertFalse(submitted.get());
+
+        release.countDown();
+        committer.join(10000);
+        assertTrue(submitted.get());
+    }
+
+    @Test
+    public void testFailedUpdateDoesNotStopLane() {
+        AsyncDataCacheUpdater updater = newUpdater(1, 5);
+        AtomicBoolean applied = new AtomicBoolean();
+        updater.submit(0, oids("a"), () -> {
+            throw new IllegalStateException("test");
+        });
+        updater.submit(0, oids("b"), () -> applied.set(true));
+        updater.flush();
+        assertTrue(applied.get());
+        assertFalse(updater.isPending("a"));
+    }
+
+    @Test
+    public void testCloseDrainsQueueAndRunsLaterUpdatesInline() {
+        AsyncDataCacheUpdater updater = newUpdater(2, 100);
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            updater.submit(updater.getLane(i), oids(i), () -> applied.add(n));
+        }
+        updater.close();
+        assertEquals(50, applied.size());
+
+        Thread caller = Thread.currentThread();
+        AtomicBoolean inline = new AtomicBoolean();
+        updater.submit(0, oids("x"),
+            () -> inline.set(Thread.currentThread() == caller));
+        assertTrue(inline.get());
+        assertFalse(updater.isPending("x"));
+    }
+
+    @Test
+    public void testFlushWaitsForUpdatesDrainedByClose() throws Exception {
+        AsyncDataCacheUpdater updater = newUpdater(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean applied = new AtomicBoolean();
+        updater.submit(0, oids("a"), () -> await(release));
+        updater.submit(0, oids("b"), () -> applied.set(true));
+        Thread closer = new Thread(updater::close);
+        closer.start();
+        Thread.sleep(100);
+
+        AtomicBoolean flushed = new AtomicBoolean();
+        Thread flusher = new Thread(() -> {
+            updater.flush();
+            flushed.set(applied.get());
+        });
+        flusher.start();
+        try {
+            flusher.join(200);
+            assertTrue(flusher.isAlive());
+        } finally {
+            release.countDown();
+        }
+        flusher.join(10000);
+        closer.join(10000);
+        assertTrue(flushed.get());
+        assertFalse(updater.isPending("b"));
+    }
+
+    @Test
+    public void testUpdatesSubmittedWhileClosingAreApplied() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            for (int round = 0; round < 200; round++) {
+                AsyncDataCacheUpdater updater = newUpdater(2, 1);
+                AtomicInteger applied = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> committers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    Thread committer = new Thread(() -> {
+                        await(start);
+                        for (int i = 0; i < 20; i++) {
+                            updater.submit(updater.getLane(i), oids(i),
+                                applied::incrementAndGet);
+                            if (i % 5 == 0)
+                                updater.flush();
+                        }
+                    });
+                    committer.start();
+                    committers.add(committer);
+                }
+                start.countDown();
+                updater.close();
+                for (Thread committer : committers)
+                    committer.join();
+                updater.flush();
+
+                assertEquals(80, applied.get());
+                for (int i = 0; i < 20; i++)
+                    assertFalse(updater.isPending(i));
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
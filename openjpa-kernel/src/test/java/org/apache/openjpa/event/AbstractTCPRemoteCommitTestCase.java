@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.lib.log.AbstractLog;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.util.LongId;
+import org.junit.jupiter.api.AfterEach;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Base class for tests that connect two {@link TCPRemoteCommitProvider}s
+ * over the loopback interface.
+ */
+public abstract class AbstractTCPRemoteCommitTestCase {
+
+    private final List<TCPRemoteCommitProvider> _providers = new ArrayList<>();
+
+    /**
+     * The warnings logged by the providers created by this test.
+     */
+    protected final List<String> warnings = new CopyOnWriteArrayList<>();
+
+    private final Log _log = new AbstractLog() {
+        @Override
+        protected boolean isEnabled(short level) {
+            return level >= WARN;
+        }
+
+        @Override
+        protected void log(short level, String message, Throwable t) {
+            warnings.add(message);
+        }
+    };
+
+    @AfterEach
+    public void tearDown() {
+        for (TCPRemoteCommitProvider provider : _providers)
+            provider.close();
+        _providers.clear();
+    }
+
+    protected static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    /**
+     * Create a provider listening on the given port and sending to the
+     * given peer port. The given configurer runs before the provider
+     * starts listening.
+     */
+    protected TCPRemoteCommitProvider newProvider(int port, int peer,
+        Recorder recorder, Configurer configurer) throws Exception {
+        OpenJPAConfigurationImpl conf = new OpenJPAConfigurationImpl();
+        conf.setLogFactory(channel -> _log);
+        TCPRemoteCommitProvider provider = new TCPRemoteCommitProvider();
+        provider.setConfiguration(conf);
+        provider.startConfiguration();
+        provider.setPort(port);
+        provider.setAddresses("127.0.0.1:" + peer);
+        if (configurer != null)
+            configurer.configure(provider);
+        provider.endConfiguration();
+        provider.setRemoteCommitEventManager((recorder == null)
+            ? new Recorder() : recorder);
+        _providers.add(provider);
+        return provider;
+    }
+
+    protected static RemoteCommitEvent event(long id) {
+        return new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+            null, Arrays.asList(new LongId(Object.class, id)), null);
+    }
+
+    /**
+     * Assert that the recorder received events for the given ids, in order.
+     */
+    protected static void assertReceived(Recorder recorder, long... ids)
+        throws InterruptedException {
+        List<RemoteCommitEvent> events = recorder.await(ids.length);
+        assertEquals(ids.length, events.size());
+        for (int i = 0; i < ids.length; i++)
+            assertEquals(new LongId(Object.class, ids[i]),
+                events.get(i).getUpdatedObjectIds().iterator().next());
+    }
+
+    protected interface Configurer {
+        void configure(TCPRemoteCommitProvider provider) throws Exception;
+    }
+
+    /**
+     * Event manager that records the batches of events it is asked to
+     * fire, and the threads it is called on.
+     */
+    protected static class Recorder
+        extends RemoteCommitEventManager {
+
+        final BlockingQueue<List<RemoteCommitEvent>> batches =
+            new LinkedBlockingQueue<>();
+        final List<Thread> threads = new ArrayList<>();
+
+        public Recorder() {
+            super(new OpenJPAConfigurationImpl());
+        }
+
+        @Override
+        public Exception[] fireEvents(Collection<RemoteCommitEvent> events) {
+            synchronized (threads) {
+                threads.add(Thread.currentThread());
+            }
+            batches.add(new ArrayList<>(events));
+            return new Exception[0];
+        }
+
+        /**
+         * Wait for the given number of events, and return them.
+         */
+        List<RemoteCommitEvent> await(int count) throws InterruptedException {
+            List<RemoteCommitEvent> events = new ArrayList<>();
+            while (events.size() < count) {
+                List<RemoteCommitEvent> batch = batches.poll(10,
+                    TimeUnit.SECONDS);
+                if (batch == null)
+                    break;
+                events.addAll(batch);
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.StringId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRemoteCommitEventCodecTests {
+
+    public static class Person {
+    }
+
+    public static class Employee extends Person {
+    }
+
+    private static RemoteCommitEvent decode(RemoteCommitEventCodec codec,
+        RemoteCommitEvent event) throws Exception {
+        return codec.decode(codec.encode(event));
+    }
+
+    private static void assertIds(Collection expected, Collection actual) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        // the subclass flag is not part of equals()
+        Object[] exp = expected.toArray();
+        Object[] act = actual.toArray();
+        for (int i = 0; i < exp.length; i++)
+            if (exp[i] instanceof OpenJPAId)
+                assertEquals(((OpenJPAId) exp[i]).hasSubclasses(),
+                    ((OpenJPAId) act[i]).hasSubclasses());
+    }
+
+    @Test
+    public void testObjectIdsRoundTrip() throws Exception {
+        List<Object> adds = Arrays.asList(
+            new LongId(Person.class, 1L),
+            new LongId(Person.class, -5L, true),
+            new LongId(Employee.class, Long.MAX_VALUE));
+        List<Object> updates = Arrays.asList(
+            new IntId(Person.class, 42),
+            new IntId(Employee.class, Integer.MIN_VALUE, true),
+            new StringId(Person.class, "k\u00e9y"));
+        List<Object> deletes = Arrays.asList(
+            new ObjectId(Employee.class, new java.util.Date(0L)));
+
+        RemoteCommitEvent event = decode(new BinaryRemoteCommitEventCodec(),
+            new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+                adds, Arrays.asList(Person.class.getName()), updates,
+                deletes));
+
+        assertEquals(RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            event.getPayloadType());
+        assertEquals(Arrays.asList(Person.class.getName()),
+            new ArrayList<>(event.getPersistedTypeNames()));
+        assertIds(adds, event.getPersistedObjectIds());
+        assertIds(updates, event.getUpdatedObjectIds());
+        assertIds(deletes, event.getDeletedObjectIds());
+        for (Object oid : event.getUpdatedObjectIds())
+            assertNotNull(((OpenJPAId) oid).getType());
+    }
+
+    @Test
+    public void testExtentsRoundTrip() throws Exception {
+        RemoteCommitEvent event = decode(new BinaryRemoteCommitEventCodec(),
+            new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS, null,
+                Arrays.asList("a.A"), Arrays.asList("a.B", "a.A"),
+                Arrays.asList("a.C")));
+        assertEquals(RemoteCommitEvent.PAYLOAD_EXTENTS,
+            event.getPayloadType());
+        assertEquals(Arrays.asList("a.A"),
+            new ArrayList<>(event.getPersistedTypeNames()));
+        assertEquals(Arrays.asList("a.B", "a.A"),
+            new ArrayList<>(event.getUpdatedTypeNames()));
+        assertEquals(Arrays.asList("a.C"),
+            new ArrayList<>(event.getDeletedTypeNames()));
+    }
+
+    @Test
+    public void testEmptyEventRoundTrip() throws Exception {
+        RemoteCommitEvent event = decode(new BinaryRemoteCommitEventCodec(),
+            new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+                null, null));
+        assertEquals(RemoteCommitEvent.PAYLOAD_OIDS, event.getPayloadType());
+        assertTrue(event.getUpdatedObjectIds().isEmpty());
+        assertTrue(event.getDeletedObjectIds().isEmpty());
+    }
+
+    private static RemoteCommitEvent largeEvent() {
+        List<Object> updates = new ArrayList<>();
+        for (long i = 0; i < 500; i++)
+            updates.add(new LongId(Person.class, i));
+        return new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+            null, updates, null);
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        RemoteCommitEvent event = largeEvent();
+        int binary = new BinaryRemoteCommitEventCodec().encode(event).length;
+        int java = new SerializationRemoteCommitEventCodec().encode(event).
+            length;
+        assertTrue(binary * 4 < java, binary + " vs " + java);
+    }
+
+    @Test
+    public void testCompressionAboveThreshold() throws Exception {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        RemoteCommitEvent event = largeEvent();
+        byte[] plain = codec.encode(event);
+        assertEquals(0, plain[1]);
+
+        codec.setCompressionThreshold(64);
+        byte[] deflated = codec.encode(event);
+        assertEquals(1, deflated[1]);
+        assertTrue(deflated.length < plain.length);
+        assertIds(event.getUpdatedObjectIds(),
+            codec.decode(deflated).getUpdatedObjectIds());
+
+        // events below the threshold are left alone
+        RemoteCommitEvent small = new RemoteCommitEvent
+            (RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+                Arrays.asList(new LongId(Person.class, 1L)), null);
+        assertEquals(0, codec.encode(small)[1]);
+    }
+
+    @Test
+    public void testCorruptInputIsRejected() throws Exception {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        byte[] bytes = codec.encode(largeEvent());
+
+        byte[] version = bytes.clone();
+        version[0] = 99;
+        assertThrows(StreamCorruptedException.class,
+            () -> codec.decode(version));
+        assertThrows(StreamCorruptedException.class,
+            () -> codec.decode(new byte[0]));
+
+        // payload, no adds, one update with an unknown tag
+        byte[] tag = { 1, 0, 0, 0, 1, 0x7f };
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(tag));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+        assertThrows(IOException.class, () -> codec.decode(truncated));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the coalescing of outgoing events by the broadcast threads of
+ * {@link TCPRemoteCommitProvider}.
+ */
+public class TCPRemoteCommitCoalescingTests
+    extends AbstractTCPRemoteCommitTestCase {
+
+    /**
+     * Send a first event and wait for it. Worker threads retired by
+     * lowering the thread count only stop after sending one more packet,
+     * so this leaves a single worker to drain the queue in order.
+     */
+    private static void warmUp(TCPRemoteCommitProvider sender,
+        Recorder recorder) throws InterruptedException {
+        sender.broadcast(event(-1));
+        assertReceived(recorder, -1);
+        synchronized (recorder.threads) {
+            recorder.threads.clear();
+        }
+    }
+
+    private void sendAndReceive(String codec, int max, int window,
+        int expectedMaxPackets) throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        TCPRemoteCommitProvider sender = newProvider(portA, portB, null, p -> {
+            p.setCodec(codec);
+            p.setNumBroadcastThreads(1);
+            p.setMaxCoalescedEvents(max);
+            p.setCoalesceMillis(window);
+        });
+        Recorder recorder = new Recorder();
+        newProvider(portB, portA, recorder, p -> p.setCodec(codec));
+        warmUp(sender, recorder);
+
+        long[] ids = new long[20];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            sender.broadcast(event(i));
+        }
+        assertReceived(recorder, ids);
+        int packets = recorder.threads.size();
+        assertTrue(packets <= expectedMaxPackets, packets + " packets");
+    }
+
+    @Test
+    public void testUncoalescedEventsArriveInOrder() throws Exception {
+        sendAndReceive("java", 0, 0, 20);
+    }
+
+    @Test
+    public void testEventsAreCoalescedWithinWindow() throws Exception {
+        // the first event is taken as soon as it is queued; the rest are
+        // queued within the window and may share its packet or the next
+        sendAndReceive("java", 0, 500, 2);
+    }
+
+    @Test
+    public void testPacketsAreLimitedByMaxCoalescedEvents() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        TCPRemoteCommitProvider sender = newProvider(portA, portB, null, p -> {
+            p.setCodec("binary");
+            p.setNumBroadcastThreads(1);
+            p.setMaxCoalescedEvents(5);
+            p.setCoalesceMillis(500);
+        });
+        Recorder recorder = new Recorder();
+        newProvider(portB, portA, recorder, p -> p.setCodec("binary"));
+        warmUp(sender, recorder);
+
+        long[] ids = new long[20];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            sender.broadcast(event(i));
+        }
+        assertReceived(recorder, ids);
+        assertTrue(recorder.threads.size() >= 4);
+    }
+
+    @Test
+    public void testBinaryCodecCoalesces() throws Exception {
+        sendAndReceive("binary", 100, 500, 2);
+    }
+}
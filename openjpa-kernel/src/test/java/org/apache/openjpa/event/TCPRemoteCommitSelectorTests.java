@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests receiving events with the selector thread of
+ * {@link TCPRemoteCommitProvider}.
+ */
+public class TCPRemoteCommitSelectorTests
+    extends AbstractTCPRemoteCommitTestCase {
+
+    private static long[] ids(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++)
+            ids[i] = i;
+        return ids;
+    }
+
+    /**
+     * Binary codec under another class name, which receivers that do not
+     * use it themselves do not know.
+     */
+    public static class CustomCodec
+        extends BinaryRemoteCommitEventCodec {
+    }
+
+    private TCPRemoteCommitProvider connect(String codec, Recorder recorder)
+        throws Exception {
+        return connect(codec, codec, recorder);
+    }
+
+    private TCPRemoteCommitProvider connect(String codec, String peerCodec,
+        Recorder recorder) throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        TCPRemoteCommitProvider sender = newProvider(portA, portB, null, p -> {
+            p.setCodec(codec);
+            p.setNumBroadcastThreads(0);
+        });
+        newProvider(portB, portA, recorder, p -> {
+            p.setCodec(peerCodec);
+            p.setSelectorReceiver(true);
+        });
+        return sender;
+    }
+
+    @Test
+    public void testFramedEventsAreDispatchedOffSelectorThread()
+        throws Exception {
+        Recorder recorder = new Recorder();
+        TCPRemoteCommitProvider sender = connect("binary", recorder);
+        for (long id : ids(20))
+            sender.broadcast(event(id));
+        assertReceived(recorder, ids(20));
+        synchronized (recorder.threads) {
+            for (Thread t : recorder.threads)
+                assertTrue(t.getName().startsWith("openjpa-tcp-dispatch-"),
+                    t.getName());
+        }
+        assertTrue(warnings.isEmpty(), warnings.toString());
+    }
+
+    @Test
+    public void testSlowListenerDoesNotStopReading() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RemoteCommitEvent> read = new ArrayList<>();
+        Recorder recorder = new Recorder() {
+            @Override
+            public Exception[] fireEvents(
+                Collection<RemoteCommitEvent> events) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.fireEvents(events);
+            }
+        };
+        TCPRemoteCommitProvider sender = connect("binary", recorder);
+        for (long id : ids(50))
+            sender.broadcast(event(id));
+
+        // the listener is blocked; nothing has been delivered yet, but all
+        // events are still delivered in order once it is released
+        Thread.sleep(200);
+        assertTrue(recorder.batches.isEmpty());
+        release.countDown();
+        assertReceived(recorder, ids(50));
+    }
+
+    @Test
+    public void testSerializedPacketsAreHandedOff() throws Exception {
+        Recorder recorder = new Recorder();
+        TCPRemoteCommitProvider sender = connect("java", recorder);
+        for (long id : ids(10))
+            sender.broadcast(event(id));
+        assertReceived(recorder, ids(10));
+    }
+
+    @Test
+    public void testSelectorWithJavaCodecWarns() throws Exception {
+        connect("java", new Recorder());
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains("binary"), warnings.get(0));
+    }
+
+    @Test
+    public void testFramesAreDecodedWithTheCodecOfTheSender()
+        throws Exception {
+        Recorder recorder = new Recorder();
+        TCPRemoteCommitProvider sender = connect("binary", "java", recorder);
+        for (long id : ids(10))
+            sender.broadcast(event(id));
+        assertReceived(recorder, ids(10));
+        for (String warning : warnings)
+            assertFalse(warning.contains("receiving TCP update"), warning);
+    }
+
+    @Test
+    public void testFramesOfAnUnknownCodecAreReported() throws Exception {
+        Recorder recorder = new Recorder();
+        TCPRemoteCommitProvider sender = connect(CustomCodec.class.getName(),
+            "binary", recorder);
+        sender.broadcast(event(1));
+        for (int i = 0; i < 100 && warnings.isEmpty(); i++)
+            Thread.sleep(50);
+        assertTrue(recorder.batches.isEmpty());
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains(CustomCodec.class.getName()),
+            warnings.get(0));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the subclass and implementor registries of a preloaded repository,
+ * which are read without locking.
+ */
+public class MetaDataRepositoryRegistryTests {
+
+    private static final List<Class<?>> NUMBERS = Arrays.asList(Integer.class, Long.class,
+        Short.class, Byte.class, Double.class, Float.class, BigDecimal.class, BigInteger.class,
+        AtomicInteger.class, AtomicLong.class, LongAdder.class, DoubleAdder.class,
+        LongAccumulator.class, DoubleAccumulator.class);
+
+    private final ExecutorService _exec = Executors.newFixedThreadPool(NUMBERS.size());
+    private MetaDataRepository _repos;
+    private Method _add;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        _repos = new MetaDataRepository();
+        _repos.setMetaDataFactory(new NoneMetaDataFactory());
+        _repos.setPreload(true);
+        _repos.endConfiguration();
+        _add = MetaDataRepository.class.getDeclaredMethod("addToCollection", Map.class,
+            Class.class, Class.class, boolean.class);
+        _add.setAccessible(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        _exec.shutdownNow();
+    }
+
+    private Map<?, ?> registry(String name) throws Exception {
+        Field field = MetaDataRepository.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (Map<?, ?>) field.get(_repos);
+    }
+
+    private void add(String registry, Class<?> key, Class<?> value) throws Exception {
+        _add.invoke(_repos, registry(registry), key, value, "_subs".equals(registry));
+    }
+
+    @Test
+    public void testSubclassesCanBeIteratedWhileRegistered() throws Exception {
+        add("_subs", Number.class, Integer.class);
+        add("_subs", Number.class, Long.class);
+        Iterator<Class<?>> itr = _repos.getPCSubclasses(Number.class).iterator();
+        assertNotNull(itr.next());
+        add("_subs", Number.class, Short.class);
+        while (itr.hasNext())
+            itr.next();
+        assertEquals(3, _repos.getPCSubclasses(Number.class).size());
+    }
+
+    @Test
+    public void testImplementorsCanBeIteratedWhileRegistered() throws Exception {
+        add("_impls", Number.class, Integer.class);
+        add("_impls", Number.class, Long.class);
+        Iterator<?> itr = ((Collection<?>) registry("_impls").get(Number.class)).iterator();
+        assertNotNull(itr.next());
+        add("_impls", Number.class, Short.class);
+        while (itr.hasNext())
+            itr.next();
+        assertEquals(3, ((Collection<?>) registry("_impls").get(Number.class)).size());
+    }
+
+    @Test
+    public void testConcurrentRegistrationsAreNotLost() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            Class<?> key = (round % 2 == 0) ? Number.class : Comparable.class;
+            String registry = (round % 2 == 0) ? "_subs" : "_impls";
+            registry(registry).clear();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Class<?> cls : NUMBERS) {
+                futures.add(_exec.submit(() -> {
+                    start.await();
+                    add(registry, key, cls);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+            Collection<?> values = (Collection<?>) registry(registry).get(key);
+            assertEquals(NUMBERS.size(), values.size(), registry + " " + values);
+            assertTrue(values.containsAll(NUMBERS));
+        }
+    }
+
+    @Test
+    public void testSubclassesAreOrderedByInheritance() throws Exception {
+        add("_subs", Object.class, Integer.class);
+        add("_subs", Object.class, Number.class);
+        Iterator<Class<?>> itr = _repos.getPCSubclasses(Object.class).iterator();
+        assertEquals(Number.class, itr.next());
+        assertEquals(Integer.class, itr.next());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedCacheMapTests {
+
+    private final ExecutorService _exec = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        _exec.shutdownNow();
+    }
+
+    @Test
+    public void testStripesAreRoundedUpToPowerOfTwo() {
+        assertEquals(8, new StripedCacheMap(false, 100, 5).getStripes());
+        assertEquals(1, new StripedCacheMap(false, 100, 1).getStripes());
+    }
+
+    @Test
+    public void testMapOperationsSpanSegments() {
+        StripedCacheMap map = new StripedCacheMap(true, 1000, 8);
+        for (int i = 0; i < 500; i++)
+            assertNull(map.put(i, "v" + i));
+        assertEquals(500, map.size());
+        assertEquals(500, map.keySet().size());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(map.containsKey(i));
+            assertEquals("v" + i, map.get(i));
+        }
+        assertTrue(map.containsValue("v42"));
+
+        assertEquals("v7", map.put(7, "w7"));
+        assertEquals("w7", map.remove(7));
+        assertNull(map.get(7));
+        assertEquals(499, map.size());
+
+        Set<Object> keys = new HashSet<>(map.keySet());
+        assertEquals(499, keys.size());
+        assertFalse(keys.contains(7));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testCacheSizeIsSharedBetweenSegments() {
+        List<Object> evicted = new ArrayList<>();
+        StripedCacheMap map = new StripedCacheMap(true, 64, 4) {
+            @Override
+            protected void entryRemoved(Object key, Object value,
+                boolean expired) {
+                if (expired)
+                    synchronized (evicted) {
+                        evicted.add(key);
+                    }
+            }
+        };
+        map.setSoftReferenceSize(0);
+        assertEquals(64, map.getCacheSize());
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+
+        // each of the 4 segments holds at most 16 entries
+        assertTrue(map.size() <= 64, "size " + map.size());
+        assertEquals(1000, map.size() + evicted.size());
+    }
+
+    @Test
+    public void testPinnedEntriesAreNotEvicted() {
+        StripedCacheMap map = new StripedCacheMap(true, 8, 4);
+        map.setSoftReferenceSize(0);
+        map.put("pinned", "value");
+        assertTrue(map.pin("pinned"));
+        assertTrue(map.getPinnedKeys().contains("pinned"));
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+        assertEquals("value", map.get("pinned"));
+
+        assertTrue(map.unpin("pinned"));
+        assertFalse(map.getPinnedKeys().contains("pinned"));
+    }
+
+    @Test
+    public void testWriteLockExcludesMutationsButNotLookups()
+        throws Exception {
+        StripedCacheMap map = new StripedCacheMap(false, 100, 4);
+        map.put("a", "1");
+        map.writeLock();
+        Future<?> put;
+        try {
+            assertEquals("1", _exec.submit(() -> map.get("a")).
+                get(5, TimeUnit.SECONDS));
+            put = _exec.submit(() -> map.put("b", "2"));
+            Thread.sleep(100);
+            assertFalse(put.isDone());
+        } finally {
+            map.writeUnlock();
+        }
+        put.get(5, TimeUnit.SECONDS);
+        assertEquals("2", map.get("b"));
+    }
+
+    @Test
+    public void testReadLockIsShared() throws Exception {
+        StripedCacheMap map = new StripedCacheMap(false, 100, 4);
+        map.readLock();
+        try {
+            // another reader and a single-key mutation both get in
+            _exec.submit(() -> {
+                map.readLock();
+                map.readUnlock();
+            }).get(5, TimeUnit.SECONDS);
+            _exec.submit(() -> map.put("a", "1")).get(5, TimeUnit.SECONDS);
+        } finally {
+            map.readUnlock();
+        }
+        assertEquals("1", map.get("a"));
+    }
+
+    @Test
+    public void testConcurrentPutsOnDifferentKeys() throws Exception {
+        StripedCacheMap map = new StripedCacheMap(true, -1, 16);
+        int threads = 4;
+        int perThread = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger misses = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            futures.add(_exec.submit(() -> {
+                start.await();
+                for (int i = base; i < base + perThread; i++) {
+                    map.put(i, i);
+                    if (!Integer.valueOf(i).equals(map.get(i)))
+                        misses.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures)
+            f.get(30, TimeUnit.SECONDS);
+        assertEquals(0, misses.get());
+        assertEquals(threads * perThread, map.size());
+    }
+}
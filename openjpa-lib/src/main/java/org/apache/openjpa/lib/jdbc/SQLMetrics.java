@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.openjpa.lib.instrumentation.Histogram;
+
+/**
+ * Statistics of the SQL statements run through a
+ * {@link MetricsConnectionDecorator}. Statements are grouped by their
+ * shape: the SQL with literals replaced by parameter markers, parameter
+ * lists collapsed and white space normalized, so statements that differ only
+ * in their values share their statistics. For each shape a {@link Histogram}
+ * of the time in nanoseconds spent in each {@link Operation} is kept, along
+ * with a histogram of the rows read or updated per statement.
+ *  The number of shapes is bounded; statements of further shapes are
+ * counted under {@link #OTHER}.
+ *
+ * @since 4.1.2
+ */
+public class SQLMetrics {
+
+    /**
+     * The shape under which statements are counted once the maximum number
+     * of shapes is reached.
+     */
+    public static final String OTHER = "<other>";
+
+    /**
+     * The measured operations.
+     */
+    public enum Operation {
+        /**
+         * Preparing a statement.
+         */
+        PREPARE,
+        /**
+         * Executing a query or update.
+         */
+        EXECUTE,
+        /**
+         * Executing a batch.
+         */
+        EXECUTE_BATCH,
+        /**
+         * Reading a result set, from the execution of the query until the
+         * result set is closed.
+         */
+        FETCH
+    }
+
+    private static final Pattern IN_LIST =
+        Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    private final Map<String, Shape> _shapes = new ConcurrentHashMap<>();
+    private final Map<String, Shape> _bySQL = new ConcurrentHashMap<>();
+    private volatile int _maxShapes = 1000;
+
+    /**
+     * The maximum number of distinct shapes. Defaults to 1000.
+     */
+    public int getMaxShapes() {
+        return _maxShapes;
+    }
+
+    /**
+     * The maximum number of distinct shapes. Defaults to 1000.
+     */
+    public void setMaxShapes(int max) {
+        _maxShapes = max;
+    }
+
+    /**
+     * Return the statistics of the shape of the given SQL, creating them
+     * if needed.
+     */
+    public Shape getShape(String sql) {
+        if (sql == null)
+            sql = "";
+        Shape shape = _bySQL.get(sql);
+        if (shape != null)
+            return shape;
+
+        String key = normalize(sql);
+        shape = _shapes.get(key);
+        if (shape == null) {
+            if (_shapes.size() >= _maxShapes)
+                key = OTHER;
+            shape = _shapes.computeIfAbsent(key, Shape::new);
+        }
+        // remember the raw SQL to avoid normalizing it again; statements
+        // with inlined literals may produce many raw strings per shape
+        if (_bySQL.size() < 4 * _maxShapes)
+            _bySQL.put(sql, shape);
+        return shape;
+    }
+
+    /**
+     * Return the statistics of the given shape, or null.
+     */
+    public Shape get(String shape) {
+        return (shape == null) ? null : _shapes.get(shape);
+    }
+
+    /**
+     * The statistics of all shapes.
+     */
+    public Collection<Shape> getShapes() {
+        return Collections.unmodifiableCollection(_shapes.values());
+    }
+
+    /**
+     * Return up to the given number of shapes with the highest mean time of
+     * the given operation, slowest first.
+     */
+    public List<Shape> getSlowest(int n, Operation op) {
+        List<Shape> shapes = new ArrayList<>();
+        for (Shape shape : _shapes.values())
+            if (shape.getHistogram(op).getCount() > 0)
+                shapes.add(shape);
+        shapes.sort(Comparator.comparingDouble((Shape s) ->
+            s.getHistogram(op).getMean()).reversed());
+        return (shapes.size() > n) ? shapes.subList(0, n) : shapes;
+    }
+
+    /**
+     * Clear the statistics of all shapes.
+     */
+    public void reset() {
+        for (Shape shape : _shapes.values())
+            shape.reset();
+    }
+
+    /**
+     * Return the shape of the given SQL: string and numeric literals are
+     * replaced by <code>?</code>, lists of parameters such as those of an
+     * <code>IN</code> clause are collapsed to <code>(?...)</code> and runs of
+     * white space are replaced by a single space.
+     */
+    public static String normalize(String sql) {
+        StringBuilder buf = new StringBuilder(sql.length());
+        int len = sql.length();
+        boolean space = false;
+        for (int i = 0; i < len; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = buf.length() > 0;
+                continue;
+            }
+            if (space) {
+                buf.append(' ');
+                space = false;
+            }
+
+            if (c == '\'') {
+                // string literal, with '' as an escaped quote
+                for (i++; i < len; i++) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < len && sql.charAt(i + 1) == '\'')
+                            i++;
+                        else
+                            break;
+                    }
+                }
+                buf.append('?');
+            } else if (c == '"') {
+                // quoted identifier
+                int end = sql.indexOf('"', i + 1);
+                if (end == -1)
+                    end = len - 1;
+                buf.append(sql, i, end + 1);
+                i = end;
+            } else if (Character.isDigit(c) && !isIdentifierPart(buf)) {
+                while (i + 1 < len && (Character.isDigit(sql.charAt(i + 1))
+                    || sql.charAt(i + 1) == '.'))
+                    i++;
+                buf.append('?');
+            } else
+                buf.append(c);
+        }
+        return IN_LIST.matcher(buf).replaceAll("(?...)");
+    }
+
+    /**
+     * Whether the last character of the given buffer belongs to an
+     * identifier, in which case a following digit does too.
+     */
+    private static boolean isIdentifierPart(StringBuilder buf) {
+        if (buf.length() == 0)
+            return false;
+        char c = buf.charAt(buf.length() - 1);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$'
+            || c == '#';
+    }
+
+    /**
+     * The statistics of a single shape.
+     */
+    public static class Shape {
+
+        private final String _sql;
+        private final Histogram[] _times =
+            new Histogram[Operation.values().length];
+        private final Histogram _rows = new Histogram();
+
+        Shape(String sql) {
+            _sql = sql;
+            for (int i = 0; i < _times.length; i++)
+                _times[i] = new Histogram();
+        }
+
+        /**
+         * The normalized SQL.
+         */
+        public String getSQL() {
+            return _sql;
+        }
+
+        /**
+         * The histogram of the time in nanoseconds spent in the given
+         * operation.
+         */
+        public Histogram getHistogram(Operation op) {
+            return _times[op.ordinal()];
+        }
+
+        /**
+         * The histogram of the rows read or updated per statement.
+         */
+        public Histogram getRows() {
+            return _rows;
+        }
+
+        /**
+         * Record the time in nanoseconds spent in the given operation.
+         */
+        public void record(Operation op, long nanos) {
+            _times[op.ordinal()].record(nanos);
+        }
+
+        /**
+         * Record the number of rows read or updated by a statement.
+         */
+        public void recordRows(long rows) {
+            _rows.record(rows);
+        }
+
+        /**
+         * Clear the statistics of this shape.
+         */
+        public void reset() {
+            for (Histogram times : _times)
+                times.reset();
+            _rows.reset();
+        }
+
+        @Override
+        public String toString() {
+            return _sql;
+        }
+    }
+}
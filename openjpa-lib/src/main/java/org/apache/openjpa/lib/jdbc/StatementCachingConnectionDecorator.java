@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection decorator that keeps the prepared statements of each connection
+ * open for reuse. Closing a statement returns it to a bounded, least
+ * recently used cache kept by its connection, keyed by the SQL and the
+ * result set type, concurrency and holdability; preparing the same SQL again
+ * reuses the cached statement instead of preparing it anew. The statements
+ * are closed when they are evicted or when the connection is closed.
+ *  A cached statement is reset before it is reused: its parameters,
+ * warnings and batch are cleared, and limits such as the maximum rows, the
+ * fetch size and the query timeout are restored. Statements whose execution
+ * failed are not reused. Callable statements and statements that return
+ * generated keys by column are never cached.
+ *  The cache belongs to the decorated connection, which is the logical
+ * connection handed out by the data source. It is discarded whenever that
+ * connection is closed, even if a pool keeps the physical connection open,
+ * because statements of a pooled connection cannot safely outlive its
+ * checkout. The decorator therefore only pays off while connections are
+ * retained, for example with a ConnectionRetainMode of always or
+ * transaction; with the default of on-demand, most statements run on a
+ * fresh logical connection and miss. A pooling data source should use its
+ * own statement pool instead. The hit ratio over all connections shows how
+ * well the cache works for an application and is kept in
+ * {@link LongAdder}s; it is also reported by the StatementCache
+ * instrument.
+ *
+ * @since 4.1.2
+ */
+public class StatementCachingConnectionDecorator implements ConnectionDecorator {
+
+    private int _maxStatements = 50;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+
+    /**
+     * The maximum number of idle statements cached per connection.
+     * Defaults to 50. A non-positive value disables caching.
+     */
+    public int getMaxStatements() {
+        return _maxStatements;
+    }
+
+    /**
+     * The maximum number of idle statements cached per connection.
+     * Defaults to 50. A non-positive value disables caching.
+     */
+    public void setMaxStatements(int max) {
+        _maxStatements = max;
+    }
+
+    /**
+     * The number of statements taken from a cache.
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * The number of statements that had to be prepared.
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * The number of statements closed to keep a cache within its size.
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * The ratio of hits to all statement requests, or 0 if there were none.
+     */
+    public double getHitRatio() {
+        long hits = _hits.sum();
+        long total = hits + _misses.sum();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Reset the statistics.
+     */
+    public void resetStatistics() {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+    }
+
+    @Override
+    public Connection decorate(Connection conn) throws SQLException {
+        if (_maxStatements <= 0)
+            return conn;
+        return new CachingConnection(conn);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[max=" + _maxStatements
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    /**
+     * The properties a cached statement was prepared with.
+     */
+    private static class Key {
+        private final String _sql;
+        private final int _type;
+        private final int _concur;
+        private final int _hold;
+        private final int _keys;
+
+        Key(String sql, int type, int concur, int hold, int keys) {
+            _sql = sql;
+            _type = type;
+            _concur = concur;
+            _hold = hold;
+            _keys = keys;
+        }
+
+        @Override
+        public int hashCode() {
+            return _sql.hashCode() * 31 + _type + _concur + _hold + _keys;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return _type == key._type && _concur == key._concur
+                && _hold == key._hold && _keys == key._keys
+                && Objects.equals(_sql, key._sql);
+        }
+    }
+
+    /**
+     * A physical statement along with the settings to restore before it is
+     * reused. A setting of -1 has not been changed.
+     */
+    private static class Entry {
+        final Key key;
+        final PreparedStatement stmnt;
+        boolean reusable = true;
+        boolean batched = false;
+        ResultSet rs = null;
+        int maxRows = -1;
+        int fetchSize = -1;
+        int queryTimeout = -1;
+        int maxFieldSize = -1;
+        int fetchDirection = -1;
+
+        Entry(Key key, PreparedStatement stmnt) {
+            this.key = key;
+            this.stmnt = stmnt;
+        }
+
+        /**
+         * Reset the statement for reuse.
+         */
+        void reset() throws SQLException {
+            if (rs != null) {
+                rs.close();
+                rs = null;
+            }
+            stmnt.clearParameters();
+            stmnt.clearWarnings();
+            if (batched) {
+                stmnt.clearBatch();
+                batched = false;
+            }
+            if (maxRows != -1) {
+                stmnt.setMaxRows(maxRows);
+                maxRows = -1;
+            }
+            if (fetchSize != -1) {
+                stmnt.setFetchSize(fetchSize);
+                fetchSize = -1;
+            }
+            if (queryTimeout != -1) {
+                stmnt.setQueryTimeout(queryTimeout);
+                queryTimeout = -1;
+            }
+            if (maxFieldSize != -1) {
+                stmnt.setMaxFieldSize(maxFieldSize);
+                maxFieldSize = -1;
+            }
+            if (fetchDirection != -1) {
+                stmnt.setFetchDirection(fetchDirection);
+                fetchDirection = -1;
+            }
+        }
+    }
+
+    /**
+     * Connection that caches its prepared statements.
+     */
+    public class CachingConnection extends DelegatingConnection {
+
+        // idle statements in access order; at most one per key
+        private final Map<Key, Entry> _idle = new LinkedHashMap<>(16, .75F, true);
+        private boolean _closed = false;
+
+        public CachingConnection(Connection conn) {
+            super(conn);
+        }
+
+        /**
+         * The number of idle statements cached by this connection.
+         */
+        public int getCachedCount() {
+            synchronized (_idle) {
+                return _idle.size();
+            }
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql, boolean wrap)
+            throws SQLException {
+            return prepare(new Key(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY, -1, -1));
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql, int type,
+            int concur, boolean wrap) throws SQLException {
+            return prepare(new Key(sql, type, concur, -1, -1));
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql, int type,
+            int concur, int hold, boolean wrap) throws SQLException {
+            return prepare(new Key(sql, type, concur, hold, -1));
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql,
+            int autoGeneratedKeys, boolean wrap) throws SQLException {
+            return prepare(new Key(sql, -1, -1, -1, autoGeneratedKeys));
+        }
+
+        /**
+         * Return a cached statement for the given key, or prepare a new one.
+         */
+        private PreparedStatement prepare(Key key) throws SQLException {
+            Entry entry;
+            synchronized (_idle) {
+                entry = _idle.remove(key);
+            }
+            if (entry != null)
+                _hits.increment();
+            else {
+                _misses.increment();
+                entry = new Entry(key, prepareDelegate(key));
+            }
+            return new CachedPreparedStatement(entry, this);
+        }
+
+        private PreparedStatement prepareDelegate(Key key) throws SQLException {
+            Connection conn = getDelegate();
+            if (key._keys != -1)
+                return conn.prepareStatement(key._sql, key._keys);
+            if (key._hold != -1)
+                return conn.prepareStatement(key._sql, key._type, key._concur,
+                    key._hold);
+            return conn.prepareStatement(key._sql, key._type, key._concur);
+        }
+
+        /**
+         * Return the given statement to the cache, or close it if it cannot
+         * be reused.
+         */
+        void release(Entry entry) throws SQLException {
+            if (entry.reusable) {
+                try {
+                    entry.reset();
+                } catch (SQLException se) {
+                    entry.reusable = false;
+                }
+            }
+
+            List<Entry> close = new ArrayList<>();
+            synchronized (_idle) {
+                if (!entry.reusable || _closed || _idle.containsKey(entry.key))
+                    close.add(entry);
+                else {
+                    _idle.put(entry.key, entry);
+                    Iterator<Entry> itr = _idle.values().iterator();
+                    while (_idle.size() > _maxStatements && itr.hasNext()) {
+                        close.add(itr.next());
+                        itr.remove();
+                        _evictions.increment();
+                    }
+                }
+            }
+            closeAll(close);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            List<Entry> close;
+            synchronized (_idle) {
+                _closed = true;
+                close = new ArrayList<>(_idle.values());
+                _idle.clear();
+            }
+            try {
+                closeAll(close);
+            } finally {
+                super.close();
+            }
+        }
+
+        private void closeAll(List<Entry> entries) throws SQLException {
+            SQLException err = null;
+            for (Entry entry : entries) {
+                try {
+                    entry.stmnt.close();
+                } catch (SQLException se) {
+                    if (err == null)
+                        err = se;
+                }
+            }
+            if (err != null)
+                throw err;
+        }
+    }
+
+    /**
+     * Handle on a cached statement for a single use. Closing the handle
+     * returns the statement to its connection's cache.
+     */
+    private static class CachedPreparedStatement
+        extends DelegatingPreparedStatement {
+
+        private final Entry _entry;
+        private final CachingConnection _conn;
+        private boolean _closed = false;
+
+        CachedPreparedStatement(Entry entry, CachingConnection conn) {
+            super(entry.stmnt, conn);
+            _entry = entry;
+            _conn = conn;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (_closed)
+                return;
+            _closed = true;
+            _conn.release(_entry);
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return _closed || super.isClosed();
+        }
+
+        @Override
+        protected ResultSet executeQuery(boolean wrap) throws SQLException {
+            try {
+                ResultSet rs = super.executeQuery(wrap);
+                _entry.rs = rs;
+                return rs;
+            } catch (SQLException se) {
+                _entry.reusable = false;
+                throw se;
+            }
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            try {
+                return super.executeUpdate();
+            } catch (SQLException se) {
+                _entry.reusable = false;
+                throw se;
+            }
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            try {
+                return super.execute();
+            } catch (SQLException se) {
+                _entry.reusable = false;
+                throw se;
+            }
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+            _entry.batched = true;
+            super.addBatch();
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            try {
+                return super.executeBatch();
+            } catch (SQLException se) {
+                _entry.reusable = false;
+                throw se;
+            }
+        }
+
+        @Override
+        public void setMaxRows(int max) throws SQLException {
+            if (_entry.maxRows == -1)
+                _entry.maxRows = getMaxRows();
+            super.setMaxRows(max);
+        }
+
+        @Override
+        public void setFetchSize(int size) throws SQLException {
+            if (_entry.fetchSize == -1)
+                _entry.fetchSize = getFetchSize();
+            super.setFetchSize(size);
+        }
+
+        @Override
+        public void setQueryTimeout(int timeout) throws SQLException {
+            if (_entry.queryTimeout == -1)
+                _entry.queryTimeout = getQueryTimeout();
+            super.setQueryTimeout(timeout);
+        }
+
+        @Override
+        public void setMaxFieldSize(int max) throws SQLException {
+            if (_entry.maxFieldSize == -1)
+                _entry.maxFieldSize = getMaxFieldSize();
+            super.setMaxFieldSize(max);
+        }
+
+        @Override
+        public void setFetchDirection(int dir) throws SQLException {
+            if (_entry.fetchDirection == -1)
+                _entry.fetchDirection = getFetchDirection();
+            super.setFetchDirection(dir);
+        }
+
+        @Override
+        public void setPoolable(boolean poolable) throws SQLException {
+            if (!poolable)
+                _entry.reusable = false;
+            super.setPoolable(poolable);
+        }
+
+        @Override
+        public void closeOnCompletion() throws SQLException {
+            _entry.reusable = false;
+            super.closeOnCompletion();
+        }
+    }
+}
@@ -25,6 +25,9 @@ import java.util.Comparator;
  * A result object provider that merges multiple result object provider
  * delegates. Support exists for maintaining ordering of the internally held
  * results, provided that each of the individual results is itself ordered.
+ * Ordered results are merged by keeping the current head of each delegate in
+ * a binary heap, so that each result costs a logarithmic number of
+ * comparisons in the number of delegates.
  *
  * @author Abe White
  * @author Marc Prud'hommeaux
@@ -44,6 +47,12 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
     private Object _cur = null;
     private int _size = -1;
 
+    // indexes of the delegates holding a value, ordered as a binary heap
+    private final int[] _heap;
+    private int _heapSize = 0;
+    private int _last = -1;
+    private boolean _primed = false;
+
     /**
      * Constructor. Provide delegates.
      */
@@ -61,6 +70,7 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
         _status = new byte[rops.length];
         _values = (comp == null) ? null : new Object[rops.length];
         _orderValues = (comp == null) ? null : new Object[rops.length];
+        _heap = (comp == null) ? null : new int[rops.length];
     }
 
     @Override
@@ -138,6 +148,9 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     private void clear() {
         _cur = null;
+        _heapSize = 0;
+        _last = -1;
+        _primed = false;
         for (int i = 0; i < _rops.length; i++) {
             _status[i] = OPENED;
             if (_values != null)
@@ -156,67 +169,113 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     @Override
     public boolean next() throws Exception {
-        // initialize all rops with the latest values
-        boolean hasValue = false;
+        if (_comp != null)
+            return nextOrdered();
+
         for (int i = 0; i < _status.length; i++) {
             switch (_status[i]) {
                 case UNOPENED:
-                    // this will only ever be the case if we aren't ordering
                     _rops[i].open();
                     _status[i] = OPENED;
                     // no break
                 case OPENED:
-                    // if this rop has a value, cache it; if we're not ordering,
-                    // then that's the value to return
+                    // the first rop with a value is the one to return
                     if (_rops[i].next()) {
-                        if (_comp == null) {
-                            _cur = _rops[i].getResultObject();
-                            return true;
-                        } else {
-                            hasValue = true;
-                            _status[i] = VALUE;
-                            _values[i] = _rops[i].getResultObject();
-                            _orderValues[i] = getOrderingValue(_values[i],
-                                i, _rops[i]);
-                        }
-                    } else
-                        _status[i] = DONE;
-                    break;
-                case VALUE:
-                    // we only use this state when ordering
-                    hasValue = true;
+                        _cur = _rops[i].getResultObject();
+                        return true;
+                    }
+                    _status[i] = DONE;
                     break;
             }
         }
+        return false;
+    }
 
-        // if we get to this point without a comparator, it means none
-        // of our rops have any more values
-        if (_comp == null || !hasValue)
-            return false;
+    /**
+     * Return the least of the current values of all rops. Only the rop that
+     * produced the previous result has to be advanced; the heads of the other
+     * rops are kept in the heap.
+     */
+    private boolean nextOrdered() throws Exception {
+        if (!_primed) {
+            for (int i = 0; i < _status.length; i++)
+                if (_status[i] == OPENED)
+                    advance(i);
+            _primed = true;
+        } else if (_last != -1)
+            advance(_last);
+        _last = -1;
 
-        // for all the rops with values, find the 'least' one according to
-        // the comparator
-        int least = -1;
-        Object orderVal = null;
-        for (int i = 0; i < _orderValues.length; i++) {
-            if (_status[i] != VALUE)
-                continue;
-            if (least == -1 || _comp.compare(_orderValues[i], orderVal) < 0) {
-                least = i;
-                orderVal = _orderValues[i];
-            }
-        }
+        if (_heapSize == 0)
+            return false;
 
         // assign the least value to the current one, and clear the cached
         // value for that rop so that we know to get the next value for
         // the next comparison
+        int least = _heap[0];
+        _heap[0] = _heap[--_heapSize];
+        siftDown(0);
         _cur = _values[least];
         _values[least] = null;
         _orderValues[least] = null;
         _status[least] = OPENED;
+        _last = least;
         return true;
     }
 
+    /**
+     * Read the next value of the given rop into the heap.
+     */
+    private void advance(int idx) throws Exception {
+        if (!_rops[idx].next()) {
+            _status[idx] = DONE;
+            return;
+        }
+        _status[idx] = VALUE;
+        _values[idx] = _rops[idx].getResultObject();
+        _orderValues[idx] = getOrderingValue(_values[idx], idx, _rops[idx]);
+        _heap[_heapSize] = idx;
+        siftUp(_heapSize++);
+    }
+
+    /**
+     * Whether the head of rop <code>i</code> orders before the head of rop
+     * <code>j</code>. Ties go to the rop given first on construction.
+     */
+    private boolean less(int i, int j) {
+        int cmp = _comp.compare(_orderValues[i], _orderValues[j]);
+        return cmp < 0 || (cmp == 0 && i < j);
+    }
+
+    private void siftUp(int pos) {
+        int idx = _heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!less(idx, _heap[parent]))
+                break;
+            _heap[pos] = _heap[parent];
+            pos = parent;
+        }
+        _heap[pos] = idx;
+    }
+
+    private void siftDown(int pos) {
+        if (_heapSize == 0)
+            return;
+        int idx = _heap[pos];
+        int half = _heapSize >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < _heapSize && less(_heap[child + 1], _heap[child]))
+                child++;
+            if (!less(_heap[child], idx))
+                break;
+            _heap[pos] = _heap[child];
+            pos = child;
+        }
+        _heap[pos] = idx;
+    }
+
     @Override
     public Object getResultObject() throws Exception {
         return _cur;
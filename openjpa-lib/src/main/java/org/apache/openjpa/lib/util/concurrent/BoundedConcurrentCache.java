@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.util.concurrent;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A cache backed by a {@link java.util.concurrent.ConcurrentHashMap} that
+ * holds at most a given number of entries. Lookups never lock and do not
+ * write to any state shared between entries. Each entry records when it was
+ * last read and roughly how often. The clock that dates reads only advances
+ * on insertions, so entries read between two insertions count as equally
+ * recent. When an insertion takes the cache over its maximum size, a sample
+ * of {@link #SAMPLE_SIZE} entries is taken by a cursor that sweeps over the
+ * cache, and the least recently or least frequently used entry of the sample
+ * is evicted. Eviction is therefore exact for caches of up to that many
+ * entries and approximate, at a constant cost, for larger ones.
+ *  {@link #computeIfAbsent} loads a missing value at most once per key: while
+ * one thread loads it, other threads asking for the same key wait for the
+ * result instead of loading it again.
+ *  Hit, miss and eviction counts are kept in {@link LongAdder}s. Null keys
+ * and values are not cached; looking up or removing a null key finds nothing.
+ *
+ * @since 4.1.2
+ */
+public class BoundedConcurrentCache<K, V> {
+
+    /**
+     * Evict the entry that was read least recently.
+     */
+    public static final String LRU = "lru";
+
+    /**
+     * Evict the entry that was read least often, and among those the one
+     * read least recently.
+     */
+    public static final String LFU = "lfu";
+
+    /**
+     * The number of entries compared to choose each evicted entry.
+     */
+    public static final int SAMPLE_SIZE = 16;
+
+    private final Map<K, Node<V>> _map = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> _loading =
+        new ConcurrentHashMap<>();
+    private final AtomicLong _clock = new AtomicLong();
+    private final ReentrantLock _evictLock = new ReentrantLock();
+    // guarded by _evictLock
+    private Iterator<Map.Entry<K, Node<V>>> _cursor;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private volatile int _maxSize;
+    private volatile boolean _lfu = false;
+
+    /**
+     * Create a cache holding at most the given number of entries, evicting
+     * the least recently used entry.
+     *
+     * @param maxSize the maximum number of entries, or a non-positive value
+     * for no limit
+     */
+    public BoundedConcurrentCache(int maxSize) {
+        _maxSize = maxSize;
+    }
+
+    /**
+     * The maximum number of entries, or a non-positive value for no limit.
+     */
+    public int getMaxSize() {
+        return _maxSize;
+    }
+
+    /**
+     * The maximum number of entries, or a non-positive value for no limit.
+     * Lowering the size evicts entries right away.
+     */
+    public void setMaxSize(int size) {
+        _maxSize = size;
+        evict();
+    }
+
+    /**
+     * The eviction policy, either {@link #LRU} or {@link #LFU}.
+     */
+    public String getEvictionPolicy() {
+        return _lfu ? LFU : LRU;
+    }
+
+    /**
+     * The eviction policy, either {@link #LRU} or {@link #LFU}. Reads are
+     * only counted while the {@link #LFU} policy is in effect.
+     */
+    public void setEvictionPolicy(String policy) {
+        if (LFU.equalsIgnoreCase(policy))
+            _lfu = true;
+        else if (LRU.equalsIgnoreCase(policy))
+            _lfu = false;
+        else
+            throw new IllegalArgumentException(policy);
+    }
+
+    /**
+     * Return the value for the given key, or null. Counts as a hit or a
+     * miss and as a use of the entry for eviction.
+     */
+    public V get(K key) {
+        Node<V> node = (key == null) ? null : _map.get(key);
+        if (node == null) {
+            _misses.increment();
+            return null;
+        }
+        _hits.increment();
+        node.touch(_clock.get(), _lfu);
+        return node.value;
+    }
+
+    /**
+     * Return the value for the given key, or null, without affecting the
+     * statistics or the eviction order.
+     */
+    public V peek(K key) {
+        Node<V> node = (key == null) ? null : _map.get(key);
+        return (node == null) ? null : node.value;
+    }
+
+    /**
+     * Whether the given key is cached.
+     */
+    public boolean containsKey(K key) {
+        return key != null && _map.containsKey(key);
+    }
+
+    /**
+     * Cache the given value and return the value it replaced, if any.
+     */
+    public V put(K key, V value) {
+        Node<V> old = _map.put(key, new Node<>(value, _clock.incrementAndGet()));
+        if (old == null)
+            evict();
+        return (old == null) ? null : old.value;
+    }
+
+    /**
+     * Cache the given value unless the key is already cached, and return the
+     * cached value, if any.
+     */
+    public V putIfAbsent(K key, V value) {
+        Node<V> old = _map.putIfAbsent(key,
+            new Node<>(value, _clock.incrementAndGet()));
+        if (old == null)
+            evict();
+        return (old == null) ? null : old.value;
+    }
+
+    /**
+     * Return the value for the given key, loading and caching it with the
+     * given function if it is missing. If another thread is already loading
+     * the value, wait for its result instead. A null result is returned but
+     * not cached.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null)
+            return value;
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> loading = _loading.putIfAbsent(key, future);
+        if (loading != null)
+            return await(loading);
+        try {
+            // another thread may have finished loading in the meantime
+            value = peek(key);
+            if (value == null) {
+                value = loader.apply(key);
+                if (value != null)
+                    put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            _loading.remove(key, future);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw ce;
+        }
+    }
+
+    /**
+     * Remove the given key and return its value, if any.
+     */
+    public V remove(K key) {
+        Node<V> old = (key == null) ? null : _map.remove(key);
+        return (old == null) ? null : old.value;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        _map.clear();
+    }
+
+    /**
+     * The number of entries.
+     */
+    public int size() {
+        return _map.size();
+    }
+
+    /**
+     * An unmodifiable, weakly consistent view of the cached keys.
+     */
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(_map.keySet());
+    }
+
+    /**
+     * The number of lookups that found a value.
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * The number of lookups that found no value.
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * The number of entries evicted to keep the cache within its size.
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Reset the hit, miss and eviction counts.
+     */
+    public void resetStatistics() {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+    }
+
+    /**
+     * Evict entries until the cache is within its maximum size.
+     */
+    private void evict() {
+        int max = _maxSize;
+        if (max <= 0 || _map.size() <= max)
+            return;
+
+        _evictLock.lock();
+        try {
+            while (_map.size() > _maxSize && _maxSize > 0) {
+                Map.Entry<K, Node<V>> victim = null;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    Map.Entry<K, Node<V>> entry = nextSample();
+                    if (entry == null)
+                        break;
+                    if (victim == null || entry.getValue().before(victim.getValue(), _lfu))
+                        victim = entry;
+                }
+                if (victim == null)
+                    break;
+                if (_map.remove(victim.getKey(), victim.getValue())) {
+                    _evictions.increment();
+                    entryEvicted(victim.getKey(), victim.getValue().value);
+                }
+            }
+        } finally {
+            _evictLock.unlock();
+        }
+    }
+
+    /**
+     * Return the next entry of the sweep over the cache, starting a new sweep
+     * at the end of the previous one, or null if the cache is empty. The
+     * iterator is weakly consistent, so it tolerates concurrent changes.
+     */
+    private Map.Entry<K, Node<V>> nextSample() {
+        if (_cursor == null || !_cursor.hasNext())
+            _cursor = _map.entrySet().iterator();
+        return _cursor.hasNext() ? _cursor.next() : null;
+    }
+
+    /**
+     * Invoked when an entry is evicted to keep the cache within its size.
+     * Does nothing by default.
+     */
+    protected void entryEvicted(K key, V value) {
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size() + ", max="
+            + _maxSize + ", " + getEvictionPolicy() + "]";
+    }
+
+    /**
+     * A cached value and its use. The use counters are updated without
+     * synchronization, so under contention they are approximate.
+     */
+    private static class Node<V> {
+        final V value;
+        volatile long access;
+        volatile int frequency;
+
+        Node(V value, long access) {
+            this.value = value;
+            this.access = access;
+            // count the insertion as a use, so that a new entry is not
+            // always the least frequently used one
+            this.frequency = 1;
+        }
+
+        void touch(long now, boolean lfu) {
+            // skip redundant writes, which would invalidate the entry in the
+            // caches of other processors reading it
+            if (access != now)
+                access = now;
+            if (lfu && frequency < Integer.MAX_VALUE)
+                frequency++;
+        }
+
+        /**
+         * Whether this entry should be evicted before the given one.
+         */
+        boolean before(Node<?> other, boolean lfu) {
+            if (lfu && frequency != other.frequency)
+                return frequency < other.frequency;
+            return access < other.access;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.instrumentation;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link Histogram}.
+ */
+public class HistogramTests {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        // every value falls in a bucket whose upper bound is not below it
+        // and whose predecessor's upper bound is below it
+        long[] values = { 0, 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 100, 1000,
+            123456789L, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+        for (long value : values) {
+            int index = Histogram.indexOf(value);
+            assertTrue(Histogram.upperBound(index) >= value, "" + value);
+            if (index > 0)
+                assertTrue(Histogram.upperBound(index - 1) < value, "" + value);
+        }
+    }
+
+    @Test
+    public void testBucketsAreWithinAQuarter() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long value = 4 + (random.nextLong() >>> (1 + random.nextInt(40)));
+            long bound = Histogram.upperBound(Histogram.indexOf(value));
+            assertTrue(bound - value <= value / 4, value + " -> " + bound);
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        Histogram hist = new Histogram();
+        assertEquals(0, hist.getCount());
+        assertEquals(0, hist.getMean(), 0);
+        assertEquals(0, hist.getPercentile(99));
+
+        for (int i = 1; i <= 100; i++)
+            hist.record(i);
+        hist.record(-5);
+        assertEquals(101, hist.getCount());
+        assertEquals(5050, hist.getSum());
+        assertEquals(100, hist.getMax());
+        assertEquals(5050 / 101D, hist.getMean(), 0.0001);
+    }
+
+    @Test
+    public void testPercentileIsUpperBound() {
+        Histogram hist = new Histogram();
+        for (int i = 1; i <= 1000; i++)
+            hist.record(i);
+        long p50 = hist.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 5 / 4, "" + p50);
+        long p99 = hist.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "" + p99);
+        assertEquals(1000, hist.getPercentile(100));
+        assertEquals(1, hist.getPercentile(0));
+    }
+
+    @Test
+    public void testPercentileOfSingleOutlier() {
+        Histogram hist = new Histogram();
+        for (int i = 0; i < 99; i++)
+            hist.record(10);
+        hist.record(1000000);
+        assertTrue(hist.getPercentile(99) <= 12);
+        assertEquals(1000000, hist.getPercentile(100));
+    }
+
+    @Test
+    public void testReset() {
+        Histogram hist = new Histogram();
+        hist.record(10);
+        hist.reset();
+        assertEquals(0, hist.getCount());
+        assertEquals(0, hist.getSum());
+        assertEquals(0, hist.getMax());
+        assertEquals(0, hist.getPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() throws Exception {
+        Histogram hist = new Histogram();
+        int threads = 8;
+        int values = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                for (int i = 0; i < values; i++)
+                    hist.record(i + offset);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals((long) threads * values, hist.getCount());
+        assertEquals(values - 1 + threads - 1, hist.getMax());
+        long sum = 0;
+        for (int t = 0; t < threads; t++)
+            for (int i = 0; i < values; i++)
+                sum += i + t;
+        assertEquals(sum, hist.getSum());
+        assertEquals(values - 1 + threads - 1, hist.getPercentile(100));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.util.List;
+
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Operation;
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Shape;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SQLMetrics}.
+ */
+public class SQLMetricsTests {
+
+    @Test
+    public void testNormalizeReplacesLiterals() {
+        assertEquals("SELECT t0.ID FROM T t0 WHERE t0.NAME = ? AND t0.AGE > ?",
+            SQLMetrics.normalize("SELECT t0.ID FROM T t0 WHERE t0.NAME = 'x''y'"
+                + " AND t0.AGE > 12.5"));
+    }
+
+    @Test
+    public void testNormalizeKeepsIdentifiers() {
+        assertEquals("SELECT t0.COL1 FROM \"T 1\" t0",
+            SQLMetrics.normalize("SELECT  t0.COL1\n FROM \"T 1\" t0"));
+    }
+
+    @Test
+    public void testNormalizeCollapsesParameterLists() {
+        String shape = "SELECT * FROM T WHERE ID IN (?...)";
+        assertEquals(shape,
+            SQLMetrics.normalize("SELECT * FROM T WHERE ID IN (?, ?, ?)"));
+        assertEquals(shape,
+            SQLMetrics.normalize("SELECT * FROM T WHERE ID IN (1,2,3,4)"));
+        // a single parameter is not a list
+        assertEquals("SELECT * FROM T WHERE ID IN (?)",
+            SQLMetrics.normalize("SELECT * FROM T WHERE ID IN (?)"));
+    }
+
+    @Test
+    public void testStatementsOfOneShapeShareStatistics() {
+        SQLMetrics metrics = new SQLMetrics();
+        Shape a = metrics.getShape("SELECT * FROM T WHERE ID = 1");
+        Shape b = metrics.getShape("SELECT * FROM T WHERE ID = 2");
+        assertSame(a, b);
+        assertSame(a, metrics.get("SELECT * FROM T WHERE ID = ?"));
+        assertEquals(1, metrics.getShapes().size());
+    }
+
+    @Test
+    public void testShapesAreBounded() {
+        SQLMetrics metrics = new SQLMetrics();
+        metrics.setMaxShapes(2);
+        metrics.getShape("SELECT A FROM T");
+        metrics.getShape("SELECT B FROM T");
+        Shape other = metrics.getShape("SELECT C FROM T");
+        assertEquals(SQLMetrics.OTHER, other.getSQL());
+        assertSame(other, metrics.getShape("SELECT D FROM T"));
+        assertEquals(3, metrics.getShapes().size());
+    }
+
+    @Test
+    public void testSlowest() {
+        SQLMetrics metrics = new SQLMetrics();
+        metrics.getShape("A").record(Operation.EXECUTE, 10);
+        metrics.getShape("B").record(Operation.EXECUTE, 30);
+        metrics.getShape("C").record(Operation.EXECUTE, 20);
+        metrics.getShape("D").record(Operation.PREPARE, 100);
+
+        List<Shape> slowest = metrics.getSlowest(2, Operation.EXECUTE);
+        assertEquals(2, slowest.size());
+        assertEquals("B", slowest.get(0).getSQL());
+        assertEquals("C", slowest.get(1).getSQL());
+        assertEquals("D", metrics.getSlowest(5, Operation.PREPARE).get(0)
+            .getSQL());
+    }
+
+    @Test
+    public void testReset() {
+        SQLMetrics metrics = new SQLMetrics();
+        Shape shape = metrics.getShape("A");
+        shape.record(Operation.EXECUTE, 10);
+        shape.recordRows(5);
+        metrics.reset();
+        assertEquals(0, shape.getHistogram(Operation.EXECUTE).getCount());
+        assertEquals(0, shape.getRows().getCount());
+        assertSame(shape, metrics.get("A"));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link StatementCachingConnectionDecorator}.
+ */
+public class StatementCachingConnectionDecoratorTests {
+
+    private StatementCachingConnectionDecorator _decorator;
+    private List<String> _prepared;
+    private List<String> _closed;
+    private int _maxRows;
+
+    @BeforeEach
+    public void setUp() {
+        _decorator = new StatementCachingConnectionDecorator();
+        _prepared = new ArrayList<>();
+        _closed = new ArrayList<>();
+        _maxRows = 0;
+    }
+
+    /**
+     * Return a connection whose statements record their preparation and
+     * closing and fail to execute SQL containing "bad".
+     */
+    private Connection newConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ Connection.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        return newStatement((String) args[0]);
+                    case "isClosed":
+                    case "getAutoCommit":
+                        return false;
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private PreparedStatement newStatement(String sql) {
+        _prepared.add(sql);
+        boolean[] closed = { false };
+        return (PreparedStatement) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{ PreparedStatement.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        closed[0] = true;
+                        _closed.add(sql);
+                        return null;
+                    case "isClosed":
+                        return closed[0];
+                    case "executeUpdate":
+                        if (sql.contains("bad"))
+                            throw new SQLException("bad");
+                        return 1;
+                    case "getMaxRows":
+                        return _maxRows;
+                    case "setMaxRows":
+                        _maxRows = (Integer) args[0];
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private StatementCachingConnectionDecorator.CachingConnection decorate()
+        throws SQLException {
+        return (StatementCachingConnectionDecorator.CachingConnection)
+            _decorator.decorate(newConnection());
+    }
+
+    @Test
+    public void testClosedStatementIsReused() throws SQLException {
+        Connection conn = decorate();
+        for (int i = 0; i < 5; i++) {
+            PreparedStatement ps = conn.prepareStatement("SELECT 1");
+            ps.executeUpdate();
+            ps.close();
+        }
+        assertEquals(1, _prepared.size());
+        assertTrue(_closed.isEmpty());
+        assertEquals(4, _decorator.getHitCount());
+        assertEquals(1, _decorator.getMissCount());
+        assertEquals(0.8, _decorator.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testOpenStatementIsNotShared() throws SQLException {
+        Connection conn = decorate();
+        PreparedStatement ps1 = conn.prepareStatement("SELECT 1");
+        PreparedStatement ps2 = conn.prepareStatement("SELECT 1");
+        assertEquals(2, _prepared.size());
+        ps1.close();
+        ps2.close();
+        // only one idle statement is kept per key
+        assertEquals(1, _closed.size());
+        assertEquals(1, ((StatementCachingConnectionDecorator.CachingConnection)
+            conn).getCachedCount());
+    }
+
+    @Test
+    public void testResultSetTypeIsPartOfKey() throws SQLException {
+        Connection conn = decorate();
+        conn.prepareStatement("SELECT 1").close();
+        conn.prepareStatement("SELECT 1", java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE,
+            java.sql.ResultSet.CONCUR_READ_ONLY).close();
+        assertEquals(2, _prepared.size());
+        assertEquals(0, _decorator.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws SQLException {
+        _decorator.setMaxStatements(2);
+        Connection conn = decorate();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("B").close();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("C").close();
+        assertEquals(List.of("B"), _closed);
+        assertEquals(1, _decorator.getEvictionCount());
+        conn.prepareStatement("A").close();
+        assertEquals(3, _prepared.size());
+    }
+
+    @Test
+    public void testFailedStatementIsNotReused() throws SQLException {
+        Connection conn = decorate();
+        PreparedStatement ps = conn.prepareStatement("bad");
+        assertThrows(SQLException.class, ps::executeUpdate);
+        ps.close();
+        assertEquals(List.of("bad"), _closed);
+        conn.prepareStatement("bad").close();
+        assertEquals(2, _prepared.size());
+    }
+
+    @Test
+    public void testSettingsAreRestored() throws SQLException {
+        Connection conn = decorate();
+        PreparedStatement ps = conn.prepareStatement("SELECT 1");
+        ps.setMaxRows(10);
+        ps.close();
+        assertEquals(0, _maxRows);
+    }
+
+    @Test
+    public void testCloseOfConnectionClosesCachedStatements()
+        throws SQLException {
+        Connection conn = decorate();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("B").close();
+        PreparedStatement open = conn.prepareStatement("C");
+        conn.close();
+        assertEquals(2, _closed.size());
+        // a statement closed after its connection is not cached
+        open.close();
+        assertEquals(3, _closed.size());
+    }
+
+    @Test
+    public void testCacheIsScopedToLogicalConnection() throws SQLException {
+        // the same physical connection decorated twice, as a pool would
+        Connection physical = newConnection();
+        for (int i = 0; i < 3; i++) {
+            Connection conn = _decorator.decorate(physical);
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.close();
+        }
+        assertEquals(3, _prepared.size());
+        assertEquals(3, _decorator.getHitCount());
+        assertEquals(3, _decorator.getMissCount());
+    }
+
+    @Test
+    public void testDisabledCacheDoesNotDecorate() throws SQLException {
+        _decorator.setMaxStatements(0);
+        Connection conn = newConnection();
+        assertSame(conn, _decorator.decorate(conn));
+    }
+
+    @Test
+    public void testResetStatistics() throws SQLException {
+        Connection conn = decorate();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("A").close();
+        _decorator.resetStatistics();
+        assertEquals(0, _decorator.getHitCount());
+        assertEquals(0, _decorator.getMissCount());
+        assertEquals(0, _decorator.getHitRatio(), 0);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MergedResultObjectProvider}.
+ */
+public class MergedResultObjectProviderTests {
+
+    private static ResultObjectProvider rop(Object... values) {
+        return new ListResultObjectProvider(Arrays.asList(values));
+    }
+
+    private static List<Object> drain(ResultObjectProvider rop)
+        throws Exception {
+        List<Object> values = new ArrayList<>();
+        rop.open();
+        while (rop.next())
+            values.add(rop.getResultObject());
+        return values;
+    }
+
+    @Test
+    public void testUnorderedConcatenatesDelegates() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ rop(3, 1), rop(), rop(2) });
+        assertEquals(Arrays.asList(3, 1, 2), drain(merged));
+        assertEquals(3, merged.size());
+    }
+
+    @Test
+    public void testOrderedMergesSortedDelegates() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ rop(1, 4, 7), rop(), rop(2, 5, 8),
+                rop(0, 3, 6, 9) }, Comparator.naturalOrder());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+            drain(merged));
+    }
+
+    @Test
+    public void testOrderedTiesGoToEarlierDelegate() throws Exception {
+        // compare on the number only, so that equal keys keep their source
+        Comparator<Object> byNumber = Comparator.comparing(
+            o -> ((String) o).charAt(0));
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ rop("1a", "2a"), rop("1b", "2b"),
+                rop("1c") }, byNumber);
+        assertEquals(Arrays.asList("1a", "1b", "1c", "2a", "2b"),
+            drain(merged));
+    }
+
+    @Test
+    public void testOrderedMatchesSortForManyDelegates() throws Exception {
+        Random random = new Random(42);
+        ResultObjectProvider[] rops = new ResultObjectProvider[17];
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < rops.length; i++) {
+            List<Integer> values = new ArrayList<>();
+            int n = random.nextInt(50);
+            for (int j = 0; j < n; j++)
+                values.add(random.nextInt(100));
+            values.sort(null);
+            all.addAll(values);
+            rops[i] = new ListResultObjectProvider(values);
+        }
+        all.sort(null);
+        assertEquals(all, drain(new MergedResultObjectProvider(rops,
+            Comparator.naturalOrder())));
+    }
+
+    @Test
+    public void testOrderedAdvancesOnlyLastDelegate() throws Exception {
+        CountingResultObjectProvider a = new CountingResultObjectProvider(
+            rop(1, 2, 3));
+        CountingResultObjectProvider b = new CountingResultObjectProvider(
+            rop(10, 20, 30));
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ a, b }, Comparator.naturalOrder());
+        merged.open();
+        for (int i = 0; i < 3; i++)
+            assertTrue(merged.next());
+        // streaming: b is read only once for its head
+        assertEquals(3, a.nexts);
+        assertEquals(1, b.nexts);
+    }
+
+    @Test
+    public void testResetRestartsMerge() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ rop(1, 3), rop(2) },
+            Comparator.naturalOrder());
+        merged.open();
+        assertTrue(merged.next());
+        assertTrue(merged.next());
+        merged.reset();
+        List<Object> values = new ArrayList<>();
+        while (merged.next())
+            values.add(merged.getResultObject());
+        assertEquals(Arrays.asList(1, 2, 3), values);
+    }
+
+    @Test
+    public void testRangeOverMergedResult() throws Exception {
+        // each delegate supplies its first end rows; the start of the range
+        // is skipped once, over the merged result
+        ResultObjectProvider merged = new MergedResultObjectProvider(
+            new ResultObjectProvider[]{ rop(0, 2, 4, 6), rop(1, 3, 5, 7) },
+            Comparator.naturalOrder());
+        assertEquals(Arrays.asList(2, 3),
+            drain(new RangeResultObjectProvider(merged, 2, 4)));
+    }
+
+    /**
+     * Counts the calls to {@link #next}.
+     */
+    private static class CountingResultObjectProvider
+        implements ResultObjectProvider {
+
+        private final ResultObjectProvider _delegate;
+        int nexts;
+
+        CountingResultObjectProvider(ResultObjectProvider delegate) {
+            _delegate = delegate;
+        }
+
+        @Override
+        public boolean supportsRandomAccess() {
+            return false;
+        }
+
+        @Override
+        public void open() throws Exception {
+            _delegate.open();
+        }
+
+        @Override
+        public Object getResultObject() throws Exception {
+            return _delegate.getResultObject();
+        }
+
+        @Override
+        public boolean next() throws Exception {
+            nexts++;
+            return _delegate.next();
+        }
+
+        @Override
+        public boolean absolute(int pos) throws Exception {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() throws Exception {
+            return _delegate.size();
+        }
+
+        @Override
+        public void reset() throws Exception {
+            _delegate.reset();
+        }
+
+        @Override
+        public void close() throws Exception {
+            _delegate.close();
+        }
+
+        @Override
+        public void handleCheckedException(Exception e) {
+            _delegate.handleCheckedException(e);
+        }
+    }
+}
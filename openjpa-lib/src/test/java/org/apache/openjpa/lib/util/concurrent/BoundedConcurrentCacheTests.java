@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BoundedConcurrentCache}.
+ */
+public class BoundedConcurrentCacheTests {
+
+    @Test
+    public void testLruEvictsLeastRecentlyRead() {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        assertEquals(1, cache.get("a").intValue());
+        cache.put("d", 4);
+        assertEquals(3, cache.size());
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("a"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testPeekDoesNotCountAsUse() {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.peek("a").intValue());
+        cache.put("c", 3);
+        assertFalse(cache.containsKey("a"));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLfuEvictsLeastFrequentlyRead() {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(3);
+        cache.setEvictionPolicy("LFU");
+        assertEquals(BoundedConcurrentCache.LFU, cache.getEvictionPolicy());
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        for (int i = 0; i < 3; i++) {
+            cache.get("a");
+            cache.get("c");
+        }
+        // the new entry and b are used as often; b is older
+        cache.put("d", 4);
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("d"));
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.setEvictionPolicy("fifo"));
+    }
+
+    @Test
+    public void testLoweringMaxSizeEvicts() {
+        List<String> evicted = new ArrayList<>();
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<String, Integer>(0) {
+                @Override
+                protected void entryEvicted(String key, Integer value) {
+                    evicted.add(key);
+                }
+            };
+        for (int i = 0; i < 100; i++)
+            cache.put("k" + i, i);
+        assertEquals(100, cache.size());
+        cache.setMaxSize(10);
+        assertEquals(10, cache.size());
+        assertEquals(90, evicted.size());
+        assertEquals(90, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testSampledEvictionKeepsHotEntries() {
+        int max = 1000;
+        Random random = new Random(7);
+        String[] keys = new String[2 * max];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = "SELECT " + random.nextLong();
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(max);
+        for (int i = 0; i < max; i++)
+            cache.put(keys[i], i);
+        // keep reading the even entries while new entries push out others
+        for (int i = max; i < keys.length; i++) {
+            for (int j = 0; j < max; j += 2)
+                cache.get(keys[j]);
+            cache.put(keys[i], i);
+        }
+        int hot = 0;
+        for (int j = 0; j < max; j += 2)
+            if (cache.containsKey(keys[j]))
+                hot++;
+        assertEquals(max, cache.size());
+        assertTrue(hot >= max / 2 * 0.95, hot + " hot entries kept");
+    }
+
+    @Test
+    public void testStatisticsAndNullKeys() {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(10);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+        cache.get(null);
+        assertNull(cache.remove(null));
+        assertFalse(cache.containsKey(null));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertNull(cache.putIfAbsent("b", 2));
+        assertEquals(2, cache.putIfAbsent("b", 3).intValue());
+        assertEquals(2, cache.remove("b").intValue());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testComputeIfAbsentLoadsOnce() throws Exception {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.computeIfAbsent("k", k -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return 42;
+            })));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++)
+                results.add(pool.submit(() -> cache.computeIfAbsent("k",
+                    k -> loads.incrementAndGet())));
+            release.countDown();
+            for (Future<Integer> result : results)
+                assertEquals(42, result.get(10, TimeUnit.SECONDS).intValue());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertNull(cache.computeIfAbsent("n", k -> null));
+        assertFalse(cache.containsKey("n"));
+    }
+
+    @Test
+    public void testFailedLoadIsRetried() {
+        BoundedConcurrentCache<String, Integer> cache =
+            new BoundedConcurrentCache<>(10);
+        assertThrows(IllegalStateException.class,
+            () -> cache.computeIfAbsent("k", k -> {
+                throw new IllegalStateException();
+            }));
+        assertEquals(1, cache.computeIfAbsent("k", k -> 1).intValue());
+    }
+
+    @Test
+    public void testConcurrentUseStaysWithinBound() throws Exception {
+        BoundedConcurrentCache<Integer, Integer> cache =
+            new BoundedConcurrentCache<>(100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        int key = (i * 31 + seed) % 1000;
+                        if (cache.get(key) == null)
+                            cache.put(key, key);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(100, cache.size());
+        for (Integer key : cache.keySet())
+            assertEquals(key, cache.peek(key));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.openjpa.persistence;
 
 import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -178,6 +179,14 @@ public class HintHandler  {
         } else if (QueryHints.HINT_USE_LITERAL_IN_SQL.equals(key)) {
             Boolean convertedValue = (Boolean)Filters.convert(value, Boolean.class);
             plan.setHint(key, convertedValue);
+        } else if (QueryHints.HINT_STREAM_RELEASE.equals(key)) {
+            String release = String.valueOf(value).toLowerCase(Locale.ENGLISH);
+            if (!QueryHints.STREAM_RELEASE_NONE.equals(release)
+                && !QueryHints.STREAM_RELEASE_DETACH.equals(release)
+                && !QueryHints.STREAM_RELEASE_EVICT.equals(release)) {
+                throw new IllegalArgumentException(_loc.get("bad-query-hint-value", key, value).toString());
+            }
+            plan.setHint(key, release);
         } else { // default
             plan.setHint(key, value);
         }
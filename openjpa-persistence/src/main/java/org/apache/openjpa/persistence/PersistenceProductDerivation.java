@@ -148,6 +148,7 @@ public class PersistenceProductDerivation
         _hints.add(QueryHints.HINT_SUBCLASSES);
         _hints.add(QueryHints.HINT_RELAX_BIND_PARAM_TYPE_CHECK);
         _hints.add(QueryHints.HINT_USE_LITERAL_IN_SQL);
+        _hints.add(QueryHints.HINT_STREAM_RELEASE);
 
         _hints = Collections.unmodifiableSet(_hints);
     }
@@ -23,10 +23,16 @@ import static org.apache.openjpa.kernel.QueryLanguages.LANG_PREPARED_SQL;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import jakarta.persistence.FlushModeType;
 import jakarta.persistence.LockModeType;
@@ -37,6 +43,7 @@ import jakarta.persistence.TypedQuery;
 
 import org.apache.openjpa.conf.Compatibility;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.kernel.AutoDetach;
 import org.apache.openjpa.kernel.Broker;
 import org.apache.openjpa.kernel.DelegatingQuery;
 import org.apache.openjpa.kernel.DelegatingResultList;
@@ -71,6 +78,8 @@ import org.apache.openjpa.util.UserException;
 public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Localizer _loc = Localizer.forPackage(QueryImpl.class);
+    // rows fetched per round trip by a result stream without a fetch batch size
+    private static final int STREAM_FETCH_BATCH_SIZE = 1000;
 	private transient FetchPlan _fetch;
 
 	private String _id;
@@ -358,6 +367,66 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
 		}
 	}
 
+	/**
+	 * Execute the query and stream its results from the open database cursor
+	 * instead of reading them all into a list first. The rows are fetched in
+	 * batches of the fetch plan's fetch batch size, or of 1000 rows if the
+	 * fetch plan reads eagerly. The cursor is closed when the stream is
+	 * closed or exhausted.
+	 * <br>
+	 * The {@link QueryHints#HINT_STREAM_RELEASE} hint detaches or evicts each
+	 * streamed instance once the stream has moved past it, so that streaming
+	 * a large result runs in bounded memory.
+	 * <br>
+	 * Duplicates are only removed from the results of a distinct query by the
+	 * database, not in memory as by {@link #getResultList}, since that would
+	 * require holding every result streamed so far.
+	 * <br>
+	 * If non-transactional reads are detached and no transaction is active,
+	 * the results have to be read completely to be detached. The stream is
+	 * then backed by {@link #getResultList}, and a warning is logged.
+	 *
+	 * @since 4.1.2
+	 */
+	@Override
+	public Stream<X> getResultStream() {
+		_em.assertNotCloseInvoked();
+		Broker broker = _em.getBroker();
+		if ((broker.getAutoDetach() & AutoDetach.DETACH_NONTXREAD) != 0
+		    && !broker.isActive()) {
+		    Log log = _em.getConfiguration().getLog(OpenJPAConfiguration.LOG_QUERY);
+		    if (log.isWarnEnabled())
+		        log.warn(_loc.get("stream-nontx-detach", getQueryString()));
+		    return ((List<X>) getResultList()).stream();
+		}
+
+		FetchConfiguration fetch = _query.getFetchConfiguration();
+		int batchSize = fetch.getFetchBatchSize();
+		boolean queryFetchPlanUsed = pushQueryFetchPlan();
+		Object ob;
+		try {
+		    if (batchSize < 0)
+		        fetch.setFetchBatchSize(STREAM_FETCH_BATCH_SIZE);
+		    ob = execute();
+		} finally {
+		    if (batchSize < 0)
+		        fetch.setFetchBatchSize(batchSize);
+			popQueryFetchPlan(queryFetchPlanUsed);
+		}
+
+		if (!(ob instanceof List))
+		    return Stream.of((X) ob);
+		if (!(ob instanceof ResultList))
+		    return ((List<X>) ob).stream();
+
+		RuntimeExceptionTranslator trans = PersistenceExceptions.getRollbackTranslator(_em);
+		ResultStreamIterator itr = new ResultStreamIterator(
+		    new DelegatingResultList<>((ResultList<X>) ob, trans),
+		    (String) fetch.getHint(QueryHints.HINT_STREAM_RELEASE));
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(itr,
+		    Spliterator.ORDERED), false).onClose(itr::close);
+	}
+
 	private boolean pushQueryFetchPlan() {
 		boolean fcPushed = false;
 		if (_hintHandler != null) {
@@ -688,4 +757,70 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
         String result = _query.getQueryString();
         return result != null ? result : _id;
     }
+
+    /**
+     * Iterates a result list for a result stream. Closes the list once it is
+     * exhausted, and releases each instance from the persistence context once
+     * the next one is requested.
+     */
+    private class ResultStreamIterator implements Iterator<X> {
+        private final ResultList<X> _list;
+        private final Iterator<X> _itr;
+        private final String _release;
+        private X _last;
+        private boolean _closed;
+
+        ResultStreamIterator(ResultList<X> list, String release) {
+            _list = list;
+            _itr = list.iterator();
+            _release = (QueryHints.STREAM_RELEASE_NONE.equals(release)) ? null : release;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (_closed)
+                return false;
+            if (_itr.hasNext())
+                return true;
+            close();
+            return false;
+        }
+
+        @Override
+        public X next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            release(_last);
+            _last = _itr.next();
+            return _last;
+        }
+
+        void close() {
+            if (_closed)
+                return;
+            _closed = true;
+            try {
+                release(_last);
+            } finally {
+                _last = null;
+                _list.close();
+            }
+        }
+
+        private void release(Object result) {
+            if (_release == null || result == null || !_em.isOpen())
+                return;
+            if (result instanceof Object[]) {
+                for (Object o : (Object[]) result)
+                    release(o);
+                return;
+            }
+            if (!ImplHelper.isManageable(result) || !_em.getBroker().isPersistent(result))
+                return;
+            if (QueryHints.STREAM_RELEASE_DETACH.equals(_release))
+                _em.detach(result);
+            else
+                _em.evict(result);
+        }
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.datacache.AsyncDataCacheUpdater;
+import org.apache.openjpa.datacache.DataCacheManagerImpl;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests updating the data cache on background threads.
+ */
+public class AsyncDataCacheUpdateTests
+    extends PersistenceTestCase {
+
+    private AsyncDataCacheUpdater getUpdater() {
+        return ((DataCacheManagerImpl) emf.getConfiguration().
+            getDataCacheManagerInstance()).getAsyncUpdater();
+    }
+
+    private void update(long id, int quantity) {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.find(Item.class, id).setQuantity(quantity);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private int read(long id) {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.find(Item.class, id).getQuantity();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testSynchronousByDefault() {
+        createEMF(Item.class, "openjpa.DataCache", "true");
+        assertNull(getUpdater());
+    }
+
+    @Test
+    public void testReadsNeverSeeStaleData() {
+        createEMF(Item.class, "openjpa.DataCache", "true",
+            "openjpa.DataCacheManager", "default(AsyncUpdateThreads=2)");
+        assertEquals(2, getUpdater().getLaneCount());
+        persist(new Item(1, "a"));
+        for (int i = 1; i <= 50; i++) {
+            update(1, i);
+            assertEquals(i, read(1));
+        }
+    }
+
+    @Test
+    public void testUpdatesAreCachedOnceApplied() {
+        createEMF(Item.class, "openjpa.DataCache", "true",
+            "openjpa.DataCacheManager", "default(AsyncUpdateThreads=2)");
+        persist(new Item(1, "a"));
+        update(1, 7);
+        getUpdater().flush();
+
+        getRecorder().clear();
+        assertEquals(7, read(1));
+        assertEquals(0, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testConcurrentCommitsLeaveLatestVersionCached()
+        throws Exception {
+        createEMF(Item.class, "openjpa.DataCache", "true",
+            "openjpa.DataCacheManager",
+            "default(AsyncUpdateThreads=2, AsyncUpdateQueueSize=2)");
+        for (long id = 0; id < 8; id++)
+            persist(new Item(id, "i" + id));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long id = 0; id < 8; id++) {
+                long oid = id;
+                futures.add(pool.submit(() -> {
+                    for (int i = 1; i <= 20; i++)
+                        update(oid, i);
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+        getUpdater().flush();
+
+        getRecorder().clear();
+        for (long id = 0; id < 8; id++)
+            assertEquals(20, read(id));
+        assertEquals(0, getRecorder().count("SELECT"));
+    }
+}
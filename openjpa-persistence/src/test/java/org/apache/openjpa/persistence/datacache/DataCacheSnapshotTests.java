@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.persistence.CacheRetrieveMode;
+
+import org.apache.openjpa.datacache.DataCacheManagerImpl;
+import org.apache.openjpa.datacache.DataCacheSnapshot;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests reading the data cache snapshot back after a restart.
+ */
+public class DataCacheSnapshotTests
+    extends PersistenceTestCase {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static final String QUERY =
+        "SELECT i FROM Item i WHERE i.name = 'a' ORDER BY i.id";
+
+    @TempDir
+    File dir;
+
+    private String url;
+
+    /**
+     * Create a factory that writes its caches to the snapshot when closed
+     * and reads them back when created again.
+     */
+    private void start(boolean verify) {
+        if (url == null)
+            url = "jdbc:hsqldb:mem:snapshot" + DATABASES.incrementAndGet();
+        createEMF(Item.class, "openjpa.ConnectionURL", url,
+            "openjpa.DataCache", "true", "openjpa.QueryCache", "true",
+            "openjpa.DataCacheManager", "default(SnapshotFile="
+            + new File(dir, "snapshot").getPath()
+            + ",SnapshotQueries=true,VerifySnapshot=" + verify + ")");
+    }
+
+    /**
+     * Close the factory, writing the snapshot, and create it again.
+     */
+    private void restart(boolean verify) {
+        emf.close();
+        start(verify);
+        assertTrue(getSnapshot().getPendingCount() > 0);
+    }
+
+    private DataCacheSnapshot getSnapshot() {
+        return ((DataCacheManagerImpl) emf.getConfiguration().
+            getDataCacheManagerInstance()).getSnapshot();
+    }
+
+    private List<Item> query() {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.createQuery(QUERY, Item.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private Item find(long id) {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.find(Item.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    private void persistItems(int count) {
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++)
+            items[i] = new Item(i + 1, "a");
+        persist((Object[]) items);
+    }
+
+    /**
+     * Change the quantity of the given item in the database without
+     * notifying the caches.
+     */
+    private void updateBehindCache(long id, int quantity) {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.createNativeQuery("UPDATE Item SET quantity = ?, "
+            + "version = version + 1 WHERE id = ?").setParameter(1, quantity)
+            .setParameter(2, id).executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testQueryResultIsRestored() {
+        start(false);
+        persistItems(3);
+        assertEquals(3, query().size());
+        restart(false);
+
+        List<Item> items = query();
+        assertEquals(3, items.size());
+        assertEquals(4, getSnapshot().getRestoredCount());
+        assertEquals(0, getSnapshot().getPendingCount());
+    }
+
+    @Test
+    public void testQueryResultOfChangedTypeIsNotRestored() {
+        start(false);
+        persistItems(3);
+        assertEquals(3, query().size());
+        restart(false);
+
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.find(Item.class, 1L).setName("b");
+        em.getTransaction().commit();
+        em.close();
+
+        List<Item> items = query();
+        assertEquals(2, items.size());
+        assertEquals(2L, items.get(0).getId());
+    }
+
+    @Test
+    public void testQueryResultOfChangedTypeIsNotWrittenAgain() {
+        start(false);
+        persistItems(2);
+        assertEquals(2, query().size());
+        restart(false);
+
+        persist(new Item(3, "a"));
+        restart(false);
+        assertEquals(3, query().size());
+    }
+
+    @Test
+    public void testQueryResultIsNotRestoredWhenVerifying() {
+        start(true);
+        assertFalse(getSnapshot().getQueries());
+        persistItems(3);
+        assertEquals(3, query().size());
+        // a row the query now selects, added while no node was running
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.createNativeQuery("INSERT INTO Item (id, name, quantity, version) "
+            + "VALUES (4, 'a', 0, 1)").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+        restart(true);
+
+        getRecorder().clear();
+        assertEquals(4, query().size());
+        assertEquals(1, getRecorder().count("SELECT"));
+        assertEquals(0, getSnapshot().getRestoredCount());
+    }
+
+    @Test
+    public void testFindAllVerifiesInOneSelect() {
+        start(true);
+        persistItems(10);
+        List<Object> ids = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            find(id);
+            ids.add(id);
+        }
+        restart(true);
+
+        getRecorder().clear();
+        OpenJPAEntityManagerSPI em = createEM();
+        assertEquals(10, em.findAll(Item.class, ids).size());
+        em.close();
+        assertEquals(1, getRecorder().count("SELECT"));
+        assertEquals(10, getSnapshot().getRestoredCount());
+    }
+
+    @Test
+    public void testStaleInstanceIsReloaded() {
+        start(true);
+        persistItems(3);
+        for (long id = 1; id <= 3; id++)
+            find(id);
+        updateBehindCache(2, 99);
+        restart(true);
+
+        assertEquals(99, find(2).getQuantity());
+        assertEquals(1, getSnapshot().getStaleCount());
+        assertEquals(0, find(1).getQuantity());
+    }
+
+    @Test
+    public void testDeletedRowIsNotRestored() {
+        start(true);
+        persistItems(2);
+        List<Object> ids = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            find(id);
+            ids.add(id);
+        }
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.createNativeQuery("DELETE FROM Item WHERE id = 2").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+        restart(true);
+
+        em = createEM();
+        assertEquals(1, em.findAll(Item.class, ids).stream().
+            filter(item -> item != null).count());
+        em.close();
+        assertEquals(0, getSnapshot().getPendingCount());
+    }
+
+    @Test
+    public void testUnverifiedInstanceUpdatedHereIsNotRestored() {
+        start(false);
+        persistItems(1);
+        find(1);
+        restart(false);
+
+        // load the instance from the database, leaving the snapshot as is
+        OpenJPAEntityManagerSPI em = createEM();
+        em.setProperty("jakarta.persistence.cache.retrieveMode",
+            CacheRetrieveMode.BYPASS);
+        em.getTransaction().begin();
+        em.find(Item.class, 1L).setQuantity(5);
+        em.getTransaction().commit();
+        em.close();
+        assertEquals(0, getSnapshot().getPendingCount());
+
+        emf.getCache().evictAll();
+        assertEquals(5, find(1).getQuantity());
+    }
+
+    @Test
+    public void testUnverifiedInstanceDeletedHereIsNotRestored() {
+        start(false);
+        persistItems(1);
+        find(1);
+        restart(false);
+
+        OpenJPAEntityManagerSPI em = createEM();
+        em.setProperty("jakarta.persistence.cache.retrieveMode",
+            CacheRetrieveMode.BYPASS);
+        em.getTransaction().begin();
+        em.remove(em.find(Item.class, 1L));
+        em.getTransaction().commit();
+        em.close();
+
+        emf.getCache().evictAll();
+        assertNull(find(1));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.util.List;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests query cache results that hold the state of their instances.
+ */
+public class MaterializedQueryCacheTests
+    extends PersistenceTestCase {
+
+    private static final String QUERY =
+        "SELECT i FROM Item i WHERE i.name = 'a' ORDER BY i.id";
+
+    private void setUp() {
+        createEMF(Item.class, "openjpa.DataCache", "true",
+            "openjpa.QueryCache", "true(Materialize=true)");
+        persist(new Item(1, "a"), new Item(2, "a"), new Item(3, "b"));
+    }
+
+    private List<Item> query() {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.createQuery(QUERY, Item.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private List<Object[]> queryProjection() {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.createQuery("SELECT i, i.name FROM Item i "
+                + "WHERE i.name = 'a' ORDER BY i.id", Object[].class)
+                .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Change the quantity of the given item in the database without
+     * notifying the caches.
+     */
+    private void updateBehindCache(long id, int quantity) {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.createNativeQuery("UPDATE Item SET quantity = ? WHERE id = ?")
+            .setParameter(1, quantity).setParameter(2, id).executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testHitLoadsInstancesWithoutSelects() {
+        setUp();
+        assertEquals(2, query().size());
+
+        getRecorder().clear();
+        List<Item> items = query();
+        assertEquals(2, items.size());
+        assertEquals("a", items.get(0).getName());
+        assertEquals(0, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testInstanceEvictedFromDataCacheIsReloaded() {
+        setUp();
+        query();
+        updateBehindCache(1, 99);
+        emf.getCache().evict(Item.class, 1L);
+
+        getRecorder().clear();
+        List<Item> items = query();
+        assertEquals(99, items.get(0).getQuantity());
+        assertEquals(0, items.get(1).getQuantity());
+        assertEquals(1, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testInstancesEvictedFromDataCacheAreReloaded() {
+        setUp();
+        query();
+        updateBehindCache(1, 98);
+        updateBehindCache(2, 99);
+        emf.getCache().evictAll();
+
+        List<Item> items = query();
+        assertEquals(98, items.get(0).getQuantity());
+        assertEquals(99, items.get(1).getQuantity());
+    }
+
+    @Test
+    public void testProjectedInstanceEvictedFromDataCacheIsReloaded() {
+        setUp();
+        assertEquals(2, queryProjection().size());
+        updateBehindCache(2, 99);
+        emf.getCache().evict(Item.class, 2L);
+
+        List<Object[]> rows = queryProjection();
+        assertEquals(2, rows.size());
+        assertEquals(0, ((Item) rows.get(0)[0]).getQuantity());
+        assertEquals(99, ((Item) rows.get(1)[0]).getQuantity());
+    }
+
+    @Test
+    public void testCommittedChangeIsSeen() {
+        setUp();
+        query();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.find(Item.class, 2L).setQuantity(7);
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(7, query().get(1).getQuantity());
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.datacache.DataCachePCData;
+import org.apache.openjpa.datacache.DataCachePCDataImpl;
+import org.apache.openjpa.datacache.OffHeapDataCache;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.apache.openjpa.util.LongId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the off-heap data cache. The cache has two slabs of one megabyte
+ * and most tests cache records of about 300 KB, three to a slab.
+ */
+public class OffHeapDataCacheTests
+    extends PersistenceTestCase {
+
+    private static final int LARGE = 300 * 1024;
+
+    private OffHeapDataCache cache;
+    private ClassMetaData meta;
+
+    private void setUp() {
+        createEMF(Item.class,
+            "openjpa.DataCache", "offheap(MemorySize=2, SlabSize=1)");
+        cache = (OffHeapDataCache) emf.getConfiguration()
+            .getDataCacheManagerInstance().getSystemDataCache();
+        meta = emf.getConfiguration().getMetaDataRepositoryInstance()
+            .getMetaData(Item.class, null, true);
+    }
+
+    private static Object oid(long id) {
+        return new LongId(Item.class, id);
+    }
+
+    private DataCachePCData newData(long id, int size) {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(oid(id), meta,
+            cache.getName());
+        char[] name = new char[size];
+        Arrays.fill(name, (char) ('a' + id % 26));
+        data.setData(meta.getField("name").getIndex(), new String(name));
+        data.setData(meta.getField("quantity").getIndex(), (int) id);
+        return data;
+    }
+
+    private void put(long... ids) {
+        for (long id : ids)
+            cache.put(newData(id, LARGE));
+    }
+
+    private void assertCached(boolean cached, long... ids) {
+        for (long id : ids)
+            assertEquals(cached, cache.contains(oid(id)), "item " + id);
+    }
+
+    private int quantity(long id) {
+        DataCachePCData data = cache.get(oid(id));
+        return (Integer) data.getData(meta.getField("quantity").getIndex());
+    }
+
+    @Test
+    public void testGetReturnsCopyOfCachedData() {
+        setUp();
+        put(1);
+        assertEquals(1, quantity(1));
+        assertNotSame(cache.get(oid(1)), cache.get(oid(1)));
+        assertNull(cache.get(oid(2)));
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testEntityIsServedFromCache() {
+        setUp();
+        persist(new Item(1, "a"));
+        assertTrue(emf.getCache().contains(Item.class, 1L));
+
+        getRecorder().clear();
+        OpenJPAEntityManagerSPI em = createEM();
+        assertEquals("a", em.find(Item.class, 1L).getName());
+        em.close();
+        assertEquals(0, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testFullSlabsEvictOldestSlab() {
+        setUp();
+        put(1, 2, 3, 4, 5, 6);
+        assertEquals(0, cache.getEvictionCount());
+
+        put(7);
+        assertCached(false, 1, 2, 3);
+        assertCached(true, 4, 5, 6, 7);
+        assertEquals(3, cache.getEvictionCount());
+        assertEquals(2 * 1024 * 1024, cache.getAllocatedMemory());
+    }
+
+    @Test
+    public void testEvictionSkipsReplacedAndRemovedData() {
+        setUp();
+        put(1, 2);
+        // appends item 1 again, so that the first slab holds it twice
+        put(1);
+        cache.remove(oid(2));
+        put(3, 4, 5);
+
+        put(6);
+        assertCached(false, 1, 2);
+        assertCached(true, 3, 4, 5, 6);
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testPinnedDataIsCarriedOver() {
+        setUp();
+        put(1, 2, 3, 4, 5, 6);
+        cache.pin(oid(2));
+
+        put(7);
+        assertCached(false, 1, 3);
+        assertCached(true, 2, 4, 5, 6, 7);
+        assertEquals(2, quantity(2));
+        assertEquals(7, quantity(7));
+        assertEquals(1, cache.getMoveCount());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testDataIsRejectedWhenPinnedDataFillsEverySlab() {
+        setUp();
+        put(1, 2, 3, 4, 5, 6);
+        for (long id = 1; id <= 6; id++)
+            cache.pin(oid(id));
+
+        put(7);
+        assertCached(false, 7);
+        assertCached(true, 1, 2, 3, 4, 5, 6);
+        for (long id = 1; id <= 6; id++)
+            assertEquals(id, quantity(id));
+
+        // once unpinned, the data can be evicted again
+        cache.unpin(oid(1));
+        cache.unpin(oid(2));
+        cache.unpin(oid(3));
+        cache.unpin(oid(4));
+        put(7);
+        assertCached(true, 7);
+        assertEquals(7, quantity(7));
+    }
+
+    @Test
+    public void testSmallDataFitsBesidePinnedData() {
+        setUp();
+        put(1, 2, 3, 4, 5, 6);
+        for (long id = 1; id <= 6; id++)
+            cache.pin(oid(id));
+
+        cache.put(newData(7, 1024));
+        assertCached(true, 7);
+        assertEquals(7, quantity(7));
+    }
+
+    @Test
+    public void testClearReleasesAllSlabs() {
+        setUp();
+        put(1, 2, 3, 4);
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+
+        put(5, 6, 7, 8, 9, 10);
+        assertCached(true, 5, 6, 7, 8, 9, 10);
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testClosedCacheReturnsNothing() throws Exception {
+        setUp();
+        put(1, 2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20000 && !cache.isClosed(); i++)
+                        cache.get(oid(1 + i % 2));
+                }));
+            }
+            cache.close();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertNull(cache.get(oid(1)));
+        assertNull(cache.remove(oid(2)));
+        assertFalse(cache.contains(oid(1)));
+    }
+
+    @Test
+    public void testConcurrentReadersSeeConsistentData() throws Exception {
+        setUp();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        long id = (i * 7 + thread) % 200;
+                        if (i % 4 == 0)
+                            cache.put(newData(id, 8 * 1024));
+                        DataCachePCData data = cache.get(oid(id));
+                        if (data != null)
+                            assertEquals((int) id, (int) (Integer) data.getData(
+                                meta.getField("quantity").getIndex()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
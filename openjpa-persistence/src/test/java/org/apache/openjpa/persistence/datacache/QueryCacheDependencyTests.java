@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.util.List;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the dependency evict policy of the query cache.
+ */
+public class QueryCacheDependencyTests
+    extends PersistenceTestCase {
+
+    private static final String QUERY =
+        "SELECT i FROM Item i WHERE i.name = :name";
+
+    private void setUp(String queryCache) {
+        createEMF(Item.class, "openjpa.DataCache", "true",
+            "openjpa.QueryCache", queryCache);
+        persist(new Item(1, "a"), new Item(2, "b"), new Item(3, "a"));
+    }
+
+    private List<Item> query(String name) {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            return em.createQuery(QUERY, Item.class)
+                .setParameter("name", name).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private void update(long id, int quantity) {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.find(Item.class, id).setQuantity(quantity);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    /**
+     * Run the query and return the number of selects it issued.
+     */
+    private int selects(String name, int size) {
+        getRecorder().clear();
+        assertEquals(size, query(name).size());
+        return getRecorder().count("SELECT");
+    }
+
+    @Test
+    public void testChangeToOtherInstanceKeepsResult() {
+        setUp("true(EvictPolicy=dependency)");
+        assertEquals(1, selects("a", 2));
+        assertEquals(0, selects("a", 2));
+
+        update(2, 5);
+        assertEquals(0, selects("a", 2));
+    }
+
+    @Test
+    public void testChangeToMemberEvictsResult() {
+        setUp("true(EvictPolicy=dependency)");
+        selects("a", 2);
+        selects("b", 1);
+
+        update(3, 5);
+        assertEquals(1, selects("a", 2));
+        assertEquals(0, selects("b", 1));
+    }
+
+    @Test
+    public void testNewMatchingInstanceEvictsResult() {
+        setUp("true(EvictPolicy=dependency)");
+        selects("a", 2);
+        selects("b", 1);
+
+        persist(new Item(4, "a"));
+        assertEquals(1, selects("a", 3));
+        assertEquals(0, selects("b", 1));
+    }
+
+    @Test
+    public void testRenamedInstanceEvictsBothResults() {
+        setUp("true(EvictPolicy=dependency)");
+        selects("a", 2);
+        selects("b", 1);
+
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.find(Item.class, 2L).setName("a");
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(1, selects("a", 3));
+        assertEquals(1, selects("b", 0));
+    }
+
+    @Test
+    public void testDefaultPolicyEvictsOnAnyChange() {
+        setUp("true");
+        selects("a", 2);
+
+        update(2, 5);
+        assertEquals(1, selects("a", 2));
+    }
+
+    @Test
+    public void testEvictedResultIsNotKeptOnRecache() {
+        setUp("true(EvictPolicy=dependency, CacheSize=1, "
+            + "SoftReferenceSize=0)");
+        selects("a", 2);
+        // pushes the first result out of the bounded cache
+        selects("b", 1);
+        assertEquals(1, selects("a", 2));
+        assertEquals(1, selects("b", 1));
+
+        update(3, 5);
+        assertEquals(1, selects("a", 2));
+    }
+
+    @Test
+    public void testStripedCache() {
+        setUp("true(EvictPolicy=dependency, Stripes=4)");
+        selects("a", 2);
+        selects("b", 1);
+
+        update(2, 5);
+        assertEquals(0, selects("a", 2));
+        assertEquals(1, selects("b", 1));
+    }
+
+    @Test
+    public void testClearedResultsAreRecached() {
+        setUp("true(EvictPolicy=dependency)");
+        selects("a", 2);
+        emf.getConfiguration().getDataCacheManagerInstance()
+            .getSystemQueryCache().clear();
+
+        assertEquals(1, selects("a", 2));
+        update(2, 5);
+        assertEquals(0, selects("a", 2));
+        update(1, 5);
+        assertEquals(1, selects("a", 2));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.SQLRecorder;
+import org.apache.openjpa.persistence.test.entities.Hub;
+import org.apache.openjpa.persistence.test.entities.Spoke;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests running the separate selects of the parallel eager fetch mode at
+ * the same time on pooled connections.
+ */
+public class EagerFetchThreadsTests extends PersistenceTestCase {
+
+    private static final String POOL_THREAD = "OpenJPA Eager Fetch-";
+
+    /**
+     * Records the thread, connection and fetch size of each select.
+     */
+    public static class SelectLog extends AbstractJDBCListener {
+
+        final List<Select> selects = new ArrayList<>();
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() == null
+                || !event.getSQL().startsWith("SELECT"))
+                return;
+            int fetchSize;
+            try {
+                fetchSize = event.getStatement().getFetchSize();
+            } catch (SQLException se) {
+                fetchSize = -1;
+            }
+            synchronized (selects) {
+                selects.add(new Select(event.getSQL(), Thread.currentThread().
+                    getName(), event.getConnection(), fetchSize));
+            }
+        }
+
+        List<Select> getSelects() {
+            synchronized (selects) {
+                return new ArrayList<>(selects);
+            }
+        }
+    }
+
+    static class Select {
+        final String sql;
+        final String thread;
+        final Connection conn;
+        final int fetchSize;
+
+        Select(String sql, String thread, Connection conn, int fetchSize) {
+            this.sql = sql;
+            this.thread = thread;
+            this.conn = conn;
+            this.fetchSize = fetchSize;
+        }
+
+        boolean isPooled() {
+            return thread.startsWith(POOL_THREAD);
+        }
+    }
+
+    private void start(int threads, Object... props) {
+        Object[] args = new Object[props.length + 12];
+        args[0] = Hub.class;
+        args[1] = Spoke.class;
+        args[2] = "openjpa.jdbc.EagerFetchMode";
+        args[3] = "parallel";
+        args[4] = "openjpa.jdbc.EagerFetchThreads";
+        args[5] = String.valueOf(threads);
+        args[6] = "openjpa.ConnectionRetainMode";
+        args[7] = "always";
+        args[8] = "openjpa.jdbc.JDBCListeners";
+        args[9] = SQLRecorder.class.getName() + "," + SelectLog.class.
+            getName();
+        args[10] = "openjpa.ConnectionFactoryProperties";
+        args[11] = "MaxTotal=20, MaxIdle=10";
+        System.arraycopy(props, 0, args, 12, props.length);
+        createEMF(args);
+
+        Hub hub = new Hub(1);
+        hub.getTags().add("a");
+        hub.getTags().add("b");
+        hub.getCodes().add(1);
+        hub.getSpokes().add(new Spoke(10, hub));
+        hub.getSpokes().add(new Spoke(11, hub));
+        persist(hub);
+        getLog().selects.clear();
+    }
+
+    private SelectLog getLog() {
+        for (JDBCListener listener : ((JDBCConfiguration) emf.
+            getConfiguration()).getJDBCListenerInstances())
+            if (listener instanceof SelectLog)
+                return (SelectLog) listener;
+        throw new IllegalStateException("no SelectLog");
+    }
+
+    /**
+     * Query the hub in a new context and check its collections.
+     */
+    private List<Select> findHub() {
+        OpenJPAEntityManagerSPI em = createEM();
+        try {
+            List<Hub> hubs = em.createQuery("SELECT h FROM Hub h",
+                Hub.class).setMaxResults(10).getResultList();
+            assertEquals(1, hubs.size());
+            Hub hub = hubs.get(0);
+            assertEquals(2, hub.getTags().size());
+            assertEquals(1, hub.getCodes().size());
+            assertEquals(2, hub.getSpokes().size());
+        } finally {
+            em.close();
+        }
+        List<Select> selects = getLog().getSelects();
+        assertEquals(4, selects.size());
+        assertFalse(selects.get(0).isPooled());
+        return selects;
+    }
+
+    @Test
+    public void testEagerSelectsRunOnPoolThreads() {
+        start(3);
+        List<Select> selects = findHub();
+        for (Select select : selects.subList(1, selects.size())) {
+            assertTrue(select.isPooled(), select.thread);
+            assertNotSame(selects.get(0).conn, select.conn);
+        }
+    }
+
+    @Test
+    public void testFetchBatchSizeAppliesToEagerSelects() {
+        // within the range of the query, so that its result is not large
+        start(3, "openjpa.FetchBatchSize", "20");
+        List<Select> selects = findHub();
+        for (Select select : selects.subList(1, selects.size())) {
+            assertTrue(select.isPooled(), select.thread);
+            assertEquals(20, select.fetchSize, select.sql);
+        }
+    }
+
+    @Test
+    public void testRejectedSelectsRunOnContextConnection() {
+        start(1);
+        // keep the only pool thread busy while the other selects are
+        // submitted
+        getRecorder().setDelay(100);
+        List<Select> selects = findHub();
+        int pooled = 0;
+        for (Select select : selects.subList(1, selects.size())) {
+            if (select.isPooled())
+                pooled++;
+            else
+                assertSame(selects.get(0).conn, select.conn, select.sql);
+        }
+        assertEquals(1, pooled);
+    }
+
+    @Test
+    public void testSelectsRunOnContextConnectionAfterShutdown() {
+        start(3);
+        ((ExecutorService) ((JDBCConfiguration) emf.getConfiguration()).
+            getEagerFetchExecutorInstance()).shutdown();
+
+        List<Select> selects = assertTimeoutPreemptively(
+            Duration.ofSeconds(30), this::findHub);
+        for (Select select : selects) {
+            assertFalse(select.isPooled(), select.thread);
+            assertSame(selects.get(0).conn, select.conn, select.sql);
+        }
+    }
+}
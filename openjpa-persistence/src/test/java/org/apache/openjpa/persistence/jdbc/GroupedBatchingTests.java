@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.kernel.BatchingConstraintUpdateManager;
+import org.apache.openjpa.lib.graph.Graph;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.SQLRecorder;
+import org.apache.openjpa.persistence.test.entities.Hub;
+import org.apache.openjpa.persistence.test.entities.OrderLine;
+import org.apache.openjpa.persistence.test.entities.PurchaseOrder;
+import org.apache.openjpa.persistence.test.entities.Spoke;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the statement executions needed to flush orders with their lines,
+ * with the rows of the foreign key graph grouped by table and operation and
+ * in plain topological order. The plain order sorts rows by their depth in
+ * the graph, so a single parent and child table already come out grouped;
+ * tables that share a depth are interleaved in hash order.
+ */
+public class GroupedBatchingTests extends PersistenceTestCase {
+
+    private static final int ORDERS = 20;
+    private static final int LINES = 3;
+
+    /**
+     * Update manager that flushes the rows of the foreign key graph in the
+     * plain topological order, as before rows were grouped.
+     */
+    public static class UngroupedUpdateManager
+        extends BatchingConstraintUpdateManager {
+
+        @Override
+        protected Collection orderNodes(Graph graph, List nodes) {
+            return nodes;
+        }
+    }
+
+    private void createEMF(Class<?> updateManager) {
+        createEMF(PurchaseOrder.class, OrderLine.class, Hub.class, Spoke.class,
+            "openjpa.jdbc.DBDictionary", "hsql(BatchLimit=100)",
+            "openjpa.jdbc.MappingDefaults",
+            "ForeignKeyDeleteAction=restrict,JoinForeignKeyDeleteAction=restrict",
+            "openjpa.jdbc.UpdateManager", updateManager.getName());
+    }
+
+    private static PurchaseOrder newOrder(long id) {
+        PurchaseOrder order = new PurchaseOrder(id, "customer" + id);
+        for (int i = 0; i < LINES; i++)
+            order.addLine(id * 100 + i, i + 1);
+        return order;
+    }
+
+    private static Hub newHub(long id) {
+        Hub hub = new Hub(id);
+        for (int i = 0; i < LINES; i++)
+            hub.getSpokes().add(new Spoke(id * 100 + i, hub));
+        return hub;
+    }
+
+    /**
+     * Persist the orders, and hubs with their spokes if requested, in a
+     * single transaction and return the number of recorded INSERT
+     * executions, each batch counting once.
+     */
+    private int persist(boolean hubs) {
+        SQLRecorder recorder = getRecorder();
+        recorder.clear();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        for (int i = 1; i <= ORDERS; i++) {
+            em.persist(newOrder(i));
+            if (hubs)
+                em.persist(newHub(i));
+        }
+        em.getTransaction().commit();
+        em.close();
+        return recorder.count("INSERT");
+    }
+
+    private void assertPersisted() {
+        OpenJPAEntityManagerSPI em = createEM();
+        assertEquals((long) ORDERS * LINES, em.createQuery(
+            "select count(l) from OrderLine l where l.order is not null").
+            getSingleResult());
+        for (long i = 1; i <= ORDERS; i++)
+            assertEquals(LINES, em.find(PurchaseOrder.class, i).getLines().
+                size());
+        em.close();
+    }
+
+    @Test
+    public void testOrdersAndLinesFlushInTwoBatches() {
+        createEMF(BatchingConstraintUpdateManager.class);
+        assertEquals(2, persist(false), getRecorder().getSQL().toString());
+        assertPersisted();
+    }
+
+    @Test
+    public void testUngroupedOrdersAndLinesAreLayered() {
+        // orders and lines sit at different depths of the graph
+        createEMF(UngroupedUpdateManager.class);
+        assertEquals(2, persist(false));
+        assertPersisted();
+    }
+
+    @Test
+    public void testTablesOfOneDepthAreGrouped() {
+        createEMF(BatchingConstraintUpdateManager.class);
+        // one batch each for orders, hubs, lines and spokes
+        assertEquals(4, persist(true), getRecorder().getSQL().toString());
+        assertPersisted();
+    }
+
+    @Test
+    public void testUngroupedTablesOfOneDepthAlternate() {
+        createEMF(UngroupedUpdateManager.class);
+        // orders and hubs, and then lines and spokes, come in hash order;
+        // each switch between them ends a batch
+        int executions = persist(true);
+        assertTrue(executions > 4, "" + executions);
+        assertPersisted();
+    }
+
+    @Test
+    public void testDeletesAreGroupedInDependencyOrder() {
+        createEMF(BatchingConstraintUpdateManager.class);
+        persist(false);
+
+        SQLRecorder recorder = getRecorder();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        for (long i = 1; i <= ORDERS; i++)
+            em.remove(em.find(PurchaseOrder.class, i));
+        recorder.clear();
+        em.getTransaction().commit();
+        em.close();
+
+        // lines go first, then their orders
+        List<String> deletes = recorder.getSQL();
+        assertEquals(2, recorder.count("DELETE"), deletes.toString());
+        assertTrue(deletes.get(0).contains("OrderLine")
+            || deletes.get(0).contains("ORDERLINE"), deletes.toString());
+        em = createEM();
+        assertEquals(0L, em.createQuery("select count(l) from OrderLine l").
+            getSingleResult());
+        em.close();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.SQLRecorder;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.apache.openjpa.persistence.test.entities.Note;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that batched inserts are combined into multi-row inserts when the
+ * dictionary's MultiRowInsertLimit is set.
+ */
+public class MultiRowInsertTests extends PersistenceTestCase {
+
+    private static final int ITEMS = 25;
+
+    private void createEMF(String dict) {
+        createEMF(Item.class, Note.class, "openjpa.jdbc.DBDictionary", dict);
+    }
+
+    /**
+     * Persist the items in one transaction and return the recorded inserts.
+     */
+    private List<String> persistItems() {
+        SQLRecorder recorder = getRecorder();
+        recorder.clear();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        for (int i = 0; i < ITEMS; i++)
+            em.persist(new Item(i, "item" + i));
+        em.getTransaction().commit();
+        em.close();
+        return recorder.getSQL();
+    }
+
+    /**
+     * Return the number of rows the given insert writes.
+     */
+    private static int rows(String sql) {
+        return sql.split("\\), \\(").length;
+    }
+
+    private void assertItemsPersisted() {
+        OpenJPAEntityManagerSPI em = createEM();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = em.find(Item.class, (long) i);
+            assertNotNull(item, "item " + i);
+            assertEquals("item" + i, item.getName());
+            assertEquals(1, item.getVersion());
+        }
+        em.close();
+    }
+
+    @Test
+    public void testInsertsAreCombined() {
+        createEMF("hsql(BatchLimit=100,MultiRowInsertLimit=10)");
+        List<String> inserts = persistItems();
+        assertEquals(3, inserts.size(), inserts.toString());
+        assertEquals(10, rows(inserts.get(0)));
+        assertEquals(10, rows(inserts.get(1)));
+        assertEquals(5, rows(inserts.get(2)));
+        assertItemsPersisted();
+    }
+
+    @Test
+    public void testInsertsStayWithinParameterCount() {
+        // each item row takes 4 parameters
+        createEMF("hsql(BatchLimit=100,MultiRowInsertLimit=10,"
+            + "MaxParameterCount=9)");
+        List<String> inserts = persistItems();
+        assertEquals(13, inserts.size(), inserts.toString());
+        assertEquals(2, rows(inserts.get(0)));
+        assertEquals(1, rows(inserts.get(12)));
+        assertItemsPersisted();
+    }
+
+    @Test
+    public void testInsertsAreBatchedByDefault() {
+        createEMF("hsql(BatchLimit=100)");
+        List<String> inserts = persistItems();
+        // a single batch of single-row inserts
+        assertEquals(1, inserts.size(), inserts.toString());
+        assertEquals(1, rows(inserts.get(0)));
+        assertItemsPersisted();
+    }
+
+    @Test
+    public void testAutoAssignedKeysAreNotCombined() {
+        createEMF("hsql(BatchLimit=100,MultiRowInsertLimit=10)");
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        Note[] notes = new Note[5];
+        for (int i = 0; i < notes.length; i++) {
+            notes[i] = new Note("note" + i);
+            em.persist(notes[i]);
+        }
+        em.getTransaction().commit();
+        em.close();
+
+        // every instance got the key the database assigned to its own row
+        Set<Long> ids = new HashSet<>();
+        em = createEM();
+        for (Note note : notes) {
+            assertTrue(ids.add(note.getId()));
+            assertEquals(note.getText(), em.find(Note.class, note.getId()).
+                getText());
+        }
+        em.close();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.openjpa.lib.jdbc.MetricsConnectionDecorator;
+import org.apache.openjpa.lib.jdbc.SQLMetrics;
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Operation;
+import org.apache.openjpa.lib.jdbc.SQLMetrics.Shape;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SQL metrics recorded by the {@link MetricsConnectionDecorator}
+ * and reported by the SQL instrument.
+ */
+public class SQLMetricsInstrumentTests extends PersistenceTestCase {
+
+    private static final int ITEMS = 5;
+
+    @BeforeEach
+    public void setUp() {
+        createEMF(Item.class,
+            "openjpa.jdbc.ConnectionDecorators",
+            MetricsConnectionDecorator.class.getName(),
+            "openjpa.Instrumentation", "jmx(Instrument='SQL')");
+        for (int i = 0; i < ITEMS; i++)
+            persist(new Item(i, "item" + i));
+        getMetrics().reset();
+    }
+
+    private SQLMetrics getMetrics() {
+        for (Object dec : (Object[]) emf.getConfiguration().
+            getValue("jdbc.ConnectionDecorators").get())
+            if (dec instanceof MetricsConnectionDecorator)
+                return ((MetricsConnectionDecorator) dec).getMetrics();
+        throw new IllegalStateException("no metrics");
+    }
+
+    private Shape getShape(String prefix) {
+        for (Shape shape : getMetrics().getShapes())
+            if (shape.getSQL().startsWith(prefix)
+                && shape.getHistogram(Operation.EXECUTE).getCount() > 0)
+                return shape;
+        fail("no executed shape starting with " + prefix + " in "
+            + getMetrics().getShapes());
+        return null;
+    }
+
+    private ObjectName getObjectName(MBeanServer server) throws Exception {
+        Set<ObjectName> names = server.queryNames(new ObjectName(
+            "org.apache.openjpa:type=SQL,cfgid="
+            + emf.getConfiguration().getId() + ",*"), null);
+        assertEquals(1, names.size());
+        return names.iterator().next();
+    }
+
+    @Test
+    public void testQueriesOfOneShapeShareStatistics() {
+        OpenJPAEntityManagerSPI em = createEM();
+        for (int i = 0; i < ITEMS; i++)
+            em.createNativeQuery("SELECT NAME FROM ITEM WHERE ID = " + i).
+                getResultList();
+        em.close();
+
+        Shape shape = getShape("SELECT NAME FROM ITEM WHERE ID = ?");
+        assertEquals(ITEMS, shape.getHistogram(Operation.EXECUTE).getCount());
+        assertEquals(ITEMS, shape.getHistogram(Operation.FETCH).getCount());
+        assertEquals(1, shape.getRows().getMax());
+    }
+
+    @Test
+    public void testRowsAreCounted() {
+        OpenJPAEntityManagerSPI em = createEM();
+        assertEquals(ITEMS, em.createQuery("select i from Item i", Item.class).
+            getResultList().size());
+        em.getTransaction().begin();
+        em.createQuery("update Item i set i.quantity = 3").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(ITEMS, getShape("SELECT").getRows().getMax());
+        assertEquals(ITEMS, getShape("UPDATE").getRows().getMax());
+    }
+
+    @Test
+    public void testInstrumentReportsMetrics() throws Exception {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.createQuery("select i from Item i", Item.class).getResultList();
+        em.close();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = getObjectName(server);
+        assertEquals(1L, server.getAttribute(name, "ExecutionCount"));
+
+        String shape = getShape("SELECT").getSQL();
+        assertEquals(1L, server.invoke(name, "getExecutionCount",
+            new Object[]{ shape }, new String[]{ String.class.getName() }));
+        double mean = (Double) server.invoke(name, "getAverageTime",
+            new Object[]{ shape, "execute" },
+            new String[]{ String.class.getName(), String.class.getName() });
+        assertTrue(mean > 0);
+
+        String[] slowest = (String[]) server.invoke(name, "getSlowest",
+            new Object[]{ 1 }, new String[]{ int.class.getName() });
+        assertEquals(1, slowest.length);
+        assertTrue(slowest[0].endsWith(shape), slowest[0]);
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "ExecutionCount"));
+    }
+
+    @Test
+    public void testUnknownShapeHasNoStatistics() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = getObjectName(server);
+        assertEquals(-1L, server.invoke(name, "getExecutionCount",
+            new Object[]{ "SELECT nothing" },
+            new String[]{ String.class.getName() }));
+    }
+}
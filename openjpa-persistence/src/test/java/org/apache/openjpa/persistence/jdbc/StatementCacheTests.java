@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.openjpa.lib.jdbc.StatementCachingConnectionDecorator;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the hit ratio of the {@link StatementCachingConnectionDecorator}
+ * under the connection retain modes and reads it through JMX.
+ */
+public class StatementCacheTests extends PersistenceTestCase {
+
+    private static final int QUERIES = 20;
+
+    private void createEMF(String retainMode) {
+        createEMF(Item.class,
+            "openjpa.jdbc.ConnectionDecorators",
+            StatementCachingConnectionDecorator.class.getName(),
+            "openjpa.ConnectionRetainMode", retainMode,
+            "openjpa.Instrumentation", "jmx(Instrument='StatementCache')");
+        persist(new Item(1, "item"));
+    }
+
+    private StatementCachingConnectionDecorator getDecorator() {
+        for (Object dec : (Object[]) emf.getConfiguration().
+            getValue("jdbc.ConnectionDecorators").get())
+            if (dec instanceof StatementCachingConnectionDecorator)
+                return (StatementCachingConnectionDecorator) dec;
+        throw new IllegalStateException("no statement cache");
+    }
+
+    /**
+     * Run the same query the given number of times outside a transaction.
+     */
+    private void query(OpenJPAEntityManagerSPI em) {
+        for (int i = 0; i < QUERIES; i++)
+            assertEquals(1, em.createQuery(
+                "select i from Item i where i.name = :name", Item.class).
+                setParameter("name", "item").getResultList().size());
+    }
+
+    @Test
+    public void testRetainedConnectionHitsCache() {
+        createEMF("always");
+        StatementCachingConnectionDecorator cache = getDecorator();
+        OpenJPAEntityManagerSPI em = createEM();
+        query(em);
+        cache.resetStatistics();
+        query(em);
+        em.close();
+
+        assertEquals(QUERIES, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(1.0, cache.getHitRatio(), 0);
+    }
+
+    @Test
+    public void testOnDemandConnectionMissesCache() {
+        createEMF("on-demand");
+        StatementCachingConnectionDecorator cache = getDecorator();
+        OpenJPAEntityManagerSPI em = createEM();
+        query(em);
+        cache.resetStatistics();
+        query(em);
+        em.close();
+
+        // every query runs on a fresh logical connection
+        assertEquals(0, cache.getHitCount());
+        assertEquals(QUERIES, cache.getMissCount());
+        assertEquals(0, cache.getHitRatio(), 0);
+    }
+
+    @Test
+    public void testTransactionRetainsConnection() {
+        createEMF("transaction");
+        StatementCachingConnectionDecorator cache = getDecorator();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        query(em);
+        em.getTransaction().commit();
+        em.close();
+
+        // only the first query of the transaction prepares its statement
+        assertEquals(QUERIES - 1, cache.getHitCount(), cache.toString());
+        assertTrue(cache.getHitRatio() > 0.8, cache.toString());
+    }
+
+    @Test
+    public void testHitRatioIsReportedThroughJMX() throws Exception {
+        createEMF("always");
+        OpenJPAEntityManagerSPI em = createEM();
+        query(em);
+        em.close();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(new ObjectName(
+            "org.apache.openjpa:type=StatementCache,cfgid="
+            + emf.getConfiguration().getId() + ",*"), null);
+        assertEquals(1, names.size());
+        ObjectName name = names.iterator().next();
+
+        StatementCachingConnectionDecorator cache = getDecorator();
+        assertEquals(cache.getHitCount(), server.getAttribute(name, "HitCount"));
+        assertEquals(cache.getMissCount(), server.getAttribute(name, "MissCount"));
+        assertEquals(cache.getHitRatio(), (Double) server.getAttribute(name,
+            "HitRatio"), 0);
+        assertTrue(cache.getHitCount() > 0);
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "HitCount"));
+    }
+}
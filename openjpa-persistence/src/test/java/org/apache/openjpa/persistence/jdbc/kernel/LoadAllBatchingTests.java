@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the primary key IN-list initialization of hollow instances in
+ * JDBCStoreManager.loadAll, controlled by DBDictionary.LoadBatchLimit.
+ */
+public class LoadAllBatchingTests extends PersistenceTestCase {
+
+    private static final int COUNT = 25;
+
+    private Object[] populate(Object... props) {
+        createEMF(props);
+        Object[] ids = new Object[COUNT];
+        Item[] items = new Item[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            ids[i] = (long) i + 1;
+            items[i] = new Item(i + 1, "item" + (i + 1));
+        }
+        persist((Object[]) items);
+        getRecorder().clear();
+        return ids;
+    }
+
+    private void assertFound(Object[] ids, Object[] found) {
+        assertEquals(ids.length, found.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertNotNull(found[i], "missing " + ids[i]);
+            assertEquals("item" + ids[i], ((Item) found[i]).getName());
+        }
+    }
+
+    @Test
+    public void testDefaultLoadsOneAtATime() {
+        Object[] ids = populate(Item.class);
+        OpenJPAEntityManagerSPI em = createEM();
+        assertFound(ids, em.findAll(Item.class, ids));
+        em.close();
+        assertEquals(COUNT, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testFindAllUsesInListSelects() {
+        Object[] ids = populate(Item.class,
+            "openjpa.jdbc.DBDictionary", "hsql(LoadBatchLimit=10)");
+        OpenJPAEntityManagerSPI em = createEM();
+        assertFound(ids, em.findAll(Item.class, ids));
+        em.close();
+
+        // 25 ids in chunks of 10
+        assertEquals(3, getRecorder().count("SELECT"));
+        for (String sql : getRecorder().getSQL())
+            assertTrue(sql.contains(" IN ("), sql);
+    }
+
+    @Test
+    public void testBatchIsCappedByInClauseLimit() {
+        Object[] ids = populate(Item.class, "openjpa.jdbc.DBDictionary",
+            "hsql(LoadBatchLimit=10, InClauseLimit=5)");
+        OpenJPAEntityManagerSPI em = createEM();
+        assertFound(ids, em.findAll(Item.class, ids));
+        em.close();
+        assertEquals(5, getRecorder().count("SELECT"));
+    }
+
+    @Test
+    public void testMissingInstancesAreNotReturned() {
+        Object[] ids = populate(Item.class,
+            "openjpa.jdbc.DBDictionary", "hsql(LoadBatchLimit=10)");
+        Object[] query = { ids[0], 1000L, ids[1], 1001L };
+        OpenJPAEntityManagerSPI em = createEM();
+        Object[] found = em.findAll(Item.class, query);
+        assertEquals("item1", ((Item) found[0]).getName());
+        assertNull(found[1]);
+        assertEquals("item2", ((Item) found[2]).getName());
+        assertNull(found[3]);
+        em.close();
+        assertEquals(1, getRecorder().count("SELECT"));
+    }
+}
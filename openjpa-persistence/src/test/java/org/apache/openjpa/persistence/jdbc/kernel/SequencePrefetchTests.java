@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.Seq;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests prefetching blocks of table and native sequence values.
+ */
+public class SequencePrefetchTests
+    extends PersistenceTestCase {
+
+    private static final String PREFETCH_THREAD = "OpenJPA Sequence Prefetch";
+
+    private static final String SEQ_TABLE =
+        "CREATE TABLE PREFETCH_SEQ (ID TINYINT NOT NULL PRIMARY KEY, SEQUENCE_VALUE BIGINT)";
+
+    private Seq _seq;
+    private ClassMetaData _meta;
+
+    /**
+     * Create the factory under test with the given system sequence. Values
+     * are taken for the Item class, as when persisting new instances.
+     */
+    private void open(String sequence, String... sql) {
+        createEMF(Item.class, "openjpa.Sequence", sequence);
+        if (sql.length > 0) {
+            OpenJPAEntityManagerSPI em = createEM();
+            em.getTransaction().begin();
+            for (String stmnt : sql)
+                em.createNativeQuery(stmnt).executeUpdate();
+            em.getTransaction().commit();
+            em.close();
+        }
+        _seq = emf.getConfiguration().getSequenceInstance();
+        _meta = emf.getConfiguration().getMetaDataRepositoryInstance().getMetaData(Item.class, null, true);
+        getRecorder().clear();
+    }
+
+    private long next(Broker broker) {
+        return ((Number) _seq.next(broker, _meta)).longValue();
+    }
+
+    /**
+     * Wait for a statement executed by the prefetch thread to be recorded.
+     */
+    private boolean awaitPrefetch()
+        throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            for (String thread : getRecorder().getThreads())
+                if (thread.startsWith(PREFETCH_THREAD))
+                    return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private void assertIncreasing(String sequence, String... sql) throws InterruptedException {
+        open(sequence, sql);
+        OpenJPAEntityManagerSPI em = createEM();
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        long last = next(broker);
+        for (int i = 0; i < 45; i++) {
+            long value = next(broker);
+            assertTrue(value > last, value + " after " + last);
+            last = value;
+        }
+        assertTrue(awaitPrefetch(), getRecorder().getThreads().toString());
+        em.close();
+    }
+
+    @Test
+    public void testTableSequencePrefetchesInBackground() throws InterruptedException {
+        assertIncreasing("table(Table=PREFETCH_SEQ, Allocate=10, Prefetch=true, LowWaterMark=50)",
+            SEQ_TABLE);
+    }
+
+    @Test
+    public void testAdaptiveTableSequencePrefetchesInBackground() throws InterruptedException {
+        assertIncreasing("table(Table=PREFETCH_SEQ, Allocate=5, MaxAllocate=40, Prefetch=true)",
+            SEQ_TABLE);
+    }
+
+    @Test
+    public void testNativeSequencePrefetchesInBackground() throws InterruptedException {
+        assertIncreasing("native(Sequence=PREFETCH_NATIVE_SEQ, Allocate=10, Prefetch=true)",
+            "CREATE SEQUENCE PREFETCH_NATIVE_SEQ START WITH 1");
+    }
+
+    @Test
+    public void testTableSequenceWithoutPrefetchUsesCallingThread() {
+        open("table(Table=PREFETCH_SEQ, Allocate=10)", SEQ_TABLE);
+        OpenJPAEntityManagerSPI em = createEM();
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        for (int i = 0; i < 45; i++)
+            next(broker);
+        for (String thread : getRecorder().getThreads())
+            assertFalse(thread.startsWith(PREFETCH_THREAD), thread);
+        em.close();
+    }
+
+    @Test
+    public void testConcurrentCallersGetUniqueValues() throws Exception {
+        open("table(Table=PREFETCH_SEQ, Allocate=20, MaxAllocate=80, Prefetch=true)", SEQ_TABLE);
+        int threads = 4;
+        int per = 500;
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(exec.submit((Callable<Void>) () -> {
+                    OpenJPAEntityManagerSPI em = createEM();
+                    Broker broker = JPAFacadeHelper.toBroker(em);
+                    for (int i = 0; i < per; i++)
+                        assertTrue(values.add(next(broker)));
+                    em.close();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            exec.shutdown();
+        }
+        assertEquals(threads * per, values.size());
+    }
+}
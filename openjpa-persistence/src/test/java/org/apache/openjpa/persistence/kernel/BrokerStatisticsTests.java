@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.kernel;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.openjpa.kernel.AbstractBrokerFactory;
+import org.apache.openjpa.kernel.BrokerFactory;
+import org.apache.openjpa.kernel.BrokerStatistics;
+import org.apache.openjpa.kernel.DelegatingBrokerFactory;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.OrderLine;
+import org.apache.openjpa.persistence.test.entities.PurchaseOrder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link BrokerStatistics} recorded once the Broker instrument is
+ * started.
+ */
+public class BrokerStatisticsTests extends PersistenceTestCase {
+
+    private void createEMF(boolean instrument) {
+        if (instrument)
+            createEMF(PurchaseOrder.class, OrderLine.class,
+                "openjpa.Instrumentation", "jmx(Instrument='Broker')");
+        else
+            createEMF(PurchaseOrder.class, OrderLine.class);
+    }
+
+    private AbstractBrokerFactory getBrokerFactory() {
+        BrokerFactory factory = JPAFacadeHelper.toBrokerFactory(emf);
+        if (factory instanceof DelegatingBrokerFactory)
+            factory = ((DelegatingBrokerFactory) factory).getInnermostDelegate();
+        return (AbstractBrokerFactory) factory;
+    }
+
+    private BrokerStatistics getStatistics() {
+        BrokerStatistics stats = getBrokerFactory().getBrokerStatistics();
+        assertNotNull(stats);
+        return stats;
+    }
+
+    private PurchaseOrder newOrder(long id, int lines) {
+        PurchaseOrder order = new PurchaseOrder(id, "customer" + id);
+        for (int i = 0; i < lines; i++)
+            order.addLine(id * 100 + i, i);
+        return order;
+    }
+
+    @Test
+    public void testStatisticsAreOffByDefault() {
+        createEMF(false);
+        persist(newOrder(1, 2));
+        assertNull(getBrokerFactory().getBrokerStatistics());
+    }
+
+    @Test
+    public void testFlushAndCommitAreRecorded() {
+        createEMF(true);
+        BrokerStatistics stats = getStatistics();
+        persist(newOrder(1, 3));
+
+        assertEquals(1, stats.getFlushTimes().getCount());
+        assertEquals(4, stats.getFlushInstances().getMax());
+        assertEquals(1, stats.getCommitTimes().getCount());
+        assertTrue(stats.getCommitTimes().getMax()
+            >= stats.getFlushTimes().getMax());
+        assertEquals(0, stats.getRollbackCount());
+    }
+
+    @Test
+    public void testRollbackIsRecorded() {
+        createEMF(true);
+        BrokerStatistics stats = getStatistics();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        em.persist(newOrder(1, 0));
+        em.getTransaction().rollback();
+        em.close();
+
+        assertEquals(1, stats.getRollbackCount());
+        assertEquals(0, stats.getCommitTimes().getCount());
+    }
+
+    @Test
+    public void testLoadsAndLazyLoadsAreCounted() {
+        createEMF(true);
+        persist(newOrder(1, 2), newOrder(2, 2));
+        BrokerStatistics stats = getStatistics();
+        stats.reset();
+
+        OpenJPAEntityManagerSPI em = createEM();
+        for (long id = 1; id <= 2; id++)
+            assertEquals(2, em.find(PurchaseOrder.class, id).getLines().size());
+        em.close();
+
+        Map<String, Long> loads = stats.getLoadCounts();
+        assertEquals(2L, loads.get(PurchaseOrder.class.getName()));
+        assertEquals(4L, loads.get(OrderLine.class.getName()));
+        assertEquals(2L, stats.getLazyLoadCounts().get(
+            PurchaseOrder.class.getName() + ".lines"));
+    }
+
+    @Test
+    public void testDetachAndAttachAreCounted() {
+        createEMF(true);
+        persist(newOrder(1, 2));
+        BrokerStatistics stats = getStatistics();
+        stats.reset();
+
+        OpenJPAEntityManagerSPI em = createEM();
+        PurchaseOrder order = em.find(PurchaseOrder.class, 1L);
+        em.detach(order);
+        assertEquals(1, stats.getDetachedCount());
+        assertEquals(1, stats.getDetachTimes().getCount());
+
+        em.getTransaction().begin();
+        em.merge(order);
+        assertEquals(1, stats.getAttachedCount());
+        assertEquals(1, stats.getAttachTimes().getCount());
+
+        // the test unit detaches all managed instances on commit, and
+        // again, with nothing left, on close
+        int managed = (int) stats.getManagedCount();
+        em.getTransaction().commit();
+        em.close();
+        assertEquals(3, stats.getDetachTimes().getCount());
+        assertEquals(1 + managed, stats.getDetachedCount());
+    }
+
+    @Test
+    public void testManagedAndOpenBrokerCounts() {
+        createEMF(true);
+        persist(newOrder(1, 2));
+        BrokerStatistics stats = getStatistics();
+
+        OpenJPAEntityManagerSPI em = createEM();
+        em.find(PurchaseOrder.class, 1L).getLines().size();
+        assertEquals(1, stats.getOpenBrokerCount());
+        assertEquals(3, stats.getManagedCount());
+        em.close();
+        assertEquals(0, stats.getOpenBrokerCount());
+        assertEquals(0, stats.getManagedCount());
+    }
+
+    @Test
+    public void testConcurrentBrokersLoseNoCounts() throws Exception {
+        createEMF(true);
+        BrokerStatistics stats = getStatistics();
+        int threads = 4;
+        int orders = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = t * 1000L;
+                futures.add(pool.submit((Callable<Void>) () -> {
+                    for (int i = 0; i < orders; i++)
+                        persist(newOrder(base + i, 1));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals((long) threads * orders, stats.getCommitTimes().getCount());
+        assertEquals((long) threads * orders, stats.getFlushTimes().getCount());
+        assertEquals(2L * threads * orders, stats.getFlushInstances().getSum());
+    }
+
+    @Test
+    public void testInstrumentReportsStatistics() throws Exception {
+        createEMF(true);
+        persist(newOrder(1, 1));
+        OpenJPAEntityManagerSPI em = createEM();
+        em.find(PurchaseOrder.class, 1L);
+        em.close();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(new ObjectName(
+            "org.apache.openjpa:type=Broker,cfgid="
+            + emf.getConfiguration().getId() + ",*"), null);
+        assertEquals(1, names.size());
+        ObjectName name = names.iterator().next();
+
+        assertEquals(1L, server.getAttribute(name, "FlushCount"));
+        assertEquals(1L, server.getAttribute(name, "CommitCount"));
+        assertTrue((Double) server.getAttribute(name, "AverageCommitTime") > 0);
+        Map<?, ?> loads = (Map<?, ?>) server.getAttribute(name, "LoadCounts");
+        assertEquals(1L, loads.get(PurchaseOrder.class.getName()));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "CommitCount"));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.meta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.lib.log.AbstractLog;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.log.LogFactory;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.MetaDataSnapshot;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.apache.openjpa.persistence.test.entities.OrderLine;
+import org.apache.openjpa.persistence.test.entities.PurchaseOrder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests capturing, validating and using a {@link MetaDataSnapshot}.
+ */
+public class MetaDataSnapshotTests
+    extends PersistenceTestCase {
+
+    private static final String ORM = "META-INF/snapshot-orm.xml";
+
+    @TempDir
+    Path dir;
+
+    private final List<String> _warnings = new ArrayList<>();
+    private final List<String> _metadata = new ArrayList<>();
+    private ClassLoader _loader;
+    private ClassLoader _saved;
+
+    private final LogFactory _logs = channel -> new AbstractLog() {
+        @Override
+        protected boolean isEnabled(short level) {
+            return level >= Log.WARN || OpenJPAConfiguration.LOG_METADATA.equals(channel);
+        }
+
+        @Override
+        protected void log(short level, String message, Throwable t) {
+            if (level >= Log.WARN)
+                _warnings.add(message);
+            if (OpenJPAConfiguration.LOG_METADATA.equals(channel))
+                _metadata.add(message);
+        }
+    };
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        _saved = Thread.currentThread().getContextClassLoader();
+        _loader = new URLClassLoader(new URL[]{ dir.toUri().toURL() }, _saved);
+        Thread.currentThread().setContextClassLoader(_loader);
+    }
+
+    @AfterEach
+    public void restoreLoader() {
+        Thread.currentThread().setContextClassLoader(_saved);
+    }
+
+    /**
+     * Return the repository of a new factory for the given entity classes
+     * and properties.
+     */
+    private MetaDataRepository open(Object... props) {
+        Object[] args = new Object[props.length + 2];
+        System.arraycopy(props, 0, args, 0, props.length);
+        args[props.length] = "openjpa.Log";
+        args[props.length + 1] = _logs;
+        return createEMF(args).getConfiguration().getMetaDataRepositoryInstance();
+    }
+
+    private MetaDataRepository repository(String factory) {
+        OpenJPAConfiguration conf = new OpenJPAConfigurationImpl();
+        conf.setMetaDataFactory(factory);
+        return conf.getMetaDataRepositoryInstance();
+    }
+
+    private void capture(Class<?>... types) throws Exception {
+        MetaDataSnapshot snapshot = MetaDataSnapshot.capture(open((Object[]) types), false, _loader);
+        snapshot.write(dir.resolve(MetaDataSnapshot.DEFAULT_RESOURCE).toFile());
+        tearDown();
+    }
+
+    private boolean loaded() {
+        return _metadata.stream().anyMatch(m -> m.startsWith("Loaded metadata snapshot"));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        MetaDataRepository repos = open(Item.class, PurchaseOrder.class, OrderLine.class);
+        MetaDataSnapshot snapshot = MetaDataSnapshot.capture(repos, false, _loader);
+        assertEquals(new TreeSet<>(Arrays.asList(Item.class.getName(),
+            PurchaseOrder.class.getName(), OrderLine.class.getName())),
+            snapshot.getPersistentTypeNames());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        MetaDataSnapshot read = MetaDataSnapshot.read(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(snapshot.getPersistentTypeNames(), read.getPersistentTypeNames());
+        assertEquals(snapshot.getFingerprint(), read.getFingerprint());
+        assertTrue(read.isCurrent(repos, _loader));
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        MetaDataSnapshot snapshot = new MetaDataSnapshot(1L,
+            Collections.singleton(Item.class.getName()), Collections.emptyMap(),
+            Collections.emptyMap());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length / 2] ^= 1;
+        assertThrows(IOException.class, () -> MetaDataSnapshot.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void testCurrentSnapshotIsUsed() throws Exception {
+        capture(Item.class);
+        _warnings.clear();
+        _metadata.clear();
+        open(Item.class, "openjpa.MetaDataRepository",
+            "Snapshot=" + MetaDataSnapshot.DEFAULT_RESOURCE);
+        assertTrue(loaded(), _metadata.toString());
+        assertTrue(_warnings.isEmpty(), _warnings.toString());
+    }
+
+    @Test
+    public void testSnapshotOfOtherClassListIsIgnored() throws Exception {
+        capture(Item.class);
+        _warnings.clear();
+        _metadata.clear();
+        MetaDataRepository repos = open(Item.class, PurchaseOrder.class, OrderLine.class,
+            "openjpa.MetaDataRepository", "Snapshot=" + MetaDataSnapshot.DEFAULT_RESOURCE);
+        assertFalse(loaded(), _metadata.toString());
+        // the mapping tool that synchronizes the schema has its own repository
+        assertFalse(_warnings.isEmpty());
+        for (String warning : _warnings)
+            assertTrue(warning.contains("have changed"), warning);
+        assertEquals(3, repos.getPersistentTypeNames(false, _loader).size());
+    }
+
+    @Test
+    public void testFingerprintCoversClassListAndMappingResources() throws Exception {
+        String factory = "jpa(Types=" + Item.class.getName() + ",Resources=" + ORM + ")";
+        File orm = dir.resolve(ORM).toFile();
+        orm.getParentFile().mkdirs();
+        Files.write(orm.toPath(), mapping("first").getBytes(StandardCharsets.UTF_8));
+        long first = MetaDataSnapshot.fingerprint(repository(factory), _loader);
+        assertEquals(first, MetaDataSnapshot.fingerprint(repository(factory), _loader));
+
+        Files.write(orm.toPath(), mapping("second").getBytes(StandardCharsets.UTF_8));
+        long second = MetaDataSnapshot.fingerprint(repository(factory), _loader);
+        assertNotEquals(first, second);
+
+        long types = MetaDataSnapshot.fingerprint(repository("jpa(Types=" + Item.class.getName()
+            + ";" + PurchaseOrder.class.getName() + ",Resources=" + ORM + ")"), _loader);
+        assertNotEquals(second, types);
+
+        // the order in which classes are listed does not matter
+        assertEquals(types, MetaDataSnapshot.fingerprint(repository("jpa(Types="
+            + PurchaseOrder.class.getName() + ";" + Item.class.getName()
+            + ",Resources=" + ORM + ")"), _loader));
+    }
+
+    @Test
+    public void testFingerprintCoversScannedClasses() throws Exception {
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve("p"));
+        Files.write(classes.resolve("p/A.class"), new byte[10]);
+        Files.write(classes.resolve("p/orm.xml"), new byte[10]);
+        long first = MetaDataSnapshot.fingerprint(repository("jpa(Files=" + classes + ")"), _loader);
+
+        // the same classes packaged in a jar elsewhere
+        Path jar = dir.resolve("unit.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("p/A.class"));
+            zip.write(new byte[10]);
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.closeEntry();
+        }
+        assertEquals(first, MetaDataSnapshot.fingerprint(repository("jpa(Files=" + jar + ")"), _loader));
+        assertEquals(first, MetaDataSnapshot.fingerprint(repository("jpa(URLs=jar:"
+            + jar.toUri() + "!/)"), _loader));
+
+        // a new class, or a changed one, might be a new entity
+        Files.write(classes.resolve("p/B.class"), new byte[10]);
+        long added = MetaDataSnapshot.fingerprint(repository("jpa(Files=" + classes + ")"), _loader);
+        assertNotEquals(first, added);
+        Files.write(classes.resolve("p/B.class"), new byte[11]);
+        assertNotEquals(added, MetaDataSnapshot.fingerprint(repository("jpa(Files=" + classes + ")"),
+            _loader));
+    }
+
+    private static String mapping(String description) {
+        return "<entity-mappings xmlns=\"https://jakarta.ee/xml/ns/persistence/orm\" version=\"3.0\">"
+            + "<description>" + description + "</description></entity-mappings>";
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.meta;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.apache.openjpa.persistence.test.entities.OrderLine;
+import org.apache.openjpa.persistence.test.entities.PurchaseOrder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests preloading metadata with several threads.
+ */
+public class PreloadTests
+    extends PersistenceTestCase {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Preloading resolves the mappings before the schema is synchronized, so
+     * build the schema with a factory that does not preload first.
+     */
+    private MetaDataRepository preload(String threads) {
+        String url = "jdbc:hsqldb:mem:preload" + DATABASES.incrementAndGet();
+        OpenJPAEntityManagerFactorySPI schema = createEMF(Item.class, PurchaseOrder.class,
+            OrderLine.class, "openjpa.ConnectionURL", url);
+        try {
+            return createEMF(Item.class, PurchaseOrder.class, OrderLine.class,
+                "openjpa.ConnectionURL", url,
+                "openjpa.MetaDataRepository", "Preload=true,PreloadThreads=" + threads)
+                .getConfiguration().getMetaDataRepositoryInstance();
+        } finally {
+            schema.close();
+        }
+    }
+
+    private void assertPreloaded(MetaDataRepository repos) {
+        Set<String> types = new TreeSet<>();
+        for (ClassMetaData meta : repos.getMetaDatas())
+            types.add(meta.getDescribedType().getName());
+        assertTrue(types.containsAll(Arrays.asList(Item.class.getName(),
+            PurchaseOrder.class.getName(), OrderLine.class.getName())), types.toString());
+
+        PurchaseOrder order = new PurchaseOrder(1, "customer");
+        order.addLine(10, 2);
+        order.addLine(11, 3);
+        persist(order, new Item(1, "item"));
+
+        OpenJPAEntityManagerSPI em = createEM();
+        PurchaseOrder found = em.find(PurchaseOrder.class, 1L);
+        assertEquals(2, found.getLines().size());
+        assertEquals(1L, em.createQuery("SELECT COUNT(i) FROM Item i").getSingleResult());
+        em.close();
+    }
+
+    @Test
+    public void testPreloadWithSeveralThreads() {
+        MetaDataRepository repos = preload("4");
+        assertEquals(4, repos.getPreloadThreads());
+        assertPreloaded(repos);
+    }
+
+    @Test
+    public void testPreloadWithAvailableProcessors() {
+        assertPreloaded(preload("0"));
+    }
+
+    @Test
+    public void testPreloadOnCallingThread() {
+        assertPreloaded(preload("1"));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.persistence.TypedQuery;
+
+import org.apache.openjpa.lib.log.AbstractLog;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.log.LogFactory;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.PersistenceTestCase;
+import org.apache.openjpa.persistence.test.entities.Item;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests streaming query results with getResultStream().
+ */
+public class ResultStreamTests
+    extends PersistenceTestCase {
+
+    private static final int COUNT = 100;
+
+    private final List<String> _warnings = new ArrayList<>();
+
+    private final LogFactory _logs = channel -> new AbstractLog() {
+        @Override
+        protected boolean isEnabled(short level) {
+            return level >= Log.WARN;
+        }
+
+        @Override
+        protected void log(short level, String message, Throwable t) {
+            _warnings.add(message);
+        }
+    };
+
+    private void populate(Object... props) {
+        Object[] args = new Object[props.length + 3];
+        args[0] = Item.class;
+        args[1] = "openjpa.Log";
+        args[2] = _logs;
+        System.arraycopy(props, 0, args, 3, props.length);
+        createEMF(args);
+        Object[] items = new Object[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            Item item = new Item(i, "item" + i);
+            item.setQuantity(i % 7);
+            items[i] = item;
+        }
+        persist(items);
+    }
+
+    private static TypedQuery<Item> all(OpenJPAEntityManagerSPI em) {
+        return em.createQuery("SELECT i FROM Item i ORDER BY i.id", Item.class);
+    }
+
+    @Test
+    public void testStreamReadsOnDemand() {
+        populate();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        try (Stream<Item> stream = all(em).setHint(
+            "openjpa.FetchPlan.FetchBatchSize", 10).getResultStream()) {
+            Iterator<Item> itr = stream.iterator();
+            for (int i = 0; i < 5; i++)
+                assertEquals(i, itr.next().getId());
+            assertTrue(em.getManagedObjects().size() < COUNT,
+                em.getManagedObjects().size() + " managed");
+        }
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Test
+    public void testStreamReturnsAllResultsInOrder() {
+        populate();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        try (Stream<Item> stream = all(em).getResultStream()) {
+            List<Long> ids = stream.map(Item::getId)
+                .collect(Collectors.toList());
+            assertEquals(COUNT, ids.size());
+            for (int i = 0; i < COUNT; i++)
+                assertEquals(i, ids.get(i).longValue());
+        }
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Test
+    public void testReleaseDetachesStreamedEntities() {
+        populate();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        List<Item> seen = new ArrayList<>();
+        try (Stream<Item> stream = all(em)
+            .setHint("openjpa.FetchPlan.FetchBatchSize", 10)
+            .setHint("openjpa.hint.StreamRelease", "detach").getResultStream()) {
+            stream.forEach(item -> {
+                assertTrue(em.contains(item), "contains " + item.getId());
+                seen.add(item);
+                // only the current fetch batch stays in the context
+                assertTrue(em.getManagedObjects().size() <= 10,
+                    em.getManagedObjects().size() + " managed");
+            });
+        }
+        assertEquals(COUNT, seen.size());
+        for (Item item : seen)
+            assertFalse(em.contains(item));
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Test
+    public void testDistinctIsAppliedByDatabase() {
+        populate();
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        getRecorder().clear();
+        try (Stream<Integer> stream = em.createQuery(
+            "SELECT DISTINCT i.quantity FROM Item i", Integer.class)
+            .getResultStream()) {
+            assertEquals(7, stream.count());
+        }
+        assertTrue(getRecorder().getSQL().get(0).contains("DISTINCT"),
+            getRecorder().getSQL().toString());
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Test
+    public void testNonTransactionalDetachFallsBackWithWarning() {
+        populate("openjpa.AutoDetach", "nontx-read");
+        OpenJPAEntityManagerSPI em = createEM();
+        _warnings.clear();
+        try (Stream<Item> stream = all(em).getResultStream()) {
+            List<Item> items = stream.collect(Collectors.toList());
+            assertEquals(COUNT, items.size());
+            assertFalse(em.contains(items.get(0)));
+        }
+        assertEquals(1, _warnings.size(), _warnings.toString());
+        assertTrue(_warnings.get(0).contains("nontx-read"));
+
+        // a transaction allows streaming from the result set again
+        _warnings.clear();
+        em.getTransaction().begin();
+        try (Stream<Item> stream = all(em).getResultStream()) {
+            assertEquals(COUNT, stream.count());
+        }
+        assertTrue(_warnings.isEmpty(), _warnings.toString());
+        em.getTransaction().rollback();
+        em.close();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.persistence.Persistence;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.junit.jupiter.api.AfterEach;
+
+/**
+ * Base class for tests that run against their own in-memory HSQLDB
+ * database. The factory is built from the "test-unit" persistence unit,
+ * restricted to the given entity types and with an {@link SQLRecorder}
+ * installed.
+ */
+public abstract class PersistenceTestCase {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    protected OpenJPAEntityManagerFactorySPI emf;
+
+    /**
+     * Create the factory under test. Arguments are either entity classes
+     * or property name and value pairs.
+     */
+    protected OpenJPAEntityManagerFactorySPI createEMF(Object... props) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("openjpa.ConnectionURL", "jdbc:hsqldb:mem:perf"
+            + DATABASES.incrementAndGet());
+        map.put("openjpa.Log", "DefaultLevel=WARN");
+        map.put("jakarta.persistence.validation.mode", "none");
+        map.put("openjpa.jdbc.JDBCListeners", SQLRecorder.class.getName());
+
+        StringJoiner types = new StringJoiner(";");
+        for (int i = 0; i < props.length; i++) {
+            if (props[i] instanceof Class)
+                types.add(((Class<?>) props[i]).getName());
+            else
+                map.put((String) props[i], props[++i]);
+        }
+        map.put("openjpa.MetaDataFactory", "jpa(Types=" + types + ")");
+
+        emf = (OpenJPAEntityManagerFactorySPI) Persistence.
+            createEntityManagerFactory("test-unit", map);
+        // build the schema up front so that it does not show up in the
+        // statements recorded by the tests
+        emf.createEntityManager().close();
+        return emf;
+    }
+
+    protected OpenJPAEntityManagerSPI createEM() {
+        return emf.createEntityManager();
+    }
+
+    /**
+     * Return the statement recorder of the factory under test.
+     */
+    protected SQLRecorder getRecorder() {
+        for (JDBCListener listener : ((JDBCConfiguration) emf.
+            getConfiguration()).getJDBCListenerInstances())
+            if (listener instanceof SQLRecorder)
+                return (SQLRecorder) listener;
+        throw new IllegalStateException("no SQLRecorder");
+    }
+
+    /**
+     * Persist the given instances in their own transaction.
+     */
+    protected void persist(Object... pcs) {
+        OpenJPAEntityManagerSPI em = createEM();
+        em.getTransaction().begin();
+        for (Object pc : pcs)
+            em.persist(pc);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (emf != null && emf.isOpen())
+            emf.close();
+        emf = null;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+
+/**
+ * Records the SQL of every statement execution, counting a batch as a
+ * single execution, and the thread that executed it. Optionally adds a
+ * fixed latency to each execution.
+ */
+public class SQLRecorder extends AbstractJDBCListener {
+
+    private final List<String> _sql = new ArrayList<>();
+    private final List<String> _threads = new ArrayList<>();
+    private volatile long _delay;
+
+    /**
+     * Milliseconds to sleep before each statement execution, to stand in
+     * for a remote database.
+     */
+    public void setDelay(long delay) {
+        _delay = delay;
+    }
+
+    @Override
+    public void beforeExecuteStatement(JDBCEvent event) {
+        synchronized (_sql) {
+            _sql.add(event.getSQL());
+            _threads.add(Thread.currentThread().getName());
+        }
+        if (_delay > 0) {
+            try {
+                Thread.sleep(_delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (_sql) {
+            _sql.clear();
+            _threads.clear();
+        }
+    }
+
+    public List<String> getSQL() {
+        synchronized (_sql) {
+            return new ArrayList<>(_sql);
+        }
+    }
+
+    /**
+     * The names of the threads that executed the recorded statements, in
+     * the order of {@link #getSQL}.
+     */
+    public List<String> getThreads() {
+        synchronized (_sql) {
+            return new ArrayList<>(_threads);
+        }
+    }
+
+    /**
+     * Return the number of recorded executions whose SQL starts with the
+     * given keyword, such as SELECT or INSERT.
+     */
+    public int count(String keyword) {
+        int count = 0;
+        for (String sql : getSQL())
+            if (sql != null && sql.trim().toUpperCase(Locale.ENGLISH).
+                startsWith(keyword))
+                count++;
+        return count;
+    }
+}
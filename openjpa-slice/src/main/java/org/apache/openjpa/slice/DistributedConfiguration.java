@@ -19,6 +19,7 @@
 package org.apache.openjpa.slice;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 
@@ -176,4 +177,36 @@ public interface DistributedConfiguration extends OpenJPAConfiguration {
      */
     void setFinderTargetPolicy(String policy);
 
+    /**
+     * Gets the executor that runs database operations on the individual
+     * slices in parallel. Each configuration has its own executor, which is
+     * shut down when the configuration is closed.
+     *
+     * @since 4.1.2
+     */
+    ExecutorService getThreadingPolicyInstance();
+
+    /**
+     * Gets the executor, as a plugin string, that runs database operations on
+     * the individual slices in parallel.
+     *
+     * @since 4.1.2
+     */
+    String getThreadingPolicy();
+
+    /**
+     * Sets the executor that runs database operations on the individual
+     * slices in parallel.
+     *
+     * @since 4.1.2
+     */
+    void setThreadingPolicyInstance(ExecutorService executor);
+
+    /**
+     * Sets the executor, from the given plugin string, that runs database
+     * operations on the individual slices in parallel.
+     *
+     * @since 4.1.2
+     */
+    void setThreadingPolicy(String executor);
 }
@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Closeable;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * The executor that runs database operations such as query or flush on the
+ * individual slices in parallel. Each distributed configuration owns its own
+ * executor, which is bounded by {@link #setPoolSize pool size} and
+ * {@link #setQueueSize queue size}. When both are exhausted, the operation
+ * runs on the submitting thread instead of spawning more threads.
+ * <br>
+ * On a Java runtime that supports virtual threads the executor can be
+ * configured to run each operation on its own virtual thread.
+ * <br>
+ * The executor keeps simple statistics of the number of operations, the time
+ * they spent waiting in the queue and the time they took to run.
+ *
+ * @since 4.1.2
+ */
+public class SliceExecutor extends AbstractExecutorService
+    implements Configurable, Closeable {
+
+    private static final Localizer _loc = Localizer.forPackage(SliceExecutor.class);
+
+    private int _poolSize = 0;
+    private int _queueSize = 1024;
+    private long _keepAlive = 60;
+    private boolean _virtual = false;
+
+    private String _name = "OpenJPA Slice";
+    private Log _log;
+    private ExecutorService _delegate;
+    private volatile boolean _shutdown = false;
+
+    private final LongAdder _submitted = new LongAdder();
+    private final LongAdder _completed = new LongAdder();
+    private final LongAdder _callerRuns = new LongAdder();
+    private final LongAdder _queueNanos = new LongAdder();
+    private final LongAdder _runNanos = new LongAdder();
+    private final AtomicLong _maxQueueNanos = new AtomicLong();
+    private final AtomicLong _maxRunNanos = new AtomicLong();
+    private final AtomicInteger _active = new AtomicInteger();
+
+    /**
+     * The maximum number of threads. Defaults to 0, which uses twice the
+     * number of available processors.
+     */
+    public int getPoolSize() {
+        return _poolSize;
+    }
+
+    /**
+     * The maximum number of threads. Defaults to 0, which uses twice the
+     * number of available processors.
+     */
+    public void setPoolSize(int size) {
+        _poolSize = size;
+    }
+
+    /**
+     * The number of operations that may wait for a thread before further
+     * operations run on the submitting thread. A value of 0 hands each
+     * operation directly to a thread. Defaults to 1024.
+     */
+    public int getQueueSize() {
+        return _queueSize;
+    }
+
+    /**
+     * The number of operations that may wait for a thread before further
+     * operations run on the submitting thread. A value of 0 hands each
+     * operation directly to a thread. Defaults to 1024.
+     */
+    public void setQueueSize(int size) {
+        _queueSize = size;
+    }
+
+    /**
+     * The number of seconds an idle thread is kept alive. Defaults to 60.
+     */
+    public long getKeepAliveTime() {
+        return _keepAlive;
+    }
+
+    /**
+     * The number of seconds an idle thread is kept alive. Defaults to 60.
+     */
+    public void setKeepAliveTime(long seconds) {
+        _keepAlive = seconds;
+    }
+
+    /**
+     * Whether to run each operation on a new virtual thread. Ignored, with
+     * a warning, if the Java runtime does not support virtual threads.
+     */
+    public boolean getVirtualThreads() {
+        return _virtual;
+    }
+
+    /**
+     * Whether to run each operation on a new virtual thread. Ignored, with
+     * a warning, if the Java runtime does not support virtual threads.
+     */
+    public void setVirtualThreads(boolean virtual) {
+        _virtual = virtual;
+    }
+
+    /**
+     * The number of operations waiting for a thread.
+     */
+    public int getQueueDepth() {
+        ExecutorService delegate;
+        synchronized (this) {
+            delegate = _delegate;
+        }
+        if (delegate instanceof ThreadPoolExecutor)
+            return ((ThreadPoolExecutor) delegate).getQueue().size();
+        return 0;
+    }
+
+    /**
+     * The number of operations currently running.
+     */
+    public int getActiveCount() {
+        return _active.get();
+    }
+
+    /**
+     * The number of operations submitted to this executor.
+     */
+    public long getSubmittedCount() {
+        return _submitted.sum();
+    }
+
+    /**
+     * The number of operations that have completed.
+     */
+    public long getCompletedCount() {
+        return _completed.sum();
+    }
+
+    /**
+     * The number of operations that ran on the submitting thread because
+     * all threads were busy and the queue was full.
+     */
+    public long getCallerRunsCount() {
+        return _callerRuns.sum();
+    }
+
+    /**
+     * The average time in milliseconds an operation waited for a thread.
+     */
+    public double getAverageQueueTime() {
+        return average(_queueNanos);
+    }
+
+    /**
+     * The longest time in milliseconds an operation waited for a thread.
+     */
+    public double getMaxQueueTime() {
+        return _maxQueueNanos.get() / 1000000D;
+    }
+
+    /**
+     * The average time in milliseconds an operation took to run.
+     */
+    public double getAverageRunTime() {
+        return average(_runNanos);
+    }
+
+    /**
+     * The longest time in milliseconds an operation took to run.
+     */
+    public double getMaxRunTime() {
+        return _maxRunNanos.get() / 1000000D;
+    }
+
+    /**
+     * Reset the statistics.
+     */
+    public void reset() {
+        _submitted.reset();
+        _completed.reset();
+        _callerRuns.reset();
+        _queueNanos.reset();
+        _runNanos.reset();
+        _maxQueueNanos.set(0);
+        _maxRunNanos.set(0);
+    }
+
+    private double average(LongAdder nanos) {
+        long n = _completed.sum();
+        return (n == 0) ? 0 : nanos.sum() / 1000000D / n;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (_shutdown)
+            throw new RejectedExecutionException();
+        _submitted.increment();
+        getDelegate().execute(new Task(command));
+    }
+
+    /**
+     * Create the underlying executor on first use.
+     */
+    private synchronized ExecutorService getDelegate() {
+        if (_delegate == null) {
+            if (_virtual)
+                _delegate = newVirtualThreadExecutor();
+            if (_delegate == null)
+                _delegate = newThreadPoolExecutor();
+        }
+        return _delegate;
+    }
+
+    private ExecutorService newThreadPoolExecutor() {
+        int size = (_poolSize > 0) ? _poolSize
+            : 2 * Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = (_queueSize > 0)
+            ? new ArrayBlockingQueue<>(_queueSize)
+            : new SynchronousQueue<>();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size,
+            _keepAlive, TimeUnit.SECONDS, queue, new SliceThreadFactory(),
+            new CallerRunsHandler());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per operation, or
+     * return null if the runtime has no virtual threads.
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            // look the methods up on the public interfaces; the builder
+            // itself is an instance of a non-public class
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualType = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = virtualType.getMethod("name", String.class, long.class)
+                .invoke(builder, _name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType
+                .getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (Exception e) {
+            if (_log != null && _log.isWarnEnabled())
+                _log.warn(_loc.get("virtual-threads-unsupported",
+                    System.getProperty("java.version")));
+            return null;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        _shutdown = true;
+        ExecutorService delegate;
+        synchronized (this) {
+            delegate = _delegate;
+        }
+        if (delegate != null)
+            delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        _shutdown = true;
+        ExecutorService delegate;
+        synchronized (this) {
+            delegate = _delegate;
+        }
+        if (delegate != null)
+            return delegate.shutdownNow();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        ExecutorService delegate;
+        synchronized (this) {
+            delegate = _delegate;
+        }
+        return _shutdown && (delegate == null || delegate.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        ExecutorService delegate;
+        synchronized (this) {
+            delegate = _delegate;
+        }
+        return delegate == null || delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _log = conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+        if (conf.getId() != null)
+            _name = _name + " " + conf.getId();
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[active=" + getActiveCount()
+            + ", queued=" + getQueueDepth() + ", completed="
+            + getCompletedCount() + "]";
+    }
+
+    /**
+     * Wraps an operation to mark it as running on behalf of a slice and to
+     * measure its queue and run times.
+     */
+    private class Task implements Runnable {
+        private final Runnable _command;
+        private final long _submittedAt = System.nanoTime();
+
+        Task(Runnable command) {
+            _command = command;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            record(_queueNanos, _maxQueueNanos, start - _submittedAt);
+            _active.incrementAndGet();
+            boolean nested = SliceThread.enter();
+            try {
+                _command.run();
+            } finally {
+                SliceThread.exit(nested);
+                _active.decrementAndGet();
+                record(_runNanos, _maxRunNanos, System.nanoTime() - start);
+                _completed.increment();
+            }
+        }
+
+        private void record(LongAdder total, AtomicLong max, long nanos) {
+            total.add(nanos);
+            long current;
+            while (nanos > (current = max.get())
+                && !max.compareAndSet(current, nanos));
+        }
+    }
+
+    /**
+     * Runs an operation on the submitting thread when the pool is saturated.
+     */
+    private class CallerRunsHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            if (pool.isShutdown())
+                throw new RejectedExecutionException();
+            _callerRuns.increment();
+            r.run();
+        }
+    }
+
+    /**
+     * Creates the {@link SliceThread}s of this executor.
+     */
+    private class SliceThreadFactory implements ThreadFactory {
+        private final AtomicInteger _n = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new SliceThread(_name + "-" + _n.getAndIncrement(),
+                Thread.currentThread(), r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.concurrent.ThreadFactory;
 public class SliceThread extends Thread {
     private final Thread _parent;
     private static ExecutorService _pool;
+    private static final ThreadLocal<Boolean> _child = new ThreadLocal<>();
 
     public SliceThread(String name, Thread parent, Runnable r) {
         super(r, name);
@@ -50,12 +51,44 @@ public class SliceThread extends Thread {
         return _parent;
     }
 
+    /**
+     * Affirms if the current thread executes an operation on behalf of a
+     * slice, either because it is a slice thread or because the operation
+     * was handed to it by a {@link SliceExecutor}.
+     */
+    public static boolean isSliceThread() {
+        return Thread.currentThread() instanceof SliceThread
+            || _child.get() != null;
+    }
+
+    /**
+     * Marks the current thread as executing an operation on behalf of a slice.
+     *
+     * @return whether the thread was already marked
+     */
+    static boolean enter() {
+        if (_child.get() != null)
+            return true;
+        _child.set(Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Removes the mark set by {@link #enter}, unless it was already set.
+     */
+    static void exit(boolean nested) {
+        if (!nested)
+            _child.remove();
+    }
+
     /**
      * Create a cached pool of <em>slice</em> threads.
      * The thread factory creates specialized threads for preferential locking treatment.
      *
+     * @deprecated the pool is unbounded and shared by all configurations.
+     * Use {@link DistributedConfiguration#getThreadingPolicyInstance()}.
      */
-
+    @Deprecated
     public static ExecutorService getPool() {
         if (_pool == null) {
             _pool = Executors.newCachedThreadPool(new SliceThreadFactory());
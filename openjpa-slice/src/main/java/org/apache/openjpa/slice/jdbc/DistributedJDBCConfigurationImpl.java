@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
@@ -58,6 +59,7 @@ import org.apache.openjpa.slice.ProductDerivation;
 import org.apache.openjpa.slice.QueryTargetPolicy;
 import org.apache.openjpa.slice.ReplicationPolicy;
 import org.apache.openjpa.slice.Slice;
+import org.apache.openjpa.slice.SliceExecutor;
 import org.apache.openjpa.util.UserException;
 
 /**
@@ -83,6 +85,7 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
     public PluginValue replicationPolicyPlugin;
     public PluginValue queryTargetPolicyPlugin;
     public PluginValue finderTargetPolicyPlugin;
+    public PluginValue threadingPolicyPlugin;
     public StringListValue replicatedTypesPlugin;
 
     private ReplicatedTypeRepository _replicationRepos;
@@ -119,6 +122,11 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         finderTargetPolicyPlugin = addPlugin(PREFIX_SLICE + "FinderTargetPolicy", true);
         finderTargetPolicyPlugin.setDynamic(true);
 
+        threadingPolicyPlugin = addPlugin(PREFIX_SLICE + "ThreadingPolicy", true);
+        threadingPolicyPlugin.setAlias("default", SliceExecutor.class.getName());
+        threadingPolicyPlugin.setDefault("default");
+        threadingPolicyPlugin.setString("default");
+
         replicatedTypesPlugin = new StringListValue(PREFIX_SLICE + "ReplicatedTypes");
         addValue(replicatedTypesPlugin);
 
@@ -326,6 +334,34 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         finderTargetPolicyPlugin.setString(policy);
     }
 
+    @Override
+    public ExecutorService getThreadingPolicyInstance() {
+        if (threadingPolicyPlugin.get() == null) {
+            // instantiate once, as the executor owns threads
+            synchronized (threadingPolicyPlugin) {
+                if (threadingPolicyPlugin.get() == null)
+                    threadingPolicyPlugin.instantiate(ExecutorService.class,
+                        this, true);
+            }
+        }
+        return (ExecutorService) threadingPolicyPlugin.get();
+    }
+
+    @Override
+    public String getThreadingPolicy() {
+        return threadingPolicyPlugin.getString();
+    }
+
+    @Override
+    public void setThreadingPolicyInstance(ExecutorService executor) {
+        threadingPolicyPlugin.set(executor);
+    }
+
+    @Override
+    public void setThreadingPolicy(String executor) {
+        threadingPolicyPlugin.setString(executor);
+    }
+
     @Override
     public DistributedDataSource getConnectionFactory() {
         if (virtualDataSource == null) {
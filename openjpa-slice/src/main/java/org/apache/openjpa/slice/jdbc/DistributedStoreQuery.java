@@ -19,6 +19,7 @@
 package org.apache.openjpa.slice.jdbc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -28,19 +29,24 @@ import java.util.concurrent.Future;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
 import org.apache.openjpa.jdbc.kernel.JDBCStoreQuery;
+import org.apache.openjpa.jdbc.kernel.exps.JDBCExpressionFactory;
+import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.kernel.ExpressionStoreQuery;
 import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.OrderingMergedResultObjectProvider;
 import org.apache.openjpa.kernel.QueryContext;
 import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.exps.AbstractExpressionVisitor;
+import org.apache.openjpa.kernel.exps.ExpressionFactory;
 import org.apache.openjpa.kernel.exps.ExpressionParser;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
+import org.apache.openjpa.kernel.exps.Value;
 import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
 import org.apache.openjpa.util.StoreException;
 
 /**
@@ -97,18 +103,105 @@ class DistributedStoreQuery extends JDBCStoreQuery {
         private static final long serialVersionUID = 1L;
         private List<Executor> executors = new ArrayList<>();
 		private DistributedStoreQuery owner = null;
+		private final ClassMetaData meta;
+		// for each projection, the column of the slice results that holds
+		// the count of an average that is computed as a sum, or -1
+		private final int[] counts;
 
         public ParallelExecutor(DistributedStoreQuery dsq, ClassMetaData meta,
                 boolean subclasses, ExpressionParser parser, Object parsed,
 				boolean parallel) {
 			super(dsq, meta, subclasses, parser, parsed);
 			owner = dsq;
+			this.meta = meta;
+			counts = findAverages(getQueryExpressions()[0]);
 		}
 
 		public void addExecutor(Executor ex) {
+			if (counts != null && ex instanceof ExpressionStoreQuery.DataStoreExecutor)
+				splitAverages(((ExpressionStoreQuery.DataStoreExecutor) ex).getQueryExpressions());
 			executors.add(ex);
 		}
 
+		/**
+		 * Averages can not be combined across slices. If the given query
+		 * computes an average without grouping, return the column of each
+		 * averaged projection that will hold the count of the averaged values
+		 * once the slice queries have been split by {@link #splitAverages}.
+		 * Otherwise return null.
+		 */
+		private static int[] findAverages(QueryExpressions exps) {
+			if (!exps.isAggregate() || exps.grouping.length > 0)
+				return null;
+			int[] counts = null;
+			int next = exps.projections.length;
+			for (int i = 0; i < exps.projections.length; i++) {
+				if (!UniqueResultObjectProvider.AVG.equals(
+					exps.projections[i].getClass().getSimpleName()))
+					continue;
+				if (counts == null) {
+					counts = new int[exps.projections.length];
+					Arrays.fill(counts, -1);
+				}
+				counts[i] = next++;
+			}
+			return counts;
+		}
+
+		/**
+		 * Rewrite each average in the given slice query expressions into the
+		 * sum of its argument, and add a projection for the count of its
+		 * argument, so that the coordinator can combine the partial results.
+		 */
+		private void splitAverages(QueryExpressions[] exps) {
+			ExpressionFactory factory = new JDBCExpressionFactory(
+				(meta instanceof ClassMapping) ? (ClassMapping) meta : null);
+			for (QueryExpressions exp : exps) {
+				Value[] projections = new Value[exp.projections.length
+					+ countAverages()];
+				System.arraycopy(exp.projections, 0, projections, 0,
+					exp.projections.length);
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] == -1)
+						continue;
+					Value arg = getArgument(exp.projections[i]);
+					projections[i] = factory.sum(arg);
+					projections[counts[i]] = factory.count(arg);
+				}
+				exp.projections = projections;
+			}
+		}
+
+		private int countAverages() {
+			int n = 0;
+			for (int count : counts)
+				if (count != -1)
+					n++;
+			return n;
+		}
+
+		/**
+		 * Return the value that the given aggregate operates on.
+		 */
+		private static Value getArgument(Value aggregate) {
+			final Value[] arg = new Value[1];
+			aggregate.acceptVisit(new AbstractExpressionVisitor() {
+				private int depth = 0;
+
+				@Override
+				public void enter(Value val) {
+					if (depth++ == 1 && arg[0] == null)
+						arg[0] = val;
+				}
+
+				@Override
+				public void exit(Value val) {
+					depth--;
+				}
+			});
+			return arg[0];
+		}
+
 		/**
          * Each child query must be executed with slice context and not the
 		 * given query context.
@@ -122,7 +215,12 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			List<SliceStoreManager> targets = findTargets();
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
+			// each slice returns at most its first end rows, the start of the
+			// range is applied to the merged result
+			Range sliceRange = new Range(0, range.end);
+			sliceRange.lrs = range.lrs;
 
 			for (int i = 0; i < owner._queries.size(); i++) {
                 // if replicated, then execute only on single slice
@@ -136,7 +234,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
                 call.executor = executors.get(i);
                 call.query = owner._queries.get(i);
                 call.params = params;
-                call.range = range;
+                call.range = sliceRange;
 				usedExecutors.add(call.executor);
                 futures.add(threadPool.submit(call));
 			}
@@ -155,9 +253,9 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
 			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
+			boolean hasRange = range.start != 0 || range.end != Long.MAX_VALUE;
 			if (isAggregate) {
-				result = new UniqueResultObjectProvider(tmp, q,	getQueryExpressions());
+				result = new UniqueResultObjectProvider(tmp, q,	getQueryExpressions(), counts);
 			} else if (isAscending) {
                 result = new OrderingMergedResultObjectProvider(tmp, ascending,
                     usedExecutors.toArray(new Executor[usedExecutors.size()]),
@@ -166,7 +264,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 				result = new MergedResultObjectProvider(tmp);
 			}
 			if (hasRange) {
-                result = new RangeResultObjectProvider(result, ctx.getStartRange(), ctx.getEndRange());
+                result = new RangeResultObjectProvider(result, range.start, range.end);
 			}
 			return result;
 		}
@@ -194,7 +292,8 @@ class DistributedStoreQuery extends JDBCStoreQuery {
         public Number executeDelete(StoreQuery q, Object[] params) {
 			List<Future<Number>> futures = new ArrayList<>();
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			List<SliceStoreManager> targets = findTargets();
 			for (int i = 0; i < owner._queries.size(); i++) {
                 StoreManager sm = owner.getDistributedStore().getSlice(i);
@@ -226,7 +325,8 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -38,6 +38,7 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
     private final ResultObjectProvider[] _rops;
     private final StoreQuery _query;
     private final QueryExpressions[] _exps;
+    private final int[] _counts;
     private Object _single;
     private boolean _opened;
 
@@ -45,15 +46,30 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
     private static final String MAX   = "Max";
     private static final String MIN   = "Min";
     private static final String SUM   = "Sum";
+    static final String AVG           = "Avg";
 
     private static final Localizer _loc =
         Localizer.forPackage(UniqueResultObjectProvider.class);
 
     public UniqueResultObjectProvider(ResultObjectProvider[] rops,
             StoreQuery q, QueryExpressions[] exps) {
+        this(rops, q, exps, null);
+    }
+
+    /**
+     * Constructor for slice results in which each average is replaced by the
+     * sum of the averaged values and an extra column with their count.
+     *
+     * @param counts for each projection, the column of the slice results
+     * holding the count of an average, or -1. May be null if there are no
+     * averages.
+     */
+    public UniqueResultObjectProvider(ResultObjectProvider[] rops,
+            StoreQuery q, QueryExpressions[] exps, int[] counts) {
         _rops = rops;
         _query = q;
         _exps = exps;
+        _counts = counts;
     }
 
     @Override
@@ -96,10 +112,18 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
             boolean isAggregate = v.isAggregate();
 
             String op = v.getClass().getSimpleName();
+            boolean isAverage = isAggregate && AVG.equals(op)
+                && _counts != null && _counts[i] != -1;
+            Object count = null;
             for (ResultObjectProvider rop:_rops) {
                 if (i == 0)
                 	rop.next();
                 Object[] row = (Object[]) rop.getResultObject();
+                if (isAverage) {
+                    single[i] = sum(single[i], row[i]);
+                    count = count(count, row[_counts[i]]);
+                    continue;
+                }
                 if (isAggregate) {
                     if (COUNT.equals(op)) {
                         single[i] = count(single[i], row[i]);
@@ -118,6 +142,8 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
                 }
                 single[i] = Filters.convert(single[i], v.getType());
             }
+            if (isAverage)
+                single[i] = Filters.convert(average(single[i], count), v.getType());
         }
         _single = single;
         return true;
@@ -131,6 +157,12 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
         return ((Number)current).longValue() + ((Number)other).longValue();
     }
 
+    Object average(Object sum, Object count) {
+        if (sum == null || count == null || ((Number)count).longValue() == 0)
+            return null;
+        return ((Number)sum).doubleValue() / ((Number)count).longValue();
+    }
+
     Object max(Object current, Object other) {
         if (current == null)
             return other;
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class Score {
+
+    @Id
+    private int id;
+
+    private String player;
+
+    private int points;
+
+    private double rating;
+
+    public Score() {
+    }
+
+    public Score(int id, String player, int points) {
+        this.id = id;
+        this.player = player;
+        this.points = points;
+        this.rating = points / 4.0;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+}
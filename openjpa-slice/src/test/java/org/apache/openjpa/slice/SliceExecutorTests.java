@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.lib.log.AbstractLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+/**
+ * Tests for {@link SliceExecutor}. The virtual thread tests are skipped on
+ * runtimes without virtual threads unless the
+ * <code>openjpa.slice.requireVirtualThreads</code> system property is set,
+ * as it is by the <code>jdk21</code> build profile.
+ */
+public class SliceExecutorTests {
+
+    private final List<String> _warnings = new ArrayList<>();
+    private SliceExecutor _executor;
+
+    private SliceExecutor newExecutor(int poolSize, int queueSize,
+        boolean virtual) {
+        OpenJPAConfigurationImpl conf = new OpenJPAConfigurationImpl();
+        conf.setLogFactory(channel -> new AbstractLog() {
+            @Override
+            protected boolean isEnabled(short level) {
+                return level >= WARN;
+            }
+
+            @Override
+            protected void log(short level, String message, Throwable t) {
+                _warnings.add(message);
+            }
+        });
+        _executor = new SliceExecutor();
+        _executor.setConfiguration(conf);
+        _executor.setPoolSize(poolSize);
+        _executor.setQueueSize(queueSize);
+        _executor.setVirtualThreads(virtual);
+        return _executor;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (_executor != null)
+            _executor.shutdownNow();
+    }
+
+    private static boolean hasVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void testOperationsRunOnSliceThreads() throws Exception {
+        SliceExecutor executor = newExecutor(2, 10, false);
+        Future<Boolean> marked = executor.submit(SliceThread::isSliceThread);
+        assertTrue(marked.get(10, TimeUnit.SECONDS));
+        assertFalse(SliceThread.isSliceThread());
+    }
+
+    @Test
+    public void testFullQueueRunsOnCaller() throws Exception {
+        SliceExecutor executor = newExecutor(1, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+        assertEquals(1, executor.getQueueDepth());
+
+        Thread caller = Thread.currentThread();
+        Future<Thread> overflow = executor.submit(Thread::currentThread);
+        assertSame(caller, overflow.get(0, TimeUnit.SECONDS));
+        assertEquals(1, executor.getCallerRunsCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(3, executor.getSubmittedCount());
+        assertEquals(3, executor.getCompletedCount());
+    }
+
+    @Test
+    public void testShutdownRejectsOperations() {
+        SliceExecutor executor = newExecutor(1, 1, false);
+        executor.execute(() -> { });
+        executor.close();
+        assertTrue(executor.isShutdown());
+        assertThrows(RejectedExecutionException.class,
+            () -> executor.execute(() -> { }));
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        assumeTrue(hasVirtualThreads()
+            || Boolean.getBoolean("openjpa.slice.requireVirtualThreads"),
+            "virtual threads are not supported by this runtime");
+        SliceExecutor executor = newExecutor(1, 1, true);
+        List<Future<Thread>> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            threads.add(executor.submit(() -> {
+                assertTrue(SliceThread.isSliceThread());
+                return Thread.currentThread();
+            }));
+        for (Future<Thread> thread : threads) {
+            Thread t = thread.get(10, TimeUnit.SECONDS);
+            assertTrue(isVirtual(t), t.toString());
+            assertTrue(t.getName().startsWith("OpenJPA Slice-"), t.getName());
+        }
+        assertEquals(0, executor.getCallerRunsCount());
+        assertTrue(_warnings.isEmpty(), _warnings.toString());
+    }
+
+    @Test
+    public void testVirtualThreadsFallBackToPool() throws Exception {
+        assumeFalse(hasVirtualThreads());
+        SliceExecutor executor = newExecutor(1, 1, true);
+        Thread t = executor.submit(Thread::currentThread)
+            .get(10, TimeUnit.SECONDS);
+        assertTrue(t instanceof SliceThread, t.toString());
+        assertEquals(1, _warnings.size(), _warnings.toString());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.apache.openjpa.slice.Score;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests merging ordered, ranged and aggregate query results of two slices.
+ * Even ids are stored in the first slice and odd ids in the second, and the
+ * slices hold a different number of rows so that averages of the per-slice
+ * averages would be wrong.
+ */
+public class DistributedQueryTests {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private EntityManagerFactory _emf;
+    private EntityManager _em;
+    private final List<Score> _scores = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        int n = DATABASES.incrementAndGet();
+        Map<String, Object> props = new HashMap<>();
+        props.put("openjpa.slice.One.ConnectionURL",
+            "jdbc:derby:memory:sliceOne" + n + ";create=true");
+        props.put("openjpa.slice.Two.ConnectionURL",
+            "jdbc:derby:memory:sliceTwo" + n + ";create=true");
+        _emf = Persistence.createEntityManagerFactory("aggregate", props);
+        _em = _emf.createEntityManager();
+
+        _em.getTransaction().begin();
+        for (int id = 0; id < 21; id++) {
+            Score score = new Score(id, "p" + (id % 3), (id * 7) % 11
+                + ((id % 2 == 0) ? 0 : 20));
+            _scores.add(score);
+            _em.persist(score);
+        }
+        _em.getTransaction().commit();
+        _em.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (_em != null)
+            _em.close();
+        if (_emf != null)
+            _emf.close();
+    }
+
+    private List<Integer> expectedOrder() {
+        return _scores.stream().sorted(Comparator.comparingInt(
+            Score::getPoints).thenComparingInt(Score::getId))
+            .map(Score::getId).collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(List<Score> scores) {
+        return scores.stream().map(Score::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOrderedQueryMergesSlices() {
+        List<Score> result = _em.createQuery(
+            "SELECT s FROM Score s ORDER BY s.points, s.id", Score.class)
+            .getResultList();
+        assertEquals(expectedOrder(), ids(result));
+    }
+
+    @Test
+    public void testPagesCoverAllRowsOnce() {
+        List<Integer> paged = new ArrayList<>();
+        for (int first = 0; first < _scores.size(); first += 4) {
+            List<Score> page = _em.createQuery(
+                "SELECT s FROM Score s ORDER BY s.points, s.id", Score.class)
+                .setFirstResult(first).setMaxResults(4).getResultList();
+            assertTrue(page.size() <= 4);
+            paged.addAll(ids(page));
+        }
+        assertEquals(expectedOrder(), paged);
+    }
+
+    @Test
+    public void testPageOfProjection() {
+        List<Integer> points = _em.createQuery(
+            "SELECT s.points FROM Score s ORDER BY s.points", Integer.class)
+            .setFirstResult(5).setMaxResults(6).getResultList();
+        List<Integer> expected = _scores.stream().map(Score::getPoints)
+            .sorted().skip(5).limit(6).collect(Collectors.toList());
+        assertEquals(expected, points);
+    }
+
+    @Test
+    public void testAverageCombinesSlices() {
+        double expected = _scores.stream().mapToDouble(Score::getRating)
+            .average().getAsDouble();
+        double ofSlices = (_scores.stream().filter(s -> s.getId() % 2 == 0)
+            .mapToDouble(Score::getRating).average().getAsDouble()
+            + _scores.stream().filter(s -> s.getId() % 2 == 1)
+            .mapToDouble(Score::getRating).average().getAsDouble()) / 2;
+        assertNotEquals(expected, ofSlices, 1e-3);
+
+        Number avg = (Number) _em.createQuery(
+            "SELECT AVG(s.rating) FROM Score s").getSingleResult();
+        assertEquals(expected, avg.doubleValue(), 1e-9);
+    }
+
+    @Test
+    public void testAverageOfIntegersHasFieldType() {
+        // as on a single database, the average of an integer field is
+        // truncated to the type of the field
+        int expected = _scores.stream().mapToInt(Score::getPoints).sum()
+            / _scores.size();
+        Number avg = (Number) _em.createQuery(
+            "SELECT AVG(s.points) FROM Score s").getSingleResult();
+        assertEquals(expected, avg.intValue());
+    }
+
+    @Test
+    public void testAverageWithOtherAggregates() {
+        Object[] row = (Object[]) _em.createQuery("SELECT COUNT(s), "
+            + "SUM(s.points), AVG(s.rating), MAX(s.points) FROM Score s "
+            + "WHERE s.id > 2").getSingleResult();
+        List<Score> matched = _scores.stream().filter(s -> s.getId() > 2)
+            .collect(Collectors.toList());
+        assertEquals(4, row.length);
+        assertEquals(matched.size(), ((Number) row[0]).intValue());
+        assertEquals(matched.stream().mapToInt(Score::getPoints).sum(),
+            ((Number) row[1]).intValue());
+        assertEquals(matched.stream().mapToDouble(Score::getRating).average()
+            .getAsDouble(), ((Number) row[2]).doubleValue(), 1e-9);
+        assertEquals(matched.stream().mapToInt(Score::getPoints).max()
+            .getAsInt(), ((Number) row[3]).intValue());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.tools.maven;
+
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
+import org.apache.openjpa.lib.conf.Configurations;
+import org.apache.openjpa.lib.util.Options;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.MetaDataSnapshot;
+
+/**
+ * Writes a prebuilt metadata snapshot of the persistence unit, which lets
+ * the persistence unit start without scanning for persistent types. Enable
+ * it at runtime with
+ * <code>openjpa.MetaDataRepository=Snapshot=META-INF/openjpa-metadata.snapshot</code>.
+ * Run this goal after the enhancer so that the snapshot sees the final
+ * classes.
+ *
+ * @since 4.1.2
+ */
+@Mojo(name="snapshot", defaultPhase=LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution=ResolutionScope.COMPILE,
+        threadSafe = true)
+public class OpenJpaSnapshotMojo extends AbstractOpenJpaMojo {
+
+    /**
+     * The file to write the snapshot to.
+     */
+    @Parameter(defaultValue="${project.build.outputDirectory}/" + MetaDataSnapshot.DEFAULT_RESOURCE)
+    protected File snapshotFile;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.apache.maven.plugin.Mojo#execute()
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skipMojo()) {
+            return;
+        }
+
+        extendRealmClasspath();
+        Options opts = getOptions();
+
+        JDBCConfiguration conf = new JDBCConfigurationImpl();
+        try {
+            Configurations.populateConfiguration(conf, opts);
+            MetaDataRepository repos = conf.newMetaDataRepositoryInstance();
+            MetaDataSnapshot snapshot = MetaDataSnapshot.capture(repos, true,
+                Thread.currentThread().getContextClassLoader());
+            snapshot.write(snapshotFile);
+            getLog().info("Wrote " + snapshot + " to " + snapshotFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write the metadata snapshot " + snapshotFile, e);
+        } finally {
+            conf.close();
+        }
+    }
+
+    /**
+     * @return Options filled with all necessary plugin parameters
+     */
+    @Override
+    protected Options getOptions() throws MojoExecutionException {
+        return createOptions();
+    }
+}